@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.subsystems;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Per-tick cost of the Limelight reads done by the vision commands'
+ * execute() (tv, tx, ty).  "lookupPerRead" resolves the table and each
+ * entry by name on every read, which is what Limelight used to do;
+ * "cachedEntries" reads through a Limelight, which resolves its entries
+ * once at construction.
+ * Uses a private NetworkTables instance, so it needs the desktop ntcore
+ * JNI library on java.library.path (GradleRIO's desktop natives).
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LimelightBenchmark {
+
+    private NetworkTableInstance m_inst;
+    private Limelight m_cam;
+
+    @Setup
+    public void setUp() {
+        m_inst = NetworkTableInstance.create();
+        m_cam = new Limelight(m_inst, Limelight.DEFAULT_TABLE);
+        m_cam.getEntry("tv").setNumber(1);
+        m_cam.getEntry("tx").setNumber(-3.5d);
+        m_cam.getEntry("ty").setNumber(4.25d);
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_inst.close();
+    }
+
+    @Benchmark
+    public void lookupPerRead(Blackhole bh) {
+        bh.consume(m_inst.getTable(Limelight.DEFAULT_TABLE).getEntry("tv").getDouble(0) == 1);
+        bh.consume(m_inst.getTable(Limelight.DEFAULT_TABLE).getEntry("tx").getDouble(0.00));
+        bh.consume(m_inst.getTable(Limelight.DEFAULT_TABLE).getEntry("ty").getDouble(0.00));
+    }
+
+    @Benchmark
+    public void cachedEntries(Blackhole bh) {
+        bh.consume(m_cam.isTarget());
+        bh.consume(m_cam.getTx());
+        bh.consume(m_cam.getTy());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.subsystems;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.util.Vec2d;
+
+/**
+ * Nav's angle conversions: gyro angle normalization (what getYaw() does
+ * with the raw gyro angle), yaw to and from field angles, and yaw to
+ * robot vector.
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NavAngleBenchmark {
+
+    private double m_angle;
+    private double m_yaw;
+
+    @Setup
+    public void setUp() {
+        m_angle = -1234.5d;
+        m_yaw = -150.0d;
+    }
+
+    @Benchmark
+    public double normalizeYaw() {
+        return Nav.normalizeYaw(m_angle);
+    }
+
+    @Benchmark
+    public double yawToFieldAngle() {
+        return Nav.yawToFieldAngle(m_yaw);
+    }
+
+    @Benchmark
+    public double fieldAngleToYaw() {
+        return Nav.fieldAngleToYaw(m_yaw);
+    }
+
+    @Benchmark
+    public Vec2d yawToVec() {
+        return Nav.yawToVec(m_yaw);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Distance from ty: table lookup against the toRadians/tan formula, over
+ * a spread of ty's across the field of view.
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DistanceTableBenchmark {
+
+    static final int N = 256;
+
+    private DistanceTable m_table;
+    private double[] m_tys;
+    private int m_next;
+
+    @Setup
+    public void setUp() {
+        m_table = new DistanceTable(10.5d, 20.0d, 34.125d, 41.0d);
+        m_tys = new double[N];
+        double span = m_table.getMaxTy() - m_table.getMinTy();
+        for (int i = 0; i < N; i++) {
+            m_tys[i] = m_table.getMinTy() + ((span * ((i * 97) % N)) / N);
+        }
+        m_next = 0;
+    }
+
+    private double nextTy() {
+        m_next = (m_next + 1) & (N - 1);
+        return m_tys[m_next];
+    }
+
+    @Benchmark
+    public double table() {
+        return m_table.getDistance(nextTy());
+    }
+
+    @Benchmark
+    public double exact() {
+        return m_table.exact(nextTy());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.subsystems.RobotModel;
+
+/**
+ * Planning a drive profile (once per command, in initialize()) and
+ * sampling it (every execute()).
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MotionProfileBenchmark {
+
+    private MotionProfile m_profile;
+    private double m_dist;
+    private double m_velocity;
+    private double m_t;
+
+    @Setup
+    public void setUp() {
+        m_dist = 120.0d;
+        m_velocity = 60.0d;
+        m_profile = RobotModel.planProfile(m_dist, m_velocity);
+        m_t = 0.0d;
+    }
+
+    @Benchmark
+    public MotionProfile plan() {
+        return RobotModel.planProfile(m_dist, m_velocity);
+    }
+
+    @Benchmark
+    public double samplePower() {
+        m_t += 0.0137d;
+        if (m_t > m_profile.getDuration()) {
+            m_t = 0.0d;
+        }
+        return m_profile.getPower(m_t);
+    }
+}
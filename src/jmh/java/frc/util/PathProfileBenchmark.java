@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.subsystems.RobotModel;
+
+/**
+ * Planning a route to target: building the spline path, and the
+ * velocity profile along it.  Both together must stay well under the
+ * 20 ms loop period on the roboRIO.
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathProfileBenchmark {
+
+    private Vec2d m_intercept;
+    private Vec2d m_normal;
+    private Path m_path;
+
+    @Setup
+    public void setUp() {
+        // A typical drive to a cargo ship bay from across the field
+        m_intercept = Vec2d.makeCart(40.0d, 100.0d);
+        m_normal = Vec2d.makeCart(0.0d, 12.0d);
+        m_path = Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, m_intercept, m_normal);
+    }
+
+    @Benchmark
+    public Path buildPath() {
+        return Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, m_intercept, m_normal);
+    }
+
+    @Benchmark
+    public PathProfile planProfile() {
+        return RobotModel.planPathProfile(m_path, RobotModel.maxVelocity);
+    }
+
+    @Benchmark
+    public PathProfile buildAndPlan() {
+        return RobotModel.planPathProfile(Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, m_intercept, m_normal),
+                                          RobotModel.maxVelocity);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import frc.subsystems.Limelight;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The full route calculation, as the vision commands run it, and the
+ * allocation-free variant.  Console output from the calculator (if any)
+ * is discarded so it doesn't flood the benchmark log, but the cost of
+ * formatting it is still measured.
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TargetCalculatorBenchmark {
+
+    private TargetCalculator m_calc;
+    private Vec2d m_robotVec;
+    private Vec2d m_camVec;
+    private Vec2d m_targNorm;
+    private MutableVec2d m_target;
+    private MutableVec2d m_intercept;
+    private MutableVec2d m_normal;
+    private double m_tx;
+    private PrintStream m_stdout;
+
+    @Setup
+    public void setUp() {
+        m_calc = new TargetCalculator(10.5d, 20.0d, Limelight.V_FOV);
+        m_robotVec = Vec2d.makePolar(1.0d, Math.toRadians(93.0d));
+        m_camVec = m_robotVec.getNormal().mulScalar(7.0d);
+        m_targNorm = Vec2d.makeCart(0.0d, -1.0d);
+        m_target = new MutableVec2d();
+        m_intercept = new MutableVec2d();
+        m_normal = new MutableVec2d();
+        m_tx = 5.0d;
+        m_stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(m_stdout);
+    }
+
+    @Benchmark
+    public RouteToTarget getRouteToTarget() {
+        return m_calc.getRouteToTarget(m_tx, 3.0d, m_robotVec, m_camVec, m_targNorm, 34.0d, 12.0d);
+    }
+
+    @Benchmark
+    public MutableVec2d getRouteToTargetInto() {
+        m_calc.getRouteToTarget(m_tx, 3.0d, m_robotVec, m_camVec, m_targNorm, 34.0d, 12.0d,
+                                m_target, m_intercept, m_normal);
+        return m_intercept;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * java.lang.Math vs. the Trig lookup tables, over the kinds of angles
+ * the nav and targeting code uses.
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TrigBenchmark {
+
+    static final int N = 1024;
+
+    private double[] m_angles;
+    private double[] m_xs;
+    private double[] m_ys;
+
+    @Setup
+    public void setUp() {
+        m_angles = new double[N];
+        m_xs = new double[N];
+        m_ys = new double[N];
+        for (int i = 0; i < N; i++) {
+            m_angles[i] = Math.toRadians(-180.0d + (360.0d * i) / N);
+            m_xs[i] = Math.cos(m_angles[i]) * (1 + i);
+            m_ys[i] = Math.sin(m_angles[i]) * (1 + i);
+        }
+    }
+
+    @Benchmark
+    public double mathSinCos() {
+        double sum = 0.0d;
+        for (int i = 0; i < N; i++) {
+            sum += Math.sin(m_angles[i]) + Math.cos(m_angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double tableSinCos() {
+        double sum = 0.0d;
+        for (int i = 0; i < N; i++) {
+            sum += Trig.tableSin(m_angles[i]) + Trig.tableCos(m_angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double mathTan() {
+        double sum = 0.0d;
+        for (int i = 0; i < N; i++) {
+            sum += Math.tan(m_angles[i] / 4.0d);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double tableTan() {
+        double sum = 0.0d;
+        for (int i = 0; i < N; i++) {
+            sum += Trig.tableTan(m_angles[i] / 4.0d);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double mathAtan2() {
+        double sum = 0.0d;
+        for (int i = 0; i < N; i++) {
+            sum += Math.atan2(m_ys[i], m_xs[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double tableAtan2() {
+        double sum = 0.0d;
+        for (int i = 0; i < N; i++) {
+            sum += Trig.tableAtan2(m_ys[i], m_xs[i]);
+        }
+        return sum;
+    }
+}
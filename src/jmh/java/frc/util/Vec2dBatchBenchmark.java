@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Transform a few thousand vectors (rotate into the robot frame, offset
+ * by the camera vector, take lengths) one Vec2d at a time vs. in bulk
+ * with a Vec2dBatch.
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Vec2dBatchBenchmark {
+
+    static final int N = 4096;
+
+    private Vec2d[] m_vecs;
+    private Vec2dBatch m_batch;
+    private double[] m_norms;
+    private Vec2d m_offset;
+    private double m_theta;
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(4169);
+        m_vecs = new Vec2d[N];
+        for (int i = 0; i < N; i++) {
+            m_vecs[i] = Vec2d.makeCart(rand.nextDouble() * 300.0d, rand.nextDouble() * 600.0d);
+        }
+        m_batch = new Vec2dBatch(N);
+        m_norms = new double[N];
+        m_offset = Vec2d.makeCart(7.0d, 0.0d);
+        m_theta = Math.toRadians(30.0d);
+    }
+
+    @Benchmark
+    public double[] objects() {
+        for (int i = 0; i < N; i++) {
+            Vec2d v = m_vecs[i];
+            Vec2d rotated = Vec2d.makePolar(v.getR(), v.getTheta() + m_theta);
+            m_norms[i] = rotated.sub(m_offset).getR();
+        }
+        return m_norms;
+    }
+
+    @Benchmark
+    public double[] batch() {
+        m_batch.clear();
+        for (int i = 0; i < N; i++) {
+            m_batch.append(m_vecs[i]);
+        }
+        m_batch.rotate(m_theta);
+        m_batch.sub(m_offset);
+        return m_batch.norm(m_norms);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The basic Vec2d operations.  Each allocates one Vec2d (except
+ * dotProduct), which shows up in gc.alloc.rate.norm; the MutableVec2d
+ * variants should allocate nothing.
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Vec2dBenchmark {
+
+    private Vec2d m_a;
+    private Vec2d m_b;
+    private MutableVec2d m_m;
+    private double m_x;
+    private double m_theta;
+
+    @Setup
+    public void setUp() {
+        m_a = Vec2d.makeCart(3.0d, 4.0d);
+        m_b = Vec2d.makePolar(2.0d, Math.toRadians(-119.0d));
+        m_m = new MutableVec2d();
+        m_x = -5.0d;
+        m_theta = Math.toRadians(61.0d);
+    }
+
+    @Benchmark
+    public Vec2d add() {
+        return m_a.add(m_b);
+    }
+
+    @Benchmark
+    public Vec2d sub() {
+        return m_a.sub(m_b);
+    }
+
+    @Benchmark
+    public Vec2d mulScalar() {
+        return m_a.mulScalar(-12.0d);
+    }
+
+    @Benchmark
+    public Vec2d negate() {
+        return m_a.negate();
+    }
+
+    @Benchmark
+    public Vec2d getNormal() {
+        return m_a.getNormal();
+    }
+
+    @Benchmark
+    public double dotProduct() {
+        return m_a.dotProduct(m_b);
+    }
+
+    @Benchmark
+    public Vec2d makePolar() {
+        return Vec2d.makePolar(2.0d, m_theta);
+    }
+
+    @Benchmark
+    public double freshPolarReads() {
+        // A new cartesian vector pays for hypot and atan2 once each
+        Vec2d v = Vec2d.makeCart(m_x, 12.0d);
+        return v.getR() + v.getTheta();
+    }
+
+    @Benchmark
+    public MutableVec2d mutableAddSubScale() {
+        return m_m.set(m_a).add(m_b).sub(m_a).mulScalar(-12.0d).normal();
+    }
+}
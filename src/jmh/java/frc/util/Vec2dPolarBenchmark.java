@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of the polar reads on the TargetCalculator path: the route vectors
+ * are built the way getRouteToTarget() builds them, then their r and theta
+ * are read twice each, as VectorDrive.setVector() and the route logging do.
+ * "uncached" recomputes hypot/atan2 on every read, which is what Vec2d
+ * used to do; "cached" uses the polar form Vec2d carries where it's known
+ * (the target vector here), and keeps once computed (the others).
+ * @author lwa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Vec2dPolarBenchmark {
+
+    private Vec2d m_robotVec;
+    private Vec2d m_camVec;
+    private Vec2d m_targNorm;
+    private double m_dist;
+    private double m_tx;
+
+    @Setup
+    public void setUp() {
+        m_robotVec = Vec2d.makePolar(1.0d, Math.toRadians(93.0d));
+        m_camVec = m_robotVec.getNormal().mulScalar(7.0d);
+        m_targNorm = Vec2d.makeCart(0.0d, -1.0d);
+        m_dist = 55.0d;
+        m_tx = Math.toRadians(5.0d);
+    }
+
+    @Benchmark
+    public void uncached(Blackhole bh) {
+        Vec2d target = Vec2d.makePolar(m_dist, Math.atan2(m_robotVec.getY(), m_robotVec.getX()) - m_tx);
+        Vec2d norm = m_targNorm.mulScalar(-12.0d);
+        Vec2d intercept = target.sub(norm).sub(m_camVec);
+        for (int read = 0; read < 2; read++) {
+            for (Vec2d v : new Vec2d[] { target, norm, intercept }) {
+                bh.consume(Math.hypot(v.getX(), v.getY()));
+                bh.consume(Math.atan2(v.getY(), v.getX()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void cached(Blackhole bh) {
+        Vec2d target = Vec2d.makePolar(m_dist, m_robotVec.getTheta() - m_tx);
+        Vec2d norm = m_targNorm.mulScalar(-12.0d);
+        Vec2d intercept = target.sub(norm).sub(m_camVec);
+        for (int read = 0; read < 2; read++) {
+            for (Vec2d v : new Vec2d[] { target, norm, intercept }) {
+                bh.consume(v.getR());
+                bh.consume(v.getTheta());
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.commands;
+
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import edu.wpi.first.wpilibj.command.Command;
+import frc.subsystems.DriveTrain;
+import frc.util.BinaryLogger;
+import frc.util.PlanExecutor;
+import frc.util.PlanHandle;
+
+/**
+ * Command to wait for a plan computed in the background by the
+ * PlanExecutor, then hand it off to the command that executes it.
+ * While waiting it either holds the drive train idle (stopped, but
+ * still fed so the motor safety doesn't trip), or leaves it alone so
+ * whatever the robot was doing carries on until the new plan takes over.
+ * If the plan takes longer than PLAN_TIMEOUT, or fails, nothing is
+ * handed off.
+ * The planner must be set by calling setPlanner() before start() is called.
+ */
+public class AwaitPlan<T> extends Command {
+
+  /**
+   * Longest we'll wait for a plan, in seconds
+   */
+  public static final double PLAN_TIMEOUT = 0.5d;
+
+  private final DriveTrain m_driveTrain;
+  private final boolean m_idle;
+  private final PlanExecutor m_executor;
+  private Callable<T> m_planner;
+  private Function<T, Command> m_handOff;
+  private PlanHandle<T> m_handle;
+
+  private static final BinaryLogger log = BinaryLogger.getInstance();
+  private static final int LOG_READY = log.register("AwaitPlan.ready", "latency");
+  private static final int LOG_FAILED = log.register("AwaitPlan.failed", "latency");
+  private static final int LOG_TIMEOUT = log.register("AwaitPlan.timeout");
+
+  /**
+   * Constructor
+   * @param driveTrain The drive train
+   * @param idle True to hold the drive train stopped while we wait; false
+   * to leave the current motion running (in which case we don't require
+   * the drive train)
+   */
+  public AwaitPlan(DriveTrain driveTrain, boolean idle) {
+    m_driveTrain = driveTrain;
+    m_idle = idle;
+    if (idle) {
+      requires(driveTrain);
+    }
+    m_executor = PlanExecutor.getInstance();
+    m_planner = null;
+    m_handOff = null;
+    m_handle = null;
+  }
+
+  /**
+   * Set the plan to wait for.  Must be called before this command is
+   * started!
+   * @param planner Computes the plan, on the planning thread; must not
+   * touch any subsystem
+   * @param handOff Given the plan, on the scheduler thread, returns the
+   * command to execute it (or null for none); that command is started
+   * as this one finishes
+   */
+  public void setPlanner(Callable<T> planner, Function<T, Command> handOff) {
+    m_planner = planner;
+    m_handOff = handOff;
+  }
+
+  // Called just before this Command runs each time.  Start planning.
+  @Override
+  protected void initialize() {
+    m_handle = m_executor.submit(m_planner);
+    setTimeout(PLAN_TIMEOUT);
+  }
+
+  // Called repeatedly when this Command is scheduled to run
+  @Override
+  protected void execute() {
+    if (m_idle) {
+      m_driveTrain.tankDrivePower(0.0d, 0.0d);
+    }
+  }
+
+  // Done when the plan is, or we give up on it
+  @Override
+  protected boolean isFinished() {
+    return m_handle.isDone() || isTimedOut();
+  }
+
+  // Called once after isFinished returns true.  Hand off the plan if
+  // we got one.
+  @Override
+  protected void end() {
+    if (!m_handle.isDone()) {
+      log.log(LOG_TIMEOUT);
+      m_handle.cancel();
+      return;
+    }
+    if (m_handle.isFailed()) {
+      log.log(LOG_FAILED, m_handle.getLatency());
+      return;
+    }
+    log.log(LOG_READY, m_handle.getLatency());
+    Command cmd = m_handOff.apply(m_handle.get());
+    if (cmd != null) {
+      cmd.start();
+    }
+  }
+
+  // Called when another command which requires one or more of the same
+  // subsystems is scheduled to run.  The plan is no longer wanted.
+  @Override
+  protected void interrupted() {
+    m_handle.cancel();
+  }
+}
@@ -29,30 +29,36 @@ import edu.wpi.first.wpilibj.command.Command;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 import frc.subsystems.DriveTrain;
+import frc.util.BinaryLogger;
 
 public class DriveLeftCommand extends Command {
 
   private DriveTrain m_driveTrain;
 
+  private static final BinaryLogger log = BinaryLogger.getInstance();
+  private static final int LOG_CONSTRUCT = log.register("DriveLeftCommand.construct", "timeout");
+  private static final int LOG_INIT = log.register("DriveLeftCommand.init");
+  private static final int LOG_EXEC = log.register("DriveLeftCommand.exec", "power");
+
   public DriveLeftCommand(double timeout, DriveTrain driveTrain) {
     // Use requires() here to declare subsystem dependencies
     // eg. requires(chassis);
     super(timeout, driveTrain);
     m_driveTrain = driveTrain;
-    System.out.println("DriveLeft const timeToRun " + timeout);
+    log.log(LOG_CONSTRUCT, timeout);
   }
 
   // Called just before this Command runs the first time
   @Override
   protected void initialize() {
-    System.out.println("DriveLeft init");
+    log.log(LOG_INIT);
   }
 
   // Called repeatedly when this Command is scheduled to run
   @Override
   protected void execute() {
     double power = SmartDashboard.getNumber("Drive Power", 0.2d);
-    System.out.println("DriveLeft drive at " + power);
+    log.log(LOG_EXEC, power);
     m_driveTrain.driveLeft(power);
   }
 
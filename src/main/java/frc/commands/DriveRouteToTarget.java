@@ -11,8 +11,17 @@ import edu.wpi.first.wpilibj.command.Command;
 import frc.subsystems.DriveTrain;
 import frc.subsystems.Nav;
 import frc.subsystems.Limelight;
-import frc.util.RouteToTarget;
+import frc.subsystems.LimelightFrame;
+import frc.subsystems.Odometry;
+import frc.subsystems.RobotModel;
+import frc.util.Path;
+import frc.util.PathProfile;
+import frc.util.BinaryLogger;
+import frc.util.FieldMap;
+import frc.util.FieldTarget;
+import frc.util.MutableVec2d;
 import frc.util.TargetCalculator;
+import frc.util.TargetEstimator;
 import frc.util.Vec2d;
 import frc.util.TargetVecMapper;
 
@@ -20,13 +29,32 @@ import frc.util.TargetVecMapper;
  * Command to determine a route to the target currently in
  * view by the Limelight camera, then drive the robot to
  * that target (if any).  Four steps:
- *  - Use the Limelight's vision pipeline to find the target
+ *  - Use the Limelight's vision pipeline to find the target, over
+ *    several frames (see TargetEstimator)
  *  - Use the target calculator to determine the route to the
  *    target (intercept vector and normal vector)
  *  - Drive the intercept vector to position the robot directly
  *    in front of the target and a known distance away
  *  - Drive the normal vector to position the robot perpendicular
  *    to and at the target
+ * The two drives are normally combined into one smooth path (a spline
+ * into the normal vector), followed without stopping by FollowPath.  The
+ * path is planned in the background (see AwaitPlan), with the robot
+ * held still, so that planning doesn't hold up the scheduler.  If that
+ * path would turn too tightly (e.g. the intercept point is beside or
+ * behind the robot), we fall back to turning and driving each vector
+ * in turn.
+ * Once the odometry knows where the robot is on the field (it's seeded
+ * with the start position at the start of autonomous), the target is
+ * the nearest one in view on the FieldMap, with its real height, and
+ * seeing it gives the odometry a vision fix; otherwise it's assumed to
+ * be a standard target.  The camera, the estimate and the route vectors
+ * are in Nav's frame (that of the heading history); the map and the
+ * path are in the odometry's, so we rotate between them by the
+ * odometry's heading offset.
+ * If the frames disagree too much to trust (confidence below
+ * MIN_CONFIDENCE) we don't drive on them, but start over with fresh
+ * frames, until the timeout.
  * Can time out if no target is visible.  Can abort if (e.g.) the
  * robot collides with another robot or other obstacle during the
  * trip.
@@ -38,33 +66,76 @@ public class DriveRouteToTarget extends Command {
   public static final double TIMEOUT = 5.0d;
   public static final double INTERCEPT_POWER = 0.4d;
   public static final double NORMAL_POWER = 0.2d;
+  public static final double PATH_VELOCITY = 48.0d;
+  public static final double MIN_CONFIDENCE = 0.5d;
 
   private final DriveTrain m_driveTrain;
   private final Nav m_nav;
   private final Limelight m_cam;
   private final TargetCalculator m_calc;
+  private final TargetEstimator m_estimator;
+  private final MutableVec2d m_target;
+  private final MutableVec2d m_intercept;
+  private final MutableVec2d m_normal;
   private final TwoVectorDrive m_driveCmd;
-  private Vec2d m_roboVec;
-  private Vec2d m_camVec;
+  private final FollowPath m_followCmd;
+  private final AwaitPlan<PathProfile> m_planCmd;
+  private final Odometry m_odometry;
+  private final double[] m_pose;
+  private final FieldMap m_field;
+  private FieldTarget m_fieldTarget;
+  private double m_offset;
   private Vec2d m_targNorm;
+  private double m_targHeight;
   private boolean m_seen;
+  private long m_lastSeq;
+
+  private static final BinaryLogger log = BinaryLogger.getInstance();
+  private static final int LOG_INIT = log.register("DriveRouteToTarget.init");
+  private static final int LOG_FIELD_TARGET = log.register("DriveRouteToTarget.fieldTarget",
+    "x", "y", "height");
+  private static final int LOG_TARGET = log.register("DriveRouteToTarget.target", "tx", "ty");
+  private static final int LOG_VISION_FIX = log.register("DriveRouteToTarget.visionFix", "used");
+  private static final int LOG_OUT_OF_RANGE = log.register("DriveRouteToTarget.outOfRange", "ty");
+  private static final int LOG_ESTIMATE = log.register("DriveRouteToTarget.estimate",
+    "frames", "spread", "confidence");
+  private static final int LOG_ROUTE = log.register("DriveRouteToTarget.route",
+    "interceptX", "interceptY", "normX", "normY");
+  private static final int LOG_DIRECT = log.register("DriveRouteToTarget.direct", "targetX", "targetY");
+  private static final int LOG_PATH = log.register("DriveRouteToTarget.path", "length", "maxCurvature");
+  private static final int LOG_LOW_CONFIDENCE = log.register("DriveRouteToTarget.lowConfidence",
+    "confidence");
+  private static final int LOG_FALLBACK = log.register("DriveRouteToTarget.fallback", "maxCurvature");
+  private static final int LOG_TIMEOUT = log.register("DriveRouteToTarget.timeout");
+  private static final int LOG_END = log.register("DriveRouteToTarget.end");
   
   /**
    * Constructor given the drive train and nav unit.
    * @param driveTrain The drive train used to drive the robot
    * @param nav The navigation unit used to provide feedback
    * control to drive the robot straight and turn to angle
+   * @param cam The camera
+   * @param odometry The odometry, for following a smooth path
    */
-  public DriveRouteToTarget(DriveTrain driveTrain, Nav nav, Limelight cam) {
+  public DriveRouteToTarget(DriveTrain driveTrain, Nav nav, Limelight cam, Odometry odometry) {
     super(nav);
     m_driveTrain = driveTrain;
     m_nav = nav;
     m_cam = cam;
-    m_calc = new TargetCalculator(Limelight.HEIGHT, Limelight.ANGLE_FROM_HORIZONTAL);
+    m_calc = new TargetCalculator(Limelight.HEIGHT, Limelight.ANGLE_FROM_HORIZONTAL, Limelight.V_FOV);
+    m_estimator = new TargetEstimator();
+    m_target = new MutableVec2d();
+    m_intercept = new MutableVec2d();
+    m_normal = new MutableVec2d();
 
     // Create the CommandGroup that we will use to do the actual driving,
     // once we've found the target
     m_driveCmd = new TwoVectorDrive(m_driveTrain, m_nav);
+    m_odometry = odometry;
+    m_followCmd = new FollowPath(m_driveTrain, m_nav, m_odometry);
+    m_planCmd = new AwaitPlan<>(m_driveTrain, true);
+    m_pose = new double[3];
+    m_field = FieldMap.getField();
 
     m_seen = false;
   }
@@ -75,57 +146,176 @@ public class DriveRouteToTarget extends Command {
   // calculator at this time.
   @Override
   protected void initialize() {
-    System.out.println("DriveRouteToTarget init");
-    m_roboVec = m_nav.getRobotVec();
-    m_camVec = m_cam.getCameraVector(m_roboVec);
-    m_targNorm = TargetVecMapper.getStdTargNorm(m_nav.getYaw());
+    log.log(LOG_INIT);
+    chooseTarget();
     m_seen = false;
+    m_lastSeq = -1;
+    m_estimator.reset();
     m_cam.visionMode();
 
     // If we don't find a target in the specified timeout, give up
     setTimeout(TIMEOUT);
   }
 
+  /**
+   * Decide which target we must be looking at.  If we know where we are
+   * on the field, it's the nearest one the camera can see; otherwise (or
+   * if the map has none in view) we fall back to guessing a standard
+   * target from our heading.
+   */
+  private void chooseTarget() {
+    m_fieldTarget = null;
+    m_offset = 0.0d;
+    if (m_odometry.isFieldRelative()) {
+      m_offset = m_odometry.getHeadingOffset();
+      Vec2d position = m_odometry.getFusedPosition();
+      m_fieldTarget = m_field.findNearestVisible(position.getX(), position.getY(),
+                                                 m_odometry.getHeading());
+    }
+    if (m_fieldTarget != null) {
+      log.log(LOG_FIELD_TARGET, m_fieldTarget.getPosition().getX(),
+              m_fieldTarget.getPosition().getY(), m_fieldTarget.getHeight());
+      // The map's normal is in the odometry's frame; the camera's in Nav's
+      m_targNorm = m_fieldTarget.getNormal().rotate(-m_offset);
+      m_targHeight = m_fieldTarget.getHeight();
+    } else {
+      m_targNorm = TargetVecMapper.getStdTargNorm(m_nav.getYaw());
+      m_targHeight = Limelight.targetHeight;
+    }
+  }
+
   // Called repeatedly when this Command is scheduled to run
   @Override
   protected void execute() {
 
+    // Read one consistent camera frame; if we've already looked at
+    // it (the camera runs slower than we do), wait for the next one.
+    LimelightFrame frame = m_cam.getFrame();
+    if (frame.getSeq() == m_lastSeq) {
+      return;
+    }
+    m_lastSeq = frame.getSeq();
+
     // It can take a while for the camera to 'lock onto' the target.
     // If no target lock yet, wait.  
-    if (!m_cam.isTarget()) {
+    if (!frame.isTarget()) {
       return;
     }
 
     // Got a target!  Calculate the route to it
-    m_seen = true;
-    double tx = m_cam.getTx();
-    double ty = m_cam.getTy();
+    double tx = frame.getTx();
+    double ty = frame.getTy();
+
+    log.log(LOG_TARGET, tx, ty);
 
-    System.out.println("Target at [" + tx + "," + ty + "]");
+    // A frame the calculator can't range (e.g. at or below the horizon,
+    // or too far away) would spoil the estimate, so skip it
+    if (Double.isNaN(m_calc.getTargetDistance(ty, m_targHeight))) {
+      log.log(LOG_OUT_OF_RANGE, ty);
+      return;
+    }
 
-    RouteToTarget rte = m_calc.getRouteToTarget(tx, ty, m_roboVec, m_camVec,
-        m_targNorm, Limelight.targetHeight, NORM_DIST);
+    // Gather frames until the estimate is ready, using the robot's
+    // heading when each frame was captured, not now
+    double captureTime = TargetCalculator.getCaptureTime(frame.getTimestamp(), frame.getTl());
+    m_estimator.add(captureTime, m_nav.getHeadingHistory().getHeading(captureTime), tx, ty);
+    if (!m_estimator.isReady()) {
+      return;
+    }
+    if (!m_estimator.getRoute(m_calc, Limelight.OFFSET_FROM_CENTER, m_targNorm,
+        m_targHeight, NORM_DIST, m_target, m_intercept, m_normal)) {
+      // The average of the frames is out of range too; start over
+      log.log(LOG_OUT_OF_RANGE, m_estimator.getTy());
+      m_estimator.reset();
+      return;
+    }
+    double confidence = m_estimator.getConfidence();
+    log.log(LOG_ESTIMATE, m_estimator.getCount(), m_estimator.getSpread(), confidence);
     
-    System.out.println("Intercept: " + rte.getInterceptVec());
-    System.out.println("Norm:" + rte.getNormalVec());
-    System.out.println("Target:" + rte.getTargetDirectVec());
+    log.log(LOG_ROUTE, m_intercept.getX(), m_intercept.getY(), m_normal.getX(), m_normal.getY());
+    log.log(LOG_DIRECT, m_target.getX(), m_target.getY());
+
+    // Don't drive anywhere on an estimate we don't trust; start over
+    // with fresh frames (the robot may have been turning) until we
+    // get one we do, or time out
+    if (confidence < MIN_CONFIDENCE) {
+      log.log(LOG_LOW_CONFIDENCE, confidence);
+      m_estimator.reset();
+      return;
+    }
+
+    // A map target at a known position is also a fix on where we are
+    if (m_fieldTarget != null) {
+      Vec2d camVec = m_cam.getCameraVector(Vec2d.makePolar(1.0d, m_estimator.getHeading()));
+      boolean used = m_odometry.addVisionFix(m_fieldTarget.getPosition(),
+          m_target.toVec2d().rotate(m_offset), camVec.rotate(m_offset));
+      log.log(LOG_VISION_FIX, used ? 1.0d : 0.0d);
+    }
+
+    // Plan one smooth path through both vectors in the background,
+    // holding the robot still until it's ready.  This happens once per
+    // run, so it's the one place here that allocates.
+    m_odometry.getPose(m_pose);
+    final double x = m_pose[0];
+    final double y = m_pose[1];
+    final double heading = m_pose[2];
+    final double offset = m_offset;
+    final Vec2d intercept = m_intercept.toVec2d();
+    final Vec2d normal = m_normal.toVec2d();
+    m_planCmd.setPlanner(() -> planPath(x, y, heading, offset, intercept, normal),
+                         profile -> handOff(profile, intercept, normal));
+    m_seen = true;
+    m_planCmd.start();
+  }
+
+  /**
+   * Plan the smooth path from the robot's pose through the intercept and
+   * normal vectors, on the planning thread.  The pose is the odometry's,
+   * which FollowPath tracks, so the (Nav-frame) vectors are rotated into
+   * its frame by the heading offset.
+   * @return The path's profile, or null if the path turns too tightly
+   * (or there's no smooth path at all)
+   */
+  private static PathProfile planPath(double x, double y, double heading, double offset,
+                                      Vec2d intercept, Vec2d normal) {
+    Path path = Path.fromRoute(x, y, heading, intercept.rotate(offset), normal.rotate(offset));
+    if (path == null) {
+      log.log(LOG_FALLBACK, Double.POSITIVE_INFINITY);
+      return null;
+    }
+    if (path.getMaxCurvature() > RobotModel.maxPathCurvature) {
+      log.log(LOG_FALLBACK, path.getMaxCurvature());
+      return null;
+    }
+    log.log(LOG_PATH, path.getLength(), path.getMaxCurvature());
+    return RobotModel.planPathProfile(path, PATH_VELOCITY);
+  }
+
+  /**
+   * Choose the command to drive the planned route
+   * @return FollowPath if we have a path, otherwise TwoVectorDrive
+   */
+  private Command handOff(PathProfile profile, Vec2d intercept, Vec2d normal) {
+    if (profile != null) {
+      m_followCmd.setPath(profile);
+      return m_followCmd;
+    }
 
-    // Set up and run the actual drive commands.  This will set
+    // Otherwise set up and run the turn-and-drive commands.  This will set
     // the angles and distances for the intercept and normal
     // vectors.  Note that we drive the normal vector at a different
     // (lower) power than the intercept vector, since it's the 'final
     // approach' to the target
-    m_driveCmd.setVectors(rte.getInterceptVec(), INTERCEPT_POWER,
-                          rte.getNormalVec(), NORMAL_POWER);
-    m_driveCmd.start();
+    m_driveCmd.setVectors(intercept, INTERCEPT_POWER, normal, NORMAL_POWER);
+    return m_driveCmd;
   }
 
   // Return true when this Command no longer needs to run execute() --
-  // either we've seen the target, or timed out trying to find one
+  // either we've planned a route to the target, or timed out trying
   @Override
   protected boolean isFinished() {
     if (isTimedOut()) {
-      System.out.println("GetRouteToTarget: timed out with no target seen");
+      log.log(LOG_TIMEOUT);
     }
     return m_seen || isTimedOut(); 
    }
@@ -134,7 +324,7 @@ public class DriveRouteToTarget extends Command {
   // driver mode.
   @Override
   protected void end() {
-    System.out.println("DriveRouteToTarget turning leds off");
+    log.log(LOG_END);
     m_cam.driverMode();
   }
 
@@ -12,22 +12,30 @@ import frc.subsystems.DriveTrain;
 import frc.subsystems.Nav;
 import frc.subsystems.CollisionDetector;
 import frc.subsystems.RobotModel;
+import frc.util.BinaryLogger;
+import frc.util.MotionProfile;
 
 /**
  * Command to drive the robot at a specified max velocity (units
  * per second) as straight as possible for as close to a specified
- * distance as possible.  This command uses an approximation to
- * a trapezoidal motion profile -- constant acceleration to the
- * specified velocity, constant velocity, then constant deceleration
- * back to zero -- to achieve the desired distance.  It uses the
- * RobotModel (which models approximately the behavior of the robot
- * drive train in response to power inputs) to determine how quickly
- * the robot can accelerate and delecerate; and it uses the nav
- * subsystem and encoders on the drive train (together with a PID
+ * distance as possible.  This command follows a trapezoidal motion
+ * profile -- constant acceleration to the specified velocity, constant
+ * velocity, then constant deceleration back to zero -- planned once by
+ * the RobotModel (which models approximately the behavior of the robot
+ * drive train in response to power inputs), and drives at the profile's
+ * feed-forward power for the time since the command started.  Profiles
+ * come from the RobotModel's cache, so repeated drives aren't re-planned.  It uses
+ * the nav subsystem and encoders on the drive train (together with a PID
  * controller) to drive the robot straight and control the actual drive
- * distance.  It also attempts to detect any collisions (with other robots
- * or field elements) that may occur during the drive, and to abort the
- * drive if a collision occurs.
+ * distance; if the profile ends short of the distance, it creeps the
+ * rest of the way.  It also attempts to detect any collisions (with
+ * other robots or field elements) that may occur during the drive, and
+ * to abort the drive if a collision occurs.
+ * In streamed mode (setStreamed(true)) the profile is instead executed
+ * by the Talons' motion-profile firmware, fed by a background thread, so
+ * its timing doesn't depend on the scheduler loop.  There's no gyro
+ * correction in that mode; the two sides follow the same profile on
+ * their encoders.
  */
 public class DriveStraightForDistance extends Command {
 
@@ -36,16 +44,27 @@ public class DriveStraightForDistance extends Command {
   private double distance;
   private double velocity;
   private boolean finished;
-  private int accelSteps;
-  private int runSteps, nSteps, nAccelSteps, nRunSteps;
+  private boolean streamed;
+  private MotionProfile profile;
 
-  private boolean triangularAccel;
+  /**
+   * Duration of each streamed profile point, in ms
+   */
+  public static final int PROFILE_POINT_MS = 10;
 
-  enum RunState {
-    eAccel, eRun, eDecel, eDone
-  }
+  /**
+   * Power to creep at if the profile ends short of the distance
+   */
+  static final double CREEP_POWER = RobotModel.startPower + RobotModel.powerPerStep;
 
-  private RunState runState;
+  private static final BinaryLogger log = BinaryLogger.getInstance();
+  private static final int LOG_PLAN = log.register("DriveStraightForDistance.plan",
+    "triangular", "peakVelocity", "duration", "steps");
+  private static final int LOG_BAD_VELOCITY = log.register("DriveStraightForDistance.badVelocity",
+    "velocity");
+  private static final int LOG_EXEC = log.register("DriveStraightForDistance.exec",
+    "time", "power", "dist", "planDist");
+  private static final int LOG_END = log.register("DriveStraightForDistance.end", "dist");
 
   /**
    * Constructor given the subsystems we depend on.
@@ -60,7 +79,8 @@ public class DriveStraightForDistance extends Command {
     this.distance = 0.0d;
     this.velocity = 0.0d;
     finished = false;
-    runState = RunState.eDone;
+    streamed = false;
+    profile = null;
   }
 
   /**
@@ -74,107 +94,71 @@ public class DriveStraightForDistance extends Command {
     velocity = vel;
   }
 
+  /**
+   * Select streamed (Talon motion-profile) or stepped (scheduler loop)
+   * execution.  Must be called before this command is started.
+   * @param s True to stream the profile to the Talons
+   */
+  public void setStreamed(boolean s) {
+    streamed = s;
+  }
+
   // Called just before this Command runs each time, as a
   // result of someone calling start() on the command (e.g.
   // from a button, or an enclosing command like VectorDrive).
-  // Must calculate the acceleration and run distances and 
-  // steps we're taking this time, based on the distance and
-  // velocity given us in setDistAndVel(), and set up the
-  // PID controller in the drive train for straight driving.
+  // Plans the profile for the distance and velocity given us in
+  // setDistAndVel(), and sets up the PID controller in the drive
+  // train for straight driving (or starts streaming the profile).
   @Override
   protected void initialize() {
-    finished = ((velocity <= 0) || (velocity > RobotModel.maxVelocity));
-
-    // assume trapezoid
-    accelSteps = (int) Math.ceil(velocity / RobotModel.velocityPerStep);
-
-    double accelDistance = RobotModel.calculateAccelDistance(accelSteps, RobotModel.velocityPerStep, RobotModel.secPerStep);
-
-    if ((2.0d * accelDistance) < distance) {
-      triangularAccel = false;
-    } else {
-
-      // This is the "triangular" (vs trapezoidal) case, where we don't
-      // have room to accelerate all the way to the full velocity.  In
-      // this case we're going to accelerate at a constant rate for half
-      // the distance, and decelerate at the same rate for the rest.
-      triangularAccel = true;
-      
-      accelDistance = Math.floor(distance / 2.0d);
-      accelSteps = (int) RobotModel.calculateAccelSteps(accelDistance, RobotModel.velocityPerStep, RobotModel.secPerStep);
-      accelDistance = RobotModel.calculateAccelDistance(accelSteps, RobotModel.velocityPerStep, RobotModel.secPerStep);
-    }
-
-    double runVelocity = accelSteps * RobotModel.velocityPerStep;
-    double runDistance = distance - (2 * accelDistance);
-    double runTime = runDistance / runVelocity;
-    runSteps = (int) Math.floor(runTime / RobotModel.secPerStep);
-    System.out.println("Triangular acceleration: " + Boolean.toString(triangularAccel));
-    System.out.println("rdist " + runDistance + " rtime " + runTime + " rsteps " + runSteps);
-    System.out.println("accSteps " + accelSteps + " accDist " + accelDistance);
-    nSteps = 0;
-    nAccelSteps = 0;
-    nRunSteps = 0;
-    runState = RunState.eAccel;
+    finished = ((velocity <= 0) || (velocity > RobotModel.maxVelocity) || (distance <= 0));
     if (finished) {
-      System.out.println("Drive straight for distance failed - velocity not legitimate");
+      log.log(LOG_BAD_VELOCITY, velocity);
       end();
+      return;
+    }
+
+    double dt = streamed ? (PROFILE_POINT_MS / 1000.0d) : RobotModel.secPerStep;
+    profile = RobotModel.getProfile(distance, velocity, dt);
+    log.log(LOG_PLAN, profile.isTriangular() ? 1.0d : 0.0d, profile.getPeakVelocity(),
+            profile.getDuration(), profile.size());
+
+    colDet.reinitialize();
+    driveTrain.zeroEncoders();
+    if (streamed) {
+      driveTrain.startMotionProfile(profile);
     } else {
-      colDet.reinitialize();
-      driveTrain.zeroEncoders();
       driveTrain.startDriveStraight();
     }
   }
 
   // Called repeatedly when this Command is scheduled to run.
-  // We're either accelerating, running at constant power, or
-  // decelerating (which includes the final "creep" to the target).
+  // Drive at the profile's power for the time since we started,
+  // or creep if the profile is done and we're not there yet.
   @Override
   protected void execute() {
     colDet.checkForCollision();
-    double motorPower;
-    if (nSteps == 0) {
-      motorPower = RobotModel.startPower;
-    } else {
-      motorPower = driveTrain.getCurrentPower();
-    }
-
-    nSteps++;
-    if (runState == RunState.eAccel) {
-      nAccelSteps++;
-      motorPower += RobotModel.powerPerStep;
-      if (motorPower > 1.0) {
-        motorPower = 1.0;
-      }
-      if (nAccelSteps >= accelSteps) {
-        runState = RunState.eRun;
-      }
-    } else if (runState == RunState.eRun) {
-      nRunSteps++;
-      if (nRunSteps >= runSteps) {
-        runState = RunState.eDecel;
-      }
-    } else if (runState == RunState.eDecel) {
-      if (motorPower > (RobotModel.startPower + RobotModel.powerPerStep)) {
-        motorPower -= RobotModel.powerPerStep;
-      }
-    } else if (runState == RunState.eDone) {
-      motorPower = 0.0;
+    if (streamed) {
+      driveTrain.followMotionProfile();
+      return;
     }
 
+    double t = timeSinceInitialized();
+    double motorPower = profile.isDone(t) ? CREEP_POWER : profile.getPower(t);
     double dist = driveTrain.getCurrentDistance();
     driveTrain.driveStraight(motorPower);
 
-    System.out.println("exec state " + runState.toString() + " setting power to " + motorPower + " at dist " + dist);
+    log.log(LOG_EXEC, t, motorPower, dist, profile.getPosition(t));
   }
 
-  
-
   // Make this return true when this Command no longer needs to run execute()
   // We're done if an error occurred during execute() or if we've reached
   // the desired distance!
   @Override
   protected boolean isFinished() {
+    if (streamed) {
+      return finished || driveTrain.isMotionProfileFinished();
+    }
     return finished || (driveTrain.getCurrentDistance() >= distance);
   }
 
@@ -182,8 +166,12 @@ public class DriveStraightForDistance extends Command {
   // Turn off the motors and the drive train's PID controller.
   @Override
   protected void end() {
-    System.out.println("Ending drive straight for distance at dist " + driveTrain.getCurrentDistance());
-    driveTrain.endDriveStraight();
+    log.log(LOG_END, driveTrain.getCurrentDistance());
+    if (streamed) {
+      driveTrain.endMotionProfile();
+    } else {
+      driveTrain.endDriveStraight();
+    }
   }
 
   // Called when another command which requires one or more of the same
@@ -0,0 +1,157 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.commands;
+
+import edu.wpi.first.wpilibj.command.Command;
+import frc.subsystems.CollisionDetector;
+import frc.subsystems.DriveTrain;
+import frc.subsystems.Nav;
+import frc.subsystems.Odometry;
+import frc.subsystems.RobotModel;
+import frc.util.BinaryLogger;
+import frc.util.Path;
+import frc.util.PathProfile;
+import frc.util.PurePursuit;
+
+/**
+ * Command to drive the robot along a smooth path without stopping,
+ * steering by pure pursuit on the odometry pose.  Speed follows a
+ * PathProfile -- the fastest the RobotModel allows at each point of the
+ * path, slowing for curves and to stop at the end -- and each side is
+ * driven at the feed-forward power for its wheel speed.  Like the other drive
+ * commands it aborts on a collision, and it gives up if it takes much
+ * longer than the profile says it should.
+ * The path must be set by calling setPath() before start() is called.
+ */
+public class FollowPath extends Command {
+
+  /**
+   * Lookahead distance for pure pursuit, in RobotModel units
+   */
+  public static final double LOOKAHEAD = 12.0d;
+
+  /**
+   * How close to the end of the path counts as there
+   */
+  public static final double END_TOLERANCE = 1.0d;
+
+  /**
+   * Slowest we'll drive before reaching the end, so we don't stall
+   * short of it
+   */
+  public static final double MIN_VELOCITY = 6.0d;
+
+  /**
+   * Time allowed beyond the profile's duration before we give up (e.g.
+   * pushed off the path, or stalled short of the end), in seconds
+   */
+  public static final double TIMEOUT_MARGIN = 2.0d;
+
+  private final DriveTrain m_driveTrain;
+  private final Odometry m_odometry;
+  private final CollisionDetector m_det;
+  private final double[] m_pose;
+  private final double[] m_wheels;
+  private PathProfile m_profile;
+  private PurePursuit m_pursuit;
+
+  private static final BinaryLogger log = BinaryLogger.getInstance();
+  private static final int LOG_START = log.register("FollowPath.start", "length", "maxCurvature", "duration");
+  private static final int LOG_EXEC = log.register("FollowPath.exec", "along", "curvature", "left", "right");
+  private static final int LOG_TIMEOUT = log.register("FollowPath.timeout");
+  private static final int LOG_END = log.register("FollowPath.end", "x", "y", "remaining");
+
+  /**
+   * Constructor given the subsystems we depend on
+   * @param driveTrain The robot's drive train
+   * @param nav The navigation subsystem
+   * @param odometry The odometry, for the robot's pose
+   */
+  public FollowPath(DriveTrain driveTrain, Nav nav, Odometry odometry) {
+    super(driveTrain);
+    requires(nav);
+    m_driveTrain = driveTrain;
+    m_odometry = odometry;
+    m_det = new CollisionDetector(nav);
+    m_pose = new double[3];
+    m_wheels = new double[2];
+    m_profile = null;
+  }
+
+  /**
+   * Set the path, planning its velocity profile.  Must be called before
+   * this command is started!
+   * @param path The path, in field coordinates
+   * @param velocity Top velocity, units per second
+   */
+  public void setPath(Path path, double velocity) {
+    setPath(RobotModel.planPathProfile(path, velocity));
+  }
+
+  /**
+   * Set an already planned path and profile.  Must be called before
+   * this command is started!
+   * @param profile The profile, and its path in field coordinates
+   */
+  public void setPath(PathProfile profile) {
+    m_profile = profile;
+  }
+
+  // Called just before this Command runs each time
+  @Override
+  protected void initialize() {
+    m_det.reinitialize();
+    Path path = m_profile.getPath();
+    m_pursuit = new PurePursuit(path, LOOKAHEAD);
+    setTimeout(m_profile.getDuration() + TIMEOUT_MARGIN);
+    log.log(LOG_START, path.getLength(), path.getMaxCurvature(), m_profile.getDuration());
+  }
+
+  // Called repeatedly when this Command is scheduled to run.
+  // Steer toward the lookahead point at the ramped velocity.
+  @Override
+  protected void execute() {
+    m_det.checkForCollision();
+    m_odometry.getPose(m_pose);
+    double curvature = m_pursuit.update(m_pose[0], m_pose[1], m_pose[2]);
+
+    // The profile starts from rest, so creep until it picks up
+    double v = Math.max(m_profile.getVelocityAt(m_pursuit.getDistanceAlong()), MIN_VELOCITY);
+
+    PurePursuit.wheelSpeeds(v, curvature, RobotModel.trackWidth, m_wheels);
+    double left = RobotModel.feedForwardPower(m_wheels[0]);
+    double right = RobotModel.feedForwardPower(m_wheels[1]);
+    m_driveTrain.tankDrivePower(left, right);
+    log.log(LOG_EXEC, m_pursuit.getDistanceAlong(), curvature, left, right);
+  }
+
+  // We're done when we reach (or pass) the end of the path, or
+  // have taken too long trying
+  @Override
+  protected boolean isFinished() {
+    if (isTimedOut()) {
+      log.log(LOG_TIMEOUT);
+      return true;
+    }
+    return m_pursuit.isDone(m_pose[0], m_pose[1], END_TOLERANCE);
+  }
+
+  // Called once after isFinished returns true
+  @Override
+  protected void end() {
+    log.log(LOG_END, m_pose[0], m_pose[1], m_pursuit.getRemaining());
+    m_driveTrain.tankDrivePower(0.0d, 0.0d);
+  }
+
+  // Called when another command which requires one or more of the same
+  // subsystems is scheduled to run
+  @Override
+  protected void interrupted() {
+    end();
+  }
+}
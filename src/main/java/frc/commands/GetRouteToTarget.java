@@ -10,8 +10,11 @@ package frc.commands;
 import edu.wpi.first.wpilibj.command.Command;
 import frc.subsystems.Nav;
 import frc.subsystems.Limelight;
-import frc.util.RouteToTarget;
+import frc.subsystems.LimelightFrame;
+import frc.util.MutableVec2d;
+import frc.util.BinaryLogger;
 import frc.util.TargetCalculator;
+import frc.util.TargetEstimator;
 import frc.util.Vec2d;
 import frc.util.TargetVecMapper;
 
@@ -23,17 +26,36 @@ public class GetRouteToTarget extends Command {
   private final Nav m_nav;
   private final Limelight m_cam;
   private final TargetCalculator m_calc;
-  private Vec2d m_roboVec;
-  private Vec2d m_camVec;
+  private final TargetEstimator m_estimator;
+  private final MutableVec2d m_target;
+  private final MutableVec2d m_intercept;
+  private final MutableVec2d m_normal;
   private Vec2d m_targNorm;
   private boolean m_seen;
+  private long m_lastSeq;
+
+  private static final BinaryLogger log = BinaryLogger.getInstance();
+  private static final int LOG_INIT = log.register("GetRouteToTarget.init");
+  private static final int LOG_TARGET = log.register("GetRouteToTarget.target", "tx", "ty");
+  private static final int LOG_OUT_OF_RANGE = log.register("GetRouteToTarget.outOfRange", "ty");
+  private static final int LOG_ESTIMATE = log.register("GetRouteToTarget.estimate",
+    "frames", "spread", "confidence");
+  private static final int LOG_ROUTE = log.register("GetRouteToTarget.route",
+    "interceptX", "interceptY", "normX", "normY");
+  private static final int LOG_DIRECT = log.register("GetRouteToTarget.direct", "targetX", "targetY");
+  private static final int LOG_TIMEOUT = log.register("GetRouteToTarget.timeout");
+  private static final int LOG_END = log.register("GetRouteToTarget.end");
   
 
   public GetRouteToTarget(Nav nav, Limelight cam) {
     super(nav);
     m_nav = nav;
     m_cam = cam;
-    m_calc = new TargetCalculator(Limelight.HEIGHT, Limelight.ANGLE_FROM_HORIZONTAL);
+    m_calc = new TargetCalculator(Limelight.HEIGHT, Limelight.ANGLE_FROM_HORIZONTAL, Limelight.V_FOV);
+    m_estimator = new TargetEstimator();
+    m_target = new MutableVec2d();
+    m_intercept = new MutableVec2d();
+    m_normal = new MutableVec2d();
 
     m_seen = false;
   }
@@ -41,11 +63,11 @@ public class GetRouteToTarget extends Command {
   // Called just before this Command runs the first time
   @Override
   protected void initialize() {
-    System.out.println("GetRouteToTarget init");
-    m_roboVec = m_nav.getRobotVec();
-    m_camVec = m_cam.getCameraVector(m_roboVec);
+    log.log(LOG_INIT);
     m_targNorm = TargetVecMapper.getStdTargNorm(m_nav.getYaw());
     m_seen = false;
+    m_lastSeq = -1;
+    m_estimator.reset();
     m_cam.visionMode();
     setTimeout(TIMEOUT);
   }
@@ -53,22 +75,47 @@ public class GetRouteToTarget extends Command {
   // Called repeatedly when this Command is scheduled to run
   @Override
   protected void execute() {
-    if (!m_cam.isTarget()) {
+    LimelightFrame frame = m_cam.getFrame();
+    if (frame.getSeq() == m_lastSeq) {
+      return;
+    }
+    m_lastSeq = frame.getSeq();
+    if (!frame.isTarget()) {
       return;
     }
 
-    m_seen = true;
-    double tx = m_cam.getTx();
-    double ty = m_cam.getTy();
+    double tx = frame.getTx();
+    double ty = frame.getTy();
 
-    System.out.println("Target at [" + tx + "," + ty + "]");
+    log.log(LOG_TARGET, tx, ty);
+
+    // A frame the calculator can't range (e.g. at or below the horizon,
+    // or too far away) would spoil the estimate, so skip it
+    if (Double.isNaN(m_calc.getTargetDistance(ty, Limelight.targetHeight))) {
+      log.log(LOG_OUT_OF_RANGE, ty);
+      return;
+    }
 
-    RouteToTarget rte = m_calc.getRouteToTarget(tx, ty, m_roboVec, m_camVec,
-        m_targNorm, Limelight.targetHeight, NORM_DIST);
+    // Gather frames until the estimate is ready, using the robot's
+    // heading when each frame was captured, not now
+    double captureTime = TargetCalculator.getCaptureTime(frame.getTimestamp(), frame.getTl());
+    m_estimator.add(captureTime, m_nav.getHeadingHistory().getHeading(captureTime), tx, ty);
+    if (!m_estimator.isReady()) {
+      return;
+    }
+    if (!m_estimator.getRoute(m_calc, Limelight.OFFSET_FROM_CENTER, m_targNorm,
+        Limelight.targetHeight, NORM_DIST, m_target, m_intercept, m_normal)) {
+      // The average of the frames is out of range too; start over
+      log.log(LOG_OUT_OF_RANGE, m_estimator.getTy());
+      m_estimator.reset();
+      return;
+    }
+    m_seen = true;
+    log.log(LOG_ESTIMATE, m_estimator.getCount(), m_estimator.getSpread(),
+            m_estimator.getConfidence());
     
-    System.out.println("Intercept: " + rte.getInterceptVec().toPolarString());
-    System.out.println("Norm:" + rte.getNormalVec().toPolarString());
-    System.out.println("Target:" + rte.getTargetDirectVec().toPolarString());
+    log.log(LOG_ROUTE, m_intercept.getX(), m_intercept.getY(), m_normal.getX(), m_normal.getY());
+    log.log(LOG_DIRECT, m_target.getX(), m_target.getY());
 
 
   }
@@ -77,7 +124,7 @@ public class GetRouteToTarget extends Command {
   @Override
   protected boolean isFinished() {
     if (isTimedOut()) {
-      System.out.println("GetRouteToTarget: timed out with no target seen");
+      log.log(LOG_TIMEOUT);
     }
     return m_seen || isTimedOut(); 
    }
@@ -85,7 +132,7 @@ public class GetRouteToTarget extends Command {
   // Called once after isFinished returns true
   @Override
   protected void end() {
-    System.out.println("GetRouteToTarget turning leds off");
+    log.log(LOG_END);
     m_cam.driverMode();
   }
 
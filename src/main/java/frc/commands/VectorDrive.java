@@ -8,6 +8,7 @@
 package frc.commands;
 
 import edu.wpi.first.wpilibj.command.CommandGroup;
+import frc.robot.RobotMap;
 import frc.subsystems.DriveTrain;
 import frc.subsystems.Nav;
 import frc.util.Vec2d;
@@ -31,6 +32,7 @@ public class VectorDrive extends CommandGroup {
   public VectorDrive(DriveTrain driveTrain, Nav nav) {
     m_turnCmd = new TurnToAngleCommand(driveTrain, nav);
     m_driveCmd = new DriveStraightForDistance(driveTrain, nav);
+    m_driveCmd.setStreamed(RobotMap.streamDriveProfiles);
     addSequential(m_turnCmd);
     addSequential(m_driveCmd);
   }
@@ -21,6 +21,11 @@ import frc.util.Vec2d;
  */
 public class VectorDriveFromDash extends Command {
 
+  // Dashboard defaults
+  public static final double DEFAULT_DIST = 24.0d;
+  public static final double DEFAULT_ANGLE = 90.0d;
+  public static final double DEFAULT_VEL = 24.0d;
+
   private VectorDrive m_vecDriveCmd;
 
   /**
@@ -39,9 +44,9 @@ public class VectorDriveFromDash extends Command {
   @Override
   protected void initialize() {
     // Get the desired angle, distance, and velocity from the dashboard
-    double dist = SmartDashboard.getNumber("Drive Dist", 24.0);
-    double angle = SmartDashboard.getNumber("Drive Angle", 90.0);
-    double vel = SmartDashboard.getNumber("Drive Vel", 24.0);
+    double dist = SmartDashboard.getNumber("Drive Dist", DEFAULT_DIST);
+    double angle = SmartDashboard.getNumber("Drive Angle", DEFAULT_ANGLE);
+    double vel = SmartDashboard.getNumber("Drive Vel", DEFAULT_VEL);
     Vec2d vec = Vec2d.makePolar(dist, Math.toRadians(angle));
 
     // Tell the vector driver what to do
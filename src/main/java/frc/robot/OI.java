@@ -30,6 +30,7 @@ import edu.wpi.first.wpilibj.buttons.JoystickButton;
 import frc.subsystems.DriveTrain;
 import frc.subsystems.Limelight;
 import frc.subsystems.Nav;
+import frc.subsystems.Odometry;
 import frc.commands.DriveLeftCommand;
 import frc.commands.DriveRightCommand;
 import frc.commands.DriveStraightCommand;
@@ -68,6 +69,7 @@ public class OI {
     Nav nav = m_robot.getNav();
     DriveTrain dtr = m_robot.getDriveTrain();
     Limelight cam = m_robot.getCam();
+    Odometry odometry = m_robot.getOdometry();
 
     m_drivePower = SmartDashboard.getNumber("Drive Power", m_drivePower);
     m_maxTime = SmartDashboard.getNumber("Max Time", m_maxTime);
@@ -83,14 +85,14 @@ public class OI {
     aBut.whenPressed(new VectorDriveFromDash(dtr, nav));
     bBut.whenPressed(new ResetGyroCommand(nav));
     yBut.whenPressed(new GetRouteToTarget(nav, cam));
-    aBut.whenPressed(new DriveRouteToTarget(dtr, nav, cam));
+    aBut.whenPressed(new DriveRouteToTarget(dtr, nav, cam, odometry));
     xBut.whenPressed(m_abortCmd);
     SmartDashboard.putData("Drive Left", new DriveLeftCommand(m_maxTime, dtr));
     SmartDashboard.putData("Drive Right", new DriveRightCommand(m_maxTime, dtr));
     SmartDashboard.putData("DriveStraight", new DriveStraightCommand(m_maxTime, dtr));
     SmartDashboard.putData("Route", new GetRouteToTarget(nav, cam));
     SmartDashboard.putData("RocketRte", new GetRouteToRocketTarget(nav, cam));
-    SmartDashboard.putData("Drive to Target", new DriveRouteToTarget(dtr, nav, cam));
+    SmartDashboard.putData("Drive to Target", new DriveRouteToTarget(dtr, nav, cam, odometry));
     SmartDashboard.putData("Vector Drive", new VectorDriveFromDash(dtr, nav));
     SmartDashboard.putData("Reset gyro", new ResetGyroCommand(nav));
 
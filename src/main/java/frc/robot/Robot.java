@@ -24,15 +24,30 @@
 
 package frc.robot;
 
+import java.io.File;
+import java.io.IOException;
+
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.ADXRS450_Gyro;
 import edu.wpi.first.wpilibj.command.Scheduler;
 
+import frc.commands.DriveRouteToTarget;
+import frc.commands.VectorDriveFromDash;
 import frc.subsystems.DriveTrain;
 import frc.subsystems.Nav;
 import frc.subsystems.Limelight;
+import frc.subsystems.Odometry;
+import frc.subsystems.RobotModel;
+import frc.subsystems.RobotState;
+import frc.subsystems.StatusFrameManager;
+import frc.util.BinaryLogger;
+import frc.util.FieldMap;
+import frc.util.MotionProfileCache;
+import frc.util.PlanExecutor;
+import frc.util.TargetVecMapper;
+import frc.util.Trig;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -46,9 +61,12 @@ public class Robot extends TimedRobot {
   private static final String kCustomAuto = "My Auto";
   private String m_autoSelected;
   private final SendableChooser<String> m_chooser = new SendableChooser<>();
+  private final SendableChooser<StartPosition> m_startChooser = new SendableChooser<>();
   private DriveTrain m_driveTrain;
   private OI m_oi;
   private Nav m_nav;
+  private Odometry m_odometry;
+  private final RobotState m_state = new RobotState();
   private Limelight m_cam;
 
   /**
@@ -57,15 +75,39 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotInit() {
+    Trig.setUseTables(RobotMap.useTrigTables);
+    // Load (and validate) the target normals and field map now, not on
+    // first sight of a target
+    TargetVecMapper.getRegistry();
+    FieldMap.getField();
+    try {
+      BinaryLogger.getInstance().start(new File(RobotMap.logDir,
+        "robot-" + System.currentTimeMillis() + ".bin"));
+    } catch (IOException e) {
+      System.out.println("Binary logging disabled: " + e);
+    }
     m_chooser.setDefaultOption("Default Auto", kDefaultAuto);
     m_chooser.addOption("My Auto", kCustomAuto);
     SmartDashboard.putData("Auto choices", m_chooser);
+    m_startChooser.setDefaultOption(StartPosition.eUnknown.getName(), StartPosition.eUnknown);
+    for (StartPosition start : StartPosition.values()) {
+      if (start.isKnown()) {
+        m_startChooser.addOption(start.getName(), start);
+      }
+    }
+    SmartDashboard.putData("Start position", m_startChooser);
     ADXRS450_Gyro gyro = new ADXRS450_Gyro();
     m_nav = new Nav(gyro);
     m_driveTrain = new DriveTrain(m_nav);
+    m_odometry = new Odometry(m_driveTrain, m_nav);
     m_cam = new Limelight();
     m_cam.driverMode();
 
+    // From now on subsystems read the per-cycle snapshot
+    m_nav.setRobotState(m_state);
+    m_driveTrain.setRobotState(m_state);
+    m_cam.setRobotState(m_state);
+
     m_oi = new OI(this);
   }
 
@@ -78,10 +120,18 @@ public class Robot extends TimedRobot {
   public void disabledInit() {
     System.out.println("Running disabledInit");
     Scheduler.getInstance().removeAll();
+    m_driveTrain.setStatusFrameProfile(StatusFrameManager.Profile.eDisabled);
    }
 
   @Override
   public void disabledPeriodic() {
+    captureState();
+
+    // Plan the drives we make most often while there's time to spare
+    RobotModel.prewarmProfile(DriveRouteToTarget.NORM_DIST, DriveRouteToTarget.NORMAL_POWER,
+                              RobotModel.secPerStep);
+    RobotModel.prewarmProfile(VectorDriveFromDash.DEFAULT_DIST, VectorDriveFromDash.DEFAULT_VEL,
+                              RobotModel.secPerStep);
   }
 
 
@@ -98,6 +148,14 @@ public class Robot extends TimedRobot {
     double yaw = m_nav.getYaw();
     SmartDashboard.putNumber("Yaw", yaw);
     SmartDashboard.putNumber("Angle", Nav.yawToFieldAngle(yaw));
+    SmartDashboard.putNumber("Hardware Reads/Cycle", m_state.getReadsLastCycle());
+    SmartDashboard.putNumber("CAN Util (est)", m_driveTrain.getCanUtilization());
+    MotionProfileCache cache = RobotModel.getProfileCache();
+    SmartDashboard.putNumber("Profile Cache Hits", cache.getHits());
+    SmartDashboard.putNumber("Profile Cache Misses", cache.getMisses());
+    PlanExecutor planner = PlanExecutor.getInstance();
+    SmartDashboard.putNumber("Plan Latency (ms)", planner.getLastLatency() * 1000.0d);
+    SmartDashboard.putNumber("Plan Latency Max (ms)", planner.getMaxLatency() * 1000.0d);
    }
 
   /**
@@ -116,6 +174,14 @@ public class Robot extends TimedRobot {
     m_autoSelected = m_chooser.getSelected();
     // m_autoSelected = SmartDashboard.getString("Auto Selector", kDefaultAuto);
     System.out.println("Auto selected: " + m_autoSelected);
+
+    // Tell the odometry where we're starting, so that it (and the
+    // commands using the FieldMap) are field-relative from here on
+    StartPosition start = m_startChooser.getSelected();
+    if ((start != null) && start.isKnown()) {
+      m_odometry.reset(start.getPosition(), start.getHeading());
+    }
+    m_driveTrain.setStatusFrameProfile(StatusFrameManager.Profile.eAuto);
   }
 
   /**
@@ -123,6 +189,7 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void autonomousPeriodic() {
+    captureState();
     switch (m_autoSelected) {
       case kCustomAuto:
         // Put custom auto code here
@@ -135,11 +202,20 @@ public class Robot extends TimedRobot {
     Scheduler.getInstance().run();
   }
 
+  /**
+   * This function is called once each time the robot enters teleop mode.
+   */
+  @Override
+  public void teleopInit() {
+    m_driveTrain.setStatusFrameProfile(StatusFrameManager.Profile.eTeleop);
+  }
+
   /**
    * This function is called periodically during operator control.
    */
   @Override
   public void teleopPeriodic() {
+    captureState();
     Scheduler.getInstance().run();
   }
 
@@ -149,6 +225,7 @@ public class Robot extends TimedRobot {
   @Override
   public void testInit() {
     System.out.println("Running testInit");
+    m_driveTrain.setStatusFrameProfile(StatusFrameManager.Profile.eTeleop);
   }
 
 
@@ -157,9 +234,18 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void testPeriodic() {
+    captureState();
     Scheduler.getInstance().run();
   }
 
+  /**
+   * Take this cycle's sensor snapshot; must be the first thing
+   * each mode's periodic function does
+   */
+  private void captureState() {
+    m_state.capture(m_nav, m_driveTrain, m_cam);
+  }
+
   public DriveTrain getDriveTrain() {
     return m_driveTrain;
   }
@@ -172,6 +258,10 @@ public class Robot extends TimedRobot {
     return m_nav;
   }
 
+  public Odometry getOdometry() {
+    return m_odometry;
+  }
+
   public Limelight getCam() {
     return m_cam;
   }
@@ -42,4 +42,17 @@ public class RobotMap {
     public static boolean rightFrontInvert = true;
     public static boolean leftBackInvert = false;
     public static boolean leftFrontInvert = false;
+
+    // True to use the interpolated trig tables (frc.util.Trig) for the
+    // nav and targeting math instead of java.lang.Math
+    public static boolean useTrigTables = false;
+
+    // True to have VectorDrive stream its straight drives to the Talons'
+    // motion-profile firmware (DriveStraightForDistance.setStreamed())
+    // instead of stepping them in the scheduler loop.  Off by default:
+    // streamed drives have no gyro correction.
+    public static boolean streamDriveProfiles = false;
+
+    // Directory for the binary event logs (frc.util.BinaryLogger)
+    public static String logDir = "/home/lvuser/logs";
 }
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.robot;
+
+import frc.util.Vec2d;
+
+/**
+ * Where the robot can start a match, chosen on the dashboard, for seeding
+ * the Odometry so that commands can find targets on the FieldMap.
+ * Positions and headings are in the FieldMap's frame (see field.csv): x
+ * toward the red wall, y to the left as seen from the blue side (which is
+ * also what left and right mean here, for either alliance).  The robot
+ * starts on HAB level 1 facing the far wall.  Positions are only good to
+ * a few inches, which vision fixes soon correct; the heading is what
+ * matters, since the odometry keeps it from then on.
+ * @author lwa
+ */
+public enum StartPosition {
+  eUnknown("Unknown (don't seed)", Double.NaN, Double.NaN, Double.NaN),
+  eBlueLeft("Blue Left", 66.0d, 206.0d, 0.0d),
+  eBlueCenter("Blue Center", 66.0d, 162.0d, 0.0d),
+  eBlueRight("Blue Right", 66.0d, 118.0d, 0.0d),
+  eRedLeft("Red Left", 582.0d, 206.0d, 180.0d),
+  eRedCenter("Red Center", 582.0d, 162.0d, 180.0d),
+  eRedRight("Red Right", 582.0d, 118.0d, 180.0d);
+
+  private final String m_name;
+  private final double m_x;
+  private final double m_y;
+  private final double m_heading;
+
+  private StartPosition(String name, double x, double y, double heading) {
+    m_name = name;
+    m_x = x;
+    m_y = y;
+    m_heading = heading;
+  }
+
+  /**
+   * Name to show on the dashboard
+   * @return The name
+   */
+  public String getName() {
+    return m_name;
+  }
+
+  /**
+   * Do we know this position (i.e. is it not eUnknown)?
+   * @return True iff the position and heading are known
+   */
+  public boolean isKnown() {
+    return !Double.isNaN(m_heading);
+  }
+
+  /**
+   * Field position of the robot's center
+   * @return The position, in inches
+   */
+  public Vec2d getPosition() {
+    return Vec2d.makeCart(m_x, m_y);
+  }
+
+  /**
+   * Field heading of the robot
+   * @return Heading in radians
+   */
+  public double getHeading() {
+    return Math.toRadians(m_heading);
+  }
+}
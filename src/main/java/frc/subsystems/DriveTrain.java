@@ -36,6 +36,8 @@ import com.ctre.phoenix.motorcontrol.NeutralMode;
 
 import frc.robot.RobotMap;
 import frc.subsystems.RobotModel;
+import frc.util.BinaryLogger;
+import frc.util.MotionProfile;
 
 
 /**
@@ -58,6 +60,20 @@ public class DriveTrain extends Subsystem implements PIDOutput {
   private double m_rotateToAngleRate;       // communication between pid control and rotator
   private double m_kTargetAngleDegrees; // angle we're turning to, if any
 
+  // Encoder positions at the last zeroEncoders(); the Talons' own
+  // positions are never reset, so odometry can keep integrating them
+  private volatile double m_leftZero;
+  private volatile double m_rightZero;
+
+  private RobotState m_state;
+  private final StatusFrameManager m_statusFrames;
+  private final MotionProfileStreamer m_profileStreamer;
+
+  private static final BinaryLogger log = BinaryLogger.getInstance();
+  private static final int LOG_START_TURN = log.register("DriveTrain.startTurn", "degrees", "yaw");
+  private static final int LOG_END_TURN = log.register("DriveTrain.endTurn", "yaw");
+  private static final int LOG_START_STRAIGHT = log.register("DriveTrain.startStraight", "yaw");
+
   static double kP = 0.025;
   static double kI = 0.00;
   static double kD = 0.1;
@@ -66,6 +82,14 @@ public class DriveTrain extends Subsystem implements PIDOutput {
   static final double kToleranceSpeed = 200; 
   static public final double kEncoderUnitsPerRevolution = 1440; 
   public final static int kTimeoutMs = 30;
+
+  // Talon closed-loop gains (slot 0) for motion profiles.  kF maps the
+  // velocity at full power to full output (1023).
+  static final double kSensorUnitsPerUnit = kEncoderUnitsPerRevolution / RobotModel.distancePerRevolution;
+  static final double kMpF = 1023.0d / ((RobotModel.maxVelocity * kSensorUnitsPerUnit) / 10.0d);
+  static final double kMpP = 0.2d;
+  static final double kMpI = 0.0d;
+  static final double kMpD = 0.0d;
    
   // For now, limit max voltage to motors to limit damage
   public double PEAK_OUTPUT = 1.0d;
@@ -94,6 +118,24 @@ public class DriveTrain extends Subsystem implements PIDOutput {
     m_rightBack.configPeakOutputReverse(-PEAK_OUTPUT);
     m_leftBack.setSensorPhase(true);
     m_rightBack.setSensorPhase(false);
+
+    // Only send the status frames we actually read
+    m_statusFrames = new StatusFrameManager();
+    m_statusFrames.addController(m_leftBack::setStatusFramePeriod);
+    m_statusFrames.addController(m_rightBack::setStatusFramePeriod);
+    m_statusFrames.apply(StatusFrameManager.Profile.eDisabled);
+
+    // Motion profiles run in slot 0, with each point's own duration
+    for (WPI_TalonSRX talon : new WPI_TalonSRX[] { m_leftBack, m_rightBack }) {
+      talon.config_kF(0, kMpF, kTimeoutMs);
+      talon.config_kP(0, kMpP, kTimeoutMs);
+      talon.config_kI(0, kMpI, kTimeoutMs);
+      talon.config_kD(0, kMpD, kTimeoutMs);
+      talon.selectProfileSlot(0, 0);
+      talon.configMotionProfileTrajectoryPeriod(0, kTimeoutMs);
+    }
+    m_profileStreamer = new MotionProfileStreamer(MotionProfileTalon.forTalon(m_leftBack),
+                                                  MotionProfileTalon.forTalon(m_rightBack));
     
     m_leftGroup = new SpeedControllerGroup(m_leftBack, m_leftFront);
     m_rightGroup = new SpeedControllerGroup(m_rightBack, m_rightFront);
@@ -117,6 +159,73 @@ public class DriveTrain extends Subsystem implements PIDOutput {
   }
 
 
+  /**
+   * Set the Talons' status frame periods for a robot mode
+   * @param profile The mode's profile
+   */
+  public void setStatusFrameProfile(StatusFrameManager.Profile profile) {
+    m_statusFrames.apply(profile);
+  }
+
+  /**
+   * Estimated CAN bus utilization of the drive Talons
+   * @return Utilization, 0..1
+   */
+  public double getCanUtilization() {
+    return m_statusFrames.estimateUtilization();
+  }
+
+  /**
+   * Answer sensor getters from a per-cycle snapshot instead of the Talons
+   * @param state The snapshot, or null to read the Talons directly
+   */
+  public void setRobotState(RobotState state) {
+    m_state = state;
+  }
+
+  void captureState(RobotState state) {
+    state.setDriveTrain(readLeftPosition(), readRightPosition(),
+        readLeftVelocity(), readRightVelocity(), m_leftGroup.get(), m_rightGroup.get());
+  }
+
+  // Raw Talon reads from the main thread; each is counted
+
+  private int readLeftPosition() {
+    RobotState.countHardwareRead();
+    return m_leftBack.getSelectedSensorPosition();
+  }
+
+  private int readRightPosition() {
+    RobotState.countHardwareRead();
+    return m_rightBack.getSelectedSensorPosition();
+  }
+
+  private int readLeftVelocity() {
+    RobotState.countHardwareRead();
+    return m_leftBack.getSelectedSensorVelocity();
+  }
+
+  private int readRightVelocity() {
+    RobotState.countHardwareRead();
+    return m_rightBack.getSelectedSensorVelocity();
+  }
+
+  private int getLeftPosition() {
+    return (m_state != null) ? m_state.getLeftPosition() : readLeftPosition();
+  }
+
+  private int getRightPosition() {
+    return (m_state != null) ? m_state.getRightPosition() : readRightPosition();
+  }
+
+  private int getLeftVelocity() {
+    return (m_state != null) ? m_state.getLeftVelocity() : readLeftVelocity();
+  }
+
+  private int getRightVelocity() {
+    return (m_state != null) ? m_state.getRightVelocity() : readRightVelocity();
+  }
+
   @Override
   public void initDefaultCommand() {
     // Set the default command for a subsystem here.
@@ -166,6 +275,16 @@ public class DriveTrain extends Subsystem implements PIDOutput {
     m_drive.tankDrive(leftPower, rightPower);
   }
 
+  /**
+   * Tank drive at exactly the specified motor powers (tankDrive()
+   * squares them, for joystick feel); for feed-forward control
+   * @param leftPower Power to left side
+   * @param rightPower power to right side
+   */
+  public void tankDrivePower(double leftPower, double rightPower) {
+    m_drive.tankDrive(leftPower, rightPower, false);
+  }
+
   public double getCurrentPower() {
     // Used in driveStraight primarily; use the greater of the two
     // motors
@@ -174,15 +293,55 @@ public class DriveTrain extends Subsystem implements PIDOutput {
     return(Math.abs(leftPower) > Math.abs(rightPower) ? leftPower : rightPower);
   }
 
+  /**
+   * Make the current position distance 0 for getCurrentDistance().
+   * Done in software: resetting the Talons' sensor positions would
+   * only take effect a status frame later, and would disturb odometry.
+   */
   public void zeroEncoders() {
-      m_leftBack.getSensorCollection().setQuadraturePosition(0, kTimeoutMs);
-      m_rightBack.getSensorCollection().setQuadraturePosition(0, kTimeoutMs);
+      m_leftZero = getLeftPosition();
+      m_rightZero = getRightPosition();
     }
 
+  /**
+   * Distance the robot's center has driven since zeroEncoders()
+   * @return Distance in RobotModel units
+   */
   public double getCurrentDistance() {
-    double avgUnits = (double) m_leftBack.getSelectedSensorPosition() + (double) m_rightBack.getSelectedSensorPosition() / 2.0d;
+    return centerDistance(getLeftPosition() - m_leftZero, getRightPosition() - m_rightZero);
+  }
+
+  /**
+   * Distance driven by the robot's center -- the average of the two
+   * sides -- given the encoder units each side has driven
+   * @param leftUnits Left side's travel, in encoder units
+   * @param rightUnits Right side's travel, in encoder units
+   * @return Distance in RobotModel units
+   */
+  static double centerDistance(double leftUnits, double rightUnits) {
+    double avgUnits = (leftUnits + rightUnits) / 2.0d;
     return (RobotModel.distancePerRevolution * avgUnits) / kEncoderUnitsPerRevolution;
-	}
+  }
+
+  /**
+   * Total distance the left side has driven since the robot started,
+   * regardless of zeroEncoders(); for odometry.  Always reads the Talon
+   * (not the RobotState), so it's safe from any thread.
+   * @return Left distance in RobotModel units
+   */
+  public double getLeftDistance() {
+    return (RobotModel.distancePerRevolution * m_leftBack.getSelectedSensorPosition()) / kEncoderUnitsPerRevolution;
+  }
+
+  /**
+   * Total distance the right side has driven since the robot started,
+   * regardless of zeroEncoders(); for odometry.  Always reads the Talon
+   * (not the RobotState), so it's safe from any thread.
+   * @return Right distance in RobotModel units
+   */
+  public double getRightDistance() {
+    return (RobotModel.distancePerRevolution * m_rightBack.getSelectedSensorPosition()) / kEncoderUnitsPerRevolution;
+  }
 
 
   /**
@@ -197,7 +356,7 @@ public class DriveTrain extends Subsystem implements PIDOutput {
   // PID controlled methods
 
   public void startTurnToAngle(double degrees) {
-    System.out.println("Start turn to angle " + degrees + " at yaw " + m_nav.getYaw());
+    log.log(LOG_START_TURN, degrees, m_nav.getYaw());
     m_kTargetAngleDegrees = Nav.fieldAngleToYaw(degrees);
     m_turnController.setSetpoint(m_kTargetAngleDegrees);
     m_rotateToAngleRate = 0; // This value will be updated in the pidWrite() method.
@@ -213,11 +372,11 @@ public class DriveTrain extends Subsystem implements PIDOutput {
 
   public boolean isTurnToAngleFinished() {
 		double angleDifference = Math.abs(m_nav.getYaw() - m_kTargetAngleDegrees);
-		double totalSpeed = Math.abs(m_leftBack.getSelectedSensorVelocity()) + Math.abs(m_rightBack.getSelectedSensorVelocity());
+		double totalSpeed = Math.abs(getLeftVelocity()) + Math.abs(getRightVelocity());
 
     boolean res = (angleDifference < kToleranceDegrees) && (totalSpeed < kToleranceSpeed);
     if (res) {
-      System.out.println("End turn to angle at yaw " + m_nav.getYaw());
+      log.log(LOG_END_TURN, m_nav.getYaw());
       m_turnController.disable();
     }
     return res;
@@ -225,7 +384,7 @@ public class DriveTrain extends Subsystem implements PIDOutput {
 
   public void startDriveStraight() {
     double yaw = m_nav.getYaw();
-    System.out.println("Start drive straight at yaw " + yaw);
+    log.log(LOG_START_STRAIGHT, yaw);
     m_turnController.setSetpoint(yaw);
     m_rotateToAngleRate = 0.0d;
     m_turnController.enable();
@@ -255,6 +414,59 @@ public class DriveTrain extends Subsystem implements PIDOutput {
     m_turnController.disable();
   }
 
+  // Talon motion-profile methods
+
+  /**
+   * Start both sides following a motion profile, executed by the Talons
+   * one profile step per point.
+   * @param profile The profile, in RobotModel units, relative to where the
+   * robot is now; its step must be a whole number of ms (1-255)
+   */
+  public void startMotionProfile(MotionProfile profile) {
+    int n = profile.size();
+    double[] sensorPos = new double[n];
+    double[] sensorVel = new double[n];
+    for (int i = 0; i < n; i++) {
+      sensorPos[i] = profile.getPosition(i) * kSensorUnitsPerUnit;
+      sensorVel[i] = (profile.getVelocity(i) * kSensorUnitsPerUnit) / 10.0d;
+    }
+    int durMs = (int) Math.round(profile.getDt() * 1000.0d);
+    m_turnController.disable();
+    m_leftBack.changeMotionControlFramePeriod(Math.max(1, durMs / 2));
+    m_rightBack.changeMotionControlFramePeriod(Math.max(1, durMs / 2));
+    m_profileStreamer.start(sensorPos, sensorVel, durMs,
+                            new double[] { readLeftPosition(), readRightPosition() });
+  }
+
+  /**
+   * Keep the front motors in step with the Talons while a motion profile
+   * runs.  Call every cycle (the Sparks are PWM, so they can only follow
+   * the Talons' reported output, a status frame late).
+   */
+  public void followMotionProfile() {
+    RobotState.countHardwareRead();
+    m_leftFront.set(m_leftBack.getMotorOutputPercent());
+    RobotState.countHardwareRead();
+    m_rightFront.set(m_rightBack.getMotorOutputPercent());
+    m_drive.feed();
+  }
+
+  /**
+   * Has the motion profile been executed to its last point?
+   * @return True iff the Talons are holding the final position
+   */
+  public boolean isMotionProfileFinished() {
+    return m_profileStreamer.isFinished();
+  }
+
+  /**
+   * Stop any motion profile and all motors
+   */
+  public void endMotionProfile() {
+    m_profileStreamer.stop();
+    m_drive.stopMotor();
+  }
+
   // Methods from PIDOutput
 
   @Override
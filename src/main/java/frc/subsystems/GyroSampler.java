@@ -0,0 +1,185 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.subsystems;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.PIDSource;
+import edu.wpi.first.wpilibj.PIDSourceType;
+import edu.wpi.first.wpilibj.Timer;
+import frc.util.HeadingHistory;
+
+/**
+ * Reads the gyro once per period on its own Notifier thread and caches
+ * the result, so the scheduler, the PID controller thread and the
+ * dashboard code can all read the heading without each doing an SPI
+ * transaction of its own.
+ * The latest sample (time, angle, rate) is published with a sequence
+ * lock: the writer makes the sequence number odd, writes the values,
+ * then makes it even again; a reader reads the sequence number, the
+ * values, and the sequence number again, and retries if it changed or
+ * was odd.  Readers never block the sampler (or each other).  Every
+ * field involved is volatile, which makes the retry check sound under
+ * the Java memory model and keeps the doubles' reads atomic.
+ * sample() is synchronized, so even if it's called from outside the
+ * Notifier (e.g. right after a gyro reset) there's only one writer at
+ * a time.
+ * Each sample is also added to a HeadingHistory, if one is supplied.
+ */
+public class GyroSampler implements PIDSource {
+
+  /**
+   * Default sample period: 200 Hz
+   */
+  public static final double DEFAULT_PERIOD = 0.005d;
+
+  private final GyroSource m_gyro;
+  private final DoubleSupplier m_clock;
+  private final HeadingHistory m_history;
+  private Notifier m_notifier;
+  private PIDSourceType m_pidSourceType;
+
+  // The published sample, guarded by m_seq
+  private volatile long m_seq;
+  private volatile double m_time;
+  private volatile double m_angle;
+  private volatile double m_rate;
+
+  /**
+   * Construct a sampler using the FPGA clock
+   * @param gyro The gyro to sample
+   * @param history History to add each heading to, or null
+   */
+  public GyroSampler(GyroSource gyro, HeadingHistory history) {
+    this(gyro, Timer::getFPGATimestamp, history);
+  }
+
+  /**
+   * Construct a sampler with a specified clock (for tests)
+   * @param gyro The gyro to sample
+   * @param clock Source of sample times, in seconds
+   * @param history History to add each heading to, or null
+   */
+  public GyroSampler(GyroSource gyro, DoubleSupplier clock, HeadingHistory history) {
+    m_gyro = gyro;
+    m_clock = clock;
+    m_history = history;
+    m_pidSourceType = PIDSourceType.kDisplacement;
+    m_seq = 0;
+    sample();
+  }
+
+  /**
+   * Start sampling periodically on a Notifier thread
+   * @param period Sample period in seconds
+   */
+  public synchronized void start(double period) {
+    if (m_notifier == null) {
+      m_notifier = new Notifier(this::sample);
+    }
+    m_notifier.startPeriodic(period);
+  }
+
+  /**
+   * Stop periodic sampling; the last sample stays published
+   */
+  public synchronized void stop() {
+    if (m_notifier != null) {
+      m_notifier.stop();
+    }
+  }
+
+  /**
+   * Read the gyro once and publish the result
+   */
+  public synchronized void sample() {
+    double time = m_clock.getAsDouble();
+    double angle = m_gyro.getAngle();
+    double rate = m_gyro.getRate();
+
+    long seq = m_seq;
+    m_seq = seq + 1;
+    m_time = time;
+    m_angle = angle;
+    m_rate = rate;
+    m_seq = seq + 2;
+
+    if (m_history != null) {
+      m_history.add(time, Math.toRadians(Nav.yawToFieldAngle(Nav.normalizeYaw(angle))));
+    }
+  }
+
+  /**
+   * Copy the latest sample, consistently, into dst
+   * @param dst Receives { time (sec), angle (deg), rate (deg/sec) }
+   * @return dst
+   */
+  public double[] read(double[] dst) {
+    long seq;
+    do {
+      seq = m_seq;
+      dst[0] = m_time;
+      dst[1] = m_angle;
+      dst[2] = m_rate;
+    } while (((seq & 1) != 0) || (seq != m_seq));
+    return dst;
+  }
+
+  /**
+   * Accumulated angle from the latest sample
+   * @return Angle in degrees
+   */
+  public double getAngle() {
+    return m_angle;
+  }
+
+  /**
+   * Rate of rotation from the latest sample
+   * @return Rate in degrees per second
+   */
+  public double getRate() {
+    return m_rate;
+  }
+
+  /**
+   * Time of the latest sample
+   * @return Time in seconds
+   */
+  public double getTimestamp() {
+    return m_time;
+  }
+
+  /**
+   * Number of samples taken so far
+   * @return The sample count
+   */
+  public long getSampleCount() {
+    return m_seq / 2;
+  }
+
+  @Override
+  public void setPIDSourceType(PIDSourceType pidSource) {
+    m_pidSourceType = pidSource;
+  }
+
+  @Override
+  public PIDSourceType getPIDSourceType() {
+    return m_pidSourceType;
+  }
+
+  /**
+   * The cached angle (or rate), as the gyro itself would return it
+   * as a PID source
+   */
+  @Override
+  public double pidGet() {
+    return (m_pidSourceType == PIDSourceType.kRate) ? m_rate : m_angle;
+  }
+}
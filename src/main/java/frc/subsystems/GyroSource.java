@@ -0,0 +1,49 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.subsystems;
+
+import edu.wpi.first.wpilibj.ADXRS450_Gyro;
+
+/**
+ * The gyro readings GyroSampler needs.  On the robot this is the
+ * ADXRS450 (see forGyro()); desktop tests supply a simulated gyro.
+ */
+public interface GyroSource {
+
+  /**
+   * Accumulated angle, continuous past 360 degrees
+   * @return Angle in degrees, positive clockwise
+   */
+  double getAngle();
+
+  /**
+   * Rate of rotation
+   * @return Rate in degrees per second, positive clockwise
+   */
+  double getRate();
+
+  /**
+   * Wrap the ADXRS450
+   * @param gyro The gyro
+   * @return The gyro as a GyroSource
+   */
+  static GyroSource forGyro(ADXRS450_Gyro gyro) {
+    return new GyroSource() {
+      @Override
+      public double getAngle() {
+        return gyro.getAngle();
+      }
+
+      @Override
+      public double getRate() {
+        return gyro.getRate();
+      }
+    };
+  }
+}
@@ -1,8 +1,14 @@
 package frc.subsystems;
 
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
+import edu.wpi.first.wpilibj.Timer;
+
+import frc.util.DistanceTable;
+import frc.util.MutableVec2d;
 import frc.util.Vec2d;
 
 /**
@@ -11,7 +17,7 @@ import frc.util.Vec2d;
  * @author Dan Waxman
  */
 public class Limelight {
-	private static NetworkTableInstance table = null;
+	public static final String DEFAULT_TABLE = "limelight";
 	public static final double targetHeight = 19d + 25d/2d + 5.25/2d;
 	public static final int H_FOV = 54;
 	public static final int V_FOV = 41;
@@ -21,6 +27,13 @@ public class Limelight {
 	public static final int VISION_PIPE = 0;							// pipeline set up for vision mode
 	public static final int DRIVE_PIPE = 1;								// pipeline set up for driver mode
 
+	// The entries making up a frame; a change to any of them is a new frame
+	static final String[] FRAME_KEYS = { "tv", "tx", "ty", "ta", "ts", "tl" };
+
+	// Distance to a target at targetHeight, by ty
+	private static final DistanceTable s_distTable =
+		new DistanceTable(HEIGHT, ANGLE_FROM_HORIZONTAL, targetHeight, V_FOV);
+
 
 	/**
 	 * Light modes for Limelight.
@@ -40,6 +53,24 @@ public class Limelight {
 		eVision, eDriver
 	}
 
+	private final NetworkTable m_table;
+
+	// Entries are looked up once, here, rather than on every read
+	private final NetworkTableEntry m_tv;
+	private final NetworkTableEntry m_tx;
+	private final NetworkTableEntry m_ty;
+	private final NetworkTableEntry m_ta;
+	private final NetworkTableEntry m_ts;
+	private final NetworkTableEntry m_tl;
+	private final NetworkTableEntry m_ledMode;
+	private final NetworkTableEntry m_camMode;
+	private final NetworkTableEntry m_pipeline;
+
+	// Latest complete frame, replaced (never modified) by the entry listener
+	private volatile LimelightFrame m_frame;
+
+	private RobotState m_state;
+
 	/**
 	 * Initialize the Limelight and set it to the "default"
 	 * operating mode.  For now, default operating mode is:
@@ -49,6 +80,92 @@ public class Limelight {
 	 * 
 	 */
 	public Limelight() {
+		this(DEFAULT_TABLE);
+	}
+
+	/**
+	 * Initialize a Limelight publishing to a non-default table
+	 * (e.g. a second camera named "limelight-rear").
+	 * 
+	 * @param tableName
+	 *            Name of the camera's NetworkTable.
+	 */
+	public Limelight(String tableName) {
+		this(NetworkTableInstance.getDefault(), tableName);
+	}
+
+	/**
+	 * Initialize a Limelight on a specific NetworkTables instance.
+	 * 
+	 * @param inst
+	 *            NetworkTables instance.
+	 * @param tableName
+	 *            Name of the camera's NetworkTable.
+	 */
+	public Limelight(NetworkTableInstance inst, String tableName) {
+		m_table = inst.getTable(tableName);
+		m_tv = m_table.getEntry("tv");
+		m_tx = m_table.getEntry("tx");
+		m_ty = m_table.getEntry("ty");
+		m_ta = m_table.getEntry("ta");
+		m_ts = m_table.getEntry("ts");
+		m_tl = m_table.getEntry("tl");
+		m_ledMode = m_table.getEntry("ledMode");
+		m_camMode = m_table.getEntry("camMode");
+		m_pipeline = m_table.getEntry("pipeline");
+
+		m_frame = LimelightFrame.EMPTY;
+		for (String key : FRAME_KEYS) {
+			m_table.addEntryListener(key, (table, k, entry, value, flags) -> updateFrame(),
+				EntryListenerFlags.kImmediate | EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+		}
+	}
+
+	/**
+	 * Build a new frame from the current entry values and publish it
+	 * (unless nothing has changed).  Runs on the NetworkTables listener
+	 * thread whenever any frame entry changes.  NetworkTables doesn't
+	 * notify when an entry is rewritten with the same value, so no one
+	 * entry (not even tl) changes with every camera frame; listening on
+	 * all of them means a frame that changes anything is published.
+	 * The entries of one camera frame arrive one at a time, so a frame
+	 * published part way through an update can mix old and new values;
+	 * the next entry's update publishes the completed frame.
+	 */
+	private synchronized void updateFrame() {
+		LimelightFrame prev = m_frame;
+		LimelightFrame next = LimelightFrame.next(prev, Timer.getFPGATimestamp(),
+			m_tv.getDouble(0), m_tx.getDouble(0.00), m_ty.getDouble(0.00),
+			m_ta.getDouble(0.00), m_ts.getDouble(0.00), m_tl.getDouble(0.00));
+		if (next != prev) {
+			m_frame = next;
+		}
+	}
+
+	/**
+	 * Gets the latest camera frame.  All the values in the frame were
+	 * read together, so they can't straddle a poll; never blocks.  With a
+	 * RobotState, this is the frame that was latest at the start of
+	 * the cycle.
+	 * 
+	 * @return The latest frame (LimelightFrame.EMPTY if none yet).
+	 */
+	public LimelightFrame getFrame() {
+		return (m_state != null) ? m_state.getFrame() : m_frame;
+	}
+
+	/**
+	 * Answer getters from a per-cycle snapshot.
+	 * 
+	 * @param state
+	 *            The snapshot, or null to read NetworkTables directly.
+	 */
+	public void setRobotState(RobotState state) {
+		m_state = state;
+	}
+
+	void captureState(RobotState state) {
+		state.setFrame(m_frame);
 	}
 
 	/**
@@ -57,7 +174,10 @@ public class Limelight {
 	 * @return true if a target is detected, false otherwise.
 	 */
 	public boolean isTarget() {
-		return getValue("tv").getDouble(0) == 1;
+		if (m_state != null) {
+			return m_state.getFrame().isTarget();
+		}
+		return m_tv.getDouble(0) == 1;
 	}
 
 	/**
@@ -66,7 +186,10 @@ public class Limelight {
 	 * @return tx as reported by the Limelight.
 	 */
 	public double getTx() {
-		return getValue("tx").getDouble(0.00);
+		if (m_state != null) {
+			return m_state.getFrame().getTx();
+		}
+		return m_tx.getDouble(0.00);
 	}
 
 	/**
@@ -75,7 +198,10 @@ public class Limelight {
 	 * @return ty as reported by the Limelight.
 	 */
 	public double getTy() {
-		return getValue("ty").getDouble(0.00);
+		if (m_state != null) {
+			return m_state.getFrame().getTy();
+		}
+		return m_ty.getDouble(0.00);
 	}
 
 	/**
@@ -84,7 +210,10 @@ public class Limelight {
 	 * @return Area of target.
 	 */
 	public double getTa() {
-		return getValue("ta").getDouble(0.00);
+		if (m_state != null) {
+			return m_state.getFrame().getTa();
+		}
+		return m_ta.getDouble(0.00);
 	}
 
 	/**
@@ -93,7 +222,10 @@ public class Limelight {
 	 * @return Target skew.
 	 */
 	public double getTs() {
-		return getValue("ts").getDouble(0.00);
+		if (m_state != null) {
+			return m_state.getFrame().getTs();
+		}
+		return m_ts.getDouble(0.00);
 	}
 
 	/**
@@ -102,17 +234,22 @@ public class Limelight {
 	 * @return Target latency.
 	 */
 	public double getTl() {
-		return getValue("tl").getDouble(0.00);
+		if (m_state != null) {
+			return m_state.getFrame().getTl();
+		}
+		return m_tl.getDouble(0.00);
 	}
 	
+	/**
+	 * Gets floor distance to a target at targetHeight, from the
+	 * precomputed distance table.
+	 * 
+	 * @return Distance to target, or NaN if the target is out of the
+	 * table's range (at or below the horizon, above the field of view,
+	 * or too far away)
+	 */
 	public double getDist() {
-		double centYAngle = Math.toRadians(getTy());
-		if (centYAngle <= -ANGLE_FROM_HORIZONTAL) {
-			// Impossible case; don't divide by zero or return
-			// garbage.  Throw a slightly more useful exception.
-			throw new IllegalStateException("Target is at or below the horizon; can't compute distance");
-		}
-		return (targetHeight-HEIGHT)/Math.tan(Math.toRadians(getTy() + ANGLE_FROM_HORIZONTAL));
+		return s_distTable.getDistance(getTy());
 	}
 	/**
 	 * Sets LED mode of Limelight.
@@ -121,7 +258,7 @@ public class Limelight {
 	 *            Light mode for Limelight.
 	 */
 	public void setLedMode(LightMode mode) {
-		getValue("ledMode").setNumber(mode.ordinal());
+		m_ledMode.setNumber(mode.ordinal());
 	}
 
 	/**
@@ -131,7 +268,7 @@ public class Limelight {
 	 *            Camera mode for Limelight.
 	 */
 	public void setCameraMode(CameraMode mode) {
-		getValue("camMode").setNumber(mode.ordinal());
+		m_camMode.setNumber(mode.ordinal());
 	}
 
 	/**
@@ -141,22 +278,19 @@ public class Limelight {
 	 *            Pipeline number (0-9).
 	 */
 	public void setPipeline(int number) {
-		getValue("pipeline").setNumber(number);
+		m_pipeline.setNumber(number);
 	}
 
 	/**
-	 * Helper method to get an entry from the Limelight NetworkTable.
+	 * Get an entry from the Limelight NetworkTable, for keys that
+	 * don't have an accessor of their own.
 	 * 
 	 * @param key
 	 *            Key for entry.
 	 * @return NetworkTableEntry of given entry.
 	 */
-	private NetworkTableEntry getValue(String key) {
-		if (table == null) {
-			table = NetworkTableInstance.getDefault();
-		}
-
-		return table.getTable("limelight").getEntry(key);
+	public NetworkTableEntry getEntry(String key) {
+		return m_table.getEntry(key);
 	}
 
 	/**
@@ -175,6 +309,17 @@ public class Limelight {
 		return normVec.mulScalar(-OFFSET_FROM_CENTER);
 	}
 
+	/**
+	 * Get the camera vector as getCameraVector() does, but store it into
+	 * the supplied mutable vector rather than allocating a new one.
+	 * @param robotVec Robot unit vector (field-relative)
+	 * @param dst Vector to receive the camera vector
+	 * @return dst
+	 */
+	public MutableVec2d getCameraVector(Vec2d robotVec, MutableVec2d dst) {
+		return dst.set(robotVec).normal().mulScalar(-OFFSET_FROM_CENTER);
+	}
+
 	/**
 	 * Set the Limelight to "driver" mode
 	 */
@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.subsystems;
+
+/**
+ * Immutable snapshot of one Limelight camera frame: the target values
+ * (tv, tx, ty, ta, ts, tl) together with the time the frame was received
+ * and a sequence number.  Limelight publishes a new LimelightFrame each
+ * time any of the camera's values change, so all the values in a frame
+ * are read together (unlike separate isTarget()/getTx()/getTy() polls,
+ * which can straddle several scheduler cycles).  Sequence numbers increase by
+ * one per published frame; a command can remember the last one it
+ * processed and skip frames it has already seen.
+ */
+public final class LimelightFrame {
+
+  /**
+   * The frame before anything has been received (no target, sequence 0)
+   */
+  public static final LimelightFrame EMPTY = new LimelightFrame(0L, 0.0d, false,
+      0.0d, 0.0d, 0.0d, 0.0d, 0.0d);
+
+  private final long m_seq;
+  private final double m_timestamp;
+  private final boolean m_target;
+  private final double m_tx;
+  private final double m_ty;
+  private final double m_ta;
+  private final double m_ts;
+  private final double m_tl;
+
+  private LimelightFrame(long seq, double timestamp, boolean target,
+      double tx, double ty, double ta, double ts, double tl) {
+    m_seq = seq;
+    m_timestamp = timestamp;
+    m_target = target;
+    m_tx = tx;
+    m_ty = ty;
+    m_ta = ta;
+    m_ts = ts;
+    m_tl = tl;
+  }
+
+  /**
+   * Make the frame that follows prev, given newly received values.
+   * If the values are the same as prev's (as happens when several
+   * entries of one camera frame are updated one after another), there
+   * is no new frame and prev itself is returned.
+   * @param prev The current frame
+   * @param timestamp Receive time of the new values (seconds)
+   * @param tv Limelight tv (1 iff a target is seen)
+   * @param tx Limelight tx (degrees)
+   * @param ty Limelight ty (degrees)
+   * @param ta Limelight ta (% of image)
+   * @param ts Limelight ts (degrees)
+   * @param tl Limelight tl (pipeline latency, ms)
+   * @return The new frame, with sequence number prev's + 1; or prev
+   */
+  public static LimelightFrame next(LimelightFrame prev, double timestamp, double tv,
+      double tx, double ty, double ta, double ts, double tl) {
+    boolean target = (tv == 1);
+    if ((prev.m_seq != 0) && (target == prev.m_target) && (tx == prev.m_tx)
+        && (ty == prev.m_ty) && (ta == prev.m_ta) && (ts == prev.m_ts) && (tl == prev.m_tl)) {
+      return prev;
+    }
+    return new LimelightFrame(prev.m_seq + 1, timestamp, target, tx, ty, ta, ts, tl);
+  }
+
+  /**
+   * Sequence number; 0 for EMPTY, then 1, 2, ... for each new frame
+   * @return The sequence number
+   */
+  public long getSeq() {
+    return m_seq;
+  }
+
+  /**
+   * Time this frame was received, from the FPGA clock
+   * @return Receive time in seconds
+   */
+  public double getTimestamp() {
+    return m_timestamp;
+  }
+
+  /**
+   * Was a target detected in this frame?
+   * @return true iff a target was detected
+   */
+  public boolean isTarget() {
+    return m_target;
+  }
+
+  /**
+   * Horizontal offset from crosshair to target (-27 degrees to 27 degrees)
+   * @return tx
+   */
+  public double getTx() {
+    return m_tx;
+  }
+
+  /**
+   * Vertical offset from crosshair to target (-20.5 degrees to 20.5 degrees)
+   * @return ty
+   */
+  public double getTy() {
+    return m_ty;
+  }
+
+  /**
+   * Area of the target as a percentage of the image (0% to 100%)
+   * @return ta
+   */
+  public double getTa() {
+    return m_ta;
+  }
+
+  /**
+   * Target skew or rotation (-90 degrees to 0 degrees)
+   * @return ts
+   */
+  public double getTs() {
+    return m_ts;
+  }
+
+  /**
+   * Pipeline latency (ms)
+   * @return tl
+   */
+  public double getTl() {
+    return m_tl;
+  }
+
+  @Override
+  public String toString() {
+    return "frame " + m_seq + " @" + m_timestamp + (m_target ? " target" : " no target")
+        + " tx " + m_tx + " ty " + m_ty + " ta " + m_ta + " ts " + m_ts + " tl " + m_tl;
+  }
+}
@@ -0,0 +1,227 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.subsystems;
+
+import com.ctre.phoenix.motion.MotionProfileStatus;
+import com.ctre.phoenix.motion.SetValueMotionProfile;
+import com.ctre.phoenix.motion.TrajectoryPoint;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+
+import edu.wpi.first.wpilibj.Notifier;
+import frc.util.BinaryLogger;
+
+/**
+ * Streams a precomputed motion profile into one or more Talons' motion
+ * profile buffers, so the profile is executed by the Talons themselves
+ * at the point rate (1-10 ms) instead of by the 20 ms scheduler loop.
+ * Every Talon gets the same profile, offset by its own origin (the
+ * sensor position the profile starts from).
+ * A Notifier calls service() at twice the point rate, as CTRE recommends:
+ * each call tops up the roboRIO-side buffer from the profile and moves a
+ * point down to the Talon.  Output is enabled once every Talon has a few
+ * points buffered, and held at the last point when the profile is done.
+ * Positions are in sensor units, velocities in sensor units per 100 ms.
+ */
+public class MotionProfileStreamer {
+
+  /**
+   * Points each Talon must have buffered before we enable output
+   */
+  public static final int MIN_BUFFERED_POINTS = 5;
+
+  /**
+   * Streamer states
+   */
+  public static enum State {
+    eIdle, eLoading, eRunning, eHolding
+  }
+
+  private static final BinaryLogger log = BinaryLogger.getInstance();
+  private static final int LOG_LOAD = log.register("MotionProfileStreamer.load", "points", "durMs");
+  private static final int LOG_ENABLE = log.register("MotionProfileStreamer.enable", "pushed");
+  private static final int LOG_UNDERRUN = log.register("MotionProfileStreamer.underrun", "talon", "underruns");
+  private static final int LOG_DONE = log.register("MotionProfileStreamer.done", "underruns");
+
+  private final MotionProfileTalon[] m_talons;
+  private final MotionProfileStatus m_status;
+  private final TrajectoryPoint m_point;
+  private Notifier m_notifier;
+
+  // The profile being streamed
+  private double[] m_pos;
+  private double[] m_vel;
+  private int m_count;
+  private int m_durMs;
+  private double[] m_origins;
+
+  // Next point to push to each Talon
+  private final int[] m_next;
+
+  private volatile State m_state;
+  private volatile int m_underruns;
+
+  /**
+   * Constructor
+   * @param talons The Talons to stream to
+   */
+  public MotionProfileStreamer(MotionProfileTalon... talons) {
+    m_talons = talons.clone();
+    m_status = new MotionProfileStatus();
+    m_point = new TrajectoryPoint();
+    m_next = new int[talons.length];
+    m_state = State.eIdle;
+    m_underruns = 0;
+  }
+
+  /**
+   * Load a profile and start streaming it on a Notifier thread
+   * @param pos Point positions, relative to the origins
+   * @param vel Point velocities
+   * @param durMs Duration of each point, in ms
+   * @param origins Each Talon's starting sensor position
+   */
+  public synchronized void start(double[] pos, double[] vel, int durMs, double[] origins) {
+    load(pos, vel, durMs, origins);
+    if (m_notifier == null) {
+      m_notifier = new Notifier(this::service);
+    }
+    m_notifier.startPeriodic(durMs / 2000.0d);
+  }
+
+  /**
+   * Load a profile without starting the Notifier; service() must then
+   * be called periodically by the caller.  Any profile already running
+   * is discarded and the Talons' output disabled.
+   * @param pos Point positions, relative to the origins
+   * @param vel Point velocities
+   * @param durMs Duration of each point, in ms
+   * @param origins Each Talon's starting sensor position
+   */
+  public synchronized void load(double[] pos, double[] vel, int durMs, double[] origins) {
+    if ((pos.length == 0) || (vel.length != pos.length)) {
+      throw new IllegalArgumentException("bad profile: " + pos.length + " positions, "
+                                         + vel.length + " velocities");
+    }
+    if ((durMs < 1) || (durMs > 255)) {
+      throw new IllegalArgumentException("point duration out of range " + durMs);
+    }
+    if (origins.length != m_talons.length) {
+      throw new IllegalArgumentException("need " + m_talons.length + " origins");
+    }
+    m_pos = pos;
+    m_vel = vel;
+    m_count = pos.length;
+    m_durMs = durMs;
+    m_origins = origins.clone();
+    m_underruns = 0;
+    for (int i = 0; i < m_talons.length; i++) {
+      MotionProfileTalon t = m_talons[i];
+      t.set(ControlMode.MotionProfile, SetValueMotionProfile.Disable.value);
+      t.clearMotionProfileTrajectories();
+      t.clearMotionProfileHasUnderrun(0);
+      m_next[i] = 0;
+    }
+    m_state = State.eLoading;
+    log.log(LOG_LOAD, m_count, durMs);
+  }
+
+  /**
+   * Feed the Talons and advance the state.  Called by the Notifier.
+   */
+  public synchronized void service() {
+    if (m_state == State.eIdle) {
+      return;
+    }
+    boolean buffered = true;
+    boolean done = true;
+    for (int i = 0; i < m_talons.length; i++) {
+      MotionProfileTalon t = m_talons[i];
+      t.getMotionProfileStatus(m_status);
+      if (m_status.hasUnderrun) {
+        m_underruns++;
+        log.log(LOG_UNDERRUN, i, m_underruns);
+        t.clearMotionProfileHasUnderrun(0);
+      }
+      for (int room = m_status.topBufferRem; (room > 0) && (m_next[i] < m_count); room--) {
+        push(t, i, m_next[i]++);
+      }
+      t.processMotionProfileBuffer();
+      buffered &= (m_status.btmBufferCnt >= Math.min(MIN_BUFFERED_POINTS, m_count));
+      done &= (m_status.activePointValid && m_status.isLast);
+    }
+
+    if ((m_state == State.eLoading) && buffered) {
+      m_state = State.eRunning;
+      setOutput(SetValueMotionProfile.Enable);
+      log.log(LOG_ENABLE, m_next[0]);
+    } else if ((m_state == State.eRunning) && done) {
+      m_state = State.eHolding;
+      setOutput(SetValueMotionProfile.Hold);
+      log.log(LOG_DONE, m_underruns);
+    }
+  }
+
+  /**
+   * Stop streaming and disable the Talons' output
+   */
+  public synchronized void stop() {
+    if (m_notifier != null) {
+      m_notifier.stop();
+    }
+    if (m_state != State.eIdle) {
+      for (MotionProfileTalon t : m_talons) {
+        t.set(ControlMode.PercentOutput, 0.0d);
+        t.clearMotionProfileTrajectories();
+      }
+    }
+    m_state = State.eIdle;
+  }
+
+  /**
+   * Current state
+   * @return The state
+   */
+  public State getState() {
+    return m_state;
+  }
+
+  /**
+   * Has the whole profile been executed?
+   * @return True iff every Talon is holding the last point
+   */
+  public boolean isFinished() {
+    return m_state == State.eHolding;
+  }
+
+  /**
+   * Number of times a Talon ran out of points mid-profile
+   * @return Underrun count for the current profile
+   */
+  public int getUnderrunCount() {
+    return m_underruns;
+  }
+
+  private void push(MotionProfileTalon t, int talon, int idx) {
+    m_point.position = m_origins[talon] + m_pos[idx];
+    m_point.velocity = m_vel[idx];
+    m_point.auxiliaryPos = 0.0d;
+    m_point.profileSlotSelect0 = 0;
+    m_point.profileSlotSelect1 = 0;
+    m_point.zeroPos = false;
+    m_point.isLastPoint = (idx == (m_count - 1));
+    m_point.timeDur = m_durMs;
+    t.pushMotionProfileTrajectory(m_point);
+  }
+
+  private void setOutput(SetValueMotionProfile value) {
+    for (MotionProfileTalon t : m_talons) {
+      t.set(ControlMode.MotionProfile, value.value);
+    }
+  }
+}
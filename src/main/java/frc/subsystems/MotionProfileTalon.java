@@ -0,0 +1,101 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.subsystems;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motion.MotionProfileStatus;
+import com.ctre.phoenix.motion.TrajectoryPoint;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
+
+/**
+ * The Talon motion-profile calls MotionProfileStreamer needs.  On the
+ * robot this is a WPI_TalonSRX (see forTalon()); desktop tests supply a
+ * simulated Talon.
+ */
+public interface MotionProfileTalon {
+
+  /**
+   * Add a point to the top (roboRIO-side) buffer
+   * @param point The point; copied, so it may be reused
+   * @return Error code
+   */
+  ErrorCode pushMotionProfileTrajectory(TrajectoryPoint point);
+
+  /**
+   * Move a point from the top buffer to the Talon's bottom buffer
+   */
+  void processMotionProfileBuffer();
+
+  /**
+   * Get the buffer and execution status
+   * @param status Receives the status
+   * @return Error code
+   */
+  ErrorCode getMotionProfileStatus(MotionProfileStatus status);
+
+  /**
+   * Empty both buffers
+   * @return Error code
+   */
+  ErrorCode clearMotionProfileTrajectories();
+
+  /**
+   * Clear the sticky underrun flag
+   * @param timeoutMs Time to wait for confirmation, in ms
+   * @return Error code
+   */
+  ErrorCode clearMotionProfileHasUnderrun(int timeoutMs);
+
+  /**
+   * Set the control mode and output value
+   * @param mode The control mode
+   * @param value Output value (a SetValueMotionProfile value in motion-profile mode)
+   */
+  void set(ControlMode mode, double value);
+
+  /**
+   * Wrap a Talon
+   * @param talon The Talon
+   * @return The Talon as a MotionProfileTalon
+   */
+  static MotionProfileTalon forTalon(WPI_TalonSRX talon) {
+    return new MotionProfileTalon() {
+      @Override
+      public ErrorCode pushMotionProfileTrajectory(TrajectoryPoint point) {
+        return talon.pushMotionProfileTrajectory(point);
+      }
+
+      @Override
+      public void processMotionProfileBuffer() {
+        talon.processMotionProfileBuffer();
+      }
+
+      @Override
+      public ErrorCode getMotionProfileStatus(MotionProfileStatus status) {
+        return talon.getMotionProfileStatus(status);
+      }
+
+      @Override
+      public ErrorCode clearMotionProfileTrajectories() {
+        return talon.clearMotionProfileTrajectories();
+      }
+
+      @Override
+      public ErrorCode clearMotionProfileHasUnderrun(int timeoutMs) {
+        return talon.clearMotionProfileHasUnderrun(timeoutMs);
+      }
+
+      @Override
+      public void set(ControlMode mode, double value) {
+        talon.set(mode, value);
+      }
+    };
+  }
+}
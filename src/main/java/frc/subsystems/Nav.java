@@ -10,6 +10,7 @@ package frc.subsystems;
 import edu.wpi.first.wpilibj.command.Subsystem;
 import edu.wpi.first.wpilibj.ADXRS450_Gyro;
 import edu.wpi.first.wpilibj.PIDSource;
+import frc.util.HeadingHistory;
 import frc.util.Vec2d;
 
 /**
@@ -21,13 +22,49 @@ import frc.util.Vec2d;
  */
 public class Nav extends Subsystem {
 
+  /**
+   * Number of heading samples kept for latency compensation;
+   * about 0.6 sec at the sampler rate
+   */
+  public static final int HISTORY_SIZE = 128;
+
   private ADXRS450_Gyro m_gyro;
+  private final HeadingHistory m_history;
+  private final GyroSampler m_sampler;
+  private RobotState m_state;
+  private Odometry m_odometry;
 
   // Put methods for controlling this subsystem
   // here. Call these from Commands.
   public Nav(ADXRS450_Gyro gyro) {
     m_gyro = gyro;
     m_gyro.calibrate();
+    m_history = new HeadingHistory(HISTORY_SIZE);
+
+    // All gyro reads go through the sampler; nothing else
+    // should touch m_gyro except to calibrate or reset it.
+    m_sampler = new GyroSampler(GyroSource.forGyro(m_gyro), m_history);
+    m_sampler.start(GyroSampler.DEFAULT_PERIOD);
+  }
+
+  /**
+   * Answer getters from a per-cycle snapshot instead of the sampler
+   * @param state The snapshot, or null to read the sampler directly
+   */
+  public void setRobotState(RobotState state) {
+    m_state = state;
+  }
+
+  /**
+   * Tell the odometry about gyro resets; called by Odometry
+   * @param odometry The odometry
+   */
+  void setOdometry(Odometry odometry) {
+    m_odometry = odometry;
+  }
+
+  void captureState(RobotState state) {
+    state.setNav(m_sampler.getAngle(), m_sampler.getRate());
   }
 
   @Override
@@ -93,7 +130,25 @@ public class Nav extends Subsystem {
    * (-180..180)
    */
   public double getYaw() {
-    double angle = m_gyro.getAngle();
+    return normalizeYaw(getAngle());
+  }
+
+  /**
+   * Get the yaw from the latest gyro sample, ignoring any
+   * RobotState snapshot; safe to call from any thread.
+   * @return gyro yaw angle in degrees (-180..180)
+   */
+  public double getLatestYaw() {
+    return normalizeYaw(m_sampler.getAngle());
+  }
+
+  /**
+   * Convert an accumulated gyro angle (which can wrap past 360 degrees
+   * in either direction) to a yaw in the range -180.0 to 180.0.
+   * @param angle Accumulated angle in degrees
+   * @return yaw angle in degrees (-180..180)
+   */
+  public static double normalizeYaw(double angle) {
     double sgn = Math.signum(angle);
     angle = Math.abs(angle);
     if (angle >= 360.0d) {
@@ -116,16 +171,36 @@ public class Nav extends Subsystem {
    * @return Accumulated robot angle
    */
   public double getAngle() {
-    return m_gyro.getAngle();
+    return (m_state != null) ? m_state.getAngle() : m_sampler.getAngle();
+  }
+
+  /**
+   * Get the rate of rotation as returned by the gyro.
+   * @return Rate in degrees per second, positive clockwise
+   */
+  public double getRate() {
+    return (m_state != null) ? m_state.getRate() : m_sampler.getRate();
   }
 
   /**
    * Reset the gyro to a heading of 0.0 degrees yaw angle.
    * Can be used if the gyro has drifted after running for a
-   * long time.
+   * long time.  The odometry keeps its pose across the reset.
    */
   public void reset() {
+    if (m_odometry != null) {
+      m_odometry.gyroReset(this::resetGyro);
+    } else {
+      resetGyro();
+    }
+  }
+
+  private void resetGyro() {
     m_gyro.reset();
+    // Don't interpolate across the jump, and don't leave the
+    // pre-reset angle cached until the next sample
+    m_history.clear();
+    m_sampler.sample();
   }
 
   /**
@@ -155,13 +230,24 @@ public class Nav extends Subsystem {
     return yawToVec(getYaw());
   }
 
+  /**
+   * Get the recent history of the robot's field-relative heading
+   * (radians, timestamped with the FPGA clock), e.g. to find where
+   * the robot was pointing when a camera frame was captured.
+   * @return The heading history
+   */
+  public HeadingHistory getHeadingHistory() {
+    return m_history;
+  }
+
   /**
    * Return the gyro as a PID source, so it can be used
-   * in PIDController calculations.
+   * in PIDController calculations.  Reads the sampler's
+   * cached angle rather than the gyro itself.
    * @return Gyro as a PID source
    */
   public PIDSource getPIDSource() {
-    return m_gyro;
+    return m_sampler;
   }
 
 }
@@ -0,0 +1,193 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.subsystems;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.command.Subsystem;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.util.DiffDriveOdometry;
+import frc.util.PoseEstimator;
+import frc.util.Vec2d;
+
+/**
+ * Odometry subsystem: keeps a continuous estimate of the robot's field
+ * pose (position and heading) by integrating the drive train's encoder
+ * distances with the Nav heading on a Notifier thread, at a fixed rate
+ * independent of the scheduler.  Commands can read the pose at any time
+ * (e.g. to plan routes without stopping to look for a target), and seed
+ * it with reset() when the robot's real position is known.
+ * Vision fixes (see addVisionFix()) are fused with the odometry by a
+ * PoseEstimator; getFusedPosition() gives the combined estimate, which
+ * doesn't drift the way pure odometry does.
+ * Position is in RobotModel distance units; headings are field-relative
+ * radians, as used by Vec2d.
+ * Until reset(), the frame is Nav's (the gyro's, which getHeadingHistory()
+ * and TargetVecMapper use too); once seeded it's the frame of the seed
+ * pose, e.g. the FieldMap's, rotated from Nav's by getHeadingOffset().
+ */
+public class Odometry extends Subsystem {
+
+  /**
+   * Default update period: 100 Hz
+   */
+  public static final double DEFAULT_PERIOD = 0.01d;
+
+  private final DriveTrain m_driveTrain;
+  private final Nav m_nav;
+  private final DiffDriveOdometry m_odometry;
+  private final PoseEstimator m_estimator;
+  private final Notifier m_notifier;
+  private final double[] m_dashPose = new double[3];
+  private boolean m_fieldRelative;
+
+  public Odometry(DriveTrain driveTrain, Nav nav) {
+    m_driveTrain = driveTrain;
+    m_nav = nav;
+    m_odometry = new DiffDriveOdometry();
+    m_estimator = new PoseEstimator();
+    m_estimator.reset(0.0d, 0.0d, PoseEstimator.UNKNOWN_VARIANCE);
+    m_fieldRelative = false;
+    update();
+    m_notifier = new Notifier(this::update);
+    m_notifier.startPeriodic(DEFAULT_PERIOD);
+    m_nav.setOdometry(this);
+  }
+
+  @Override
+  public void initDefaultCommand() {
+    // Set the default command for a subsystem here.
+    // setDefaultCommand(new MySpecialCommand());
+  }
+
+  /**
+   * Integrate the latest encoder and gyro readings; called by the Notifier
+   */
+  public synchronized void update() {
+    // Read the gyro under the lock, so a gyroReset() can't slip in
+    // between the read and the update
+    double left = m_driveTrain.getLeftDistance();
+    double right = m_driveTrain.getRightDistance();
+    double heading = Math.toRadians(Nav.yawToFieldAngle(m_nav.getLatestYaw()));
+    m_odometry.update(left, right, heading);
+    m_estimator.predict(m_odometry.getX(), m_odometry.getY());
+  }
+
+  /**
+   * Reset the gyro (by running reset, which must leave Nav's latest yaw
+   * at the new heading) without moving the pose: the heading offset is
+   * re-based to the new gyro heading, with no update in between.
+   * Called by Nav.reset().
+   * @param reset Resets the gyro
+   */
+  synchronized void gyroReset(Runnable reset) {
+    reset.run();
+    m_odometry.rebase(Math.toRadians(Nav.yawToFieldAngle(m_nav.getLatestYaw())));
+  }
+
+  /**
+   * Put the pose on the dashboard
+   */
+  @Override
+  public void periodic() {
+    double[] pose = getPose(m_dashPose);
+    SmartDashboard.putNumber("Odometry X", pose[0]);
+    SmartDashboard.putNumber("Odometry Y", pose[1]);
+    SmartDashboard.putNumber("Odometry Heading", Math.toDegrees(pose[2]));
+    synchronized (this) {
+      SmartDashboard.putNumber("Fused X", m_estimator.getX());
+      SmartDashboard.putNumber("Fused Y", m_estimator.getY());
+      SmartDashboard.putNumber("Fused StdDev", m_estimator.getStdDev());
+    }
+  }
+
+  /**
+   * Seed the pose with a known position and heading
+   * @param position Field position
+   * @param heading Field heading in radians
+   */
+  public synchronized void reset(Vec2d position, double heading) {
+    m_odometry.reset(position.getX(), position.getY(), heading);
+    m_estimator.reset(position.getX(), position.getY(), 0.0d);
+    m_fieldRelative = true;
+  }
+
+  /**
+   * Has the pose been seeded with a known field position by reset()?
+   * Until it is, the position is relative to wherever the robot started,
+   * and can't be matched against the FieldMap.
+   * @return True iff the position is field-relative
+   */
+  public synchronized boolean isFieldRelative() {
+    return m_fieldRelative;
+  }
+
+  /**
+   * Get the angle from Nav's frame to the odometry's: the odometry heading
+   * is the Nav heading plus this offset.  Rotate a Nav-frame vector (e.g.
+   * a route from the TargetCalculator) by the offset to put it in the
+   * odometry's frame, and an odometry-frame one by minus the offset to
+   * put it in Nav's.
+   * @return Offset in radians; 0 until reset() seeds a heading
+   */
+  public synchronized double getHeadingOffset() {
+    return m_odometry.getHeadingOffset();
+  }
+
+  /**
+   * Fuse a vision fix into the position estimate: the camera saw a target
+   * at a known field position along lensToTarget (as from
+   * TargetCalculator.getTargetVector()), from a lens offset -camVec from
+   * the robot's center (as from Limelight.getCameraVector()).  All three
+   * are in the odometry's frame (see getHeadingOffset()).
+   * @param target Target field position
+   * @param lensToTarget Field-relative vector from lens to target
+   * @param camVec Field-relative vector from lens to robot center
+   * @return True if the fix was used, false if rejected as an outlier
+   */
+  public synchronized boolean addVisionFix(Vec2d target, Vec2d lensToTarget, Vec2d camVec) {
+    return m_estimator.addVisionFix(target.getX(), target.getY(),
+        lensToTarget.getX(), lensToTarget.getY(), camVec.getX(), camVec.getY());
+  }
+
+  /**
+   * Get the fused (odometry plus vision) estimate of the robot's position
+   * @return Position
+   */
+  public synchronized Vec2d getFusedPosition() {
+    return m_estimator.getPosition();
+  }
+
+  /**
+   * Get the robot's field position
+   * @return Position
+   */
+  public synchronized Vec2d getPosition() {
+    return Vec2d.makeCart(m_odometry.getX(), m_odometry.getY());
+  }
+
+  /**
+   * Get the robot's field heading
+   * @return Heading in radians, -pi <= res <= pi
+   */
+  public synchronized double getHeading() {
+    return m_odometry.getHeading();
+  }
+
+  /**
+   * Get the whole pose at once, consistently and without allocating
+   * @param dst Receives { x, y, heading (radians) }
+   * @return dst
+   */
+  public synchronized double[] getPose(double[] dst) {
+    dst[0] = m_odometry.getX();
+    dst[1] = m_odometry.getY();
+    dst[2] = m_odometry.getHeading();
+    return dst;
+  }
+}
@@ -7,6 +7,11 @@
 
 package frc.subsystems;
 
+import frc.util.MotionProfile;
+import frc.util.MotionProfileCache;
+import frc.util.Path;
+import frc.util.PathProfile;
+
 /**
  * Not really a subsystem.
  * A "RobotModel" class, that provides a "kinematic" (i.e. motion)
@@ -105,6 +110,66 @@ package frc.subsystems;
   // Motor power required to start the robot i.e. overcome friction
   public static final double startPower = voltageToPower(startVoltage);
 
+  // Distance between the left and right wheels
+  public static final double trackWidth = 22.0d;            // in, for kitbot chassis
+
+  // Tightest curve (1 / turn radius) we'll plan a path through
+  public static final double maxPathCurvature = 1.0d / 18.0d; // 1/in
+
+  // Most sideways (centripetal) acceleration we'll plan on a curve;
+  // beyond this the wheels start to slide
+  public static final double maxCentripetalAccel = 80.0d;  // in/s/s
+
+  // Feed-forward power for a (signed) wheel velocity: the power to
+  // overcome friction plus kV per unit velocity, at most full power
+  public static double feedForwardPower(double velocity) {
+    if (velocity == 0.0d) {
+      return 0.0d;
+    }
+    double power = Math.min(1.0d, startPower + ((kV / maxVoltage) * Math.abs(velocity)));
+    return Math.copySign(power, velocity);
+  }
+
+  // Acceleration the stepwise model above amounts to
+  public static final double maxAccel = velocityPerStep / secPerStep;
+
+  // Plan a trapezoidal profile at the model's acceleration, one step
+  // per scheduler run, with feed-forward power from kV and startPower
+  public static MotionProfile planProfile(double dist, double velocity) {
+    return planProfile(dist, velocity, secPerStep);
+  }
+
+  // Same, with a specified time step (e.g. for Talon motion profiles)
+  public static MotionProfile planProfile(double dist, double velocity, double dt) {
+    return new MotionProfile(dist, velocity, maxAccel, dt, startPower, kV / maxVoltage);
+  }
+
+  // Plan the fastest velocity profile along a path within the model's
+  // limits, at most velocity anywhere
+  public static PathProfile planPathProfile(Path path, double velocity) {
+    return new PathProfile(path, Math.min(velocity, maxVelocity), maxAccel,
+                           maxCentripetalAccel, trackWidth);
+  }
+
+  // Recently used profiles, so commands needn't re-plan the same drives
+  public static final int profileCacheSize = 32;
+  private static final MotionProfileCache profileCache = new MotionProfileCache(profileCacheSize);
+
+  // Get a profile like planProfile() does, from the cache if possible;
+  // dist and velocity are rounded to the cache's resolution
+  public static MotionProfile getProfile(double dist, double velocity, double dt) {
+    return profileCache.get(dist, velocity, maxAccel, dt, startPower, kV / maxVoltage);
+  }
+
+  // Plan a profile into the cache ahead of time, if it isn't there
+  public static void prewarmProfile(double dist, double velocity, double dt) {
+    profileCache.prewarm(dist, velocity, maxAccel, dt, startPower, kV / maxVoltage);
+  }
+
+  public static MotionProfileCache getProfileCache() {
+    return profileCache;
+  }
+
   // Calculate the distance travelled while accelerating stepwise
   // It is SUM[i=0 to n](i * delta-v * delta-t)
   // But as long as delta-v and delta-t are constants they can be
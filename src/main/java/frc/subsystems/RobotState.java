@@ -0,0 +1,202 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.subsystems;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Snapshot of the robot's sensors, captured once at the start of each
+ * periodic cycle (see Robot) and then shared by every command and
+ * subsystem for the rest of the cycle.  This gives everyone the same
+ * view of the robot during a cycle, and replaces the several CAN reads
+ * of the same value per cycle with one.
+ * Subsystems given a RobotState (setRobotState()) answer their getters
+ * from it; without one they read the hardware directly, as before.
+ * The snapshot is reused from cycle to cycle (capture() doesn't
+ * allocate) and belongs to the main robot thread: code on other threads
+ * (Notifiers, the PID controller) must not read it.
+ * RobotState also keeps a count of the hardware reads made on the main
+ * thread, so the effect can be measured; see getReadsLastCycle().
+ */
+public class RobotState {
+
+  private static final AtomicLong s_hardwareReads = new AtomicLong(0);
+
+  private long m_cycle;
+  private double m_timestamp;
+
+  // Nav
+  private double m_angle;
+  private double m_rate;
+
+  // Drive train; positions and velocities in raw sensor units
+  private int m_leftPosition;
+  private int m_rightPosition;
+  private int m_leftVelocity;
+  private int m_rightVelocity;
+  private double m_leftOutput;
+  private double m_rightOutput;
+
+  // Camera
+  private LimelightFrame m_frame;
+
+  private long m_readsAtCapture;
+  private long m_readsLastCycle;
+
+  public RobotState() {
+    m_cycle = 0;
+    m_frame = LimelightFrame.EMPTY;
+    m_readsAtCapture = 0;
+    m_readsLastCycle = 0;
+  }
+
+  /**
+   * Note that a hardware (CAN or SPI) read was made on the main thread
+   */
+  public static void countHardwareRead() {
+    s_hardwareReads.incrementAndGet();
+  }
+
+  /**
+   * Total hardware reads counted so far
+   * @return The count
+   */
+  public static long getHardwareReadCount() {
+    return s_hardwareReads.get();
+  }
+
+  /**
+   * Capture a new snapshot.  Call once, first thing in each periodic
+   * cycle, before the scheduler runs.
+   * @param nav The nav subsystem
+   * @param driveTrain The drive train
+   * @param cam The camera
+   */
+  public void capture(Nav nav, DriveTrain driveTrain, Limelight cam) {
+    long reads = s_hardwareReads.get();
+    m_readsLastCycle = reads - m_readsAtCapture;
+    m_readsAtCapture = reads;
+
+    m_cycle++;
+    m_timestamp = Timer.getFPGATimestamp();
+    nav.captureState(this);
+    driveTrain.captureState(this);
+    cam.captureState(this);
+  }
+
+  void setNav(double angle, double rate) {
+    m_angle = angle;
+    m_rate = rate;
+  }
+
+  void setDriveTrain(int leftPosition, int rightPosition, int leftVelocity, int rightVelocity,
+      double leftOutput, double rightOutput) {
+    m_leftPosition = leftPosition;
+    m_rightPosition = rightPosition;
+    m_leftVelocity = leftVelocity;
+    m_rightVelocity = rightVelocity;
+    m_leftOutput = leftOutput;
+    m_rightOutput = rightOutput;
+  }
+
+  void setFrame(LimelightFrame frame) {
+    m_frame = frame;
+  }
+
+  /**
+   * Number of snapshots captured so far
+   * @return The cycle number
+   */
+  public long getCycle() {
+    return m_cycle;
+  }
+
+  /**
+   * Time of the snapshot
+   * @return FPGA time in seconds
+   */
+  public double getTimestamp() {
+    return m_timestamp;
+  }
+
+  /**
+   * Accumulated gyro angle, as Nav.getAngle()
+   * @return Angle in degrees
+   */
+  public double getAngle() {
+    return m_angle;
+  }
+
+  /**
+   * Gyro yaw, as Nav.getYaw()
+   * @return Yaw in degrees (-180..180)
+   */
+  public double getYaw() {
+    return Nav.normalizeYaw(m_angle);
+  }
+
+  /**
+   * Gyro rate, as Nav.getRate()
+   * @return Rate in degrees per second
+   */
+  public double getRate() {
+    return m_rate;
+  }
+
+  public int getLeftPosition() {
+    return m_leftPosition;
+  }
+
+  public int getRightPosition() {
+    return m_rightPosition;
+  }
+
+  public int getLeftVelocity() {
+    return m_leftVelocity;
+  }
+
+  public int getRightVelocity() {
+    return m_rightVelocity;
+  }
+
+  /**
+   * Output commanded to the left side at the start of the cycle
+   * @return Motor power (-1.0 .. 1.0)
+   */
+  public double getLeftOutput() {
+    return m_leftOutput;
+  }
+
+  /**
+   * Output commanded to the right side at the start of the cycle
+   * @return Motor power (-1.0 .. 1.0)
+   */
+  public double getRightOutput() {
+    return m_rightOutput;
+  }
+
+  /**
+   * Latest camera frame at the start of the cycle
+   * @return The frame
+   */
+  public LimelightFrame getFrame() {
+    return m_frame;
+  }
+
+  /**
+   * Number of hardware reads made on the main thread during the
+   * previous cycle (including its capture())
+   * @return The count
+   */
+  public long getReadsLastCycle() {
+    return m_readsLastCycle;
+  }
+}
@@ -0,0 +1,184 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.subsystems;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+
+/**
+ * Sets the CAN status frame periods of the drive Talons according to
+ * what the robot actually reads from them in each mode, and estimates
+ * the CAN bus load that results.
+ * All we read from the Talons is the selected sensor's position and
+ * velocity (Status 2), and we read them at the control rate only when
+ * enabled.  Everything else is slowed down to the maximum period, which
+ * frees bus bandwidth and cuts the latency of the frames we do use.
+ * If a new feature starts reading another frame (e.g. closed-loop error
+ * from Status 13), its period must be raised here or it will be stale.
+ */
+public class StatusFrameManager {
+
+  /**
+   * Longest period a Talon accepts, in ms
+   */
+  public static final int MAX_PERIOD_MS = 255;
+
+  /**
+   * Period of the control frame the roboRIO sends each Talon, in ms
+   */
+  public static final int CONTROL_PERIOD_MS = 10;
+
+  /**
+   * Approximate size on the wire of one CTRE frame: extended (29-bit id)
+   * data frame with 8 data bytes, plus worst-case bit stuffing and the
+   * interframe space
+   */
+  public static final int BITS_PER_FRAME = 160;
+
+  /**
+   * CAN bus bit rate
+   */
+  public static final double BUS_BITS_PER_SEC = 1.0e6d;
+
+  /**
+   * Timeout for period changes; 0 means don't wait for confirmation,
+   * which is what we want when switching modes from robot code
+   */
+  public static final int CONFIG_TIMEOUT_MS = 0;
+
+  /**
+   * The frames we manage, in the order of the profile period arrays
+   */
+  static final StatusFrameEnhanced[] FRAMES = {
+    StatusFrameEnhanced.Status_1_General,
+    StatusFrameEnhanced.Status_2_Feedback0,
+    StatusFrameEnhanced.Status_3_Quadrature,
+    StatusFrameEnhanced.Status_4_AinTempVbat,
+    StatusFrameEnhanced.Status_8_PulseWidth,
+    StatusFrameEnhanced.Status_10_Targets,
+    StatusFrameEnhanced.Status_13_Base_PIDF0,
+    StatusFrameEnhanced.Status_14_Turn_PIDF1,
+  };
+
+  /**
+   * Status frame periods (ms) for each robot mode, in FRAMES order
+   */
+  public static enum Profile {
+    //                   General Feedback0 Quad AinTemp PulseW Targets PIDF0 PIDF1
+    eDefault(new int[] { 10, 20, 160, 160, 160, 160, 160, 160 }),
+    eDisabled(new int[] { 100, 100, MAX_PERIOD_MS, 250, MAX_PERIOD_MS, MAX_PERIOD_MS, MAX_PERIOD_MS, MAX_PERIOD_MS }),
+    eAuto(new int[] { 20, 10, MAX_PERIOD_MS, 250, MAX_PERIOD_MS, MAX_PERIOD_MS, MAX_PERIOD_MS, MAX_PERIOD_MS }),
+    eTeleop(new int[] { 20, 20, MAX_PERIOD_MS, 250, MAX_PERIOD_MS, MAX_PERIOD_MS, MAX_PERIOD_MS, MAX_PERIOD_MS });
+
+    private final int[] m_periods;
+
+    private Profile(int[] periods) {
+      m_periods = periods;
+    }
+
+    /**
+     * Period of a frame in this profile
+     * @param frame The frame
+     * @return Period in ms, or 0 if the frame isn't managed
+     */
+    public int getPeriod(StatusFrameEnhanced frame) {
+      for (int i = 0; i < FRAMES.length; i++) {
+        if (FRAMES[i] == frame) {
+          return m_periods[i];
+        }
+      }
+      return 0;
+    }
+  }
+
+  private final List<StatusFramePeriodSetter> m_controllers;
+  private Profile m_profile;
+  private int m_errors;
+
+  public StatusFrameManager() {
+    m_controllers = new ArrayList<>();
+    m_profile = Profile.eDefault;
+    m_errors = 0;
+  }
+
+  /**
+   * Add a Talon to be managed.  It's assumed to be at the default periods
+   * until the next apply().
+   * @param controller The Talon's setStatusFramePeriod()
+   */
+  public void addController(StatusFramePeriodSetter controller) {
+    m_controllers.add(controller);
+  }
+
+  /**
+   * Set every managed Talon's frame periods to a profile's.  Only the
+   * periods that differ from the current profile are sent.
+   * @param profile The profile
+   */
+  public void apply(Profile profile) {
+    if (profile == m_profile) {
+      return;
+    }
+    for (int i = 0; i < FRAMES.length; i++) {
+      int period = profile.m_periods[i];
+      if (period == m_profile.m_periods[i]) {
+        continue;
+      }
+      for (StatusFramePeriodSetter c : m_controllers) {
+        ErrorCode err = c.setStatusFramePeriod(FRAMES[i], period, CONFIG_TIMEOUT_MS);
+        if (err != null && err != ErrorCode.OK) {
+          m_errors++;
+        }
+      }
+    }
+    m_profile = profile;
+  }
+
+  /**
+   * The profile last applied
+   * @return The profile
+   */
+  public Profile getProfile() {
+    return m_profile;
+  }
+
+  /**
+   * Number of period changes the Talons reported errors for
+   * @return Error count
+   */
+  public int getErrorCount() {
+    return m_errors;
+  }
+
+  /**
+   * Estimated fraction of the CAN bus used by the managed Talons in a
+   * profile: their status frames plus the control frames we send them.
+   * Other devices on the bus (PDP, PCM, ...) aren't included.
+   * @param profile The profile
+   * @return Bus utilization, 0..1
+   */
+  public double estimateUtilization(Profile profile) {
+    double framesPerSec = 1000.0d / CONTROL_PERIOD_MS;
+    for (int period : profile.m_periods) {
+      framesPerSec += 1000.0d / period;
+    }
+    return (m_controllers.size() * framesPerSec * BITS_PER_FRAME) / BUS_BITS_PER_SEC;
+  }
+
+  /**
+   * Estimated bus utilization in the current profile
+   * @return Bus utilization, 0..1
+   */
+  public double estimateUtilization() {
+    return estimateUtilization(m_profile);
+  }
+}
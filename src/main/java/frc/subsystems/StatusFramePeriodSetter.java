@@ -0,0 +1,30 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+
+package frc.subsystems;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+
+/**
+ * Something whose CAN status frame periods can be set -- in practice
+ * a Talon's setStatusFramePeriod() (e.g. m_leftBack::setStatusFramePeriod),
+ * or a mock in tests.
+ */
+@FunctionalInterface
+public interface StatusFramePeriodSetter {
+
+  /**
+   * Set the period of one status frame
+   * @param frame The frame
+   * @param periodMs Period in ms
+   * @param timeoutMs Time to wait for confirmation, in ms (0 for none)
+   * @return Error code
+   */
+  ErrorCode setStatusFramePeriod(StatusFrameEnhanced frame, int periodMs, int timeoutMs);
+}
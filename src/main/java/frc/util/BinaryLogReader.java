@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads files written by BinaryLogger and prints them as text, one event
+ * per line:
+ * <pre>
+ *   12.345678 DriveTrain.startTurn degrees=90.0 yaw=3.2
+ * </pre>
+ * Times are seconds since the first event in the file.  Run it on the
+ * driver station (or anywhere) after copying a log off the robot:
+ * <pre>
+ *   java -cp build/classes/java/main frc.util.BinaryLogReader robot-123.bin
+ * </pre>
+ * @author lwa
+ */
+public class BinaryLogReader {
+
+    private final List<String> m_names;
+    private final List<String[]> m_fieldNames;
+    private long m_firstTime;
+    private boolean m_haveFirst;
+
+    public BinaryLogReader() {
+        m_names = new ArrayList<>();
+        m_fieldNames = new ArrayList<>();
+        m_haveFirst = false;
+    }
+
+    /**
+     * Print every record in a log as text
+     * @param in The log
+     * @param out Where to print it
+     * @throws IOException if the log can't be read or isn't a BinaryLogger log
+     */
+    public void dump(InputStream in, PrintStream out) throws IOException {
+        DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+        if (din.readInt() != BinaryLogger.MAGIC) {
+            throw new IOException("not a BinaryLogger file");
+        }
+        short version = din.readShort();
+        if (version != BinaryLogger.VERSION) {
+            throw new IOException("unsupported BinaryLogger version " + version);
+        }
+        while (true) {
+            int tag;
+            try {
+                tag = din.readByte();
+            } catch (EOFException e) {
+                break;
+            }
+            switch (tag) {
+            case BinaryLogger.TAG_DEFINITION:
+                readDefinition(din);
+                break;
+            case BinaryLogger.TAG_EVENT:
+                out.println(readEvent(din));
+                break;
+            case BinaryLogger.TAG_DROPS:
+                out.println("-- " + din.readLong() + " events dropped so far");
+                break;
+            default:
+                throw new IOException("bad record tag " + tag);
+            }
+        }
+    }
+
+    private void readDefinition(DataInputStream din) throws IOException {
+        int id = din.readShort();
+        String name = din.readUTF();
+        String[] fields = new String[din.readByte()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = din.readUTF();
+        }
+        if (id != m_names.size()) {
+            throw new IOException("definition for id " + id + " out of order");
+        }
+        m_names.add(name);
+        m_fieldNames.add(fields);
+    }
+
+    private String readEvent(DataInputStream din) throws IOException {
+        int id = din.readShort();
+        if (id < 0 || id >= m_names.size()) {
+            throw new IOException("event with undefined id " + id);
+        }
+        long time = din.readLong();
+        if (!m_haveFirst) {
+            m_firstTime = time;
+            m_haveFirst = true;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%.6f", (time - m_firstTime) / 1.0e9d));
+        sb.append(' ').append(m_names.get(id));
+        for (String field : m_fieldNames.get(id)) {
+            sb.append(' ').append(field).append('=').append(din.readDouble());
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: BinaryLogReader file...");
+            System.exit(1);
+        }
+        for (String arg : args) {
+            try (InputStream in = new FileInputStream(arg)) {
+                new BinaryLogReader().dump(in, System.out);
+            }
+        }
+    }
+}
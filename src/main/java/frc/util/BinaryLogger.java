@@ -0,0 +1,411 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event logger for periodic code, replacing System.out.println.  Printing
+ * from the robot goes through the netconsole and is slow enough to make
+ * the 20 ms loop overrun; this logger instead takes an event id and up to
+ * MAX_FIELDS primitive double fields (no strings, no boxing, no allocation),
+ * puts them in a lock-free ring buffer, and a background thread drains the
+ * ring to a binary file.  Use BinaryLogReader to turn the file into text.
+ *
+ * Each kind of event is registered once, typically in a static initializer:
+ * <pre>
+ *   private static final int LOG_EXEC =
+ *     BinaryLogger.getInstance().register("MyCommand.exec", "power", "dist");
+ *   ...
+ *   BinaryLogger.getInstance().log(LOG_EXEC, power, dist);
+ * </pre>
+ * Any thread may log.  Events logged before start() is called are kept in
+ * the ring until it fills.  If the ring is full (the drain thread can't keep
+ * up, or was never started) new events are dropped and counted rather than
+ * blocking the caller.
+ *
+ * File format (big-endian, as written by DataOutputStream):
+ *   header:     int MAGIC, short VERSION
+ *   definition: byte 'D', short id, UTF name, byte nFields, nFields x UTF field name
+ *   event:      byte 'E', short id, long nanoTime, nFields x double
+ *   drops:      byte 'X', long total dropped so far
+ * A definition always precedes the first event with its id.
+ * @author lwa
+ */
+public class BinaryLogger {
+
+    public static final int MAGIC = 0x46524C47;     // "FRLG"
+    public static final short VERSION = 1;
+    public static final byte TAG_DEFINITION = 'D';
+    public static final byte TAG_EVENT = 'E';
+    public static final byte TAG_DROPS = 'X';
+
+    /**
+     * Maximum number of fields in a single event
+     */
+    public static final int MAX_FIELDS = 4;
+
+    /**
+     * Default ring size, in events (must be a power of 2)
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Most log files start(File) keeps in the log's directory, counting
+     * the new one; older ones are deleted so the roboRIO's flash doesn't
+     * fill up over a season
+     */
+    public static final int MAX_LOG_FILES = 20;
+
+    /**
+     * How long the drain thread sleeps when the ring is empty
+     */
+    static final long IDLE_NANOS = 5000000L;
+
+    private static final BinaryLogger s_instance = new BinaryLogger(DEFAULT_CAPACITY);
+
+    // The ring.  Slot i holds the event with sequence number seq where
+    // (seq & m_mask) == i; m_published[i] == seq + 1 once the producer
+    // has finished writing it.
+    private final int m_mask;
+    private final int m_capacity;
+    private final int[] m_ids;
+    private final int[] m_counts;
+    private final long[] m_times;
+    private final double[] m_fields;
+    private final AtomicLongArray m_published;
+
+    /**
+     * Next sequence number to be claimed by a producer
+     */
+    private final AtomicLong m_head;
+
+    /**
+     * Next sequence number to be consumed; written only by the drain thread
+     */
+    private volatile long m_tail;
+
+    private final AtomicLong m_dropped;
+
+    /**
+     * Registered event names and field names, indexed by id
+     */
+    private final List<String> m_names;
+    private final List<String[]> m_fieldNames;
+
+    private volatile boolean m_running;
+    private Thread m_thread;
+
+    /**
+     * Get the robot-wide logger
+     * @return The logger
+     */
+    public static BinaryLogger getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * Construct a logger with the specified ring size.  Most code should
+     * use getInstance() instead.
+     * @param capacity Number of events the ring holds; a power of 2
+     */
+    public BinaryLogger(int capacity) {
+        if ((capacity <= 0) || ((capacity & (capacity - 1)) != 0)) {
+            throw new IllegalArgumentException("capacity must be a power of 2: " + capacity);
+        }
+        m_capacity = capacity;
+        m_mask = capacity - 1;
+        m_ids = new int[capacity];
+        m_counts = new int[capacity];
+        m_times = new long[capacity];
+        m_fields = new double[capacity * MAX_FIELDS];
+        m_published = new AtomicLongArray(capacity);
+        m_head = new AtomicLong(0);
+        m_tail = 0;
+        m_dropped = new AtomicLong(0);
+        m_names = new ArrayList<>();
+        m_fieldNames = new ArrayList<>();
+        m_running = false;
+    }
+
+    /**
+     * Register a kind of event.  Call once per kind, not from periodic code.
+     * @param name Event name, e.g. "DriveTrain.startTurn"
+     * @param fieldNames Names of the event's fields (at most MAX_FIELDS)
+     * @return Event id to pass to log()
+     */
+    public synchronized int register(String name, String... fieldNames) {
+        if (fieldNames.length > MAX_FIELDS) {
+            throw new IllegalArgumentException("too many fields for event " + name);
+        }
+        if (m_names.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("too many event kinds");
+        }
+        m_names.add(name);
+        m_fieldNames.add(fieldNames.clone());
+        return m_names.size() - 1;
+    }
+
+    /**
+     * Log an event with no fields
+     * @param id Event id from register()
+     */
+    public void log(int id) {
+        put(id, 0, 0.0d, 0.0d, 0.0d, 0.0d);
+    }
+
+    /**
+     * Log an event with fields a
+     * @param id Event id from register()
+     */
+    public void log(int id, double a) {
+        put(id, 1, a, 0.0d, 0.0d, 0.0d);
+    }
+
+    /**
+     * Log an event with fields a, b
+     * @param id Event id from register()
+     */
+    public void log(int id, double a, double b) {
+        put(id, 2, a, b, 0.0d, 0.0d);
+    }
+
+    /**
+     * Log an event with fields a, b, c
+     * @param id Event id from register()
+     */
+    public void log(int id, double a, double b, double c) {
+        put(id, 3, a, b, c, 0.0d);
+    }
+
+    /**
+     * Log an event with fields a, b, c, d
+     * @param id Event id from register()
+     */
+    public void log(int id, double a, double b, double c, double d) {
+        put(id, 4, a, b, c, d);
+    }
+
+    /**
+     * Number of events dropped because the ring was full
+     * @return Total dropped events
+     */
+    public long getDroppedCount() {
+        return m_dropped.get();
+    }
+
+    /**
+     * Claim a slot, fill it in and publish it, or drop the event if
+     * the ring is full.
+     */
+    private void put(int id, int n, double a, double b, double c, double d) {
+        long seq;
+        do {
+            seq = m_head.get();
+            if (seq - m_tail >= m_capacity) {
+                m_dropped.incrementAndGet();
+                return;
+            }
+        } while (!m_head.compareAndSet(seq, seq + 1));
+
+        int slot = (int) (seq & m_mask);
+        int f = slot * MAX_FIELDS;
+        m_ids[slot] = id;
+        m_counts[slot] = n;
+        m_times[slot] = System.nanoTime();
+        m_fields[f] = a;
+        m_fields[f + 1] = b;
+        m_fields[f + 2] = c;
+        m_fields[f + 3] = d;
+        m_published.lazySet(slot, seq + 1);
+    }
+
+    /**
+     * Start draining the ring to the specified file, creating its
+     * directory if necessary.  Older log files in the directory (those
+     * with the same extension) are deleted, oldest first, to keep at
+     * most MAX_LOG_FILES including this one.
+     * @param file The log file
+     * @throws IOException if the file can't be created
+     */
+    public void start(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            pruneLogs(dir, (dot >= 0) ? name.substring(dot) : name, MAX_LOG_FILES - 1);
+        }
+        start(new FileOutputStream(file));
+    }
+
+    /**
+     * Delete the oldest log files in a directory, leaving the newest
+     * (by modification time, then name)
+     * @param dir The directory
+     * @param suffix Only files whose names end with this are logs
+     * @param keep How many to leave
+     * @return How many were deleted
+     */
+    static int pruneLogs(File dir, String suffix, int keep) {
+        File[] logs = dir.listFiles(f -> f.isFile() && f.getName().endsWith(suffix));
+        if ((logs == null) || (logs.length <= keep)) {
+            return 0;
+        }
+        Arrays.sort(logs, Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+        int deleted = 0;
+        for (int i = 0; i < logs.length - Math.max(keep, 0); i++) {
+            if (logs[i].delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Start draining the ring to the specified stream, on a background
+     * (daemon) thread.  The stream is closed by stop().
+     * @param os The stream
+     * @throws IOException if the header can't be written
+     */
+    public synchronized void start(OutputStream os) throws IOException {
+        if (m_running) {
+            throw new IllegalStateException("BinaryLogger already started");
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 16384));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        m_running = true;
+        m_thread = new Thread(() -> drain(out), "BinaryLogger");
+        m_thread.setDaemon(true);
+        m_thread.setPriority(Thread.MIN_PRIORITY);
+        m_thread.start();
+    }
+
+    /**
+     * Drain whatever is in the ring, then stop the background thread
+     * and close the stream.
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            m_running = false;
+            t = m_thread;
+            m_thread = null;
+        }
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Body of the drain thread
+     */
+    private void drain(DataOutputStream out) {
+        int defined = 0;
+        long droppedWritten = 0;
+        try {
+            while (true) {
+                boolean running = m_running;
+                long tail = m_tail;
+                int slot = (int) (tail & m_mask);
+                if (m_published.get(slot) == tail + 1) {
+                    int id = m_ids[slot];
+                    int n = m_counts[slot];
+                    long time = m_times[slot];
+                    int f = slot * MAX_FIELDS;
+                    if (id >= defined) {
+                        defined = writeDefinitions(out, defined, id);
+                    }
+                    out.writeByte(TAG_EVENT);
+                    out.writeShort(id);
+                    out.writeLong(time);
+                    for (int i = 0; i < n; i++) {
+                        out.writeDouble(m_fields[f + i]);
+                    }
+                    m_tail = tail + 1;
+                } else {
+                    // Nothing to do; note any drops, flush, and wait
+                    long dropped = m_dropped.get();
+                    if (dropped != droppedWritten) {
+                        out.writeByte(TAG_DROPS);
+                        out.writeLong(dropped);
+                        droppedWritten = dropped;
+                    }
+                    out.flush();
+                    if (!running) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            m_running = false;
+            System.err.println("BinaryLogger stopped: " + e);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // nothing more we can do
+            }
+        }
+    }
+
+    /**
+     * Write the definitions for ids from first through last
+     * @return Number of ids now defined
+     */
+    private int writeDefinitions(DataOutputStream out, int first, int last) throws IOException {
+        synchronized (this) {
+            for (int id = first; id <= last; id++) {
+                String[] fields = m_fieldNames.get(id);
+                out.writeByte(TAG_DEFINITION);
+                out.writeShort(id);
+                out.writeUTF(m_names.get(id));
+                out.writeByte(fields.length);
+                for (String field : fields) {
+                    out.writeUTF(field);
+                }
+            }
+        }
+        return last + 1;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * Dead-reckoning for a differential (tank) drive: integrates the changes
+ * in the left and right wheel distances, together with the gyro heading,
+ * into a field-relative pose (x, y, heading).
+ * Each update moves the robot the average of the two wheel deltas along
+ * the mean of the previous and current headings (the midpoint rule, which
+ * is exact for a constant-curvature arc up to second order).  The heading
+ * comes from the gyro rather than from the wheel difference, since wheel
+ * slip in turns makes the latter much worse.
+ * Headings are field-relative angles in radians, as used by Vec2d.
+ * Not thread-safe; the Odometry subsystem does the locking.
+ * @author lwa
+ */
+public class DiffDriveOdometry {
+
+    private double m_x;
+    private double m_y;
+
+    /**
+     * Added to the gyro heading to get the field heading; set by reset()
+     */
+    private double m_headingOffset;
+
+    /**
+     * Field heading at the last update
+     */
+    private double m_heading;
+
+    private double m_lastLeft;
+    private double m_lastRight;
+    private double m_lastGyro;
+
+    /**
+     * False until the first update, which only records the baselines
+     */
+    private boolean m_started;
+
+    /**
+     * Heading passed to reset() before the first update, else NaN
+     */
+    private double m_seedHeading;
+
+    /**
+     * Construct odometry with the robot at the origin, pointing wherever
+     * the gyro says it is
+     */
+    public DiffDriveOdometry() {
+        m_x = 0.0d;
+        m_y = 0.0d;
+        m_headingOffset = 0.0d;
+        m_heading = 0.0d;
+        m_started = false;
+        m_seedHeading = Double.NaN;
+    }
+
+    /**
+     * Integrate one set of readings
+     * @param left Total left wheel distance (any origin; only changes matter)
+     * @param right Total right wheel distance
+     * @param gyroHeading Heading from the gyro, in radians (field convention)
+     */
+    public void update(double left, double right, double gyroHeading) {
+        if (!Double.isNaN(m_seedHeading)) {
+            m_headingOffset = normalize(m_seedHeading - gyroHeading);
+            m_seedHeading = Double.NaN;
+        }
+        double heading = normalize(gyroHeading + m_headingOffset);
+        if (m_started) {
+            double dist = ((left - m_lastLeft) + (right - m_lastRight)) / 2.0d;
+            double mid = m_heading + (normalize(heading - m_heading) / 2.0d);
+            m_x += dist * Math.cos(mid);
+            m_y += dist * Math.sin(mid);
+        }
+        m_heading = heading;
+        m_lastLeft = left;
+        m_lastRight = right;
+        m_lastGyro = gyroHeading;
+        m_started = true;
+    }
+
+    /**
+     * Seed the pose: from now on the robot is at (x, y) with the given
+     * field heading, and later updates move it from there.
+     * @param x Field x-coord
+     * @param y Field y-coord
+     * @param heading Field heading in radians
+     */
+    public void reset(double x, double y, double heading) {
+        m_x = x;
+        m_y = y;
+        m_heading = normalize(heading);
+        if (m_started) {
+            m_headingOffset = normalize(heading - m_lastGyro);
+        } else {
+            // We don't know the gyro heading yet; work out the
+            // offset at the first update
+            m_seedHeading = heading;
+        }
+    }
+
+    /**
+     * The gyro has been reset (its heading jumped) but the robot hasn't
+     * moved: keep the pose, and measure later headings from the new gyro
+     * heading.  Call before the next update sees the new heading, or that
+     * update integrates across the jump.
+     * @param gyroHeading Gyro heading after the reset, in radians
+     */
+    public void rebase(double gyroHeading) {
+        if (m_started) {
+            m_headingOffset = normalize(m_heading - gyroHeading);
+            m_lastGyro = gyroHeading;
+        }
+    }
+
+    /**
+     * Get the angle from the gyro's frame to this odometry's: the field
+     * heading is the gyro heading plus this offset.  Zero until reset()
+     * seeds a heading different from the gyro's (and until the first
+     * update after such a reset).
+     * @return Offset in radians, -pi <= res <= pi
+     */
+    public double getHeadingOffset() {
+        return m_headingOffset;
+    }
+
+    /**
+     * Get the x-coordinate of the robot's position
+     * @return Field x-coord
+     */
+    public double getX() {
+        return m_x;
+    }
+
+    /**
+     * Get the y-coordinate of the robot's position
+     * @return Field y-coord
+     */
+    public double getY() {
+        return m_y;
+    }
+
+    /**
+     * Get the robot's field heading
+     * @return Heading in radians, -pi <= res <= pi
+     */
+    public double getHeading() {
+        return m_heading;
+    }
+
+    private static double normalize(double a) {
+        return Math.IEEEremainder(a, 2.0d * Math.PI);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * Precomputed floor distance to a target from its central y angle, for
+ * one camera (height and aiming angle) and one target height:
+ *   distance = (targ ht - camera ht) / tan(camera angle + ty)
+ * The table covers the camera's vertical field of view, at a spacing
+ * fine enough that linear interpolation is within a given error bound
+ * of the formula, so a lookup costs an index computation and one
+ * interpolation instead of toRadians and tan.
+ * As ty drops toward the horizon (camera angle + ty = 0) the distance
+ * blows up, and past it the formula gives garbage; the table stops at
+ * the ty where the distance reaches a maximum, and returns NaN below
+ * that (and above the field of view).
+ * Only targets above the camera are supported.  Immutable.
+ * @author lwa
+ */
+public class DistanceTable {
+
+    /**
+     * Default largest interpolation error, in distance units
+     */
+    public static final double DEFAULT_MAX_ERROR = 0.01d;
+
+    /**
+     * Default largest distance in the table: about the furthest a target
+     * can be made out
+     */
+    public static final double DEFAULT_MAX_DISTANCE = 300.0d;
+
+    /**
+     * Most entries we'll use to meet the error bound
+     */
+    static final int MAX_SIZE = 1 << 16;
+
+    private final double m_heightDiff;
+    private final double m_aim;
+    private final double m_minTy;
+    private final double m_maxTy;
+    private final double m_invStep;
+    private final double[] m_dist;
+    private final double m_maxError;
+
+    /**
+     * Constructor, with the default error bound and maximum distance
+     * @param camHeight Camera height above floor
+     * @param vAim Vertical aiming angle of the camera relative to horizon,
+     * in degrees
+     * @param targHeight Height of the target above the floor
+     * @param vFov Camera's vertical field of view, in degrees
+     */
+    public DistanceTable(double camHeight, double vAim, double targHeight, double vFov) {
+        this(camHeight, vAim, targHeight, vFov, DEFAULT_MAX_ERROR, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * Constructor
+     * @param camHeight Camera height above floor
+     * @param vAim Vertical aiming angle of the camera relative to horizon,
+     * in degrees
+     * @param targHeight Height of the target above the floor
+     * @param vFov Camera's vertical field of view, in degrees
+     * @param maxError Largest interpolation error allowed
+     * @param maxDistance Largest distance in the table
+     * @throws IllegalArgumentException if the target isn't above the
+     * camera, the error bound or distance isn't positive, no part of the
+     * field of view is in range, or the error bound can't be met
+     */
+    public DistanceTable(double camHeight, double vAim, double targHeight, double vFov,
+                         double maxError, double maxDistance) {
+        if (!(targHeight > camHeight)) {
+            throw new IllegalArgumentException("target height " + targHeight
+                                               + " not above camera height " + camHeight);
+        }
+        if (!(maxError > 0.0d) || !(maxDistance > 0.0d) || !(vFov > 0.0d)) {
+            throw new IllegalArgumentException("bad error bound, distance or field of view");
+        }
+        m_heightDiff = targHeight - camHeight;
+        m_aim = vAim;
+
+        // The near end is the top of the field of view; the far end the
+        // bottom, or where the distance reaches maxDistance if that's higher
+        m_maxTy = vFov / 2.0d;
+        m_minTy = Math.max(-vFov / 2.0d, Math.toDegrees(Math.atan(m_heightDiff / maxDistance)) - vAim);
+        if (!(m_minTy < m_maxTy) || (m_maxTy + vAim >= 90.0d)) {
+            throw new IllegalArgumentException("field of view " + vFov + " at aim " + vAim
+                                               + " has no targets in range");
+        }
+
+        // Double the table until every segment is within the bound.  The
+        // distance is convex in ty, so the worst error in a segment is
+        // close to its middle.
+        int segments = 16;
+        double[] dist;
+        double err;
+        do {
+            segments *= 2;
+            if (segments >= MAX_SIZE) {
+                throw new IllegalArgumentException("can't meet error bound " + maxError);
+            }
+            double step = (m_maxTy - m_minTy) / segments;
+            dist = new double[segments + 1];
+            for (int i = 0; i <= segments; i++) {
+                dist[i] = exact(m_minTy + (i * step));
+            }
+            err = 0.0d;
+            for (int i = 0; i < segments; i++) {
+                double mid = exact(m_minTy + ((i + 0.5d) * step));
+                err = Math.max(err, Math.abs(((dist[i] + dist[i + 1]) / 2.0d) - mid));
+            }
+        } while (err > maxError);
+
+        m_dist = dist;
+        m_invStep = segments / (m_maxTy - m_minTy);
+        m_maxError = err;
+    }
+
+    /**
+     * The distance formula, for building and checking the table
+     * @param ty Central y angle of the target in degrees
+     * @return Floor distance to the target
+     */
+    public double exact(double ty) {
+        return m_heightDiff / Math.tan(Math.toRadians(ty + m_aim));
+    }
+
+    /**
+     * Floor distance to the target
+     * @param ty Central y angle of the target in degrees
+     * @return The distance, within getMaxError() of exact(); or NaN if ty
+     * is below getMinTy() (too far away, or beyond the horizon) or above
+     * getMaxTy()
+     */
+    public double getDistance(double ty) {
+        if (!(ty >= m_minTy && ty <= m_maxTy)) {
+            return Double.NaN;
+        }
+        double pos = (ty - m_minTy) * m_invStep;
+        int i = Math.min((int) pos, m_dist.length - 2);
+        double d0 = m_dist[i];
+        return d0 + ((pos - i) * (m_dist[i + 1] - d0));
+    }
+
+    /**
+     * Lowest ty in the table: the far end
+     * @return ty in degrees
+     */
+    public double getMinTy() {
+        return m_minTy;
+    }
+
+    /**
+     * Highest ty in the table: the top of the field of view
+     * @return ty in degrees
+     */
+    public double getMaxTy() {
+        return m_maxTy;
+    }
+
+    /**
+     * Largest interpolation error measured when the table was built
+     * @return Error in distance units
+     */
+    public double getMaxError() {
+        return m_maxError;
+    }
+
+    /**
+     * Height of the target above the camera
+     * @return Height difference
+     */
+    public double getHeightDiff() {
+        return m_heightDiff;
+    }
+
+    /**
+     * Number of entries in the table
+     * @return The size
+     */
+    public int size() {
+        return m_dist.length;
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Map of every vision target on the field, for choosing the target the
+ * camera is looking at from the robot's pose rather than from its heading
+ * alone.  The targets are kept in a 2-d tree, so finding the nearest
+ * visible target takes O(log n) for a typical query, pruning whole
+ * regions of the field that are further away than the best target so far.
+ * A target is visible if it's within the camera's field of view, within
+ * range, and facing the robot closely enough for its tape to be seen.
+ * Queries use scratch state in the map, so they're synchronized.
+ * Positions, normals and query headings are in the map's own frame (see
+ * FIELD_FILE), which is the Odometry's once it's seeded with a start
+ * position; it isn't Nav's, so rotate by Odometry.getHeadingOffset() to
+ * mix them.
+ *
+ * The map lives in a ByteBuffer in a compact binary format, and the
+ * search reads the buffer directly.  On the robot the buffer is FIELD_BIN,
+ * memory-mapped from the deploy directory, so loading it at boot costs
+ * next to nothing; FieldMapCompiler produces FIELD_BIN at build time from
+ * the readable FIELD_FILE.  Off the robot, if there's no FIELD_BIN, the
+ * map is built from FIELD_FILE instead.
+ *
+ * FIELD_FILE has one target per line: "name, x, y, normalAngle, height"
+ * (position and height in RobotModel units, angle in degrees).  Blank
+ * lines and lines starting with # are ignored.
+ *
+ * Binary format (big-endian):
+ *   header:  int MAGIC, short VERSION, short RECORD_SIZE, int count,
+ *            int offset of the name table
+ *   records: count x { double x, y, normalX, normalY, height,
+ *            int name offset (in the name table), int name length },
+ *            in tree order (see build())
+ *   names:   UTF-8 bytes
+ * @author lwa
+ */
+public class FieldMap {
+
+    public static final String FIELD_FILE = "field.csv";
+    public static final String FIELD_BIN = "field.bin";
+
+    public static final int MAGIC = 0x464D4150;     // "FMAP"
+    public static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 48;
+
+    // Offsets of the fields within a record
+    private static final int X = 0;
+    private static final int Y = 8;
+    private static final int NX = 16;
+    private static final int NY = 24;
+    private static final int HEIGHT = 32;
+    static final int NAME_OFFSET = 40;
+    static final int NAME_LENGTH = 44;
+
+    /**
+     * Default largest angle between the robot's heading and a target for
+     * the camera to see it: half the Limelight's horizontal field of view
+     */
+    public static final double DEFAULT_MAX_BEARING = Math.toRadians(27.0d);
+
+    /**
+     * Default largest angle between a target's normal and the direction
+     * to the camera for its tape to be recognizable
+     */
+    public static final double DEFAULT_MAX_VIEW_ANGLE = Math.toRadians(75.0d);
+
+    /**
+     * Default furthest a target can be seen from
+     */
+    public static final double DEFAULT_MAX_RANGE = 240.0d;
+
+    private static FieldMap s_field = null;
+
+    private final ByteBuffer m_buf;
+    private final int m_count;
+    private final int m_names;
+
+    /**
+     * FieldTarget objects for the targets, made as they're first asked for
+     */
+    private final FieldTarget[] m_targets;
+
+    // Scratch state for the current query
+    private double m_qx;
+    private double m_qy;
+    private double m_hx;
+    private double m_hy;
+    private double m_cosBearing;
+    private double m_cosView;
+    private boolean m_visibleOnly;
+    private double m_bestDist2;
+    private int m_best;
+
+    /**
+     * Construct a map of the specified targets
+     * @param targets The targets
+     */
+    public FieldMap(List<FieldTarget> targets) {
+        this(encode(targets));
+    }
+
+    /**
+     * Construct a map over a buffer in the binary format
+     * @param buf The buffer
+     * @throws IllegalArgumentException if the buffer isn't a field map
+     */
+    private FieldMap(ByteBuffer buf) {
+        if ((buf.limit() < HEADER_SIZE) || (buf.getInt(0) != MAGIC)) {
+            throw new IllegalArgumentException("not a field map");
+        }
+        if ((buf.getShort(4) != VERSION) || (buf.getShort(6) != RECORD_SIZE)) {
+            throw new IllegalArgumentException("unsupported field map version " + buf.getShort(4));
+        }
+        m_count = buf.getInt(8);
+        m_names = buf.getInt(12);
+        if ((m_count < 0) || (m_names != HEADER_SIZE + ((long) m_count * RECORD_SIZE))
+            || (m_names > buf.limit())) {
+            throw new IllegalArgumentException("corrupt field map");
+        }
+
+        // Check every name is within the name table now, so that a
+        // truncated or corrupt map fails to load rather than failing in
+        // getTarget() in the middle of a match
+        long namesSize = buf.limit() - m_names;
+        for (int i = 0; i < m_count; i++) {
+            int rec = HEADER_SIZE + (i * RECORD_SIZE);
+            int offset = buf.getInt(rec + NAME_OFFSET);
+            int length = buf.getInt(rec + NAME_LENGTH);
+            if ((offset < 0) || (length < 0) || ((long) offset + length > namesSize)) {
+                throw new IllegalArgumentException("corrupt field map: name of target " + i
+                                                   + " is outside the name table");
+            }
+        }
+        m_buf = buf;
+        m_targets = new FieldTarget[m_count];
+    }
+
+    /**
+     * Encode targets in the binary format, in tree order
+     * @param targets The targets
+     * @return Buffer holding the map
+     */
+    private static ByteBuffer encode(List<FieldTarget> targets) {
+        FieldTarget[] sorted = targets.toArray(new FieldTarget[0]);
+        build(sorted, 0, sorted.length, 0);
+        byte[][] names = new byte[sorted.length][];
+        int namesSize = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            names[i] = sorted[i].getName().getBytes(StandardCharsets.UTF_8);
+            namesSize += names[i].length;
+        }
+        int namesStart = HEADER_SIZE + (sorted.length * RECORD_SIZE);
+        ByteBuffer buf = ByteBuffer.allocate(namesStart + namesSize);
+        buf.putInt(MAGIC);
+        buf.putShort(VERSION);
+        buf.putShort((short) RECORD_SIZE);
+        buf.putInt(sorted.length);
+        buf.putInt(namesStart);
+        int nameOffset = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            FieldTarget t = sorted[i];
+            buf.putDouble(t.getPosition().getX());
+            buf.putDouble(t.getPosition().getY());
+            buf.putDouble(t.getNormal().getX());
+            buf.putDouble(t.getNormal().getY());
+            buf.putDouble(t.getHeight());
+            buf.putInt(nameOffset);
+            buf.putInt(names[i].length);
+            nameOffset += names[i].length;
+        }
+        for (byte[] name : names) {
+            buf.put(name);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Put targets[lo, hi) into tree order: the subtree over [lo, hi) has
+     * its root at (lo + hi) >>> 1, and splits on x at even depths and on
+     * y at odd ones
+     */
+    private static void build(FieldTarget[] targets, int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        Comparator<FieldTarget> cmp = ((depth & 1) == 0)
+            ? Comparator.comparingDouble(t -> t.getPosition().getX())
+            : Comparator.comparingDouble(t -> t.getPosition().getY());
+        Arrays.sort(targets, lo, hi, cmp);
+        int mid = (lo + hi) >>> 1;
+        build(targets, lo, mid, depth + 1);
+        build(targets, mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Get the robot-wide field map the first time, from the deploy
+     * directory: FIELD_BIN if it's there, otherwise FIELD_FILE
+     * @return The map
+     * @throws IllegalStateException if neither file can be found or read
+     */
+    public static synchronized FieldMap getField() {
+        if (s_field == null) {
+            s_field = findField();
+        }
+        return s_field;
+    }
+
+    private static FieldMap findField() {
+        for (String dir : TargetVecMapper.DEPLOY_DIRS) {
+            File bin = new File(dir, FIELD_BIN);
+            File text = new File(dir, FIELD_FILE);
+            try {
+                if (bin.isFile()) {
+                    return map(bin);
+                }
+                if (text.isFile()) {
+                    return load(text);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("can't read field map from " + dir, e);
+            }
+        }
+        throw new IllegalStateException("can't find " + FIELD_BIN + " or " + FIELD_FILE);
+    }
+
+    /**
+     * Memory-map a binary map file
+     * @param file The file
+     * @return The map
+     * @throws IOException if the file can't be read, or isn't a field map
+     */
+    public static FieldMap map(File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new FieldMap(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wrap a binary map already in memory
+     * @param bytes The map
+     * @return The map
+     * @throws IllegalArgumentException if the bytes aren't a field map
+     */
+    public static FieldMap wrap(byte[] bytes) {
+        return new FieldMap(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Write the map in the binary format
+     * @param out The stream to write to
+     * @throws IOException if the stream can't be written
+     */
+    public void write(OutputStream out) throws IOException {
+        ByteBuffer buf = m_buf.duplicate();
+        buf.rewind();
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        out.write(bytes);
+    }
+
+    /**
+     * Load a map from a text file
+     * @param file The file
+     * @return The map
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public static FieldMap load(File file) throws IOException {
+        try (Reader in = new FileReader(file)) {
+            return load(in);
+        }
+    }
+
+    /**
+     * Load a map from a text stream
+     * @param in The stream
+     * @return The map
+     * @throws IOException if the stream can't be read
+     * @throws IllegalArgumentException if the contents are malformed
+     */
+    public static FieldMap load(Reader in) throws IOException {
+        List<FieldTarget> targets = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        BufferedReader rdr = new BufferedReader(in);
+        String line;
+        int lineNo = 0;
+        while ((line = rdr.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s*,\\s*");
+            if (fields.length != 5) {
+                throw new IllegalArgumentException("line " + lineNo + ": expected 5 fields: " + line);
+            }
+            if (!names.add(fields[0])) {
+                throw new IllegalArgumentException("line " + lineNo + ": duplicate target " + fields[0]);
+            }
+            try {
+                targets.add(new FieldTarget(fields[0], Double.parseDouble(fields[1]),
+                                            Double.parseDouble(fields[2]),
+                                            Math.toRadians(Double.parseDouble(fields[3])),
+                                            Double.parseDouble(fields[4])));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("line " + lineNo + ": bad number: " + line);
+            }
+        }
+        return new FieldMap(targets);
+    }
+
+    /**
+     * Number of targets on the map
+     * @return The count
+     */
+    public int size() {
+        return m_count;
+    }
+
+    private double get(int i, int field) {
+        return m_buf.getDouble(HEADER_SIZE + (i * RECORD_SIZE) + field);
+    }
+
+    /**
+     * Get a target
+     * @param i Index, 0 <= i < size() (in no particular order)
+     * @return The target
+     */
+    public synchronized FieldTarget getTarget(int i) {
+        if ((i < 0) || (i >= m_count)) {
+            throw new IndexOutOfBoundsException("index " + i + " size " + m_count);
+        }
+        if (m_targets[i] == null) {
+            int rec = HEADER_SIZE + (i * RECORD_SIZE);
+            byte[] name = new byte[m_buf.getInt(rec + NAME_LENGTH)];
+            int nameStart = m_names + m_buf.getInt(rec + NAME_OFFSET);
+            for (int j = 0; j < name.length; j++) {
+                name[j] = m_buf.get(nameStart + j);
+            }
+            m_targets[i] = new FieldTarget(new String(name, StandardCharsets.UTF_8), get(i, X), get(i, Y),
+                                           Math.atan2(get(i, NY), get(i, NX)), get(i, HEIGHT));
+        }
+        return m_targets[i];
+    }
+
+    /**
+     * Get all the targets (in no particular order)
+     * @return The targets
+     */
+    public List<FieldTarget> getTargets() {
+        List<FieldTarget> res = new ArrayList<>(m_count);
+        for (int i = 0; i < m_count; i++) {
+            res.add(getTarget(i));
+        }
+        return res;
+    }
+
+    /**
+     * Find the nearest target to a point, visible or not
+     * @param x Field x-coordinate
+     * @param y Field y-coordinate
+     * @return The nearest target, or null if the map is empty
+     */
+    public synchronized FieldTarget findNearest(double x, double y) {
+        return query(x, y, 0.0d, false, 0.0d, 0.0d, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Find the nearest target visible from a pose, with the default
+     * camera limits
+     * @param x Robot's field x-coordinate
+     * @param y Robot's field y-coordinate
+     * @param heading Robot's field heading in radians
+     * @return The target, or null if none is visible
+     */
+    public FieldTarget findNearestVisible(double x, double y, double heading) {
+        return findNearestVisible(x, y, heading, DEFAULT_MAX_BEARING, DEFAULT_MAX_VIEW_ANGLE,
+                                  DEFAULT_MAX_RANGE);
+    }
+
+    /**
+     * Find the nearest target visible from a pose
+     * @param x Robot's field x-coordinate
+     * @param y Robot's field y-coordinate
+     * @param heading Robot's field heading in radians
+     * @param maxBearing Largest angle (radians) between the heading and
+     * the direction to a visible target
+     * @param maxViewAngle Largest angle (radians) between a visible
+     * target's normal and the direction from it to the robot
+     * @param maxRange Furthest a visible target can be
+     * @return The target, or null if none is visible
+     */
+    public synchronized FieldTarget findNearestVisible(double x, double y, double heading,
+                                                       double maxBearing, double maxViewAngle,
+                                                       double maxRange) {
+        return query(x, y, heading, true, maxBearing, maxViewAngle, maxRange);
+    }
+
+    private FieldTarget query(double x, double y, double heading, boolean visibleOnly,
+                              double maxBearing, double maxViewAngle, double maxRange) {
+        m_qx = x;
+        m_qy = y;
+        m_hx = Trig.cos(heading);
+        m_hy = Trig.sin(heading);
+        m_cosBearing = Math.cos(maxBearing);
+        m_cosView = Math.cos(maxViewAngle);
+        m_visibleOnly = visibleOnly;
+        m_bestDist2 = maxRange * maxRange;
+        m_best = -1;
+        search(0, m_count, 0);
+        return (m_best >= 0) ? getTarget(m_best) : null;
+    }
+
+    /**
+     * Search the subtree over [lo, hi): the root, then the side of the
+     * split the query point is on, then the other side only if the
+     * split is closer than the best target so far
+     */
+    private void search(int lo, int hi, int depth) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        consider(mid);
+        double diff = ((depth & 1) == 0) ? (m_qx - get(mid, X)) : (m_qy - get(mid, Y));
+        if (diff < 0.0d) {
+            search(lo, mid, depth + 1);
+            if (diff * diff < m_bestDist2) {
+                search(mid + 1, hi, depth + 1);
+            }
+        } else {
+            search(mid + 1, hi, depth + 1);
+            if (diff * diff < m_bestDist2) {
+                search(lo, mid, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * Make target i the best so far if it's nearer and (if required) visible
+     */
+    private void consider(int i) {
+        double dx = get(i, X) - m_qx;
+        double dy = get(i, Y) - m_qy;
+        double dist2 = (dx * dx) + (dy * dy);
+        if (dist2 >= m_bestDist2) {
+            return;
+        }
+        if (m_visibleOnly) {
+            double dist = Math.sqrt(dist2);
+            // Within the camera's view, and facing us
+            if (((dx * m_hx) + (dy * m_hy)) < dist * m_cosBearing) {
+                return;
+            }
+            if (-((dx * get(i, NX)) + (dy * get(i, NY))) < dist * m_cosView) {
+                return;
+            }
+        }
+        m_bestDist2 = dist2;
+        m_best = i;
+    }
+}
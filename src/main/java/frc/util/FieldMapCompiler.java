@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Build-time converter from the readable field map (FieldMap.FIELD_FILE)
+ * to the binary one the robot memory-maps (FieldMap.FIELD_BIN).  Run by
+ * the compileFieldMap gradle task before deploying:
+ * <pre>
+ *   java frc.util.FieldMapCompiler src/main/deploy/field.csv build/deploy/field.bin
+ * </pre>
+ * @author lwa
+ */
+public class FieldMapCompiler {
+
+    private FieldMapCompiler() {
+    }
+
+    /**
+     * Compile a text field map into a binary one
+     * @param in The text file
+     * @param out The binary file to write, replacing any that's there
+     * @return The map
+     * @throws IOException if a file can't be read or written
+     * @throws IllegalArgumentException if the text file is malformed
+     */
+    public static FieldMap compile(File in, File out) throws IOException {
+        FieldMap field = FieldMap.load(in);
+        File dir = out.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(out))) {
+            field.write(os);
+        }
+        return field;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("usage: FieldMapCompiler field.csv field.bin");
+            System.exit(2);
+        }
+        try {
+            FieldMap field = compile(new File(args[0]), new File(args[1]));
+            System.out.println(args[1] + ": " + field.size() + " targets");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(args[0] + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * A vision target at a known place on the field: its position, the
+ * direction it faces, and its height.  Immutable.
+ * @author lwa
+ */
+public class FieldTarget {
+
+    private final String m_name;
+    private final Vec2d m_position;
+    private final Vec2d m_normal;
+    private final double m_height;
+
+    /**
+     * Constructor
+     * @param name Name of the target, for logs and the dashboard
+     * @param x Field x-coordinate of the target's center
+     * @param y Field y-coordinate of the target's center
+     * @param normalAngle Field angle (radians) of the unit vector pointing
+     * perpendicularly away from the target
+     * @param height Height of the target's center above the floor
+     */
+    public FieldTarget(String name, double x, double y, double normalAngle, double height) {
+        m_name = name;
+        m_position = Vec2d.makeCart(x, y);
+        m_normal = Vec2d.makePolar(1.0d, normalAngle);
+        m_height = height;
+    }
+
+    /**
+     * Get the target's name
+     * @return The name
+     */
+    public String getName() {
+        return m_name;
+    }
+
+    /**
+     * Get the target's field position
+     * @return Position
+     */
+    public Vec2d getPosition() {
+        return m_position;
+    }
+
+    /**
+     * Get the target's normal
+     * @return Unit vector pointing perpendicularly away from the target
+     */
+    public Vec2d getNormal() {
+        return m_normal;
+    }
+
+    /**
+     * Get the target's height
+     * @return Height of the target's center above the floor
+     */
+    public double getHeight() {
+        return m_height;
+    }
+
+    @Override
+    public String toString() {
+        return m_name + m_position;
+    }
+}
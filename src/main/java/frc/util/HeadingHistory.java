@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * A short history of the robot's heading, for looking up where the robot
+ * was pointing at some time in the recent past -- e.g. when a camera frame
+ * that has only just arrived was actually captured.  Samples of (time,
+ * heading) are kept in a fixed-size ring buffer; lookups interpolate
+ * linearly between the two samples bracketing the requested time, the
+ * short way round the circle.
+ * Headings are field-relative angles in radians (0 along the X axis,
+ * positive counterclockwise), as used by Vec2d.  Times are in seconds,
+ * from whatever clock the caller uses consistently (normally the FPGA
+ * timestamp).
+ * Thread-safe: samples are usually added from one thread and looked up
+ * from another.
+ * @author lwa
+ */
+public class HeadingHistory {
+
+    private final double[] m_times;
+    private final double[] m_headings;
+
+    /**
+     * Index of the next slot to fill
+     */
+    private int m_next;
+
+    /**
+     * Number of samples held (at most the capacity)
+     */
+    private int m_size;
+
+    /**
+     * Construct an empty history
+     * @param capacity Maximum number of samples kept
+     */
+    public HeadingHistory(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+        }
+        m_times = new double[capacity];
+        m_headings = new double[capacity];
+        m_next = 0;
+        m_size = 0;
+    }
+
+    /**
+     * Add a sample.  Samples must be added in time order; one that isn't
+     * later than the newest sample already held is ignored.
+     * @param time Sample time in seconds
+     * @param heading Field-relative heading in radians
+     */
+    public synchronized void add(double time, double heading) {
+        if (m_size > 0 && !(time > m_times[index(m_size - 1)])) {
+            return;
+        }
+        m_times[m_next] = time;
+        m_headings[m_next] = heading;
+        m_next = (m_next + 1) % m_times.length;
+        if (m_size < m_times.length) {
+            m_size++;
+        }
+    }
+
+    /**
+     * Number of samples held
+     * @return The number of samples
+     */
+    public synchronized int size() {
+        return m_size;
+    }
+
+    /**
+     * Remove all samples
+     */
+    public synchronized void clear() {
+        m_next = 0;
+        m_size = 0;
+    }
+
+    /**
+     * Get the heading at the specified time, interpolated between the
+     * samples on either side of it.  Times before the oldest sample get
+     * the oldest heading, and times after the newest get the newest.
+     * @param time Time in seconds
+     * @return Field-relative heading in radians, -pi <= res <= pi
+     * @throws IllegalStateException if the history is empty
+     */
+    public synchronized double getHeading(double time) {
+        if (m_size == 0) {
+            throw new IllegalStateException("no heading samples");
+        }
+        int newest = index(m_size - 1);
+        if (time >= m_times[newest]) {
+            return normalize(m_headings[newest]);
+        }
+        int oldest = index(0);
+        if (time <= m_times[oldest]) {
+            return normalize(m_headings[oldest]);
+        }
+
+        // We're normally asked about the last few samples, so search
+        // backwards from the newest
+        int i = m_size - 1;
+        while (m_times[index(i - 1)] > time) {
+            i--;
+        }
+        int hi = index(i);
+        int lo = index(i - 1);
+        double frac = (time - m_times[lo]) / (m_times[hi] - m_times[lo]);
+        double delta = Math.IEEEremainder(m_headings[hi] - m_headings[lo], 2.0d * Math.PI);
+        return normalize(m_headings[lo] + (frac * delta));
+    }
+
+    /**
+     * Ring index of the i'th oldest sample
+     */
+    private int index(int i) {
+        return (m_next - m_size + i + m_times.length) % m_times.length;
+    }
+
+    private static double normalize(double a) {
+        return Math.IEEEremainder(a, 2.0d * Math.PI);
+    }
+}
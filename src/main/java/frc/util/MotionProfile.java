@@ -0,0 +1,281 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * A trapezoidal motion profile for driving a fixed distance: constant
+ * acceleration up to the cruise velocity, constant velocity, then
+ * constant deceleration to a stop at the distance.  If the distance is
+ * too short to reach the cruise velocity the profile is triangular,
+ * peaking at the velocity where acceleration and deceleration meet.
+ * The whole plan is computed in closed form when the profile is
+ * constructed, as position, velocity and feed-forward motor power at
+ * every time step, and kept in arrays that never change afterwards, so
+ * a profile can be shared freely.  Sampling by elapsed time is a table
+ * lookup with linear interpolation.
+ * Feed-forward power is kS + kV * velocity while moving (the power to
+ * overcome friction plus the power per unit velocity), capped at 1,
+ * and 0 when stopped -- except at the start, where the power is planned
+ * for the end of the first step, so that the first step (e.g. the first
+ * scheduler tick of a drive) gets the robot moving.
+ * @author lwa
+ */
+public class MotionProfile {
+
+    private final double m_distance;
+    private final double m_velocity;
+    private final double m_accel;
+    private final double m_dt;
+    private final double m_duration;
+    private final double m_accelTime;
+    private final double m_runTime;
+
+    // Step i is at time i * m_dt; the last step is at m_duration
+    private final double[] m_pos;
+    private final double[] m_vel;
+    private final double[] m_power;
+
+    /**
+     * Plan a profile
+     * @param distance Distance to drive (> 0)
+     * @param maxVelocity Cruise velocity, units per second (> 0)
+     * @param accel Acceleration and deceleration, units per second per second (> 0)
+     * @param dt Time step, in seconds (> 0)
+     * @param kS Power to overcome friction
+     * @param kV Power per unit of velocity
+     */
+    public MotionProfile(double distance, double maxVelocity, double accel, double dt,
+                         double kS, double kV) {
+        if (!(distance > 0.0d) || !(maxVelocity > 0.0d) || !(accel > 0.0d) || !(dt > 0.0d)) {
+            throw new IllegalArgumentException("bad profile: distance " + distance + " velocity "
+                                               + maxVelocity + " accel " + accel + " dt " + dt);
+        }
+        double tAccel = maxVelocity / accel;
+        double dAccel = 0.5d * accel * tAccel * tAccel;
+        double velocity = maxVelocity;
+        if ((2.0d * dAccel) > distance) {
+            // Triangular: accelerate for half the distance, decelerate for the rest
+            tAccel = Math.sqrt(distance / accel);
+            velocity = accel * tAccel;
+            dAccel = distance / 2.0d;
+        }
+        m_distance = distance;
+        m_velocity = velocity;
+        m_accel = accel;
+        m_dt = dt;
+        m_accelTime = tAccel;
+        m_runTime = (distance - (2.0d * dAccel)) / velocity;
+        m_duration = (2.0d * tAccel) + m_runTime;
+
+        int n = (int) Math.ceil(m_duration / dt) + 1;
+        m_pos = new double[n];
+        m_vel = new double[n];
+        m_power = new double[n];
+        for (int i = 0; i < n; i++) {
+            double t = Math.min(i * dt, m_duration);
+            double v;
+            if (t < tAccel) {
+                v = accel * t;
+                m_pos[i] = 0.5d * v * t;
+            } else if (t < (tAccel + m_runTime)) {
+                v = velocity;
+                m_pos[i] = dAccel + (velocity * (t - tAccel));
+            } else {
+                double tLeft = m_duration - t;
+                v = accel * tLeft;
+                m_pos[i] = distance - (0.5d * v * tLeft);
+            }
+            m_vel[i] = v;
+            m_power[i] = (v > 0.0d) ? Math.min(1.0d, kS + (kV * v)) : 0.0d;
+        }
+        m_pos[n - 1] = distance;
+        m_vel[n - 1] = 0.0d;
+        m_power[n - 1] = 0.0d;
+
+        // Power applied during the first step determines the velocity at
+        // its end, so plan it for then rather than for standing still
+        m_power[0] = Math.min(1.0d, kS + (kV * accel * Math.min(dt, tAccel)));
+    }
+
+    /**
+     * Total distance
+     * @return The distance
+     */
+    public double getDistance() {
+        return m_distance;
+    }
+
+    /**
+     * Highest velocity reached: the cruise velocity, or the peak of a
+     * triangular profile
+     * @return Peak velocity, units per second
+     */
+    public double getPeakVelocity() {
+        return m_velocity;
+    }
+
+    /**
+     * Acceleration
+     * @return Acceleration, units per second per second
+     */
+    public double getAccel() {
+        return m_accel;
+    }
+
+    /**
+     * Time from start to stop
+     * @return Duration, in seconds
+     */
+    public double getDuration() {
+        return m_duration;
+    }
+
+    /**
+     * Time spent accelerating (and, equally, decelerating)
+     * @return Acceleration time, in seconds
+     */
+    public double getAccelTime() {
+        return m_accelTime;
+    }
+
+    /**
+     * Time spent at the cruise velocity (0 for a triangular profile)
+     * @return Cruise time, in seconds
+     */
+    public double getRunTime() {
+        return m_runTime;
+    }
+
+    /**
+     * Is this a triangular profile (never reaching the cruise velocity)?
+     * @return True iff triangular
+     */
+    public boolean isTriangular() {
+        return m_runTime <= 0.0d;
+    }
+
+    /**
+     * Time step
+     * @return Step, in seconds
+     */
+    public double getDt() {
+        return m_dt;
+    }
+
+    /**
+     * Number of steps, including both the start and the stop
+     * @return Step count
+     */
+    public int size() {
+        return m_pos.length;
+    }
+
+    /**
+     * Position at a step
+     * @param i Step, 0 <= i < size()
+     * @return Position
+     */
+    public double getPosition(int i) {
+        return m_pos[i];
+    }
+
+    /**
+     * Velocity at a step
+     * @param i Step, 0 <= i < size()
+     * @return Velocity, units per second
+     */
+    public double getVelocity(int i) {
+        return m_vel[i];
+    }
+
+    /**
+     * Feed-forward power at a step
+     * @param i Step, 0 <= i < size()
+     * @return Motor power, 0..1
+     */
+    public double getPower(int i) {
+        return m_power[i];
+    }
+
+    /**
+     * Position at a time since the start
+     * @param t Elapsed time, in seconds
+     * @return Position (0 before the start, the distance after the end)
+     */
+    public double getPosition(double t) {
+        return sample(m_pos, t);
+    }
+
+    /**
+     * Velocity at a time since the start
+     * @param t Elapsed time, in seconds
+     * @return Velocity (0 before the start and after the end)
+     */
+    public double getVelocity(double t) {
+        return sample(m_vel, t);
+    }
+
+    /**
+     * Feed-forward power at a time since the start
+     * @param t Elapsed time, in seconds
+     * @return Motor power (the first step's power before the start, 0
+     * after the end)
+     */
+    public double getPower(double t) {
+        return sample(m_power, t);
+    }
+
+    /**
+     * Is the profile over at this time?
+     * @param t Elapsed time, in seconds
+     * @return True iff t is at or past the end
+     */
+    public boolean isDone(double t) {
+        return t >= m_duration;
+    }
+
+    /**
+     * Interpolate in one of the step arrays
+     */
+    private double sample(double[] a, double t) {
+        if (!(t > 0.0d)) {
+            return a[0];
+        }
+        int last = a.length - 1;
+        double pos = t / m_dt;
+        if (pos >= last) {
+            return a[last];
+        }
+        int i = (int) pos;
+        double t0 = i * m_dt;
+        double t1 = Math.min((i + 1) * m_dt, m_duration);
+        double frac = (t1 > t0) ? Math.min(1.0d, (t - t0) / (t1 - t0)) : 1.0d;
+        return a[i] + (frac * (a[i + 1] - a[i]));
+    }
+
+    @Override
+    public String toString() {
+        return "MotionProfile(" + m_distance + " at " + m_velocity + ", " + m_duration + " s)";
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of MotionProfiles.  The drive
+ * commands ask for nearly the same profiles over and over (the final
+ * approach to a target is always the same distance and velocity), so
+ * rather than plan one in every initialize() they get it from here.
+ * Requests are quantized -- distance to DISTANCE_QUANTUM, velocity to
+ * VELOCITY_QUANTUM -- and the profile is planned for the quantized
+ * values, so nearby requests share a plan and a cached plan is exactly
+ * what the key says.  The model parameters (acceleration, time step,
+ * feed-forward) are part of the key, unquantized.
+ * A lookup that hits allocates nothing.  All methods are synchronized.
+ * @author lwa
+ */
+public class MotionProfileCache {
+
+    /**
+     * Distance resolution of the cache, in distance units
+     */
+    public static final double DISTANCE_QUANTUM = 0.25d;
+
+    /**
+     * Velocity resolution of the cache, in distance units per second
+     */
+    public static final double VELOCITY_QUANTUM = 0.1d;
+
+    /**
+     * Cache key: the quantized request plus the model parameters
+     */
+    private static final class Key {
+        long m_dist;
+        long m_vel;
+        double m_accel;
+        double m_dt;
+        double m_kS;
+        double m_kV;
+
+        Key set(long dist, long vel, double accel, double dt, double kS, double kV) {
+            m_dist = dist;
+            m_vel = vel;
+            m_accel = accel;
+            m_dt = dt;
+            m_kS = kS;
+            m_kV = kV;
+            return this;
+        }
+
+        Key copy() {
+            return new Key().set(m_dist, m_vel, m_accel, m_dt, m_kS, m_kV);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return (m_dist == k.m_dist) && (m_vel == k.m_vel)
+                && (Double.compare(m_accel, k.m_accel) == 0) && (Double.compare(m_dt, k.m_dt) == 0)
+                && (Double.compare(m_kS, k.m_kS) == 0) && (Double.compare(m_kV, k.m_kV) == 0);
+        }
+
+        @Override
+        public int hashCode() {
+            long h = (m_dist * 31L) + m_vel;
+            h = (h * 31L) + Double.doubleToLongBits(m_accel);
+            h = (h * 31L) + Double.doubleToLongBits(m_dt);
+            h = (h * 31L) + Double.doubleToLongBits(m_kS);
+            h = (h * 31L) + Double.doubleToLongBits(m_kV);
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private final LinkedHashMap<Key, MotionProfile> m_map;
+    private final Key m_probe;
+    private long m_hits;
+    private long m_misses;
+
+    /**
+     * Construct an empty cache
+     * @param capacity Most profiles to keep
+     */
+    public MotionProfileCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("bad cache capacity " + capacity);
+        }
+        // Access order, so iteration (and eviction) starts at the least recently used
+        m_map = new LinkedHashMap<Key, MotionProfile>(2 * capacity, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, MotionProfile> eldest) {
+                return size() > capacity;
+            }
+        };
+        m_probe = new Key();
+        m_hits = 0;
+        m_misses = 0;
+    }
+
+    /**
+     * Get the profile for a drive, planning it if it isn't cached
+     * @param distance Distance to drive; rounded to DISTANCE_QUANTUM
+     * @param maxVelocity Cruise velocity; rounded to VELOCITY_QUANTUM
+     * @param accel Acceleration
+     * @param dt Time step
+     * @param kS Power to overcome friction
+     * @param kV Power per unit of velocity
+     * @return The profile
+     */
+    public synchronized MotionProfile get(double distance, double maxVelocity, double accel,
+                                          double dt, double kS, double kV) {
+        MotionProfile p = lookup(distance, maxVelocity, accel, dt, kS, kV);
+        if (p != null) {
+            m_hits++;
+            return p;
+        }
+        m_misses++;
+        return plan(distance, maxVelocity, accel, dt, kS, kV);
+    }
+
+    /**
+     * Make sure a profile is cached, without counting a hit or miss.
+     * For planning common drives ahead of time (e.g. while disabled).
+     * @param distance Distance to drive
+     * @param maxVelocity Cruise velocity
+     * @param accel Acceleration
+     * @param dt Time step
+     * @param kS Power to overcome friction
+     * @param kV Power per unit of velocity
+     */
+    public synchronized void prewarm(double distance, double maxVelocity, double accel,
+                                     double dt, double kS, double kV) {
+        if (lookup(distance, maxVelocity, accel, dt, kS, kV) == null) {
+            plan(distance, maxVelocity, accel, dt, kS, kV);
+        }
+    }
+
+    /**
+     * Number of lookups answered from the cache
+     * @return Hit count
+     */
+    public synchronized long getHits() {
+        return m_hits;
+    }
+
+    /**
+     * Number of lookups that had to plan a profile
+     * @return Miss count
+     */
+    public synchronized long getMisses() {
+        return m_misses;
+    }
+
+    /**
+     * Number of profiles cached
+     * @return The size
+     */
+    public synchronized int size() {
+        return m_map.size();
+    }
+
+    /**
+     * Empty the cache and zero the counters
+     */
+    public synchronized void clear() {
+        m_map.clear();
+        m_hits = 0;
+        m_misses = 0;
+    }
+
+    /**
+     * Quantize a value
+     */
+    private static long quantize(double v, double quantum) {
+        return Math.round(v / quantum);
+    }
+
+    private MotionProfile lookup(double distance, double maxVelocity, double accel,
+                                 double dt, double kS, double kV) {
+        if (!(distance > 0.0d) || !(maxVelocity > 0.0d)) {
+            throw new IllegalArgumentException("bad profile: distance " + distance
+                                               + " velocity " + maxVelocity);
+        }
+        m_probe.set(quantize(distance, DISTANCE_QUANTUM), quantize(maxVelocity, VELOCITY_QUANTUM),
+                    accel, dt, kS, kV);
+        return m_map.get(m_probe);
+    }
+
+    /**
+     * Plan the profile for the probe key and cache it
+     */
+    private MotionProfile plan(double distance, double maxVelocity, double accel,
+                               double dt, double kS, double kV) {
+        // Too-small requests round to zero; plan them at one quantum
+        double dist = Math.max(1L, m_probe.m_dist) * DISTANCE_QUANTUM;
+        double vel = Math.max(1L, m_probe.m_vel) * VELOCITY_QUANTUM;
+        MotionProfile p = new MotionProfile(dist, vel, accel, dt, kS, kV);
+        m_map.put(m_probe.copy(), p);
+        return p;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * A mutable 2-d mathematical vector of doubles, with the same operations
+ * (and the same semantics) as Vec2d.  Unlike Vec2d, every operation
+ * modifies this vector in place and returns it, so a caller that keeps
+ * a few MutableVec2d's around as scratch space can do vector math in a
+ * periodic loop without allocating anything.  Use toVec2d() to get an
+ * immutable copy when the result needs to be kept or passed on.
+ * MutableVec2d's are not thread-safe.
+ * @author lwa
+ */
+public class MutableVec2d {
+
+    /**
+     * The x-coordinate
+     */
+    private double m_x;
+
+    /**
+     * The y-coordinate
+     */
+    private double m_y;
+
+    /**
+     * Construct a zero vector
+     */
+    public MutableVec2d() {
+        m_x = 0.0d;
+        m_y = 0.0d;
+    }
+
+    /**
+     * Construct a vector given its cartesian coordinates
+     * @param x The x-coord
+     * @param y The y-coord
+     */
+    public MutableVec2d(double x, double y) {
+        m_x = x;
+        m_y = y;
+    }
+
+    /**
+     * Construct a vector with the same coordinates as an (immutable) vector
+     * @param v The vector to copy
+     */
+    public MutableVec2d(Vec2d v) {
+        m_x = v.getX();
+        m_y = v.getY();
+    }
+
+    /**
+     * Set this vector's cartesian coordinates
+     * @param x The x-coord
+     * @param y The y-coord
+     * @return this vector
+     */
+    public MutableVec2d setCart(double x, double y) {
+        m_x = x;
+        m_y = y;
+        return this;
+    }
+
+    /**
+     * Set this vector from its polar coordinates
+     * @param r The r-coordinate (length)
+     * @param theta The theta-coordinate (angle from X axis, in radians)
+     * @return this vector
+     * @throws IllegalArgumentException if the r-coordinate is negative
+     */
+    public MutableVec2d setPolar(double r, double theta) {
+        if (r < 0.0d)
+            throw new IllegalArgumentException("negative vector length " + r);
+        m_x = r * Trig.cos(theta);
+        m_y = r * Trig.sin(theta);
+        return this;
+    }
+
+    /**
+     * Set this vector to the same coordinates as an immutable vector
+     * @param v The vector to copy
+     * @return this vector
+     */
+    public MutableVec2d set(Vec2d v) {
+        m_x = v.getX();
+        m_y = v.getY();
+        return this;
+    }
+
+    /**
+     * Set this vector to the same coordinates as another mutable vector
+     * @param v The vector to copy
+     * @return this vector
+     */
+    public MutableVec2d set(MutableVec2d v) {
+        m_x = v.m_x;
+        m_y = v.m_y;
+        return this;
+    }
+
+    /**
+     * Get the x-coordinate
+     * @return The x-coordinate
+     */
+    public double getX() {
+        return m_x;
+    }
+
+    /**
+     * Get the y-coordinate
+     * @return The y-coordinate
+     */
+    public double getY() {
+        return m_y;
+    }
+
+    /**
+     * Get the r-coordinate
+     * @return The r-coordinate
+     */
+    public double getR() {
+        return Math.hypot(m_x, m_y);
+    }
+
+    /**
+     * Get the theta-coordinate
+     * @return The theta-coordinate (angle) in radians, -pi <= res <= pi
+     */
+    public double getTheta() {
+        return Trig.atan2(m_y, m_x);
+    }
+
+    /**
+     * Add a vector to this one
+     * @param a addend
+     * @return this vector, now the sum
+     */
+    public MutableVec2d add(Vec2d a) {
+        m_x += a.getX();
+        m_y += a.getY();
+        return this;
+    }
+
+    /**
+     * Add a vector to this one
+     * @param a addend
+     * @return this vector, now the sum
+     */
+    public MutableVec2d add(MutableVec2d a) {
+        m_x += a.m_x;
+        m_y += a.m_y;
+        return this;
+    }
+
+    /**
+     * Subtract a vector from this one
+     * @param s subtrahend
+     * @return this vector, now the difference
+     */
+    public MutableVec2d sub(Vec2d s) {
+        m_x -= s.getX();
+        m_y -= s.getY();
+        return this;
+    }
+
+    /**
+     * Subtract a vector from this one
+     * @param s subtrahend
+     * @return this vector, now the difference
+     */
+    public MutableVec2d sub(MutableVec2d s) {
+        m_x -= s.m_x;
+        m_y -= s.m_y;
+        return this;
+    }
+
+    /**
+     * Multiply this vector by a scalar (double)
+     * @param m The scalar to multiply by
+     * @return this vector, now the product
+     */
+    public MutableVec2d mulScalar(double m) {
+        m_x *= m;
+        m_y *= m;
+        return this;
+    }
+
+    /**
+     * Replace this vector with a vector normal (perpendicular)
+     * to it, 90 deg clockwise, exactly as Vec2d.getNormal().
+     * If this vector is zero it stays zero.
+     * @return this vector, now the normal
+     */
+    public MutableVec2d normal() {
+        double x = m_x;
+        m_x = m_y;
+        m_y = -x;
+        return this;
+    }
+
+    /**
+     * Replace this vector with its additive inverse
+     * @return this vector, now negated
+     */
+    public MutableVec2d negate() {
+        m_x = -m_x;
+        m_y = -m_y;
+        return this;
+    }
+
+    /**
+     * Compute the dot product of this vector with the
+     * specified vector.
+     * @param o The other vector
+     * @return Dot product of this vector and o
+     */
+    public double dotProduct(Vec2d o) {
+        return ((m_x * o.getX()) + (m_y * o.getY()));
+    }
+
+    /**
+     * Compute the dot product of this vector with the
+     * specified vector.
+     * @param o The other vector
+     * @return Dot product of this vector and o
+     */
+    public double dotProduct(MutableVec2d o) {
+        return ((m_x * o.m_x) + (m_y * o.m_y));
+    }
+
+    /**
+     * Return true iff the specified vector is "near" this one,
+     * with the same definition of nearness as Vec2d.isNear().
+     * @param o The other vector
+     * @param epsilon The radius of nearness
+     * @return True iff o is near this vector
+     */
+    public boolean isNear(Vec2d o, double epsilon) {
+        if (o.getX() == m_x && o.getY() == m_y)
+            return true;
+
+        return (Math.abs(o.getR() - getR()) <= epsilon);
+    }
+
+    /**
+     * Return an immutable copy of this vector
+     * @return A Vec2d with this vector's coordinates
+     */
+    public Vec2d toVec2d() {
+        return Vec2d.makeCart(m_x, m_y);
+    }
+
+    @Override
+    public String toString()
+    {
+        return("(" + m_x + "," + m_y + ")");
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * A path for the robot to follow, sampled as a polyline: field
+ * positions, the distance along the path to each, and the path's
+ * curvature there.  Built once (e.g. from a RouteToTarget by
+ * fromRoute()) and never changed afterwards.
+ * @author lwa
+ */
+public class Path {
+
+    /**
+     * Points per spline segment in fromRoute()
+     */
+    public static final int SPLINE_SAMPLES = 100;
+
+    /**
+     * Tangent lengths tried by fromRoute(), as multiples of the distance
+     * between the spline's ends
+     */
+    static final double[] TANGENT_SCALES = { 0.5d, 0.75d, 1.0d, 1.25d, 1.5d, 2.0d };
+
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_dist;
+    private final double[] m_curvature;
+    private final double m_maxCurvature;
+
+    /**
+     * Construct a path from its samples; the arrays are kept, not copied
+     * @param x The x-coordinates
+     * @param y The y-coordinates
+     * @param curvature The curvature at each point
+     */
+    Path(double[] x, double[] y, double[] curvature) {
+        if ((x.length < 2) || (y.length != x.length) || (curvature.length != x.length)) {
+            throw new IllegalArgumentException("bad path: " + x.length + " points");
+        }
+        m_x = x;
+        m_y = y;
+        m_curvature = curvature;
+        m_dist = new double[x.length];
+        double max = 0.0d;
+        for (int i = 1; i < x.length; i++) {
+            m_dist[i] = m_dist[i - 1] + Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+        }
+        for (double k : curvature) {
+            max = Math.max(max, Math.abs(k));
+        }
+        m_maxCurvature = max;
+    }
+
+    /**
+     * Build a smooth path for a route to target: from the robot's
+     * position and heading, a quintic spline to the intercept point,
+     * arriving along the normal vector; then straight down the normal
+     * vector.  The spline's tangent length is chosen to keep its
+     * curvature as low as possible.  The curvature is zero where the
+     * spline meets the straight line, so the steering doesn't jump.
+     * @param x Robot x
+     * @param y Robot y
+     * @param heading Robot heading, radians
+     * @param intercept Vector from the robot to the intercept point
+     * @param normal Vector from the intercept point to the end
+     * @return The path, or null if no spline has a finite curvature
+     * (e.g. the intercept point is where the robot already is)
+     */
+    public static Path fromRoute(double x, double y, double heading, Vec2d intercept, Vec2d normal) {
+        double ix = x + intercept.getX();
+        double iy = y + intercept.getY();
+        double nHeading = normal.getTheta();
+        double chord = intercept.getR();
+
+        QuinticHermiteSpline best = null;
+        double bestMax = Double.POSITIVE_INFINITY;
+        for (double scale : TANGENT_SCALES) {
+            QuinticHermiteSpline s = QuinticHermiteSpline.fromPoses(x, y, heading, ix, iy, nHeading,
+                                                                    scale * chord);
+            double max = 0.0d;
+            for (int i = 0; i <= SPLINE_SAMPLES; i++) {
+                max = Math.max(max, Math.abs(s.getCurvature((double) i / SPLINE_SAMPLES)));
+            }
+            if (max < bestMax) {
+                best = s;
+                bestMax = max;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+
+        // Straight leg sampled about as finely as the spline, but no
+        // more finely than the spline's own sample count would
+        double nLeg = Math.ceil(normal.getR() / (chord / SPLINE_SAMPLES));
+        int nNormal = Math.max(1, (int) Math.min(nLeg, SPLINE_SAMPLES));
+        int n = SPLINE_SAMPLES + 1 + nNormal;
+        double[] px = new double[n];
+        double[] py = new double[n];
+        double[] pk = new double[n];
+        for (int i = 0; i <= SPLINE_SAMPLES; i++) {
+            double s = (double) i / SPLINE_SAMPLES;
+            px[i] = best.getX(s);
+            py[i] = best.getY(s);
+            pk[i] = best.getCurvature(s);
+        }
+        for (int i = 1; i <= nNormal; i++) {
+            double f = (double) i / nNormal;
+            px[SPLINE_SAMPLES + i] = ix + (f * normal.getX());
+            py[SPLINE_SAMPLES + i] = iy + (f * normal.getY());
+            pk[SPLINE_SAMPLES + i] = 0.0d;
+        }
+        return new Path(px, py, pk);
+    }
+
+    /**
+     * Number of points
+     * @return The size
+     */
+    public int size() {
+        return m_x.length;
+    }
+
+    /**
+     * x-coordinate of a point
+     * @param i Index, 0 <= i < size()
+     * @return The x-coordinate
+     */
+    public double getX(int i) {
+        return m_x[i];
+    }
+
+    /**
+     * y-coordinate of a point
+     * @param i Index, 0 <= i < size()
+     * @return The y-coordinate
+     */
+    public double getY(int i) {
+        return m_y[i];
+    }
+
+    /**
+     * Distance along the path to a point
+     * @param i Index, 0 <= i < size()
+     * @return The distance
+     */
+    public double getDistance(int i) {
+        return m_dist[i];
+    }
+
+    /**
+     * Curvature of the path at a point
+     * @param i Index, 0 <= i < size()
+     * @return Signed curvature, positive turning CCW
+     */
+    public double getCurvature(int i) {
+        return m_curvature[i];
+    }
+
+    /**
+     * Total length
+     * @return The length
+     */
+    public double getLength() {
+        return m_dist[m_dist.length - 1];
+    }
+
+    /**
+     * Largest curvature magnitude anywhere on the path
+     * @return Max |curvature|
+     */
+    public double getMaxCurvature() {
+        return m_maxCurvature;
+    }
+
+    /**
+     * Find the point nearest a position, searching forward from a
+     * starting index (the robot only moves forward along the path)
+     * @param x Position x
+     * @param y Position y
+     * @param from Index to search from
+     * @return Index of the nearest point at or after from
+     */
+    public int findClosest(double x, double y, int from) {
+        int best = from;
+        double bestD2 = Double.POSITIVE_INFINITY;
+        for (int i = from; i < m_x.length; i++) {
+            double dx = m_x[i] - x;
+            double dy = m_y[i] - y;
+            double d2 = (dx * dx) + (dy * dy);
+            if (d2 < bestD2) {
+                best = i;
+                bestD2 = d2;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the point a distance along the path, interpolating between
+     * samples.  Past the end, the last segment is extended in a
+     * straight line.
+     * @param dist Distance along the path
+     * @param dst Receives { x, y }
+     * @return dst
+     */
+    public double[] getPointAt(double dist, double[] dst) {
+        int last = m_x.length - 1;
+        int i;
+        if (dist >= m_dist[last]) {
+            i = last - 1;
+        } else if (dist <= 0.0d) {
+            i = 0;
+        } else {
+            // binary search for the segment [i, i+1] containing dist
+            int lo = 0;
+            int hi = last;
+            while (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                if (m_dist[mid] <= dist) {
+                    lo = mid;
+                } else {
+                    hi = mid;
+                }
+            }
+            i = lo;
+        }
+        double seg = m_dist[i + 1] - m_dist[i];
+        double f = (seg > 0.0d) ? ((dist - m_dist[i]) / seg) : 0.0d;
+        dst[0] = m_x[i] + (f * (m_x[i + 1] - m_x[i]));
+        dst[1] = m_y[i] + (f * (m_y[i + 1] - m_y[i]));
+        return dst;
+    }
+}
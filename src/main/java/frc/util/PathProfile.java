@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * The fastest feasible velocity at every point of a Path, and the time
+ * at which each point is reached.  Limits:
+ *  - the robot's top speed
+ *  - the outer wheel's top speed on a curve, which for a differential
+ *    drive is v * (1 + |curvature| * trackWidth / 2)
+ *  - centripetal acceleration, v^2 * |curvature|
+ *  - acceleration and deceleration
+ * The first three give a velocity ceiling at each point.  A forward
+ * pass then limits each point's velocity to what can be reached by
+ * accelerating from the point before, and a backward pass to what can
+ * be stopped from (or slowed to the point after).  The result is the
+ * time-optimal profile for those limits, computed in two passes over
+ * primitive arrays, never changed afterwards.
+ * @author lwa
+ */
+public class PathProfile {
+
+    private final Path m_path;
+    private final double[] m_vel;
+    private final double[] m_time;
+
+    /**
+     * Plan the profile for a path, starting and ending at rest
+     * @param path The path
+     * @param maxVelocity Top speed
+     * @param maxAccel Maximum acceleration (and deceleration)
+     * @param maxCentripetal Maximum centripetal acceleration
+     * @param trackWidth Distance between the wheels
+     */
+    public PathProfile(Path path, double maxVelocity, double maxAccel, double maxCentripetal,
+                       double trackWidth) {
+        this(path, maxVelocity, maxAccel, maxCentripetal, trackWidth, 0.0d, 0.0d);
+    }
+
+    /**
+     * Plan the profile for a path
+     * @param path The path
+     * @param maxVelocity Top speed
+     * @param maxAccel Maximum acceleration (and deceleration)
+     * @param maxCentripetal Maximum centripetal acceleration
+     * @param trackWidth Distance between the wheels
+     * @param startVelocity Velocity at the start of the path
+     * @param endVelocity Velocity at the end of the path
+     */
+    public PathProfile(Path path, double maxVelocity, double maxAccel, double maxCentripetal,
+                       double trackWidth, double startVelocity, double endVelocity) {
+        if (!(maxVelocity > 0.0d) || !(maxAccel > 0.0d) || !(maxCentripetal > 0.0d)
+            || !(trackWidth >= 0.0d)) {
+            throw new IllegalArgumentException("bad limits: velocity " + maxVelocity + " accel "
+                                               + maxAccel + " centripetal " + maxCentripetal
+                                               + " track " + trackWidth);
+        }
+        int n = path.size();
+        double[] v = new double[n];
+
+        // Ceiling at each point
+        for (int i = 0; i < n; i++) {
+            double k = Math.abs(path.getCurvature(i));
+            double limit = maxVelocity / (1.0d + ((k * trackWidth) / 2.0d));
+            if (k > 0.0d) {
+                limit = Math.min(limit, Math.sqrt(maxCentripetal / k));
+            }
+            v[i] = limit;
+        }
+        v[0] = Math.min(v[0], Math.max(0.0d, startVelocity));
+        v[n - 1] = Math.min(v[n - 1], Math.max(0.0d, endVelocity));
+
+        // Forward: no faster than we can accelerate to
+        double twoA = 2.0d * maxAccel;
+        for (int i = 1; i < n; i++) {
+            double ds = path.getDistance(i) - path.getDistance(i - 1);
+            double reach = Math.sqrt((v[i - 1] * v[i - 1]) + (twoA * ds));
+            if (reach < v[i]) {
+                v[i] = reach;
+            }
+        }
+
+        // Backward: no faster than we can slow down from
+        for (int i = n - 2; i >= 0; i--) {
+            double ds = path.getDistance(i + 1) - path.getDistance(i);
+            double reach = Math.sqrt((v[i + 1] * v[i + 1]) + (twoA * ds));
+            if (reach < v[i]) {
+                v[i] = reach;
+            }
+        }
+
+        // Time at each point, assuming constant acceleration between points
+        double[] t = new double[n];
+        for (int i = 1; i < n; i++) {
+            double ds = path.getDistance(i) - path.getDistance(i - 1);
+            double sum = v[i] + v[i - 1];
+            t[i] = t[i - 1] + ((sum > 0.0d) ? ((2.0d * ds) / sum) : 0.0d);
+        }
+
+        m_path = path;
+        m_vel = v;
+        m_time = t;
+    }
+
+    /**
+     * The path this profile is for
+     * @return The path
+     */
+    public Path getPath() {
+        return m_path;
+    }
+
+    /**
+     * Velocity at a path point
+     * @param i Index, 0 <= i < getPath().size()
+     * @return Velocity
+     */
+    public double getVelocity(int i) {
+        return m_vel[i];
+    }
+
+    /**
+     * Time from the start at which a path point is reached
+     * @param i Index, 0 <= i < getPath().size()
+     * @return Time, in seconds
+     */
+    public double getTime(int i) {
+        return m_time[i];
+    }
+
+    /**
+     * Time to drive the whole path
+     * @return Duration, in seconds
+     */
+    public double getDuration() {
+        return m_time[m_time.length - 1];
+    }
+
+    /**
+     * Velocity at a distance along the path, interpolated between points
+     * so that the acceleration between them is constant
+     * @param dist Distance along the path
+     * @return Velocity (the end velocity past the end)
+     */
+    public double getVelocityAt(double dist) {
+        int last = m_vel.length - 1;
+        if (dist <= 0.0d) {
+            return m_vel[0];
+        }
+        if (dist >= m_path.getLength()) {
+            return m_vel[last];
+        }
+        int lo = 0;
+        int hi = last;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (m_path.getDistance(mid) <= dist) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        double d0 = m_path.getDistance(lo);
+        double ds = m_path.getDistance(hi) - d0;
+        double f = (ds > 0.0d) ? ((dist - d0) / ds) : 0.0d;
+        double v0 = m_vel[lo];
+        double v1 = m_vel[hi];
+        return Math.sqrt((v0 * v0) + (f * ((v1 * v1) - (v0 * v0))));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs planning (paths, profiles, route scoring) on a background thread,
+ * so that a command can start a plan in initialize() or execute() without
+ * blowing the 20 ms loop.  submit() returns a PlanHandle which the command
+ * polls each cycle; see the AwaitPlan command.
+ * Plans run one at a time, in order, on a single low-priority daemon
+ * thread, so the planning code itself needn't be thread-safe -- but it
+ * must not touch subsystems; capture whatever it needs from them
+ * before submitting it.
+ * The executor keeps the latency of the last and the slowest plans for
+ * the dashboard.
+ * @author lwa
+ */
+public class PlanExecutor {
+
+    private static final PlanExecutor s_instance = new PlanExecutor();
+
+    private final ExecutorService m_executor;
+    private volatile double m_lastLatency;
+    private volatile double m_maxLatency;
+    private volatile int m_planCount;
+
+    private static final BinaryLogger log = BinaryLogger.getInstance();
+    private static final int LOG_PLAN = log.register("PlanExecutor.plan", "latency", "failed");
+
+    /**
+     * Get the robot-wide plan executor
+     * @return The executor
+     */
+    public static PlanExecutor getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * Construct an executor with its own thread.  Most code should use
+     * getInstance() instead.
+     */
+    public PlanExecutor() {
+        m_executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "PlanExecutor");
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+        m_lastLatency = 0.0d;
+        m_maxLatency = 0.0d;
+        m_planCount = 0;
+    }
+
+    /**
+     * Start a plan
+     * @param planner The planning task
+     * @return Handle on the plan
+     */
+    public <T> PlanHandle<T> submit(Callable<T> planner) {
+        PlanHandle<T> handle = new PlanHandle<>(planner, this);
+        m_executor.execute(handle);
+        return handle;
+    }
+
+    /**
+     * Record a finished plan's latency, on the executor's thread
+     * @param handle The finished plan
+     */
+    void planFinished(PlanHandle<?> handle) {
+        double latency = handle.getLatency();
+        m_lastLatency = latency;
+        if (latency > m_maxLatency) {
+            m_maxLatency = latency;
+        }
+        m_planCount++;
+        log.log(LOG_PLAN, latency, handle.isFailed() ? 1.0d : 0.0d);
+    }
+
+    /**
+     * Latency of the most recently finished plan
+     * @return Latency in seconds
+     */
+    public double getLastLatency() {
+        return m_lastLatency;
+    }
+
+    /**
+     * Latency of the slowest plan so far
+     * @return Latency in seconds
+     */
+    public double getMaxLatency() {
+        return m_maxLatency;
+    }
+
+    /**
+     * Number of plans finished so far
+     * @return The count
+     */
+    public int getPlanCount() {
+        return m_planCount;
+    }
+
+    /**
+     * Stop the executor's thread, letting queued plans finish
+     */
+    public void shutdown() {
+        m_executor.shutdown();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Handle on a plan being computed by a PlanExecutor, something like a
+ * java.util.concurrent.Future but without any blocking calls: periodic
+ * code polls isDone() and then picks up the result (or the exception the
+ * planner threw).  The handle also records how long the plan took, from
+ * submission to completion, including any time spent waiting in the queue.
+ * @author lwa
+ */
+public class PlanHandle<T> implements Runnable {
+
+    private final Callable<T> m_planner;
+    private final PlanExecutor m_executor;
+    private final long m_submitTime;
+    private long m_finishTime;
+    private T m_result;
+    private Exception m_error;
+    private volatile boolean m_canceled;
+    private volatile boolean m_done;
+
+    /**
+     * Constructor, for PlanExecutor.submit()
+     * @param planner The planning task
+     * @param executor The executor running it, to report completion to
+     */
+    PlanHandle(Callable<T> planner, PlanExecutor executor) {
+        m_planner = planner;
+        m_executor = executor;
+        m_submitTime = System.nanoTime();
+        m_canceled = false;
+        m_done = false;
+    }
+
+    /**
+     * Run the planner, on the executor's thread.  Skipped if the plan was
+     * canceled before it started.
+     */
+    @Override
+    public void run() {
+        if (m_canceled) {
+            return;
+        }
+        try {
+            m_result = m_planner.call();
+        } catch (Exception e) {
+            m_error = e;
+        }
+        m_finishTime = System.nanoTime();
+        m_done = true;
+        m_executor.planFinished(this);
+    }
+
+    /**
+     * Has the plan finished (successfully or not)?
+     * @return True iff the plan is finished
+     */
+    public boolean isDone() {
+        return m_done;
+    }
+
+    /**
+     * Cancel the plan.  A plan that hasn't started yet won't be run; one
+     * that's running is allowed to finish, but will be ignored.
+     */
+    public void cancel() {
+        m_canceled = true;
+    }
+
+    /**
+     * Was the plan canceled?
+     * @return True iff cancel() was called
+     */
+    public boolean isCanceled() {
+        return m_canceled;
+    }
+
+    /**
+     * Did the planner throw an exception?
+     * @return True iff the plan is done and failed
+     */
+    public boolean isFailed() {
+        return m_done && (m_error != null);
+    }
+
+    /**
+     * Get the plan
+     * @return The planner's result
+     * @throws IllegalStateException if the plan isn't done, or failed
+     */
+    public T get() {
+        if (!m_done) {
+            throw new IllegalStateException("plan not done");
+        }
+        if (m_error != null) {
+            throw new IllegalStateException("plan failed", m_error);
+        }
+        return m_result;
+    }
+
+    /**
+     * Get the exception the planner threw
+     * @return The exception, or null if it hasn't thrown one
+     */
+    public Exception getError() {
+        return m_done ? m_error : null;
+    }
+
+    /**
+     * Time from submission to completion; only meaningful once done
+     * @return Latency in seconds
+     */
+    public double getLatency() {
+        return m_done ? (m_finishTime - m_submitTime) / 1.0e9d : 0.0d;
+    }
+
+    /**
+     * Time since the plan was submitted
+     * @return Age in seconds
+     */
+    public double getAge() {
+        return (System.nanoTime() - m_submitTime) / 1.0e9d;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * Fuses odometry with vision fixes into a better estimate of the robot's
+ * field position, using a two-state (x, y) Kalman filter.
+ * Odometry is accurate over short distances but drifts (wheel slip, scrub
+ * in turns); a vision fix -- the camera's vector to a target whose field
+ * position we know -- gives an absolute but noisy position.  Between
+ * fixes the estimate follows odometry and its uncertainty grows with the
+ * distance driven; each fix pulls the estimate towards the position it
+ * implies, by an amount that depends on the two uncertainties.
+ * The heading isn't estimated: the gyro is much better than anything we
+ * could get from the camera, so headings are taken as known.
+ * Both the state and the 2x2 covariance are plain doubles, so updates
+ * don't allocate.  Not thread-safe; callers must synchronize.
+ * @author lwa
+ */
+public class PoseEstimator {
+
+    /**
+     * Default odometry variance added per unit driven (units^2 / unit)
+     */
+    public static final double DEFAULT_ODOMETRY_VARIANCE = 0.02d;
+
+    /**
+     * Default vision fix variance at zero range (units^2)
+     */
+    public static final double DEFAULT_VISION_VARIANCE = 1.0d;
+
+    /**
+     * Default growth of the vision fix variance with the square of the
+     * range to the target (units^2 / units^2): range is computed from ty,
+     * whose error is magnified at long range
+     */
+    public static final double DEFAULT_VISION_RANGE_VARIANCE = 0.0004d;
+
+    /**
+     * Fixes further than this many standard deviations from the estimate
+     * are rejected as outliers (wrong target, bad frame)
+     */
+    public static final double GATE_SIGMAS = 4.0d;
+
+    /**
+     * Variance to reset() with when the position isn't known at all
+     */
+    public static final double UNKNOWN_VARIANCE = 1.0e6d;
+
+    private final double m_odoVariance;
+    private final double m_visionVariance;
+    private final double m_visionRangeVariance;
+
+    // State estimate
+    private double m_x;
+    private double m_y;
+
+    // Covariance [ m_pxx m_pxy ; m_pxy m_pyy ]
+    private double m_pxx;
+    private double m_pxy;
+    private double m_pyy;
+
+    // Odometry position at the last predict
+    private double m_odoX;
+    private double m_odoY;
+    private boolean m_haveOdo;
+
+    private int m_accepted;
+    private int m_rejected;
+
+    /**
+     * Construct an estimator with the default noise parameters
+     */
+    public PoseEstimator() {
+        this(DEFAULT_ODOMETRY_VARIANCE, DEFAULT_VISION_VARIANCE, DEFAULT_VISION_RANGE_VARIANCE);
+    }
+
+    /**
+     * Construct an estimator with the specified noise parameters
+     * @param odoVariance Odometry variance added per unit driven
+     * @param visionVariance Vision fix variance at zero range
+     * @param visionRangeVariance Vision variance added per unit of range squared
+     */
+    public PoseEstimator(double odoVariance, double visionVariance, double visionRangeVariance) {
+        if (odoVariance < 0.0d || visionVariance <= 0.0d || visionRangeVariance < 0.0d) {
+            throw new IllegalArgumentException("bad variance");
+        }
+        m_odoVariance = odoVariance;
+        m_visionVariance = visionVariance;
+        m_visionRangeVariance = visionRangeVariance;
+        reset(0.0d, 0.0d, 0.0d);
+    }
+
+    /**
+     * Set the position estimate and its uncertainty.  If the position
+     * isn't really known, use a large variance (e.g. UNKNOWN_VARIANCE) so
+     * the first fixes aren't rejected by the outlier gate.
+     * @param x Field x-coord
+     * @param y Field y-coord
+     * @param variance Variance of each coordinate (0 if known exactly)
+     */
+    public void reset(double x, double y, double variance) {
+        m_x = x;
+        m_y = y;
+        m_pxx = variance;
+        m_pxy = 0.0d;
+        m_pyy = variance;
+        m_haveOdo = false;
+        m_accepted = 0;
+        m_rejected = 0;
+    }
+
+    /**
+     * Prediction step: move the estimate by the change in the odometry
+     * position since the last call.  The first call only records the
+     * odometry position.
+     * @param odoX Odometry field x-coord
+     * @param odoY Odometry field y-coord
+     */
+    public void predict(double odoX, double odoY) {
+        if (m_haveOdo) {
+            double dx = odoX - m_odoX;
+            double dy = odoY - m_odoY;
+            m_x += dx;
+            m_y += dy;
+            double q = m_odoVariance * Math.hypot(dx, dy);
+            m_pxx += q;
+            m_pyy += q;
+        }
+        m_odoX = odoX;
+        m_odoY = odoY;
+        m_haveOdo = true;
+    }
+
+    /**
+     * Update step with a vision fix.  The camera saw a target whose field
+     * position is known, along the field-relative vector lensToTarget (as
+     * from TargetCalculator.getTargetVector()); the camera lens is offset
+     * from the robot's center by -camVec (camVec points from the lens to
+     * the center, as from Limelight.getCameraVector()).  That implies the
+     * robot's center is at target - lensToTarget + camVec.
+     * @param targetX Target field x-coord
+     * @param targetY Target field y-coord
+     * @param lensToTargetX Vector from lens to target, x
+     * @param lensToTargetY Vector from lens to target, y
+     * @param camVecX Vector from lens to robot center, x
+     * @param camVecY Vector from lens to robot center, y
+     * @return True if the fix was used; false if rejected as an outlier
+     */
+    public boolean addVisionFix(double targetX, double targetY,
+                                double lensToTargetX, double lensToTargetY,
+                                double camVecX, double camVecY) {
+        double zx = targetX - lensToTargetX + camVecX;
+        double zy = targetY - lensToTargetY + camVecY;
+        double range2 = (lensToTargetX * lensToTargetX) + (lensToTargetY * lensToTargetY);
+        double r = m_visionVariance + (m_visionRangeVariance * range2);
+
+        // Innovation and its covariance S = P + R
+        double ix = zx - m_x;
+        double iy = zy - m_y;
+        double sxx = m_pxx + r;
+        double sxy = m_pxy;
+        double syy = m_pyy + r;
+        double det = (sxx * syy) - (sxy * sxy);
+        if (!(det > 0.0d)) {
+            return false;
+        }
+        double ixx = syy / det;
+        double ixy = -sxy / det;
+        double iyy = sxx / det;
+
+        // Mahalanobis gate
+        double d2 = (ix * ((ixx * ix) + (ixy * iy))) + (iy * ((ixy * ix) + (iyy * iy)));
+        if (d2 > (GATE_SIGMAS * GATE_SIGMAS)) {
+            m_rejected++;
+            return false;
+        }
+
+        // Gain K = P S^-1
+        double kxx = (m_pxx * ixx) + (m_pxy * ixy);
+        double kxy = (m_pxx * ixy) + (m_pxy * iyy);
+        double kyx = (m_pxy * ixx) + (m_pyy * ixy);
+        double kyy = (m_pxy * ixy) + (m_pyy * iyy);
+
+        m_x += (kxx * ix) + (kxy * iy);
+        m_y += (kyx * ix) + (kyy * iy);
+
+        // P = (I - K) P
+        double pxx = ((1.0d - kxx) * m_pxx) - (kxy * m_pxy);
+        double pxy = ((1.0d - kxx) * m_pxy) - (kxy * m_pyy);
+        double pyy = (-kyx * m_pxy) + ((1.0d - kyy) * m_pyy);
+        m_pxx = pxx;
+        m_pxy = pxy;
+        m_pyy = pyy;
+        m_accepted++;
+        return true;
+    }
+
+    /**
+     * Get the estimated x-coordinate
+     * @return Field x-coord
+     */
+    public double getX() {
+        return m_x;
+    }
+
+    /**
+     * Get the estimated y-coordinate
+     * @return Field y-coord
+     */
+    public double getY() {
+        return m_y;
+    }
+
+    /**
+     * Get the estimated position
+     * @return Field position
+     */
+    public Vec2d getPosition() {
+        return Vec2d.makeCart(m_x, m_y);
+    }
+
+    /**
+     * Standard deviation of the position estimate (root mean of the
+     * two coordinate variances)
+     * @return Position uncertainty in units
+     */
+    public double getStdDev() {
+        return Math.sqrt((m_pxx + m_pyy) / 2.0d);
+    }
+
+    /**
+     * Number of vision fixes used since the last reset
+     * @return Accepted fix count
+     */
+    public int getAcceptedCount() {
+        return m_accepted;
+    }
+
+    /**
+     * Number of vision fixes rejected as outliers since the last reset
+     * @return Rejected fix count
+     */
+    public int getRejectedCount() {
+        return m_rejected;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * Pure pursuit path follower for a differential drive.  Each update
+ * finds the point on the path nearest the robot, then the "lookahead"
+ * point a fixed distance further along, and returns the curvature of
+ * the arc from the robot's pose through the lookahead point.  Steering
+ * along that arc continuously pulls the robot onto the path without
+ * ever stopping to turn.
+ * Past the end of the path the lookahead point runs on along the last
+ * segment, so the robot arrives straight.
+ * Not thread-safe; one follower per run of a path.
+ * @author lwa
+ */
+public class PurePursuit {
+
+    private final Path m_path;
+    private final double m_lookahead;
+    private final double[] m_point;
+    private int m_closest;
+
+    /**
+     * Constructor
+     * @param path The path to follow
+     * @param lookahead Lookahead distance; longer is smoother but cuts
+     * corners more
+     */
+    public PurePursuit(Path path, double lookahead) {
+        if (!(lookahead > 0.0d)) {
+            throw new IllegalArgumentException("bad lookahead " + lookahead);
+        }
+        m_path = path;
+        m_lookahead = lookahead;
+        m_point = new double[2];
+        m_closest = 0;
+    }
+
+    /**
+     * Compute the steering curvature for the robot's current pose
+     * @param x Robot x
+     * @param y Robot y
+     * @param heading Robot heading, radians
+     * @return Curvature to drive at (1 / turn radius, positive CCW)
+     */
+    public double update(double x, double y, double heading) {
+        m_closest = m_path.findClosest(x, y, m_closest);
+        m_path.getPointAt(m_path.getDistance(m_closest) + m_lookahead, m_point);
+
+        // Lookahead point in robot coordinates (forward, left)
+        double dx = m_point[0] - x;
+        double dy = m_point[1] - y;
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double fwd = (dx * cos) + (dy * sin);
+        double left = (dy * cos) - (dx * sin);
+        double d2 = (fwd * fwd) + (left * left);
+        if (d2 == 0.0d) {
+            return 0.0d;
+        }
+        return (2.0d * left) / d2;
+    }
+
+    /**
+     * Distance along the path to the point nearest the robot at the
+     * last update
+     * @return Distance travelled along the path
+     */
+    public double getDistanceAlong() {
+        return m_path.getDistance(m_closest);
+    }
+
+    /**
+     * Distance along the path still to go, as of the last update
+     * @return Remaining distance
+     */
+    public double getRemaining() {
+        return m_path.getLength() - getDistanceAlong();
+    }
+
+    /**
+     * Has the robot reached the end of the path?
+     * @param x Robot x
+     * @param y Robot y
+     * @param tolerance How close counts as there
+     * @return True iff the nearest point is the last one and the robot is
+     * within tolerance of it, or has passed it
+     */
+    public boolean isDone(double x, double y, double tolerance) {
+        int last = m_path.size() - 1;
+        if (m_closest < last) {
+            return false;
+        }
+        double ex = m_path.getX(last);
+        double ey = m_path.getY(last);
+        // Passed the end: beyond the line through it perpendicular to the last segment
+        double sx = ex - m_path.getX(last - 1);
+        double sy = ey - m_path.getY(last - 1);
+        double beyond = ((x - ex) * sx) + ((y - ey) * sy);
+        return (beyond >= 0.0d) || (Math.hypot(x - ex, y - ey) <= tolerance);
+    }
+
+    /**
+     * Wheel speeds for driving an arc at a velocity
+     * @param velocity Speed of the robot's center
+     * @param curvature Arc curvature (positive CCW)
+     * @param trackWidth Distance between the wheels
+     * @param dst Receives { left, right } wheel speeds
+     * @return dst
+     */
+    public static double[] wheelSpeeds(double velocity, double curvature, double trackWidth, double[] dst) {
+        double diff = (velocity * curvature * trackWidth) / 2.0d;
+        dst[0] = velocity - diff;
+        dst[1] = velocity + diff;
+        return dst;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * A 2-d quintic Hermite spline: the curve p(s), 0 <= s <= 1, that
+ * starts and ends at given points with given first and second
+ * derivatives.  Matching second derivatives (and so curvature) at the
+ * ends is what lets consecutive splines, or a spline and a straight
+ * line, join without a jump in steering.
+ * x(s) and y(s) are each a quintic, kept as polynomial coefficients.
+ * @author lwa
+ */
+public class QuinticHermiteSpline {
+
+    // x(s) = m_ax[0] + m_ax[1] s + ... + m_ax[5] s^5; likewise y
+    private final double[] m_ax;
+    private final double[] m_ay;
+
+    /**
+     * Construct a spline from its end conditions
+     * @param x0 Start x
+     * @param dx0 Start dx/ds
+     * @param ddx0 Start d2x/ds2
+     * @param x1 End x
+     * @param dx1 End dx/ds
+     * @param ddx1 End d2x/ds2
+     * @param y0 Start y
+     * @param dy0 Start dy/ds
+     * @param ddy0 Start d2y/ds2
+     * @param y1 End y
+     * @param dy1 End dy/ds
+     * @param ddy1 End d2y/ds2
+     */
+    public QuinticHermiteSpline(double x0, double dx0, double ddx0, double x1, double dx1, double ddx1,
+                                double y0, double dy0, double ddy0, double y1, double dy1, double ddy1) {
+        m_ax = coefficients(x0, dx0, ddx0, x1, dx1, ddx1);
+        m_ay = coefficients(y0, dy0, ddy0, y1, dy1, ddy1);
+    }
+
+    /**
+     * Construct a spline between two poses, with zero curvature at both
+     * ends.  The tangents are the headings scaled by tangentLength; about
+     * the distance between the points gives a gentle curve, and longer
+     * tangents hold each end's heading for longer.
+     * @param x0 Start x
+     * @param y0 Start y
+     * @param heading0 Start heading, radians
+     * @param x1 End x
+     * @param y1 End y
+     * @param heading1 End heading, radians
+     * @param tangentLength Length of the end tangents
+     * @return The spline
+     */
+    public static QuinticHermiteSpline fromPoses(double x0, double y0, double heading0,
+                                                 double x1, double y1, double heading1,
+                                                 double tangentLength) {
+        return new QuinticHermiteSpline(
+            x0, tangentLength * Math.cos(heading0), 0.0d, x1, tangentLength * Math.cos(heading1), 0.0d,
+            y0, tangentLength * Math.sin(heading0), 0.0d, y1, tangentLength * Math.sin(heading1), 0.0d);
+    }
+
+    /**
+     * Polynomial coefficients of one coordinate, from its end conditions
+     */
+    private static double[] coefficients(double p0, double v0, double a0, double p1, double v1, double a1) {
+        return new double[] {
+            p0,
+            v0,
+            0.5d * a0,
+            (-10.0d * p0) - (6.0d * v0) - (1.5d * a0) + (0.5d * a1) - (4.0d * v1) + (10.0d * p1),
+            (15.0d * p0) + (8.0d * v0) + (1.5d * a0) - a1 + (7.0d * v1) - (15.0d * p1),
+            (-6.0d * p0) - (3.0d * v0) - (0.5d * a0) + (0.5d * a1) - (3.0d * v1) + (6.0d * p1)
+        };
+    }
+
+    private static double value(double[] a, double s) {
+        return a[0] + (s * (a[1] + (s * (a[2] + (s * (a[3] + (s * (a[4] + (s * a[5])))))))));
+    }
+
+    private static double deriv(double[] a, double s) {
+        return a[1] + (s * ((2.0d * a[2]) + (s * ((3.0d * a[3]) + (s * ((4.0d * a[4]) + (s * 5.0d * a[5])))))));
+    }
+
+    private static double deriv2(double[] a, double s) {
+        return (2.0d * a[2]) + (s * ((6.0d * a[3]) + (s * ((12.0d * a[4]) + (s * 20.0d * a[5])))));
+    }
+
+    /**
+     * x at a parameter value
+     * @param s Parameter, 0..1
+     * @return x(s)
+     */
+    public double getX(double s) {
+        return value(m_ax, s);
+    }
+
+    /**
+     * y at a parameter value
+     * @param s Parameter, 0..1
+     * @return y(s)
+     */
+    public double getY(double s) {
+        return value(m_ay, s);
+    }
+
+    /**
+     * Direction of travel at a parameter value
+     * @param s Parameter, 0..1
+     * @return Heading in radians, -pi <= res <= pi
+     */
+    public double getHeading(double s) {
+        return Math.atan2(deriv(m_ay, s), deriv(m_ax, s));
+    }
+
+    /**
+     * Signed curvature (1 / turn radius, positive turning CCW) at a
+     * parameter value
+     * @param s Parameter, 0..1
+     * @return Curvature, or infinity where the spline stops (a cusp)
+     */
+    public double getCurvature(double s) {
+        double dx = deriv(m_ax, s);
+        double dy = deriv(m_ay, s);
+        double speed2 = (dx * dx) + (dy * dy);
+        double cross = (dx * deriv2(m_ay, s)) - (dy * deriv2(m_ax, s));
+        if (speed2 == 0.0d) {
+            return (cross >= 0.0d) ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        }
+        return cross / (speed2 * Math.sqrt(speed2));
+    }
+}
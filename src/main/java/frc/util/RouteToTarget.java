@@ -51,16 +51,35 @@ public class RouteToTarget {
     private final Vec2d m_normalVec;
 
     /**
-     * Constructor given the three vectors
+     * How much to trust the route, from 0 (not at all) to 1 (fully); see
+     * TargetEstimator.getConfidence()
+     */
+    private final double m_confidence;
+
+    /**
+     * Constructor given the three vectors, for a route we trust fully
      * @param targetDirectVec Vector directly from cameral lens to target
      * @param interceptVec Vector from robot to normal vec
      * @param normalVec Vector from normal vec to target
      */
     public RouteToTarget(Vec2d targetDirectVec, Vec2d interceptVec, Vec2d normalVec) {
+        this(targetDirectVec, interceptVec, normalVec, 1.0d);
+    }
+
+    /**
+     * Constructor given the three vectors and our confidence in them
+     * @param targetDirectVec Vector directly from cameral lens to target
+     * @param interceptVec Vector from robot to normal vec
+     * @param normalVec Vector from normal vec to target
+     * @param confidence Confidence in the route, 0 to 1
+     */
+    public RouteToTarget(Vec2d targetDirectVec, Vec2d interceptVec, Vec2d normalVec,
+                         double confidence) {
 
         m_targetDirectVec = targetDirectVec;
         m_interceptVec = interceptVec;
         m_normalVec = normalVec;
+        m_confidence = confidence;
     }
 
     /**
@@ -86,4 +105,12 @@ public class RouteToTarget {
     public Vec2d getNormalVec() {
         return m_normalVec;
     }
+
+    /**
+     * Return the confidence in the route
+     * @return Confidence, 0 to 1
+     */
+    public double getConfidence() {
+        return m_confidence;
+    }
 }
@@ -24,6 +24,8 @@
 
 package frc.util;
 
+import java.util.Arrays;
+
 /**
  * Calculator to determine route to target found by the vision system.
  * A TargetCalculator is initialized with camera-specific parameters (aim
@@ -48,21 +50,66 @@ public class TargetCalculator {
      */
     private final double m_vAimAngle;
 
+    /**
+     * The camera's vertical field of view, in degrees
+     */
+    private final double m_vFov;
+
+    /**
+     * Error bound for the distance tables
+     */
+    private final double m_maxError;
+
+    /**
+     * Distance tables for each target height seen so far; few enough
+     * that a linear search beats hashing (and doesn't box)
+     */
+    private DistanceTable[] m_tables;
+
     /**
      * Minimum rotation we'll deal with, in radians
      */
     public static final double MIN_ROTATE = 0.02;
 
+    /**
+     * Latency not included in the camera's reported pipeline latency
+     * (image capture plus getting the values to us over the network),
+     * in seconds.  Limelight recommends adding at least 11 ms.
+     */
+    public static final double TRANSPORT_LATENCY = 0.011d;
+
+    private static final BinaryLogger log = BinaryLogger.getInstance();
+    private static final int LOG_TARGET = log.register("TargetCalculator.target",
+        "centralXAngle", "centralYAngle", "targetDistance");
+
     /**
      * Constructor given the basic camera parameters
      * @param camHeight Camera height above floor
      * @param vAim Vertical aiming angle relative to horizon
      * (in degrees)
+     * @param vFov Camera's vertical field of view (in degrees)
      */
-    public TargetCalculator(double camHeight, double vAim) {
+    public TargetCalculator(double camHeight, double vAim, double vFov) {
+        this(camHeight, vAim, vFov, DistanceTable.DEFAULT_MAX_ERROR);
+    }
+
+    /**
+     * Constructor given the camera parameters and the accuracy wanted from
+     * the distance tables
+     * @param camHeight Camera height above floor
+     * @param vAim Vertical aiming angle relative to horizon
+     * (in degrees)
+     * @param vFov Camera's vertical field of view (in degrees)
+     * @param maxError Largest error allowed in table lookups of the
+     * distance to the target (in units)
+     */
+    public TargetCalculator(double camHeight, double vAim, double vFov, double maxError) {
 
         m_cameraHeight = camHeight;
         m_vAimAngle = Math.toRadians(vAim);
+        m_vFov = vFov;
+        m_maxError = maxError;
+        m_tables = new DistanceTable[0];
     }
 
     /**
@@ -82,13 +129,11 @@ public class TargetCalculator {
      * @param ty Central y angle of the target in degrees (for Limelight, -20.5 to 20.5 b to t)
      * @param robotVec Unit vector (field-relative) in the robot's current direction
      * @param targHeight Height of target (in units) above the floor
-     * @return Field-relative vector from camera lens to target
+     * @return Field-relative vector from camera lens to target; NaN if the
+     * target is out of range (see getTargetDistance())
      */
     public Vec2d getTargetVector(double tx, double ty, Vec2d robotVec, double targHeight) {
 
-        System.out.println("centralXAngle:" + tx);
-        System.out.println("centralYAngle:" + ty);
-
         /* Next, we can compute the distance to the target from the camera, based on the camera's height,
          * its aiming angle, and the central Y angle obtained above:
          *   distance = (targ ht - camera ht) / tan(camera angle + central y angle)
@@ -96,14 +141,96 @@ public class TargetCalculator {
          * sum of the camera angle and central y angle are too close to PI/2 radians (90 deg) -- so
          * robot designers should avoid those situations!
          */
-        double targetDistance = ((targHeight - m_cameraHeight) / Math.tan(Math.toRadians(ty) + m_vAimAngle));
-        System.out.println("targetDistance:" + targetDistance);
+        double targetDistance = getTargetDistance(ty, targHeight);
+        log.log(LOG_TARGET, tx, ty, targetDistance);
 
         /* (robot angle - X angle) and distance give us the target vector */
         Vec2d targetVec = Vec2d.makePolar(targetDistance, robotVec.getTheta() - Math.toRadians(tx));
         return targetVec;
     }
 
+    /**
+     * Determine the target vector exactly as getTargetVector() does, but store
+     * it into the supplied mutable vector instead of allocating a new one.
+     * Intended for periodic (execute()) code that must not allocate.
+     * @param tx Central x angle of the target in degrees
+     * @param ty Central y angle of the target in degrees
+     * @param robotVec Unit vector (field-relative) in the robot's current direction
+     * @param targHeight Height of target (in units) above the floor
+     * @param dst Vector to receive the field-relative vector from camera lens to target
+     * @return dst
+     */
+    public MutableVec2d getTargetVector(double tx, double ty, Vec2d robotVec, double targHeight,
+                                        MutableVec2d dst) {
+
+        return getTargetVector(tx, ty, robotVec.getTheta(), targHeight, dst);
+    }
+
+    /**
+     * Determine the target vector as getTargetVector() does, given the robot's
+     * heading as an angle rather than a unit vector, so that the caller needn't
+     * allocate one.
+     * @param tx Central x angle of the target in degrees
+     * @param ty Central y angle of the target in degrees
+     * @param heading Robot's current field heading, in radians
+     * @param targHeight Height of target (in units) above the floor
+     * @param dst Vector to receive the field-relative vector from camera lens to target
+     * @return dst
+     */
+    public MutableVec2d getTargetVector(double tx, double ty, double heading, double targHeight,
+                                        MutableVec2d dst) {
+
+        double targetDistance = getTargetDistance(ty, targHeight);
+        return dst.setPolar(targetDistance, heading - Math.toRadians(tx));
+    }
+
+    /**
+     * Floor distance from the camera lens to a target at the given central y
+     * angle and height:
+     *   distance = (targ ht - camera ht) / tan(camera angle + central y angle)
+     * Looked up in the DistanceTable for the target height if the target is
+     * above the camera; otherwise computed.  Either way, a target at or
+     * beyond the horizon (where the formula gives huge or negative
+     * distances), outside the field of view, or further away than the
+     * table's maximum distance is out of range.
+     * @param ty Central y angle of the target in degrees
+     * @param targHeight Height of target (in units) above the floor
+     * @return Floor distance to the target, or NaN if it's out of range
+     */
+    public double getTargetDistance(double ty, double targHeight) {
+        DistanceTable table = getDistanceTable(targHeight);
+        if (table != null) {
+            return table.getDistance(ty);
+        }
+        double dist = (targHeight - m_cameraHeight) / Trig.tan(Math.toRadians(ty) + m_vAimAngle);
+        if ((dist > 0.0d) && (dist <= DistanceTable.DEFAULT_MAX_DISTANCE)) {
+            return dist;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Get the distance table for a target height, building it the first
+     * time that height is seen
+     * @param targHeight Height of target (in units) above the floor
+     * @return The table, or null if the target isn't above the camera
+     */
+    public DistanceTable getDistanceTable(double targHeight) {
+        for (DistanceTable table : m_tables) {
+            if (table.getHeightDiff() == targHeight - m_cameraHeight) {
+                return table;
+            }
+        }
+        if (!(targHeight > m_cameraHeight)) {
+            return null;
+        }
+        DistanceTable table = new DistanceTable(m_cameraHeight, Math.toDegrees(m_vAimAngle), targHeight,
+                                                m_vFov, m_maxError, DistanceTable.DEFAULT_MAX_DISTANCE);
+        m_tables = Arrays.copyOf(m_tables, m_tables.length + 1);
+        m_tables[m_tables.length - 1] = table;
+        return table;
+    }
+
     /**
      * Calculate the desired route to the target identified on the camera's screen
      * with the specified central x and y angles, given the necessary information about
@@ -127,7 +254,7 @@ public class TargetCalculator {
      * @param normDist Minimum distance from target (in units) for robot to drive normal to
      * target at end of its route
      * @return Route to target: vectors the robot must drive to get to the target from its
-     * current position
+     * current position; NaN vectors if the target is out of range (see getTargetDistance())
      */
     public RouteToTarget getRouteToTarget(double tx, double ty, Vec2d robotVec, Vec2d camVec,
                                           Vec2d targNorm, double targHeight, double normDist) {
@@ -140,4 +267,71 @@ public class TargetCalculator {
         return new RouteToTarget(targetVec, interceptVec, normVec);
     }
 
+    /**
+     * Time at which a camera frame was captured, given when we received
+     * it and the pipeline latency the camera reported for it.
+     * @param receiveTime Time the frame was received, in seconds
+     * @param tl Pipeline latency reported by the camera, in milliseconds
+     * @return Capture time in seconds (same clock as receiveTime)
+     */
+    public static double getCaptureTime(double receiveTime, double tl) {
+        return receiveTime - (tl / 1000.0d) - TRANSPORT_LATENCY;
+    }
+
+    /**
+     * Calculate the route to the target as getRouteToTarget() does, using
+     * the robot's heading at the time the camera frame was captured rather
+     * than its heading now.  While the robot is turning (or settling after
+     * a turn) those differ by the turn rate times the camera latency, and
+     * tx is only meaningful relative to the capture-time heading.
+     * The camera vector is computed for the capture-time heading as well.
+     * @param tx Central x angle of the target in degrees
+     * @param ty Central y angle of the target in degrees
+     * @param captureTime Time the frame was captured (see getCaptureTime())
+     * @param history Heading history covering the capture time
+     * @param camOffset Offset of the camera from the robot's centerline,
+     * positive to the right (as Limelight.OFFSET_FROM_CENTER)
+     * @param targNorm Unit vector (field-relative) pointing perpendicularly away from target
+     * @param targHeight Height of target (in units) above the floor
+     * @param normDist Minimum distance from target (in units) for robot to drive normal to
+     * target at end of its route
+     * @return Route to target
+     */
+    public RouteToTarget getRouteToTarget(double tx, double ty, double captureTime,
+                                          HeadingHistory history, double camOffset,
+                                          Vec2d targNorm, double targHeight, double normDist) {
+
+        Vec2d robotVec = Vec2d.makePolar(1.0d, history.getHeading(captureTime));
+        Vec2d camVec = robotVec.getNormal().mulScalar(-camOffset);
+        return getRouteToTarget(tx, ty, robotVec, camVec, targNorm, targHeight, normDist);
+    }
+
+    /**
+     * Calculate the route to the target exactly as getRouteToTarget() does, but
+     * store the three route vectors into caller-supplied mutable vectors instead
+     * of allocating a RouteToTarget.  The invariant
+     *    normalOut + interceptOut + camVec = targetOut
+     * holds on return.
+     * @param tx Central x angle of the target in degrees
+     * @param ty Central y angle of the target in degrees
+     * @param robotVec Unit vector (field-relative) in the robot's current direction
+     * @param camVec Camera vector: vector from camera lens to robot's center
+     * @param targNorm Unit vector (field-relative) pointing perpendicularly away from target
+     * @param targHeight Height of target (in units) above the floor
+     * @param normDist Minimum distance from target (in units) for robot to drive normal to
+     * target at end of its route
+     * @param targetOut Receives the target direct vector
+     * @param interceptOut Receives the intercept vector
+     * @param normalOut Receives the normal vector
+     */
+    public void getRouteToTarget(double tx, double ty, Vec2d robotVec, Vec2d camVec,
+                                 Vec2d targNorm, double targHeight, double normDist,
+                                 MutableVec2d targetOut, MutableVec2d interceptOut,
+                                 MutableVec2d normalOut) {
+
+        getTargetVector(tx, ty, robotVec, targHeight, targetOut);
+        normalOut.set(targNorm).mulScalar(-normDist);
+        interceptOut.set(targetOut).sub(normalOut).sub(camVec);
+    }
+
 }
@@ -0,0 +1,400 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.Arrays;
+
+/**
+ * Streaming estimate of where a vision target is, from several camera
+ * frames rather than the first one, so that one noisy frame can't send
+ * the robot to the wrong place.  Each frame's tx is turned into a
+ * field-relative bearing (using the robot's heading when the frame was
+ * captured, so the robot may still be settling from a turn) and kept,
+ * with its ty, in a fixed-size ring of primitives.  The estimate is the
+ * median, or the trimmed mean, of the bearings and of the ty's in the ring.
+ *
+ * The estimate is ready when the ring is full, when the frames span the
+ * time window, or -- if early exit is on -- as soon as there are enough
+ * frames and they agree closely enough (their spread is at most the
+ * maximum standard deviation).  The spread is measured robustly, as the
+ * median absolute deviation scaled to a standard deviation, so it isn't
+ * thrown off by the outliers we're trying to reject.
+ *
+ * The confidence in the estimate, from 0 to 1, is the fraction of frames
+ * that agree with it (within OUTLIER_SIGMAS), times the fraction of the
+ * minimum number of frames we have, times (maxStdDev / spread)^2 once the
+ * spread grows past the maximum standard deviation.
+ * Not thread-safe, and no allocation except in the RouteToTarget form of
+ * getRoute().
+ * @author lwa
+ */
+public class TargetEstimator {
+
+    /**
+     * How to combine the frames
+     */
+    public enum Filter {
+        eMedian, eTrimmedMean
+    }
+
+    public static final int DEFAULT_CAPACITY = 10;
+    public static final int DEFAULT_MIN_FRAMES = 3;
+    public static final double DEFAULT_WINDOW = 0.25d;
+    public static final double DEFAULT_MAX_STD_DEV = 0.25d;
+
+    /**
+     * Fraction of frames dropped from each end for the trimmed mean
+     */
+    public static final double TRIM_FRACTION = 0.25d;
+
+    /**
+     * Frames further than this many spreads from the estimate are outliers
+     */
+    public static final double OUTLIER_SIGMAS = 3.0d;
+
+    /**
+     * Smallest spread used for outlier rejection, in degrees: the camera
+     * doesn't resolve angles finer than this, so frames closer than this
+     * always agree
+     */
+    static final double MIN_SPREAD = 0.05d;
+
+    /**
+     * Scale from median absolute deviation to standard deviation, for
+     * normally distributed noise
+     */
+    static final double MAD_SCALE = 1.4826d;
+
+    private final int m_capacity;
+    private final int m_minFrames;
+    private final double m_window;
+    private final double m_maxStdDev;
+    private final Filter m_filter;
+    private final boolean m_earlyExit;
+
+    // The ring.  Bearings are in degrees, relative to m_refBearing so that
+    // they don't wrap at +-180.
+    private final double[] m_bearing;
+    private final double[] m_ty;
+    private final double[] m_time;
+    private final double[] m_scratch;
+    private int m_count;
+    private int m_next;
+    private double m_refBearing;
+    private double m_heading;
+    private double m_firstTime;
+    private double m_lastTime;
+
+    // The estimate, recomputed when a frame is added
+    private boolean m_dirty;
+    private double m_estBearing;
+    private double m_estTy;
+    private double m_spread;
+    private double m_confidence;
+
+    /**
+     * Construct an estimator with the default settings: median filter,
+     * early exit on
+     */
+    public TargetEstimator() {
+        this(DEFAULT_CAPACITY, DEFAULT_MIN_FRAMES, DEFAULT_WINDOW, DEFAULT_MAX_STD_DEV,
+             Filter.eMedian, true);
+    }
+
+    /**
+     * Constructor
+     * @param capacity Most frames to gather
+     * @param minFrames Fewest frames for an early exit, and for full
+     * confidence
+     * @param window Longest time to gather frames, in seconds
+     * @param maxStdDev Largest spread of tx and ty, in degrees, for an early
+     * exit and for full confidence
+     * @param filter How to combine the frames
+     * @param earlyExit True to be ready as soon as the frames agree
+     */
+    public TargetEstimator(int capacity, int minFrames, double window, double maxStdDev,
+                           Filter filter, boolean earlyExit) {
+        if ((minFrames < 1) || (capacity < minFrames)) {
+            throw new IllegalArgumentException("bad frame counts " + minFrames + ", " + capacity);
+        }
+        if (!(window > 0.0d) || !(maxStdDev > 0.0d)) {
+            throw new IllegalArgumentException("bad window " + window + " or std dev " + maxStdDev);
+        }
+        m_capacity = capacity;
+        m_minFrames = minFrames;
+        m_window = window;
+        m_maxStdDev = maxStdDev;
+        m_filter = filter;
+        m_earlyExit = earlyExit;
+        m_bearing = new double[capacity];
+        m_ty = new double[capacity];
+        m_time = new double[capacity];
+        m_scratch = new double[capacity];
+        reset();
+    }
+
+    /**
+     * Forget all the frames, to start a new estimate
+     */
+    public void reset() {
+        m_count = 0;
+        m_next = 0;
+        m_dirty = false;
+        m_estBearing = 0.0d;
+        m_estTy = 0.0d;
+        m_spread = 0.0d;
+        m_confidence = 0.0d;
+    }
+
+    /**
+     * Add a frame in which the camera saw the target.  If the ring is
+     * full, the oldest frame is dropped.
+     * @param captureTime Time the frame was captured, in seconds
+     * @param heading Robot's field heading at capture time, in radians
+     * @param tx Central x angle of the target in degrees
+     * @param ty Central y angle of the target in degrees
+     */
+    public void add(double captureTime, double heading, double tx, double ty) {
+        double bearing = Math.toDegrees(heading) - tx;
+        if (m_count == 0) {
+            m_refBearing = bearing;
+            m_firstTime = captureTime;
+        }
+        m_bearing[m_next] = Math.IEEEremainder(bearing - m_refBearing, 360.0d);
+        m_ty[m_next] = ty;
+        m_time[m_next] = captureTime;
+        m_next = (m_next + 1) % m_capacity;
+        if (m_count < m_capacity) {
+            m_count++;
+        } else {
+            m_firstTime = m_time[m_next];
+        }
+        m_heading = heading;
+        m_lastTime = captureTime;
+        m_dirty = true;
+    }
+
+    /**
+     * Number of frames gathered
+     * @return The count
+     */
+    public int getCount() {
+        return m_count;
+    }
+
+    /**
+     * Is the estimate ready?
+     * @return True iff we have enough frames, or have waited long enough,
+     * or (with early exit) the frames agree
+     */
+    public boolean isReady() {
+        if (m_count == 0) {
+            return false;
+        }
+        if ((m_count >= m_capacity) || (m_lastTime - m_firstTime >= m_window)) {
+            return true;
+        }
+        if (m_earlyExit && (m_count >= m_minFrames)) {
+            update();
+            return m_spread <= m_maxStdDev;
+        }
+        return false;
+    }
+
+    /**
+     * Estimated field-relative bearing from the camera to the target
+     * @return Bearing in radians
+     */
+    public double getBearing() {
+        update();
+        return Math.toRadians(Math.IEEEremainder(m_refBearing + m_estBearing, 360.0d));
+    }
+
+    /**
+     * Robot's heading when the latest frame was captured, as passed to add()
+     * @return Heading in radians
+     */
+    public double getHeading() {
+        return m_heading;
+    }
+
+    /**
+     * Estimated central y angle of the target
+     * @return ty in degrees
+     */
+    public double getTy() {
+        update();
+        return m_estTy;
+    }
+
+    /**
+     * Spread of the frames: the larger of the tx and ty robust standard
+     * deviations
+     * @return Spread in degrees
+     */
+    public double getSpread() {
+        update();
+        return m_spread;
+    }
+
+    /**
+     * Confidence in the estimate; see the class comment
+     * @return Confidence, 0 to 1
+     */
+    public double getConfidence() {
+        update();
+        return m_confidence;
+    }
+
+    /**
+     * Calculate the route to the target from the estimate, as
+     * TargetCalculator.getRouteToTarget() does from a single frame.  The
+     * camera vector is computed for the heading of the latest frame.
+     * @param calc Calculator for the camera
+     * @param camOffset Offset of the camera from the robot's centerline,
+     * positive to the right (as Limelight.OFFSET_FROM_CENTER)
+     * @param targNorm Unit vector (field-relative) pointing perpendicularly away from target
+     * @param targHeight Height of target (in units) above the floor
+     * @param normDist Minimum distance from target (in units) for robot to drive normal to
+     * target at end of its route
+     * @return Route to target, with its confidence; or null if the target
+     * is out of the calculator's range (see TargetCalculator.getTargetDistance())
+     * @throws IllegalStateException if there are no frames
+     */
+    public RouteToTarget getRoute(TargetCalculator calc, double camOffset, Vec2d targNorm,
+                                  double targHeight, double normDist) {
+        MutableVec2d target = new MutableVec2d();
+        MutableVec2d intercept = new MutableVec2d();
+        MutableVec2d normal = new MutableVec2d();
+        if (!getRoute(calc, camOffset, targNorm, targHeight, normDist, target, intercept, normal)) {
+            return null;
+        }
+        return new RouteToTarget(target.toVec2d(), intercept.toVec2d(), normal.toVec2d(),
+                                 m_confidence);
+    }
+
+    /**
+     * Calculate the route to the target as getRoute() does, but store the
+     * three route vectors into caller-supplied mutable vectors instead of
+     * allocating a RouteToTarget, for periodic code that must not allocate.
+     * The confidence is getConfidence().
+     * @param calc Calculator for the camera
+     * @param camOffset Offset of the camera from the robot's centerline,
+     * positive to the right (as Limelight.OFFSET_FROM_CENTER)
+     * @param targNorm Unit vector (field-relative) pointing perpendicularly away from target
+     * @param targHeight Height of target (in units) above the floor
+     * @param normDist Minimum distance from target (in units) for robot to drive normal to
+     * target at end of its route
+     * @param targetOut Receives the target direct vector
+     * @param interceptOut Receives the intercept vector
+     * @param normalOut Receives the normal vector
+     * @return True if the route was calculated; false (leaving the vectors
+     * unchanged) if the target is out of the calculator's range
+     * @throws IllegalStateException if there are no frames
+     */
+    public boolean getRoute(TargetCalculator calc, double camOffset, Vec2d targNorm,
+                            double targHeight, double normDist, MutableVec2d targetOut,
+                            MutableVec2d interceptOut, MutableVec2d normalOut) {
+        if (m_count == 0) {
+            throw new IllegalStateException("no frames");
+        }
+        if (Double.isNaN(calc.getTargetDistance(getTy(), targHeight))) {
+            return false;
+        }
+        // With tx 0, the "robot" heading is the bearing to the target
+        calc.getTargetVector(0.0d, getTy(), getBearing(), targHeight, targetOut);
+        normalOut.set(targNorm).mulScalar(-normDist);
+
+        // intercept = target - normal - camera vector, with the camera
+        // vector (as Limelight.getCameraVector()) for the latest heading
+        interceptOut.setPolar(1.0d, m_heading).normal().mulScalar(camOffset)
+            .add(targetOut).sub(normalOut);
+        return true;
+    }
+
+    /**
+     * Recompute the estimate if frames have been added
+     */
+    private void update() {
+        if (!m_dirty) {
+            return;
+        }
+        m_dirty = false;
+        m_estBearing = filter(m_bearing);
+        double bearingSpread = spread(m_bearing, m_estBearing);
+        m_estTy = filter(m_ty);
+        double tySpread = spread(m_ty, m_estTy);
+        m_spread = Math.max(bearingSpread, tySpread);
+
+        double bearingTol = OUTLIER_SIGMAS * Math.max(bearingSpread, MIN_SPREAD);
+        double tyTol = OUTLIER_SIGMAS * Math.max(tySpread, MIN_SPREAD);
+        int inliers = 0;
+        for (int i = 0; i < m_count; i++) {
+            if ((Math.abs(m_bearing[i] - m_estBearing) <= bearingTol)
+                && (Math.abs(m_ty[i] - m_estTy) <= tyTol)) {
+                inliers++;
+            }
+        }
+        double excess = m_spread / m_maxStdDev;
+        m_confidence = ((double) inliers / m_count)
+            * Math.min(1.0d, (double) m_count / m_minFrames)
+            * Math.min(1.0d, 1.0d / (excess * excess));
+    }
+
+    /**
+     * Median or trimmed mean of the first m_count values
+     */
+    private double filter(double[] values) {
+        double[] s = m_scratch;
+        System.arraycopy(values, 0, s, 0, m_count);
+        Arrays.sort(s, 0, m_count);
+        if (m_filter == Filter.eMedian) {
+            return median(s, m_count);
+        }
+        int trim = (int) (m_count * TRIM_FRACTION);
+        double sum = 0.0d;
+        for (int i = trim; i < m_count - trim; i++) {
+            sum += s[i];
+        }
+        return sum / (m_count - (2 * trim));
+    }
+
+    /**
+     * Median absolute deviation of the first m_count values from the
+     * estimate, scaled to a standard deviation
+     */
+    private double spread(double[] values, double est) {
+        double[] s = m_scratch;
+        for (int i = 0; i < m_count; i++) {
+            s[i] = Math.abs(values[i] - est);
+        }
+        Arrays.sort(s, 0, m_count);
+        return MAD_SCALE * median(s, m_count);
+    }
+
+    private static double median(double[] sorted, int n) {
+        int mid = n / 2;
+        return ((n & 1) != 0) ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2.0d;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of target normal vectors by robot heading, loaded from a file
+ * (normally targets.csv in the deploy directory).  Targets come in
+ * families -- e.g. the orthogonal cargo ship and loading station targets,
+ * or the angled rocket targets -- and within a family the robot's heading
+ * tells us which target must be in view.
+ * Each family is precomputed into a table of BUCKETS_PER_DEGREE buckets
+ * per degree of heading, so a lookup is one index computation however
+ * many targets there are.  When the file is loaded every family is checked
+ * to cover all 360 degrees exactly once, so a lookup can't fail later.
+ *
+ * File format: one range per line, "family, minYaw, maxYaw, normalAngle"
+ * (degrees; headings from -180 to 180, range ends on bucket boundaries).
+ * Blank lines and lines starting with # are ignored.
+ * @author lwa
+ */
+public class TargetNormalRegistry {
+
+    /**
+     * Lookup table resolution
+     */
+    public static final int BUCKETS_PER_DEGREE = 1;
+    public static final int NUM_BUCKETS = 360 * BUCKETS_PER_DEGREE;
+
+    /**
+     * One family of targets, with its lookup table
+     */
+    public static class Family {
+
+        private final String m_name;
+        private final Vec2d[] m_buckets;
+
+        private Family(String name, Vec2d[] buckets) {
+            m_name = name;
+            m_buckets = buckets;
+        }
+
+        /**
+         * Get the family's name
+         * @return The name
+         */
+        public String getName() {
+            return m_name;
+        }
+
+        /**
+         * Find the normal of the target in view from the given heading
+         * @param yaw Robot field-relative heading in degrees (any angle;
+         * it's reduced to -180..180)
+         * @return Unit vector pointing perpendicularly away from the target
+         */
+        public Vec2d getNormal(double yaw) {
+            if (Double.isNaN(yaw) || Double.isInfinite(yaw)) {
+                throw new IllegalArgumentException("bad yaw " + yaw);
+            }
+            int i = (int) Math.floor((yaw + 180.0d) * BUCKETS_PER_DEGREE);
+            return m_buckets[Math.floorMod(i, NUM_BUCKETS)];
+        }
+    }
+
+    private final Map<String, Family> m_families;
+
+    private TargetNormalRegistry(Map<String, Family> families) {
+        m_families = families;
+    }
+
+    /**
+     * Load a registry from a file
+     * @param file The file
+     * @return The registry
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file is malformed, or a
+     * family doesn't cover every heading exactly once
+     */
+    public static TargetNormalRegistry load(File file) throws IOException {
+        try (Reader in = new FileReader(file)) {
+            return load(in);
+        }
+    }
+
+    /**
+     * Load a registry from a stream
+     * @param in The stream
+     * @return The registry
+     * @throws IOException if the stream can't be read
+     * @throws IllegalArgumentException if the contents are malformed, or a
+     * family doesn't cover every heading exactly once
+     */
+    public static TargetNormalRegistry load(Reader in) throws IOException {
+        Map<String, Vec2d[]> tables = new LinkedHashMap<>();
+        BufferedReader rdr = new BufferedReader(in);
+        String line;
+        int lineNo = 0;
+        while ((line = rdr.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s*,\\s*");
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("line " + lineNo + ": expected 4 fields: " + line);
+            }
+            double minYaw;
+            double maxYaw;
+            double normal;
+            try {
+                minYaw = Double.parseDouble(fields[1]);
+                maxYaw = Double.parseDouble(fields[2]);
+                normal = Double.parseDouble(fields[3]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("line " + lineNo + ": bad number: " + line);
+            }
+            Vec2d[] table = tables.computeIfAbsent(fields[0], k -> new Vec2d[NUM_BUCKETS]);
+            fill(table, minYaw, maxYaw, Vec2d.makePolar(1.0d, Math.toRadians(normal)),
+                 "line " + lineNo);
+        }
+
+        Map<String, Family> families = new LinkedHashMap<>();
+        for (Map.Entry<String, Vec2d[]> e : tables.entrySet()) {
+            Vec2d[] table = e.getValue();
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                if (table[i] == null) {
+                    throw new IllegalArgumentException("family " + e.getKey() + " has no target for yaw "
+                                                       + (((double) i / BUCKETS_PER_DEGREE) - 180.0d));
+                }
+            }
+            families.put(e.getKey(), new Family(e.getKey(), table));
+        }
+        return new TargetNormalRegistry(families);
+    }
+
+    /**
+     * Fill the buckets for one yaw range, checking it's well-formed and
+     * doesn't overlap any range already filled
+     */
+    private static void fill(Vec2d[] table, double minYaw, double maxYaw, Vec2d normal, String where) {
+        if (!(minYaw >= -180.0d && minYaw < maxYaw && maxYaw <= 180.0d)) {
+            throw new IllegalArgumentException(where + ": bad yaw range " + minYaw + " to " + maxYaw);
+        }
+        double lo = (minYaw + 180.0d) * BUCKETS_PER_DEGREE;
+        double hi = (maxYaw + 180.0d) * BUCKETS_PER_DEGREE;
+        if ((lo != Math.rint(lo)) || (hi != Math.rint(hi))) {
+            throw new IllegalArgumentException(where + ": yaw range " + minYaw + " to " + maxYaw
+                                               + " is not on bucket boundaries");
+        }
+        for (int i = (int) lo; i < (int) hi; i++) {
+            if (table[i] != null) {
+                throw new IllegalArgumentException(where + ": yaw range " + minYaw + " to " + maxYaw
+                                                   + " overlaps another");
+            }
+            table[i] = normal;
+        }
+    }
+
+    /**
+     * Get a family of targets
+     * @param name The family's name
+     * @return The family
+     * @throws IllegalArgumentException if there's no such family
+     */
+    public Family getFamily(String name) {
+        Family family = m_families.get(name);
+        if (family == null) {
+            throw new IllegalArgumentException("no target family " + name);
+        }
+        return family;
+    }
+
+    /**
+     * Get the names of all the families, in file order
+     * @return The names
+     */
+    public List<String> getFamilyNames() {
+        return Collections.unmodifiableList(new ArrayList<>(m_families.keySet()));
+    }
+}
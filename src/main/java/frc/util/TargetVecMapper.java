@@ -7,7 +7,8 @@
 
 package frc.util;
 
-import frc.util.Vec2d;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Utility class for mapping a robot vector to the target normal vector
@@ -15,80 +16,72 @@ import frc.util.Vec2d;
  * at a target.  In the 2019 game there are different mappings for the
  * 'orthogonal' targets -- those on the cargo ship and the loading station --
  * and the 'rocket' targets, which are offset at about 61 deg.
+ * The mappings are data, loaded into a TargetNormalRegistry from
+ * TARGETS_FILE in the deploy directory (or, off the robot, from
+ * src/main/deploy) the first time this class is used; a new family of
+ * targets only needs lines in that file.
  */
 public class TargetVecMapper {
 
-  // These are the orthogonal standard target normal vectors
-  static final Vec2d[] stdTargets = {
-    Vec2d.makeCart(1.0d, 0.0d),
-    Vec2d.makeCart(0.0d, 1.0d),
-    Vec2d.makeCart(-1.0d, 0.0d),
-    Vec2d.makeCart(0.0d, -1.0d) 
-  };
+  public static final String TARGETS_FILE = "targets.csv";
 
-  // This is the mapping from robot vector angle (in degrees) to
-  // standard robot target vector
-  static final double[][] stdTargetMapping = {
-    {-45.0, 45.0, 3.0},
-    {45.0, 135.0, 2.0},
-    {135.0, 180.0, 1.0},
-    {-180.0, -135.0, 1.0},
-    {-135.0, -45.0, 0.0}
+  // Where to look for TARGETS_FILE: the deploy directory on the robot,
+  // then the project's deploy source directory (for tests and benchmarks)
+  static final String[] DEPLOY_DIRS = {
+    "/home/lvuser/deploy",
+    "src/main/deploy"
   };
 
-  /** These are the normal vectors to the 'rocket' targets:
-   * those on the hatch ports of the rockets (located at +-61 deg from the field
-   * center)
-   */
-  static final Vec2d[] rocketTargets = {
-    Vec2d.makePolar(1.0, Math.toRadians(119.0d)),
-    Vec2d.makePolar(1.0, Math.toRadians(-119.0d)),
-    Vec2d.makePolar(1.0, Math.toRadians(-61.0d)),
-    Vec2d.makePolar(1.0, Math.toRadians(61.0d))
-  };
+  public static final String STD_FAMILY = "std";
+  public static final String ROCKET_FAMILY = "rocket";
 
-  /** These are the robot angle ranges corresponding to the
-   * associated rocket target normal vectors.  If the robot's field-relative heading
-   * is in the associated range, and a target is in view, its rocket target normal has
-   * the specified index in the rocketTargets table.Headings are in degrees from -180
-   * to +180.
-   */
-  static final double[][] rocketTargetMapping = {
-    {0.0, 90.0, 1.0},
-    {90.0, 180.0, 0.0},
-    {-90.0, 0.0, 2.0},
-    {-180.0, -90.0, 3.0}
-  };
+  private static final TargetNormalRegistry registry = loadRegistry();
+  private static final TargetNormalRegistry.Family stdTargets = registry.getFamily(STD_FAMILY);
+  private static final TargetNormalRegistry.Family rocketTargets = registry.getFamily(ROCKET_FAMILY);
 
+  private static TargetNormalRegistry loadRegistry() {
+    for (String dir : DEPLOY_DIRS) {
+      File file = new File(dir, TARGETS_FILE);
+      if (file.isFile()) {
+        try {
+          return TargetNormalRegistry.load(file);
+        } catch (IOException e) {
+          throw new IllegalStateException("can't read " + file, e);
+        }
+      }
+    }
+    throw new IllegalStateException("can't find " + TARGETS_FILE);
+  }
 
+  /**
+   * Get the registry of all the target families
+   * @return The registry
+   */
+  public static TargetNormalRegistry getRegistry() {
+    return registry;
+  }
 
-    /**
+  /**
+   * Find the target normal for the target of the given family that's in
+   * view from the given yaw angle.
+   */
+  public static Vec2d getTargNorm(String family, double yaw) {
+    return registry.getFamily(family).getNormal(yaw);
+  }
+
+  /**
    * Find the target normal for the standard target that's in view from the given yaw
    * angle.  Only one such target should be in view.
    */
-  public static Vec2d getStdTargNorm(double yaw){
- 
-    for (double[] mpg: stdTargetMapping) {
-      if ((yaw >= mpg[0]) && (yaw <= mpg[1])) {
-        return stdTargets[(int)mpg[2]];
-      }
-    }
-    throw new RuntimeException("Could not find standard target for yaw " + yaw);
+  public static Vec2d getStdTargNorm(double yaw) {
+    return stdTargets.getNormal(yaw);
   }
 
-    /**
+  /**
    * Find the target normal for the rocket target that's in view from the given yaw
    * angle.  Only one such target should be in view.
    */
-  public static Vec2d getRocketTargNorm(double yaw){
- 
-    for (double[] mpg: rocketTargetMapping) {
-      if ((yaw >= mpg[0]) && (yaw <= mpg[1])) {
-        return rocketTargets[(int)mpg[2]];
-      }
-    }
-    throw new RuntimeException("Could not find rocket target for yaw " + yaw);
+  public static Vec2d getRocketTargNorm(double yaw) {
+    return rocketTargets.getNormal(yaw);
   }
-
-
 }
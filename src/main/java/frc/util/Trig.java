@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * Trig functions used by the vector and targeting math, with an optional
+ * table-driven implementation.  By default every function simply calls
+ * the corresponding java.lang.Math function.  After setUseTables(true),
+ * sin/cos/tan/atan2 are computed by linear interpolation in precomputed
+ * tables, which is much cheaper than Math on the roboRIO's ARM cores and
+ * accurate enough for anything we can measure on a field:
+ *  - sin and cos are within SIN_MAX_ERROR of Math (absolute)
+ *  - atan2 is within ATAN_MAX_ERROR of Math (absolute, radians)
+ *  - tan is sin/cos, so its error grows without bound near +-pi/2
+ *    (where tan itself blows up); the camera geometry never gets close.
+ * Arguments too large to reduce accurately fall back to Math.
+ * @author lwa
+ */
+public class Trig {
+
+    /**
+     * log2 of the number of sine table segments per full turn
+     */
+    static final int SIN_BITS = 12;
+    static final int SIN_SIZE = 1 << SIN_BITS;
+    static final int SIN_MASK = SIN_SIZE - 1;
+    static final double SIN_SCALE = SIN_SIZE / (2.0d * Math.PI);
+
+    /**
+     * Number of arctangent table segments over [0, 1]
+     */
+    static final int ATAN_SIZE = 1024;
+
+    /**
+     * Worst-case interpolation error of the sine (and cosine) table.
+     * For linear interpolation it's h^2/8 * max|sin''| with h the
+     * segment width (2pi/4096); rounded up.
+     */
+    public static final double SIN_MAX_ERROR = 3.0e-7d;
+
+    /**
+     * Worst-case interpolation error of the arctangent table, in radians.
+     * h^2/8 * max|atan''| with h = 1/1024 and max|atan''| ~= 0.65; rounded up.
+     */
+    public static final double ATAN_MAX_ERROR = 1.0e-7d;
+
+    /**
+     * Beyond this magnitude the argument reduction loses accuracy (and
+     * the int index would overflow), so we fall back to Math.
+     */
+    static final double MAX_TABLE_ARG = 1.0e5d;
+
+    /**
+     * sin(i * 2pi / SIN_SIZE) for i = 0 .. SIN_SIZE (one extra entry so
+     * interpolation never needs to wrap)
+     */
+    private static final double[] SIN_TABLE = new double[SIN_SIZE + 1];
+
+    /**
+     * atan(i / ATAN_SIZE) for i = 0 .. ATAN_SIZE
+     */
+    private static final double[] ATAN_TABLE = new double[ATAN_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= SIN_SIZE; i++) {
+            SIN_TABLE[i] = Math.sin(i * (2.0d * Math.PI) / SIN_SIZE);
+        }
+        for (int i = 0; i <= ATAN_SIZE; i++) {
+            ATAN_TABLE[i] = Math.atan((double) i / ATAN_SIZE);
+        }
+    }
+
+    /**
+     * True iff the table implementation is in use.  Set once at startup;
+     * not volatile, so it's not meant to be flipped while loops are running.
+     */
+    private static boolean s_useTables = false;
+
+    private Trig() {
+    }
+
+    /**
+     * Select the table-driven (true) or java.lang.Math (false) implementation
+     * @param useTables True to use the lookup tables
+     */
+    public static void setUseTables(boolean useTables) {
+        s_useTables = useTables;
+    }
+
+    /**
+     * Is the table-driven implementation in use?
+     * @return True iff the lookup tables are in use
+     */
+    public static boolean isUsingTables() {
+        return s_useTables;
+    }
+
+    /**
+     * Sine of an angle
+     * @param a Angle in radians
+     * @return sin(a)
+     */
+    public static double sin(double a) {
+        return s_useTables ? tableSin(a) : Math.sin(a);
+    }
+
+    /**
+     * Cosine of an angle
+     * @param a Angle in radians
+     * @return cos(a)
+     */
+    public static double cos(double a) {
+        return s_useTables ? tableCos(a) : Math.cos(a);
+    }
+
+    /**
+     * Tangent of an angle
+     * @param a Angle in radians
+     * @return tan(a)
+     */
+    public static double tan(double a) {
+        return s_useTables ? tableTan(a) : Math.tan(a);
+    }
+
+    /**
+     * Angle of the point (x, y), as Math.atan2
+     * @param y y-coord
+     * @param x x-coord
+     * @return Angle in radians, -pi <= res <= pi
+     */
+    public static double atan2(double y, double x) {
+        return s_useTables ? tableAtan2(y, x) : Math.atan2(y, x);
+    }
+
+    /**
+     * Table-driven sine, regardless of the setUseTables() switch
+     * @param a Angle in radians
+     * @return sin(a), within SIN_MAX_ERROR
+     */
+    public static double tableSin(double a) {
+        if (!(Math.abs(a) < MAX_TABLE_ARG)) {
+            return Math.sin(a);
+        }
+        double pos = a * SIN_SCALE;
+        double floor = Math.floor(pos);
+        double frac = pos - floor;
+        int i = ((int) floor) & SIN_MASK;
+        double s0 = SIN_TABLE[i];
+        return s0 + (frac * (SIN_TABLE[i + 1] - s0));
+    }
+
+    /**
+     * Table-driven cosine, regardless of the setUseTables() switch
+     * @param a Angle in radians
+     * @return cos(a), within SIN_MAX_ERROR
+     */
+    public static double tableCos(double a) {
+        return tableSin(a + (Math.PI / 2.0d));
+    }
+
+    /**
+     * Table-driven tangent, regardless of the setUseTables() switch
+     * @param a Angle in radians
+     * @return tan(a); see the class comment for its accuracy
+     */
+    public static double tableTan(double a) {
+        return tableSin(a) / tableCos(a);
+    }
+
+    /**
+     * Table-driven arctangent of y/x, regardless of the setUseTables() switch.
+     * The point is reduced to the first octant (0 <= y <= x), the
+     * arctangent of y/x looked up there, and the result mapped back.
+     * @param y y-coord
+     * @param x x-coord
+     * @return Angle in radians, -pi <= res <= pi, within ATAN_MAX_ERROR
+     */
+    public static double tableAtan2(double y, double x) {
+        double ax = Math.abs(x);
+        double ay = Math.abs(y);
+        if (Double.isNaN(ax) || Double.isNaN(ay) || Double.isInfinite(ax) || Double.isInfinite(ay)
+            || (ax == 0.0d && ay == 0.0d)) {
+            // Leave the special cases (including signed zeroes) to Math
+            return Math.atan2(y, x);
+        }
+        double res;
+        if (ay <= ax) {
+            res = tableAtan(ay / ax);
+        } else {
+            res = (Math.PI / 2.0d) - tableAtan(ax / ay);
+        }
+        if (x < 0.0d) {
+            res = Math.PI - res;
+        }
+        // copySign so that y == -0.0 gives -pi, as Math.atan2 does
+        return Math.copySign(res, y);
+    }
+
+    /**
+     * Arctangent of a ratio in [0, 1], by table interpolation
+     * @param r The ratio, 0 <= r <= 1
+     * @return atan(r)
+     */
+    private static double tableAtan(double r) {
+        double pos = r * ATAN_SIZE;
+        int i = (int) pos;
+        if (i >= ATAN_SIZE) {
+            return ATAN_TABLE[ATAN_SIZE];
+        }
+        double a0 = ATAN_TABLE[i];
+        return a0 + ((pos - i) * (ATAN_TABLE[i + 1] - a0));
+    }
+}
@@ -26,7 +26,13 @@ package frc.util;
 /**
  * A 2-d mathematical vector of doubles, with the usual operations.
  * vectors are immutable.  Factory methods are provided to construct
- * a vector from cartesian and polar coordinates.
+ * a vector from cartesian and polar coordinates.  Vectors made with
+ * makePolar (or derived from one by scaling, negation or getNormal) carry
+ * their polar form, so getR() and getTheta() needn't compute it; other
+ * vectors compute it on first use and keep it.  Vectors are safe to hand
+ * to other threads: the kept polar form is an immutable Vec2d published
+ * through a single reference, so a thread that doesn't see it just
+ * computes it again (like String's hash code).
  * @author lwa
  */
 public class Vec2d {
@@ -40,6 +46,23 @@ public class Vec2d {
      * The y-coordinate
      */
     private final double m_y;
+
+    /**
+     * The r-coordinate, if known when the vector was made (otherwise NaN)
+     */
+    private final double m_r;
+
+    /**
+     * The theta-coordinate, if known when the vector was made (otherwise NaN)
+     */
+    private final double m_theta;
+
+    /**
+     * If r and theta weren't known when the vector was made, this vector
+     * with them, once getR() or getTheta() has computed them (otherwise
+     * null)
+     */
+    private Vec2d m_polar;
     
     /**
      * The zero vector, for convenience
@@ -60,6 +83,26 @@ public class Vec2d {
      private Vec2d(double x, double y) {
          m_x = x;
          m_y = y;
+         m_r = Double.NaN;
+         m_theta = Double.NaN;
+     }
+
+    /**
+     * Private constructor for when the polar coordinates are already
+     * known, so getR() and getTheta() never need to compute them.
+     * @param x x-coord
+     * @param y y-coord
+     * @param r r-coord
+     * @param theta theta-coord; normalized to -pi <= theta <= pi
+     */
+     private Vec2d(double x, double y, double r, double theta) {
+         m_x = x;
+         m_y = y;
+         m_r = r;
+         if ((theta < -Math.PI) || (theta > Math.PI)) {
+             theta = Math.IEEEremainder(theta, 2.0d * Math.PI);
+         }
+         m_theta = theta;
      }
 
     /**
@@ -82,7 +125,13 @@ public class Vec2d {
      public static Vec2d makePolar(double r, double theta) {
          if (r < 0.0d)
              throw new IllegalArgumentException("negative vector length " + r);
-         return new Vec2d(r * Math.cos(theta), r * Math.sin(theta));
+         double x = r * Trig.cos(theta);
+         double y = r * Trig.sin(theta);
+         if (r == 0.0d) {
+             // Angle of a zero vector is whatever atan2 says it is
+             return new Vec2d(x, y);
+         }
+         return new Vec2d(x, y, r, theta);
      }
 
     /**
@@ -106,7 +155,7 @@ public class Vec2d {
      * @return The r-coordinate
      */
      public double getR() {
-         return Math.hypot(m_x, m_y);
+         return polar().m_r;
      }
 
     /**
@@ -114,7 +163,33 @@ public class Vec2d {
      * @return The theta-coordinate (angle) in radians, -pi <= res <= pi
      */
      public double getTheta() {
-         return Math.atan2(m_y, m_x);
+         return polar().m_theta;
+     }
+
+    /**
+     * Get a vector equal to this one that carries its polar form,
+     * computing the form the first time it's needed
+     * @return This vector, or its kept polar form
+     */
+     private Vec2d polar() {
+         if (!Double.isNaN(m_r)) {
+             return this;
+         }
+         Vec2d p = m_polar;
+         if (p == null) {
+             p = new Vec2d(m_x, m_y, Math.hypot(m_x, m_y), Trig.atan2(m_y, m_x));
+             m_polar = p;
+         }
+         return p;
+     }
+
+    /**
+     * Get the polar form if this vector has it already, without
+     * computing it
+     * @return This vector, its kept polar form, or null
+     */
+     private Vec2d knownPolar() {
+         return Double.isNaN(m_r) ? m_polar : this;
      }
 
     /**
@@ -142,7 +217,15 @@ public class Vec2d {
      * @return product of this vector and the scalar
      */
      public Vec2d mulScalar(double m) {
-         return new Vec2d(m * m_x, m * m_y);
+         // Scaling by a nonzero scalar keeps a known angle (or flips it)
+         Vec2d p = knownPolar();
+         if ((p == null) || (m == 0.0d)) {
+             return new Vec2d(m * m_x, m * m_y);
+         } else if (m > 0.0d) {
+             return new Vec2d(m * m_x, m * m_y, m * p.m_r, p.m_theta);
+         } else {
+             return new Vec2d(m * m_x, m * m_y, -m * p.m_r, p.m_theta + Math.PI);
+         }
      }
 
      /**
@@ -156,9 +239,26 @@ public class Vec2d {
       * the clockwise direction (zero if this vector is zero)
       */
       public Vec2d getNormal() {
-          return new Vec2d(m_y, -m_x);
+          Vec2d p = knownPolar();
+          if ((p == null) || (p.m_r == 0.0d)) {
+              return new Vec2d(m_y, -m_x);
+          }
+          return new Vec2d(m_y, -m_x, p.m_r, p.m_theta - (Math.PI / 2.0d));
       }
 
+    /**
+     * Return this vector rotated counterclockwise (the field angle
+     * direction) about the origin, e.g. to convert it from one field
+     * frame to another.
+     * @param theta Rotation angle in radians
+     * @return The rotated vector
+     */
+    public Vec2d rotate(double theta) {
+        double c = Trig.cos(theta);
+        double s = Trig.sin(theta);
+        return new Vec2d((c * m_x) - (s * m_y), (s * m_x) + (c * m_y));
+    }
+
     /**
      * Compute the dot product of this vector with the
      * specified vector.  The dot product is a scalar,
@@ -179,7 +279,11 @@ public class Vec2d {
      * @return Additive inverse of this vector
      */
     public Vec2d negate() {
-        return new Vec2d(-m_x, -m_y);
+        Vec2d p = knownPolar();
+        if ((p == null) || (p.m_r == 0.0d)) {
+            return new Vec2d(-m_x, -m_y);
+        }
+        return new Vec2d(-m_x, -m_y, p.m_r, p.m_theta + Math.PI);
     }
      
     /**
@@ -200,7 +304,7 @@ public class Vec2d {
          if (o.m_x == m_x && o.m_y == m_y)
              return true;
          
-         return (Math.abs(Math.hypot(o.m_x, o.m_y) - Math.hypot(m_x, m_y)) <= epsilon);
+         return (Math.abs(o.getR() - getR()) <= epsilon);
      }
      
      /**
@@ -0,0 +1,371 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+/**
+ * A batch of 2-d vectors stored "structure of arrays" style: the x and y
+ * coordinates live in two parallel double arrays.  Bulk operations apply
+ * the same Vec2d operation to every vector in the batch with simple
+ * counted loops over the arrays, which the JIT can unroll and vectorize.
+ * This is meant for processing many vectors at once (scoring candidate
+ * routes, replaying recorded vision frames); single vectors should keep
+ * using Vec2d.
+ * The bulk operations modify the batch in place; batches are not
+ * thread-safe.
+ * @author lwa
+ */
+public class Vec2dBatch {
+
+    /**
+     * The x-coordinates; only the first m_size are in use
+     */
+    private double[] m_x;
+
+    /**
+     * The y-coordinates; only the first m_size are in use
+     */
+    private double[] m_y;
+
+    /**
+     * Number of vectors in the batch
+     */
+    private int m_size;
+
+    /**
+     * Construct an empty batch with room for the specified number of
+     * vectors before it has to grow.
+     * @param capacity Initial capacity
+     */
+    public Vec2dBatch(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity " + capacity);
+        }
+        m_x = new double[capacity];
+        m_y = new double[capacity];
+        m_size = 0;
+    }
+
+    /**
+     * Construct a batch holding the specified vectors
+     * @param vecs The vectors
+     * @return The batch
+     */
+    public static Vec2dBatch of(Vec2d... vecs) {
+        Vec2dBatch batch = new Vec2dBatch(vecs.length);
+        for (Vec2d v : vecs) {
+            batch.append(v.getX(), v.getY());
+        }
+        return batch;
+    }
+
+    /**
+     * Number of vectors in the batch
+     * @return The size
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Remove all vectors from the batch (the storage is kept for reuse)
+     */
+    public void clear() {
+        m_size = 0;
+    }
+
+    /**
+     * Append a vector, given its cartesian coordinates
+     * @param x The x-coord
+     * @param y The y-coord
+     */
+    public void append(double x, double y) {
+        if (m_size == m_x.length) {
+            int capacity = Math.max(8, 2 * m_x.length);
+            m_x = java.util.Arrays.copyOf(m_x, capacity);
+            m_y = java.util.Arrays.copyOf(m_y, capacity);
+        }
+        m_x[m_size] = x;
+        m_y[m_size] = y;
+        m_size++;
+    }
+
+    /**
+     * Append a vector
+     * @param v The vector
+     */
+    public void append(Vec2d v) {
+        append(v.getX(), v.getY());
+    }
+
+    /**
+     * Get the x-coordinate of the i'th vector
+     * @param i Index, 0 <= i < size()
+     * @return The x-coordinate
+     */
+    public double getX(int i) {
+        checkIndex(i);
+        return m_x[i];
+    }
+
+    /**
+     * Get the y-coordinate of the i'th vector
+     * @param i Index, 0 <= i < size()
+     * @return The y-coordinate
+     */
+    public double getY(int i) {
+        checkIndex(i);
+        return m_y[i];
+    }
+
+    /**
+     * Replace the i'th vector
+     * @param i Index, 0 <= i < size()
+     * @param x The x-coord
+     * @param y The y-coord
+     */
+    public void set(int i, double x, double y) {
+        checkIndex(i);
+        m_x[i] = x;
+        m_y[i] = y;
+    }
+
+    /**
+     * Get the i'th vector as a Vec2d
+     * @param i Index, 0 <= i < size()
+     * @return The vector
+     */
+    public Vec2d get(int i) {
+        checkIndex(i);
+        return Vec2d.makeCart(m_x[i], m_y[i]);
+    }
+
+    /**
+     * Copy the i'th vector into a mutable vector, without allocating
+     * @param i Index, 0 <= i < size()
+     * @param dst The vector to copy into
+     * @return dst
+     */
+    public MutableVec2d get(int i, MutableVec2d dst) {
+        checkIndex(i);
+        return dst.setCart(m_x[i], m_y[i]);
+    }
+
+    /**
+     * Get all the vectors as Vec2d's
+     * @return Array of the vectors, in order
+     */
+    public Vec2d[] toArray() {
+        Vec2d[] res = new Vec2d[m_size];
+        for (int i = 0; i < m_size; i++) {
+            res[i] = Vec2d.makeCart(m_x[i], m_y[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Add the same vector to every vector in the batch
+     * @param a addend
+     */
+    public void add(Vec2d a) {
+        translate(a.getX(), a.getY());
+    }
+
+    /**
+     * Add another batch, element by element.  Both batches must be
+     * the same size.
+     * @param a Batch of addends
+     */
+    public void addAll(Vec2dBatch a) {
+        checkSize(a);
+        final double[] x = m_x;
+        final double[] y = m_y;
+        final double[] ax = a.m_x;
+        final double[] ay = a.m_y;
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            x[i] += ax[i];
+        }
+        for (int i = 0; i < n; i++) {
+            y[i] += ay[i];
+        }
+    }
+
+    /**
+     * Subtract the same vector from every vector in the batch
+     * @param s subtrahend
+     */
+    public void sub(Vec2d s) {
+        translate(-s.getX(), -s.getY());
+    }
+
+    /**
+     * Subtract another batch, element by element.  Both batches must be
+     * the same size.
+     * @param s Batch of subtrahends
+     */
+    public void subAll(Vec2dBatch s) {
+        checkSize(s);
+        final double[] x = m_x;
+        final double[] y = m_y;
+        final double[] sx = s.m_x;
+        final double[] sy = s.m_y;
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            x[i] -= sx[i];
+        }
+        for (int i = 0; i < n; i++) {
+            y[i] -= sy[i];
+        }
+    }
+
+    /**
+     * Add the same offset to every vector in the batch
+     * @param dx Offset in x
+     * @param dy Offset in y
+     */
+    public void translate(double dx, double dy) {
+        final double[] x = m_x;
+        final double[] y = m_y;
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            x[i] += dx;
+        }
+        for (int i = 0; i < n; i++) {
+            y[i] += dy;
+        }
+    }
+
+    /**
+     * Multiply every vector in the batch by a scalar
+     * @param m The scalar to multiply by
+     */
+    public void mulScalar(double m) {
+        final double[] x = m_x;
+        final double[] y = m_y;
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            x[i] *= m;
+        }
+        for (int i = 0; i < n; i++) {
+            y[i] *= m;
+        }
+    }
+
+    /**
+     * Rotate every vector in the batch counterclockwise (the field
+     * angle direction) about the origin.  The sine and cosine are
+     * computed once for the whole batch.
+     * @param theta Rotation angle in radians
+     */
+    public void rotate(double theta) {
+        final double c = Math.cos(theta);
+        final double s = Math.sin(theta);
+        final double[] x = m_x;
+        final double[] y = m_y;
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            double xi = x[i];
+            double yi = y[i];
+            x[i] = (c * xi) - (s * yi);
+            y[i] = (s * xi) + (c * yi);
+        }
+    }
+
+    /**
+     * Compute the dot product of every vector in the batch with
+     * the specified vector.
+     * @param o The other vector
+     * @param dst Receives the dot products; must hold at least size() values
+     * @return dst
+     */
+    public double[] dotProduct(Vec2d o, double[] dst) {
+        checkDst(dst);
+        final double ox = o.getX();
+        final double oy = o.getY();
+        final double[] x = m_x;
+        final double[] y = m_y;
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            dst[i] = (x[i] * ox) + (y[i] * oy);
+        }
+        return dst;
+    }
+
+    /**
+     * Compute the dot product of every vector in the batch with
+     * the corresponding vector in another batch of the same size.
+     * @param o The other batch
+     * @param dst Receives the dot products; must hold at least size() values
+     * @return dst
+     */
+    public double[] dotProduct(Vec2dBatch o, double[] dst) {
+        checkSize(o);
+        checkDst(dst);
+        final double[] x = m_x;
+        final double[] y = m_y;
+        final double[] ox = o.m_x;
+        final double[] oy = o.m_y;
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            dst[i] = (x[i] * ox[i]) + (y[i] * oy[i]);
+        }
+        return dst;
+    }
+
+    /**
+     * Compute the length (r-coordinate) of every vector in the batch.
+     * Uses sqrt(x*x + y*y), which (unlike Math.hypot) vectorizes; it
+     * only loses accuracy for lengths far beyond anything on a field.
+     * @param dst Receives the lengths; must hold at least size() values
+     * @return dst
+     */
+    public double[] norm(double[] dst) {
+        checkDst(dst);
+        final double[] x = m_x;
+        final double[] y = m_y;
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            dst[i] = Math.sqrt((x[i] * x[i]) + (y[i] * y[i]));
+        }
+        return dst;
+    }
+
+    private void checkIndex(int i) {
+        if ((i < 0) || (i >= m_size)) {
+            throw new IndexOutOfBoundsException("index " + i + " size " + m_size);
+        }
+    }
+
+    private void checkSize(Vec2dBatch o) {
+        if (o.m_size != m_size) {
+            throw new IllegalArgumentException("batch sizes differ: " + m_size + " vs " + o.m_size);
+        }
+    }
+
+    private void checkDst(double[] dst) {
+        if (dst.length < m_size) {
+            throw new IllegalArgumentException("result array too small: " + dst.length + " < " + m_size);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.subsystems;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class DriveTrainTest {
+
+    public static final double EPS = 0.00001d;
+
+    public DriveTrainTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of centerDistance method, of class DriveTrain: the average of
+     * the two sides, so driving straight one revolution goes one
+     * revolution's distance
+     */
+    @Test
+    public void testCenterDistance() {
+        System.out.println("centerDistance");
+        double rev = DriveTrain.kEncoderUnitsPerRevolution;
+        double dist = RobotModel.distancePerRevolution;
+        assertEquals(dist, DriveTrain.centerDistance(rev, rev), EPS);
+        assertEquals(3.0d * dist, DriveTrain.centerDistance(3.0d * rev, 3.0d * rev), EPS);
+        assertEquals(dist / 2.0d, DriveTrain.centerDistance(rev, 0.0d), EPS);
+        assertEquals(dist / 2.0d, DriveTrain.centerDistance(0.0d, rev), EPS);
+
+        // Turning in place goes nowhere
+        assertEquals(0.0d, DriveTrain.centerDistance(rev, -rev), EPS);
+        assertEquals(-dist, DriveTrain.centerDistance(-rev, -rev), EPS);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.subsystems;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import edu.wpi.first.wpilibj.PIDSourceType;
+import frc.util.HeadingHistory;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class GyroSamplerTest {
+
+    public static final double EPS = 0.00001d;
+
+    /**
+     * Simulated gyro turning at a constant rate; counts its reads
+     */
+    static class SimGyro implements GyroSource {
+        double m_angle = 0.0d;
+        double m_rate = 0.0d;
+        int m_reads = 0;
+
+        @Override
+        public double getAngle() {
+            m_reads++;
+            return m_angle;
+        }
+
+        @Override
+        public double getRate() {
+            return m_rate;
+        }
+    }
+
+    private double m_time;
+
+    public GyroSamplerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        m_time = 0.0d;
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Readers see the cached sample; only sample() reads the gyro
+     */
+    @Test
+    public void testSample() {
+        System.out.println("sample");
+        SimGyro gyro = new SimGyro();
+        HeadingHistory history = new HeadingHistory(16);
+        GyroSampler sampler = new GyroSampler(gyro, () -> m_time, history);
+        assertEquals(1, gyro.m_reads);
+        assertEquals(1L, sampler.getSampleCount());
+
+        gyro.m_rate = 90.0d;
+        for (int i = 1; i <= 10; i++) {
+            m_time = i * GyroSampler.DEFAULT_PERIOD;
+            gyro.m_angle = 90.0d * m_time;
+            sampler.sample();
+        }
+        assertEquals(11, gyro.m_reads);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(4.5d, sampler.getAngle(), EPS);
+            assertEquals(4.5d, sampler.pidGet(), EPS);
+        }
+        assertEquals(11, gyro.m_reads);
+        assertEquals(90.0d, sampler.getRate(), EPS);
+        assertEquals(0.05d, sampler.getTimestamp(), EPS);
+        sampler.setPIDSourceType(PIDSourceType.kRate);
+        assertEquals(90.0d, sampler.pidGet(), EPS);
+
+        double[] s = sampler.read(new double[3]);
+        assertArrayEquals(new double[] { 0.05d, 4.5d, 90.0d }, s, EPS);
+
+        // history is fed field headings: yaw 4.5 deg clockwise from +Y
+        assertEquals(Math.toRadians(85.5d), history.getHeading(0.05d), EPS);
+        assertEquals(Math.toRadians(87.75d), history.getHeading(0.025d), EPS);
+    }
+
+    /**
+     * A reader racing the writer always sees a consistent sample
+     */
+    @Test
+    public void testConsistentRead() throws Exception {
+        System.out.println("consistentRead");
+        final SimGyro gyro = new SimGyro();
+        final double[] clock = new double[1];
+        final GyroSampler sampler = new GyroSampler(gyro, () -> clock[0], null);
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 200000; i++) {
+                clock[0] = i;
+                gyro.m_angle = i;
+                gyro.m_rate = i;
+                sampler.sample();
+            }
+        });
+        writer.start();
+        double[] s = new double[3];
+        int reads = 0;
+        while (writer.isAlive()) {
+            sampler.read(s);
+            assertEquals(s[0], s[1], 0.0d);
+            assertEquals(s[0], s[2], 0.0d);
+            reads++;
+        }
+        writer.join();
+        System.out.println(reads + " reads");
+        assertEquals(200000.0d, sampler.read(s)[1], 0.0d);
+    }
+}
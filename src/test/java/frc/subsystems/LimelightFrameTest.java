@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.subsystems;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class LimelightFrameTest {
+
+    public LimelightFrameTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of next method, of class LimelightFrame
+     */
+    @Test
+    public void testNext() {
+        System.out.println("next");
+        LimelightFrame f0 = LimelightFrame.EMPTY;
+        assertEquals(0L, f0.getSeq());
+        assertFalse(f0.isTarget());
+
+        // first values always make a frame, even if they're all zero
+        LimelightFrame f1 = LimelightFrame.next(f0, 1.0d, 0.0d, 0.0d, 0.0d, 0.0d, 0.0d, 0.0d);
+        assertNotSame(f0, f1);
+        assertEquals(1L, f1.getSeq());
+
+        LimelightFrame f2 = LimelightFrame.next(f1, 1.05d, 1.0d, -3.5d, 4.25d, 2.0d, -10.0d, 22.0d);
+        assertEquals(2L, f2.getSeq());
+        assertEquals(1.05d, f2.getTimestamp(), 0.0d);
+        assertTrue(f2.isTarget());
+        assertEquals(-3.5d, f2.getTx(), 0.0d);
+        assertEquals(4.25d, f2.getTy(), 0.0d);
+        assertEquals(2.0d, f2.getTa(), 0.0d);
+        assertEquals(-10.0d, f2.getTs(), 0.0d);
+        assertEquals(22.0d, f2.getTl(), 0.0d);
+
+        // more notifications for the same camera frame: no new frame
+        assertSame(f2, LimelightFrame.next(f2, 1.06d, 1.0d, -3.5d, 4.25d, 2.0d, -10.0d, 22.0d));
+
+        // any change is a new frame
+        LimelightFrame f3 = LimelightFrame.next(f2, 1.1d, 1.0d, -3.5d, 4.25d, 2.0d, -10.0d, 23.0d);
+        assertEquals(3L, f3.getSeq());
+        // and the old frame is unchanged
+        assertEquals(22.0d, f2.getTl(), 0.0d);
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.subsystems;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motion.MotionProfileStatus;
+import com.ctre.phoenix.motion.SetValueMotionProfile;
+import com.ctre.phoenix.motion.TrajectoryPoint;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class MotionProfileStreamerTest {
+
+    public static final double EPS = 0.00001d;
+
+    /**
+     * Simulated Talon: a bounded top buffer, a bounded bottom buffer fed
+     * one point per processMotionProfileBuffer(), and a 1 ms tick that
+     * executes the bottom buffer's points for their durations.
+     */
+    static class SimTalon implements MotionProfileTalon {
+        final int m_topCapacity;
+        final int m_btmCapacity;
+        final ArrayDeque<TrajectoryPoint> m_top = new ArrayDeque<>();
+        final ArrayDeque<TrajectoryPoint> m_btm = new ArrayDeque<>();
+        final List<Double> m_executed = new ArrayList<>();
+        ControlMode m_mode = ControlMode.PercentOutput;
+        double m_value = 0.0d;
+        TrajectoryPoint m_active = null;
+        int m_remainingMs = 0;
+        boolean m_hasUnderrun = false;
+
+        SimTalon(int topCapacity, int btmCapacity) {
+            m_topCapacity = topCapacity;
+            m_btmCapacity = btmCapacity;
+        }
+
+        @Override
+        public ErrorCode pushMotionProfileTrajectory(TrajectoryPoint point) {
+            assertTrue("top buffer overflow", m_top.size() < m_topCapacity);
+            TrajectoryPoint p = new TrajectoryPoint();
+            p.position = point.position;
+            p.velocity = point.velocity;
+            p.isLastPoint = point.isLastPoint;
+            p.timeDur = point.timeDur;
+            m_top.add(p);
+            return ErrorCode.OK;
+        }
+
+        @Override
+        public void processMotionProfileBuffer() {
+            if (!m_top.isEmpty() && (m_btm.size() < m_btmCapacity)) {
+                m_btm.add(m_top.poll());
+            }
+        }
+
+        @Override
+        public ErrorCode getMotionProfileStatus(MotionProfileStatus status) {
+            status.topBufferRem = m_topCapacity - m_top.size();
+            status.topBufferCnt = m_top.size();
+            status.btmBufferCnt = m_btm.size();
+            status.hasUnderrun = m_hasUnderrun;
+            status.activePointValid = (m_active != null);
+            status.isLast = (m_active != null) && m_active.isLastPoint;
+            return ErrorCode.OK;
+        }
+
+        @Override
+        public ErrorCode clearMotionProfileTrajectories() {
+            m_top.clear();
+            m_btm.clear();
+            m_active = null;
+            return ErrorCode.OK;
+        }
+
+        @Override
+        public ErrorCode clearMotionProfileHasUnderrun(int timeoutMs) {
+            m_hasUnderrun = false;
+            return ErrorCode.OK;
+        }
+
+        @Override
+        public void set(ControlMode mode, double value) {
+            m_mode = mode;
+            m_value = value;
+        }
+
+        boolean isEnabled() {
+            return (m_mode == ControlMode.MotionProfile)
+                && (m_value == SetValueMotionProfile.Enable.value);
+        }
+
+        /**
+         * Run the profile executor for 1 ms
+         */
+        void tick() {
+            if (!isEnabled()) {
+                return;
+            }
+            if ((m_active == null) || ((m_remainingMs <= 0) && !m_active.isLastPoint)) {
+                TrajectoryPoint next = m_btm.poll();
+                if (next == null) {
+                    if (m_active != null) {
+                        m_hasUnderrun = true;
+                    }
+                    return;
+                }
+                m_active = next;
+                m_remainingMs = next.timeDur;
+                m_executed.add(next.position);
+            }
+            m_remainingMs--;
+        }
+    }
+
+    private SimTalon m_left;
+    private SimTalon m_right;
+    private MotionProfileStreamer m_streamer;
+    private double[] m_pos;
+    private double[] m_vel;
+
+    public MotionProfileStreamerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        m_left = new SimTalon(32, 16);
+        m_right = new SimTalon(32, 16);
+        m_streamer = new MotionProfileStreamer(m_left, m_right);
+        m_pos = new double[300];
+        m_vel = new double[300];
+        for (int i = 0; i < m_pos.length; i++) {
+            m_pos[i] = 2.0d * i;
+            m_vel[i] = 2.0d;
+        }
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Run the simulation, servicing the streamer every servicePeriodMs
+     * @return ms until finished (or maxMs)
+     */
+    private int run(int servicePeriodMs, int maxMs) {
+        for (int ms = 0; ms < maxMs; ms++) {
+            if ((ms % servicePeriodMs) == 0) {
+                m_streamer.service();
+                if (m_streamer.isFinished()) {
+                    return ms;
+                }
+            }
+            m_left.tick();
+            m_right.tick();
+        }
+        return maxMs;
+    }
+
+    /**
+     * A profile far larger than the buffers streams through in order,
+     * offset by each Talon's origin, without underruns
+     */
+    @Test
+    public void testStream() {
+        System.out.println("stream");
+        m_streamer.load(m_pos, m_vel, 10, new double[] { 1000.0d, -500.0d });
+        assertEquals(MotionProfileStreamer.State.eLoading, m_streamer.getState());
+        int ms = run(5, 10000);
+        System.out.println("finished after " + ms + " ms");
+        assertTrue(m_streamer.isFinished());
+        assertEquals(0, m_streamer.getUnderrunCount());
+        // 300 points of 10 ms, plus the time to buffer the first few
+        assertTrue(ms >= 2990);
+        assertTrue(ms < 3100);
+
+        assertEquals(m_pos.length, m_left.m_executed.size());
+        assertEquals(m_pos.length, m_right.m_executed.size());
+        for (int i = 0; i < m_pos.length; i++) {
+            assertEquals(1000.0d + m_pos[i], m_left.m_executed.get(i), EPS);
+            assertEquals(-500.0d + m_pos[i], m_right.m_executed.get(i), EPS);
+        }
+        assertEquals(ControlMode.MotionProfile, m_left.m_mode);
+        assertEquals(SetValueMotionProfile.Hold.value, m_left.m_value, EPS);
+        assertEquals(SetValueMotionProfile.Hold.value, m_right.m_value, EPS);
+
+        m_streamer.stop();
+        assertEquals(MotionProfileStreamer.State.eIdle, m_streamer.getState());
+        assertEquals(ControlMode.PercentOutput, m_left.m_mode);
+        assertEquals(0.0d, m_left.m_value, EPS);
+    }
+
+    /**
+     * Output isn't enabled until points are buffered
+     */
+    @Test
+    public void testEnable() {
+        System.out.println("enable");
+        m_streamer.load(m_pos, m_vel, 10, new double[] { 0.0d, 0.0d });
+        for (int i = 0; i < MotionProfileStreamer.MIN_BUFFERED_POINTS; i++) {
+            m_streamer.service();
+            assertFalse(m_left.isEnabled());
+        }
+        m_streamer.service();
+        assertTrue(m_left.isEnabled());
+        assertTrue(m_right.isEnabled());
+        assertEquals(MotionProfileStreamer.State.eRunning, m_streamer.getState());
+    }
+
+    /**
+     * Feeding too slowly starves the Talons, and we notice
+     */
+    @Test
+    public void testUnderrun() {
+        System.out.println("underrun");
+        m_streamer.load(m_pos, m_vel, 10, new double[] { 0.0d, 0.0d });
+        run(40, 20000);
+        assertTrue(m_streamer.getUnderrunCount() > 0);
+    }
+
+    /**
+     * Bad profiles are rejected
+     */
+    @Test
+    public void testBadProfile() {
+        System.out.println("badProfile");
+        double[] origins = { 0.0d, 0.0d };
+        try {
+            m_streamer.load(new double[0], new double[0], 10, origins);
+            fail("empty profile accepted");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            m_streamer.load(m_pos, new double[1], 10, origins);
+            fail("mismatched profile accepted");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            m_streamer.load(m_pos, m_vel, 0, origins);
+            fail("zero duration accepted");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            m_streamer.load(m_pos, m_vel, 10, new double[1]);
+            fail("missing origin accepted");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
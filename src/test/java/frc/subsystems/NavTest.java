@@ -89,6 +89,21 @@ public class NavTest {
         assertEquals(expResult, result, EPS);
     }
 
+    /**
+     * Test of normalizeYaw method, of class Nav
+     */
+    @Test
+    public void testNormalizeYaw() {
+        System.out.println("normalizeYaw");
+        assertEquals(0.0d, Nav.normalizeYaw(0.0d), EPS);
+        assertEquals(90.0d, Nav.normalizeYaw(90.0d), EPS);
+        assertEquals(-170.0d, Nav.normalizeYaw(190.0d), EPS);
+        assertEquals(170.0d, Nav.normalizeYaw(-190.0d), EPS);
+        assertEquals(10.0d, Nav.normalizeYaw(730.0d), EPS);
+        assertEquals(-10.0d, Nav.normalizeYaw(-730.0d), EPS);
+        assertEquals(-90.0d, Nav.normalizeYaw(990.0d), EPS);
+    }
+
     /**
      * Test of yawToVec method, of class Nav.
      */
@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.subsystems;
+
+import java.util.EnumMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import frc.subsystems.StatusFrameManager.Profile;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class StatusFrameManagerTest {
+
+    public static final double EPS = 0.00001d;
+
+    /**
+     * Mock Talon: remembers each frame's period and counts the calls
+     */
+    static class MockTalon implements StatusFramePeriodSetter {
+        final Map<StatusFrameEnhanced, Integer> m_periods = new EnumMap<>(StatusFrameEnhanced.class);
+        int m_calls = 0;
+        ErrorCode m_result = ErrorCode.OK;
+
+        MockTalon() {
+            for (StatusFrameEnhanced f : StatusFrameManager.FRAMES) {
+                m_periods.put(f, Profile.eDefault.getPeriod(f));
+            }
+        }
+
+        @Override
+        public ErrorCode setStatusFramePeriod(StatusFrameEnhanced frame, int periodMs, int timeoutMs) {
+            m_calls++;
+            m_periods.put(frame, periodMs);
+            return m_result;
+        }
+
+        int getPeriod(StatusFrameEnhanced frame) {
+            return m_periods.get(frame);
+        }
+    }
+
+    private MockTalon m_left;
+    private MockTalon m_right;
+    private StatusFrameManager m_mgr;
+
+    public StatusFrameManagerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        m_left = new MockTalon();
+        m_right = new MockTalon();
+        m_mgr = new StatusFrameManager();
+        m_mgr.addController(m_left);
+        m_mgr.addController(m_right);
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Each profile's periods end up on every Talon
+     */
+    @Test
+    public void testApply() {
+        System.out.println("apply");
+        for (Profile p : new Profile[] { Profile.eDisabled, Profile.eAuto, Profile.eTeleop,
+                                         Profile.eDisabled }) {
+            m_mgr.apply(p);
+            assertEquals(p, m_mgr.getProfile());
+            for (StatusFrameEnhanced f : StatusFrameManager.FRAMES) {
+                assertEquals(p.getPeriod(f), m_left.getPeriod(f));
+                assertEquals(p.getPeriod(f), m_right.getPeriod(f));
+            }
+        }
+        // control-rate sensor feedback in auto, slower when disabled
+        assertEquals(10, Profile.eAuto.getPeriod(StatusFrameEnhanced.Status_2_Feedback0));
+        assertEquals(100, Profile.eDisabled.getPeriod(StatusFrameEnhanced.Status_2_Feedback0));
+        assertEquals(StatusFrameManager.MAX_PERIOD_MS,
+                     Profile.eAuto.getPeriod(StatusFrameEnhanced.Status_3_Quadrature));
+        assertEquals(0, m_mgr.getErrorCount());
+    }
+
+    /**
+     * Only changed periods are sent, and re-applying a profile sends nothing
+     */
+    @Test
+    public void testOnlyChanges() {
+        System.out.println("onlyChanges");
+        m_mgr.apply(Profile.eDisabled);
+        int calls = m_left.m_calls;
+        assertEquals(StatusFrameManager.FRAMES.length, calls);
+        m_mgr.apply(Profile.eDisabled);
+        assertEquals(calls, m_left.m_calls);
+
+        // auto differs from disabled only in General and Feedback0
+        m_mgr.apply(Profile.eAuto);
+        assertEquals(calls + 2, m_left.m_calls);
+        assertEquals(calls + 2, m_right.m_calls);
+        // teleop differs from auto only in Feedback0
+        m_mgr.apply(Profile.eTeleop);
+        assertEquals(calls + 3, m_left.m_calls);
+    }
+
+    /**
+     * Errors reported by the Talon are counted
+     */
+    @Test
+    public void testErrors() {
+        System.out.println("errors");
+        m_right.m_result = ErrorCode.TxFailed;
+        m_mgr.apply(Profile.eAuto);
+        assertEquals(StatusFrameManager.FRAMES.length, m_mgr.getErrorCount());
+        assertEquals(Profile.eAuto, m_mgr.getProfile());
+    }
+
+    /**
+     * Utilization drops when we stop asking for unused frames
+     */
+    @Test
+    public void testUtilization() {
+        System.out.println("utilization");
+        // default: 100 + 50 + 6 x 6.25 + 100 control frames/s per Talon
+        double perTalon = (100.0d + 50.0d + (6 * 6.25d) + 100.0d) * StatusFrameManager.BITS_PER_FRAME / 1.0e6d;
+        assertEquals(2 * perTalon, m_mgr.estimateUtilization(), EPS);
+        double def = m_mgr.estimateUtilization(Profile.eDefault);
+        double auto = m_mgr.estimateUtilization(Profile.eAuto);
+        double teleop = m_mgr.estimateUtilization(Profile.eTeleop);
+        double disabled = m_mgr.estimateUtilization(Profile.eDisabled);
+        System.out.println("default " + def + " auto " + auto + " teleop " + teleop + " disabled " + disabled);
+        assertTrue(auto < def);
+        assertTrue(teleop < auto);
+        assertTrue(disabled < teleop);
+        m_mgr.apply(Profile.eAuto);
+        assertEquals(auto, m_mgr.estimateUtilization(), EPS);
+    }
+}
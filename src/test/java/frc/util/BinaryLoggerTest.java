@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Round trip through BinaryLogger and BinaryLogReader
+ * @author lwa
+ */
+public class BinaryLoggerTest {
+
+    public BinaryLoggerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static String[] dump(byte[] log) throws Exception {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        new BinaryLogReader().dump(new ByteArrayInputStream(log), new PrintStream(text, true));
+        return text.toString().split("\n");
+    }
+
+    /**
+     * Events logged before and after start() come back in order
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        System.out.println("roundTrip");
+        BinaryLogger logger = new BinaryLogger(64);
+        int init = logger.register("Test.init");
+        logger.log(init);
+        int exec = logger.register("Test.exec", "power", "dist");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        logger.start(bytes);
+        for (int i = 0; i < 10; i++) {
+            logger.log(exec, 0.5d, i);
+        }
+        int end = logger.register("Test.end", "a", "b", "c", "d");
+        logger.log(end, 1.0d, 2.0d, 3.0d, 4.0d);
+        logger.stop();
+
+        String[] lines = dump(bytes.toByteArray());
+        assertEquals(12, lines.length);
+        assertTrue(lines[0].endsWith(" Test.init"));
+        assertTrue(lines[1].endsWith(" Test.exec power=0.5 dist=0.0"));
+        assertTrue(lines[10].endsWith(" Test.exec power=0.5 dist=9.0"));
+        assertTrue(lines[11].endsWith(" Test.end a=1.0 b=2.0 c=3.0 d=4.0"));
+        assertEquals(0, logger.getDroppedCount());
+    }
+
+    /**
+     * A full ring drops (and counts) events instead of blocking
+     */
+    @Test
+    public void testDrops() throws Exception {
+        System.out.println("drops");
+        BinaryLogger logger = new BinaryLogger(16);
+        int id = logger.register("Test.event", "i");
+        for (int i = 0; i < 20; i++) {
+            logger.log(id, i);
+        }
+        assertEquals(4, logger.getDroppedCount());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        logger.start(bytes);
+        logger.stop();
+        String[] lines = dump(bytes.toByteArray());
+        assertEquals(17, lines.length);
+        assertTrue(lines[15].endsWith(" Test.event i=15.0"));
+        assertEquals("-- 4 events dropped so far", lines[16]);
+    }
+
+    /**
+     * Several threads logging at once; nothing lost, nothing garbled
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        System.out.println("concurrent");
+        final int threads = 4;
+        final int perThread = 20000;
+        final BinaryLogger logger = new BinaryLogger(1024);
+        final int id = logger.register("Test.event", "thread", "i", "check");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        logger.start(bytes);
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    logger.log(id, thread, i, (thread * 100000.0d) + i);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        logger.stop();
+
+        long dropped = logger.getDroppedCount();
+        int events = 0;
+        double[] last = new double[threads];
+        java.util.Arrays.fill(last, -1.0d);
+        for (String line : dump(bytes.toByteArray())) {
+            if (line.startsWith("--")) {
+                continue;
+            }
+            String[] f = line.split(" ");
+            int thread = (int) Double.parseDouble(f[2].substring("thread=".length()));
+            double i = Double.parseDouble(f[3].substring("i=".length()));
+            double check = Double.parseDouble(f[4].substring("check=".length()));
+            assertEquals((thread * 100000.0d) + i, check, 0.0d);
+            // each thread's events are in order
+            assertTrue(i > last[thread]);
+            last[thread] = i;
+            events++;
+        }
+        System.out.println("dropped " + dropped);
+        assertEquals(threads * perThread, events + dropped);
+    }
+
+    /**
+     * Starting on a file deletes the oldest logs in its directory,
+     * and only logs
+     */
+    @Test
+    public void testPrune() throws Exception {
+        System.out.println("prune");
+        File dir = Files.createTempDirectory("logs").toFile();
+        try {
+            int old = BinaryLogger.MAX_LOG_FILES + 5;
+            for (int i = 0; i < old; i++) {
+                File f = new File(dir, "robot-" + (1000 + i) + ".bin");
+                assertTrue(f.createNewFile());
+                assertTrue(f.setLastModified(1000000000000L + (i * 1000L)));
+            }
+            File notes = new File(dir, "notes.txt");
+            assertTrue(notes.createNewFile());
+            assertTrue(notes.setLastModified(1000000000000L));
+
+            BinaryLogger logger = new BinaryLogger(64);
+            File log = new File(dir, "robot-9999.bin");
+            logger.start(log);
+            logger.stop();
+
+            assertTrue(log.exists());
+            assertTrue(notes.exists());
+            assertEquals(BinaryLogger.MAX_LOG_FILES,
+                         dir.listFiles(f -> f.getName().endsWith(".bin")).length);
+            for (int i = 0; i < old; i++) {
+                boolean kept = i >= (old - (BinaryLogger.MAX_LOG_FILES - 1));
+                assertEquals(kept, new File(dir, "robot-" + (1000 + i) + ".bin").exists());
+            }
+            assertEquals(0, BinaryLogger.pruneLogs(dir, ".bin", BinaryLogger.MAX_LOG_FILES));
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class DiffDriveOdometryTest {
+
+    static final double EPS = 0.00001d;
+
+    public DiffDriveOdometryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Straight line, then seeding the pose
+     */
+    @Test
+    public void testStraight() {
+        System.out.println("straight");
+        DiffDriveOdometry odo = new DiffDriveOdometry();
+        // encoders don't start at zero; only changes count
+        odo.update(100.0d, 200.0d, Math.PI / 2.0d);
+        odo.update(110.0d, 210.0d, Math.PI / 2.0d);
+        assertEquals(0.0d, odo.getX(), EPS);
+        assertEquals(10.0d, odo.getY(), EPS);
+        assertEquals(Math.PI / 2.0d, odo.getHeading(), EPS);
+        assertEquals(0.0d, odo.getHeadingOffset(), EPS);
+
+        // now say we're at (50, 60) pointing along +X, without the gyro
+        // knowing; later motion is along +X
+        odo.reset(50.0d, 60.0d, 0.0d);
+        odo.update(120.0d, 220.0d, Math.PI / 2.0d);
+        assertEquals(60.0d, odo.getX(), EPS);
+        assertEquals(60.0d, odo.getY(), EPS);
+        assertEquals(0.0d, odo.getHeading(), EPS);
+        assertEquals(-Math.PI / 2.0d, odo.getHeadingOffset(), EPS);
+    }
+
+    /**
+     * Seeding before the first update
+     */
+    @Test
+    public void testResetFirst() {
+        System.out.println("resetFirst");
+        DiffDriveOdometry odo = new DiffDriveOdometry();
+        odo.reset(1.0d, 2.0d, Math.PI);
+        odo.update(0.0d, 0.0d, 0.3d);
+        odo.update(5.0d, 5.0d, 0.3d);
+        assertEquals(-4.0d, odo.getX(), EPS);
+        assertEquals(2.0d, odo.getY(), EPS);
+        assertEquals(Math.PI, Math.abs(odo.getHeading()), EPS);
+        assertEquals(Math.PI - 0.3d, odo.getHeadingOffset(), EPS);
+    }
+
+    /**
+     * Resetting the gyro part way along doesn't move the pose or turn
+     * later motion, once the odometry is re-based
+     */
+    @Test
+    public void testGyroReset() {
+        System.out.println("gyroReset");
+        DiffDriveOdometry odo = new DiffDriveOdometry();
+        odo.update(0.0d, 0.0d, Math.PI / 2.0d);
+        odo.reset(66.0d, 162.0d, 0.0d);
+        odo.update(10.0d, 10.0d, Math.PI / 2.0d);
+        assertEquals(76.0d, odo.getX(), EPS);
+        assertEquals(162.0d, odo.getY(), EPS);
+
+        // Gyro reset while stopped, turned 0.5 rad from where it started:
+        // its heading jumps back to yaw 0 (field angle pi/2)
+        odo.update(10.0d, 10.0d, (Math.PI / 2.0d) + 0.5d);
+        double heading = odo.getHeading();
+        assertEquals(0.5d, heading, EPS);
+        odo.rebase(Math.PI / 2.0d);
+        assertEquals(heading, odo.getHeading(), EPS);
+        assertEquals(0.5d - (Math.PI / 2.0d), odo.getHeadingOffset(), EPS);
+
+        // Driving on moves along the same heading as before the reset
+        odo.update(10.0d, 10.0d, Math.PI / 2.0d);
+        odo.update(30.0d, 30.0d, Math.PI / 2.0d);
+        assertEquals(76.0d + 20.0d * Math.cos(0.5d), odo.getX(), EPS);
+        assertEquals(162.0d + 20.0d * Math.sin(0.5d), odo.getY(), EPS);
+        assertEquals(0.5d, odo.getHeading(), EPS);
+    }
+
+    /**
+     * Quarter circle of radius 100, simulated at 100 Hz; should end up
+     * close to the exact endpoint
+     */
+    @Test
+    public void testArc() {
+        System.out.println("arc");
+        final double radius = 100.0d;
+        final double track = 22.0d;
+        final int steps = 200;
+        DiffDriveOdometry odo = new DiffDriveOdometry();
+        odo.reset(0.0d, 0.0d, 0.0d);
+        for (int i = 0; i <= steps; i++) {
+            double a = (Math.PI / 2.0d) * i / steps;    // heading, CCW turn
+            double left = (radius - (track / 2.0d)) * a;
+            double right = (radius + (track / 2.0d)) * a;
+            odo.update(left, right, a);
+        }
+        System.out.println("arc end " + odo.getX() + "," + odo.getY());
+        assertEquals(radius, odo.getX(), 0.01d);
+        assertEquals(radius, odo.getY(), 0.01d);
+        assertEquals(Math.PI / 2.0d, odo.getHeading(), EPS);
+    }
+}
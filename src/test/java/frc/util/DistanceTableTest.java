@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import frc.subsystems.Limelight;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class DistanceTableTest {
+
+    // The robot's Limelight
+    static final double CAM_HEIGHT = 10.5d;
+    static final double CAM_AIM = 20.0d;
+    static final double V_FOV = Limelight.V_FOV;
+    static final double TARG_HEIGHT = 34.125d;
+
+    public DistanceTableTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Maximum error against the formula, sampled densely over the table
+     */
+    private static double measureError(DistanceTable table) {
+        double err = 0.0d;
+        int n = 100000;
+        for (int i = 0; i <= n; i++) {
+            double ty = table.getMinTy() + (((table.getMaxTy() - table.getMinTy()) * i) / n);
+            err = Math.max(err, Math.abs(table.getDistance(ty) - table.exact(ty)));
+        }
+        return err;
+    }
+
+    /**
+     * Lookups are within the error bound everywhere in the table
+     */
+    @Test
+    public void testErrorBound() {
+        System.out.println("errorBound");
+        DistanceTable table = new DistanceTable(CAM_HEIGHT, CAM_AIM, TARG_HEIGHT, V_FOV);
+        double err = measureError(table);
+        System.out.println(table.size() + " entries, ty " + table.getMinTy() + " to " + table.getMaxTy()
+                           + ", max error " + err);
+        assertTrue(err <= DistanceTable.DEFAULT_MAX_ERROR);
+        assertTrue(table.getMaxError() <= DistanceTable.DEFAULT_MAX_ERROR);
+        assertEquals(V_FOV / 2.0d, table.getMaxTy(), 0.0d);
+        assertEquals(DistanceTable.DEFAULT_MAX_DISTANCE, table.getDistance(table.getMinTy()), 0.000001d);
+
+        // A looser bound needs fewer entries
+        DistanceTable coarse = new DistanceTable(CAM_HEIGHT, CAM_AIM, TARG_HEIGHT, V_FOV, 0.5d, 300.0d);
+        assertTrue(measureError(coarse) <= 0.5d);
+        assertTrue(coarse.size() < table.size());
+    }
+
+    /**
+     * No distance past the horizon, past the maximum distance, or
+     * outside the field of view
+     */
+    @Test
+    public void testRange() {
+        System.out.println("range");
+        DistanceTable table = new DistanceTable(CAM_HEIGHT, CAM_AIM, TARG_HEIGHT, V_FOV, 0.01d, 120.0d);
+        assertTrue(Double.isNaN(table.getDistance(-CAM_AIM)));
+        assertTrue(Double.isNaN(table.getDistance(-CAM_AIM - 1.0d)));
+        assertTrue(Double.isNaN(table.getDistance(table.getMinTy() - 0.001d)));
+        assertTrue(Double.isNaN(table.getDistance(V_FOV / 2.0d + 0.001d)));
+        assertTrue(Double.isNaN(table.getDistance(Double.NaN)));
+        assertEquals(120.0d, table.getDistance(table.getMinTy()), 0.01d);
+        assertEquals(table.exact(V_FOV / 2.0d), table.getDistance(V_FOV / 2.0d), 0.000001d);
+
+        // When the bottom of the field of view is in range, that's the end
+        DistanceTable steep = new DistanceTable(CAM_HEIGHT, 30.0d, TARG_HEIGHT, V_FOV);
+        assertEquals(-V_FOV / 2.0d, steep.getMinTy(), 0.0d);
+    }
+
+    /**
+     * Bad cameras and targets are rejected
+     */
+    @Test
+    public void testBadArgs() {
+        System.out.println("badArgs");
+        double[][] bad = {
+            {CAM_HEIGHT, CAM_AIM, CAM_HEIGHT, V_FOV, 0.01d, 300.0d},    // target level with camera
+            {CAM_HEIGHT, CAM_AIM, 5.0d, V_FOV, 0.01d, 300.0d},          // target below camera
+            {CAM_HEIGHT, CAM_AIM, TARG_HEIGHT, V_FOV, 0.0d, 300.0d},    // no error allowed
+            {CAM_HEIGHT, CAM_AIM, TARG_HEIGHT, V_FOV, 0.01d, -1.0d},    // bad range
+            {CAM_HEIGHT, -40.0d, TARG_HEIGHT, V_FOV, 0.01d, 300.0d},    // all below horizon
+            {CAM_HEIGHT, 80.0d, TARG_HEIGHT, V_FOV, 0.01d, 300.0d},     // looking straight up
+            {CAM_HEIGHT, CAM_AIM, TARG_HEIGHT, V_FOV, 1.0e-12d, 300.0d} // bound can't be met
+        };
+        for (double[] args : bad) {
+            try {
+                new DistanceTable(args[0], args[1], args[2], args[3], args[4], args[5]);
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * TargetCalculator's distances agree with the formula
+     */
+    @Test
+    public void testTargetCalculator() {
+        System.out.println("targetCalculator");
+        TargetCalculator calc = new TargetCalculator(CAM_HEIGHT, CAM_AIM, Limelight.V_FOV);
+        DistanceTable table = calc.getDistanceTable(TARG_HEIGHT);
+        assertSame(table, calc.getDistanceTable(TARG_HEIGHT));
+        assertNull(calc.getDistanceTable(CAM_HEIGHT - 1.0d));
+        Vec2d robotVec = Vec2d.makeCart(0.0d, 1.0d);
+        for (double ty = -15.0d; ty <= 20.5d; ty += 0.37d) {
+            double dist = calc.getTargetVector(0.0d, ty, robotVec, TARG_HEIGHT).getR();
+            assertEquals(table.exact(ty), dist, DistanceTable.DEFAULT_MAX_ERROR);
+        }
+    }
+}
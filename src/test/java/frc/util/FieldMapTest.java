@@ -0,0 +1,265 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class FieldMapTest {
+
+    public FieldMapTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Brute-force nearest visible target, to check the tree against
+     */
+    private static FieldTarget bruteForce(List<FieldTarget> targets, double x, double y, double heading,
+                                          double maxBearing, double maxViewAngle, double maxRange) {
+        FieldTarget best = null;
+        double bestDist = maxRange;
+        for (FieldTarget t : targets) {
+            Vec2d toTarget = t.getPosition().sub(Vec2d.makeCart(x, y));
+            double dist = toTarget.getR();
+            if (dist >= bestDist) {
+                continue;
+            }
+            double bearing = Math.abs(Math.IEEEremainder(toTarget.getTheta() - heading, 2.0d * Math.PI));
+            double view = Math.abs(Math.IEEEremainder(toTarget.getTheta() + Math.PI
+                                                      - t.getNormal().getTheta(), 2.0d * Math.PI));
+            if ((bearing <= maxBearing) && (view <= maxViewAngle)) {
+                best = t;
+                bestDist = dist;
+            }
+        }
+        return best;
+    }
+
+    private static void assertSameTarget(FieldTarget expected, FieldTarget actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else {
+            assertEquals(expected.getName(), actual.getName());
+        }
+    }
+
+    /**
+     * The deployed field loads, and picks the obvious targets
+     */
+    @Test
+    public void testDeployedField() {
+        System.out.println("deployedField");
+        FieldMap field = FieldMap.getField();
+        assertEquals(32, field.size());
+
+        // Facing the blue cargo ship front from the blue side, just left of center
+        FieldTarget t = field.findNearestVisible(150.0d, 175.0d, 0.0d);
+        assertEquals("BlueShipFrontLeft", t.getName());
+        assertEquals(34.125d, t.getHeight(), 0.0d);
+
+        // Facing the blue right rocket's cargo port
+        t = field.findNearestVisible(229.0d, 80.0d, -Math.PI / 2.0d);
+        assertEquals("BlueRocketRightPort", t.getName());
+        assertEquals(41.75d, t.getHeight(), 0.0d);
+
+        // Facing the blue loading station, then turned around to face the
+        // rocket, which is further away
+        t = field.findNearestVisible(60.0d, 30.0d, Math.PI);
+        assertEquals("BlueLoadingRight", t.getName());
+        t = field.findNearestVisible(60.0d, 30.0d, 0.0d);
+        assertEquals("BlueRocketRightNear", t.getName());
+
+        // Behind the cargo ship's front face: it's in front of us, but
+        // facing away
+        assertNull(field.findNearestVisible(240.0d, 162.0d, Math.PI));
+
+        // Nearest regardless of visibility
+        assertEquals("BlueLoadingRight", field.findNearest(60.0d, 30.0d).getName());
+    }
+
+    /**
+     * The tree finds the same targets as a brute-force search
+     */
+    @Test
+    public void testMatchesBruteForce() {
+        System.out.println("matchesBruteForce");
+        Random rand = new Random(4169);
+        List<FieldTarget> targets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            targets.add(new FieldTarget("T" + i, 648.0d * rand.nextDouble(), 324.0d * rand.nextDouble(),
+                                        2.0d * Math.PI * rand.nextDouble(), 30.0d));
+        }
+        FieldMap field = new FieldMap(targets);
+        assertEquals(200, field.size());
+        int found = 0;
+        for (int i = 0; i < 5000; i++) {
+            double x = 648.0d * rand.nextDouble();
+            double y = 324.0d * rand.nextDouble();
+            double heading = Math.PI * ((2.0d * rand.nextDouble()) - 1.0d);
+            FieldTarget expected = bruteForce(targets, x, y, heading, FieldMap.DEFAULT_MAX_BEARING,
+                                              FieldMap.DEFAULT_MAX_VIEW_ANGLE, FieldMap.DEFAULT_MAX_RANGE);
+            assertSameTarget(expected, field.findNearestVisible(x, y, heading));
+            if (expected != null) {
+                found++;
+            }
+            assertSameTarget(bruteForce(targets, x, y, heading, Math.PI, Math.PI, Double.POSITIVE_INFINITY),
+                             field.findNearest(x, y));
+        }
+        System.out.println(found + " of 5000 poses see a target");
+        assertTrue(found > 1000);
+    }
+
+    /**
+     * The compiled binary map is memory-mapped and gives the same answers
+     * as the text one
+     */
+    @Test
+    public void testCompiled() throws Exception {
+        System.out.println("compiled");
+        File text = new File("src/main/deploy", FieldMap.FIELD_FILE);
+        File bin = File.createTempFile("field", ".bin");
+        bin.deleteOnExit();
+        FieldMap loaded = FieldMapCompiler.compile(text, bin);
+        long size = FieldMap.HEADER_SIZE + (loaded.size() * FieldMap.RECORD_SIZE);
+        for (FieldTarget t : loaded.getTargets()) {
+            size += t.getName().length();
+        }
+        assertEquals(size, bin.length());
+        FieldMap mapped = FieldMap.map(bin);
+        assertEquals(loaded.size(), mapped.size());
+        for (int i = 0; i < mapped.size(); i++) {
+            FieldTarget a = loaded.getTarget(i);
+            FieldTarget b = mapped.getTarget(i);
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getPosition().getX(), b.getPosition().getX(), 0.0d);
+            assertEquals(a.getPosition().getY(), b.getPosition().getY(), 0.0d);
+            assertEquals(a.getNormal().getX(), b.getNormal().getX(), 0.000001d);
+            assertEquals(a.getNormal().getY(), b.getNormal().getY(), 0.000001d);
+            assertEquals(a.getHeight(), b.getHeight(), 0.0d);
+            assertSame(b, mapped.getTarget(i));
+        }
+        Random rand = new Random(254);
+        for (int i = 0; i < 1000; i++) {
+            double x = 648.0d * rand.nextDouble();
+            double y = 324.0d * rand.nextDouble();
+            double heading = Math.PI * ((2.0d * rand.nextDouble()) - 1.0d);
+            assertSameTarget(loaded.findNearestVisible(x, y, heading), mapped.findNearestVisible(x, y, heading));
+        }
+
+        // A text file isn't a binary map, nor is a truncated one
+        try {
+            FieldMap.map(text);
+            fail("expected IOException");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mapped.write(bytes);
+        assertEquals(bin.length(), bytes.size());
+        try {
+            FieldMap.wrap(Arrays.copyOf(bytes.toByteArray(), FieldMap.HEADER_SIZE + 10));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+
+        // Nor is one with the end of the name table cut off, or with a
+        // name outside the table
+        byte[] good = bytes.toByteArray();
+        byte[][] corrupt = { Arrays.copyOf(good, good.length - 1), good.clone(), good.clone() };
+        ByteBuffer.wrap(corrupt[1]).putInt(FieldMap.HEADER_SIZE + FieldMap.NAME_LENGTH, 1000);
+        ByteBuffer.wrap(corrupt[2]).putInt(FieldMap.HEADER_SIZE + FieldMap.NAME_OFFSET, -1);
+        for (byte[] b : corrupt) {
+            try {
+                FieldMap.wrap(b);
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        assertEquals(mapped.size(), FieldMap.wrap(good).size());
+    }
+
+    /**
+     * Loading rejects malformed lines
+     */
+    @Test
+    public void testLoad() throws Exception {
+        System.out.println("load");
+        FieldMap field = FieldMap.load(new StringReader("# one\n\nA, 1, 2, 90, 30\n"));
+        assertEquals(1, field.size());
+        FieldTarget t = field.getTargets().get(0);
+        assertEquals("A", t.getName());
+        assertEquals(2.0d, t.getPosition().getY(), 0.0d);
+        assertEquals(1.0d, t.getNormal().getY(), 0.000001d);
+        assertNull(new FieldMap(new ArrayList<>()).findNearest(0.0d, 0.0d));
+
+        String[] bad = {
+            "A, 1, 2, 90\n",
+            "A, 1, 2, north, 30\n",
+            "A, 1, 2, 90, 30\nA, 3, 4, 90, 30\n"
+        };
+        for (String contents : bad) {
+            try {
+                FieldMap.load(new StringReader(contents));
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class HeadingHistoryTest {
+
+    static final double EPS = 1.0e-9d;
+
+    public HeadingHistoryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Interpolation between samples, and clamping outside them
+     */
+    @Test
+    public void testGetHeading() {
+        System.out.println("getHeading");
+        HeadingHistory h = new HeadingHistory(8);
+        try {
+            h.getHeading(0.0d);
+            fail("empty history should throw");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        for (int i = 0; i < 20; i++) {
+            h.add(i * 0.02d, i * 0.1d);
+        }
+        assertEquals(8, h.size());
+        assertEquals(1.9d, h.getHeading(1.0d), EPS);
+        assertEquals(1.85d, h.getHeading(0.37d), EPS);
+        assertEquals(1.5d, h.getHeading(0.30d), EPS);
+        // older than anything kept
+        assertEquals(1.2d, h.getHeading(0.0d), EPS);
+
+        // out of order samples are ignored
+        h.add(0.1d, 0.0d);
+        assertEquals(1.9d, h.getHeading(0.38d), EPS);
+    }
+
+    /**
+     * Interpolation goes the short way across +-pi
+     */
+    @Test
+    public void testWrap() {
+        System.out.println("wrap");
+        HeadingHistory h = new HeadingHistory(4);
+        h.add(0.0d, Math.PI - 0.1d);
+        h.add(1.0d, -Math.PI + 0.1d);
+        assertEquals(Math.PI, Math.abs(h.getHeading(0.5d)), EPS);
+        assertEquals(Math.PI - 0.05d, h.getHeading(0.25d), EPS);
+        assertEquals(-Math.PI + 0.05d, h.getHeading(0.75d), EPS);
+    }
+}
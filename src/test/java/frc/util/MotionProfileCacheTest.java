@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class MotionProfileCacheTest {
+
+    public static final double EPS = 0.00001d;
+    public static final double ACCEL = 60.0d;
+    public static final double DT = 0.02d;
+    public static final double KS = 0.1d;
+    public static final double KV = 0.01d;
+
+    private MotionProfileCache m_cache;
+
+    public MotionProfileCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        m_cache = new MotionProfileCache(3);
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private MotionProfile get(double dist, double vel) {
+        return m_cache.get(dist, vel, ACCEL, DT, KS, KV);
+    }
+
+    /**
+     * Repeated and nearby requests share one plan
+     */
+    @Test
+    public void testHit() {
+        System.out.println("hit");
+        MotionProfile p = get(12.0d, 24.0d);
+        assertEquals(0L, m_cache.getHits());
+        assertEquals(1L, m_cache.getMisses());
+        assertSame(p, get(12.0d, 24.0d));
+        assertSame(p, get(12.1d, 24.04d));
+        assertEquals(2L, m_cache.getHits());
+        assertEquals(1L, m_cache.getMisses());
+        assertEquals(1, m_cache.size());
+
+        // The plan is for the quantized request
+        MotionProfile q = get(12.2d, 24.0d);
+        assertNotSame(p, q);
+        assertEquals(12.25d, q.getDistance(), EPS);
+        assertEquals(12.0d, p.getDistance(), EPS);
+    }
+
+    /**
+     * The model parameters are part of the key
+     */
+    @Test
+    public void testModelKey() {
+        System.out.println("modelKey");
+        MotionProfile p = get(12.0d, 24.0d);
+        assertNotSame(p, m_cache.get(12.0d, 24.0d, ACCEL, 0.01d, KS, KV));
+        assertNotSame(p, m_cache.get(12.0d, 24.0d, ACCEL / 2.0d, DT, KS, KV));
+        assertNotSame(p, m_cache.get(12.0d, 24.0d, ACCEL, DT, KS, 2.0d * KV));
+        assertEquals(4L, m_cache.getMisses());
+    }
+
+    /**
+     * The least recently used plan is evicted first
+     */
+    @Test
+    public void testEviction() {
+        System.out.println("eviction");
+        MotionProfile a = get(10.0d, 20.0d);
+        MotionProfile b = get(20.0d, 20.0d);
+        get(30.0d, 20.0d);
+        assertSame(a, get(10.0d, 20.0d));     // b is now the least recently used
+        get(40.0d, 20.0d);
+        assertEquals(3, m_cache.size());
+        assertSame(a, get(10.0d, 20.0d));
+        long misses = m_cache.getMisses();
+        assertNotSame(b, get(20.0d, 20.0d));
+        assertEquals(misses + 1, m_cache.getMisses());
+    }
+
+    /**
+     * Prewarming plans without counting, and the next get() hits
+     */
+    @Test
+    public void testPrewarm() {
+        System.out.println("prewarm");
+        m_cache.prewarm(12.0d, 0.2d, ACCEL, DT, KS, KV);
+        m_cache.prewarm(12.0d, 0.2d, ACCEL, DT, KS, KV);
+        assertEquals(1, m_cache.size());
+        assertEquals(0L, m_cache.getHits());
+        assertEquals(0L, m_cache.getMisses());
+        MotionProfile p = get(12.0d, 0.2d);
+        assertEquals(1L, m_cache.getHits());
+        assertEquals(0.2d, p.getPeakVelocity(), EPS);
+
+        m_cache.clear();
+        assertEquals(0, m_cache.size());
+        assertEquals(0L, m_cache.getHits());
+    }
+
+    /**
+     * Tiny requests round up to one quantum; nonsense is rejected
+     */
+    @Test
+    public void testSmall() {
+        System.out.println("small");
+        MotionProfile p = get(0.1d, 0.01d);
+        assertEquals(MotionProfileCache.DISTANCE_QUANTUM, p.getDistance(), EPS);
+        try {
+            get(0.0d, 24.0d);
+            fail("zero distance accepted");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            get(12.0d, -1.0d);
+            fail("negative velocity accepted");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
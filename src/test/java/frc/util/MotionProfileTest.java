@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import frc.subsystems.RobotModel;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class MotionProfileTest {
+
+    public static final double EPS = 0.00001d;
+
+    public MotionProfileTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Check the invariants of any profile: starts and ends at rest, ends
+     * at the distance, never exceeds the velocity or acceleration, and
+     * its velocities integrate to its distance
+     */
+    private void checkProfile(MotionProfile p, double dist, double maxVel, double accel) {
+        int n = p.size();
+        assertEquals(0.0d, p.getPosition(0), EPS);
+        assertEquals(0.0d, p.getVelocity(0), EPS);
+        assertEquals(dist, p.getPosition(n - 1), EPS);
+        assertEquals(0.0d, p.getVelocity(n - 1), EPS);
+        assertEquals(0.0d, p.getPower(n - 1), EPS);
+        double integral = 0.0d;
+        for (int i = 1; i < n; i++) {
+            double dt = Math.min(i * p.getDt(), p.getDuration()) - ((i - 1) * p.getDt());
+            assertTrue(p.getPosition(i) >= p.getPosition(i - 1));
+            assertTrue(p.getVelocity(i) <= maxVel + EPS);
+            assertTrue(Math.abs(p.getVelocity(i) - p.getVelocity(i - 1)) <= (accel * dt) + EPS);
+            integral += 0.5d * (p.getVelocity(i) + p.getVelocity(i - 1)) * dt;
+        }
+        assertEquals(dist, integral, dist * 0.005d);
+    }
+
+    /**
+     * A long drive reaches the cruise velocity
+     */
+    @Test
+    public void testTrapezoid() {
+        System.out.println("trapezoid");
+        MotionProfile p = new MotionProfile(120.0d, 60.0d, 60.0d, 0.02d, 0.1d, 0.01d);
+        assertFalse(p.isTriangular());
+        assertEquals(1.0d, p.getAccelTime(), EPS);
+        assertEquals(1.0d, p.getRunTime(), EPS);
+        assertEquals(3.0d, p.getDuration(), EPS);
+        assertEquals(60.0d, p.getPeakVelocity(), EPS);
+        assertEquals(151, p.size());
+        checkProfile(p, 120.0d, 60.0d, 60.0d);
+        assertEquals(30.0d, p.getPosition(50), EPS);
+        assertEquals(90.0d, p.getPosition(100), EPS);
+    }
+
+    /**
+     * A short drive never reaches the cruise velocity
+     */
+    @Test
+    public void testTriangle() {
+        System.out.println("triangle");
+        MotionProfile p = new MotionProfile(20.0d, 60.0d, 60.0d, 0.02d, 0.1d, 0.01d);
+        assertTrue(p.isTriangular());
+        assertEquals(Math.sqrt(20.0d * 60.0d), p.getPeakVelocity(), EPS);
+        assertTrue(p.getPeakVelocity() < 60.0d);
+        checkProfile(p, 20.0d, 60.0d, 60.0d);
+        assertEquals(10.0d, p.getPosition(p.getAccelTime()), 0.01d);
+    }
+
+    /**
+     * Sampling between steps matches the closed form closely
+     */
+    @Test
+    public void testSample() {
+        System.out.println("sample");
+        MotionProfile p = new MotionProfile(120.0d, 60.0d, 60.0d, 0.02d, 0.1d, 0.01d);
+        double maxErr = 0.0d;
+        for (double t = 0.0d; t < 1.0d; t += 0.0037d) {
+            maxErr = Math.max(maxErr, Math.abs(p.getPosition(t) - (30.0d * t * t)));
+            assertEquals(60.0d * t, p.getVelocity(t), EPS);
+        }
+        System.out.println("max interpolation error " + maxErr);
+        // linear interpolation of a*t^2/2: at most a*dt^2/8
+        assertTrue(maxErr <= (60.0d * 0.02d * 0.02d / 8.0d) + EPS);
+        assertEquals(60.0d, p.getVelocity(1.5d), EPS);
+        assertEquals(0.0d, p.getPosition(-1.0d), EPS);
+        assertEquals(120.0d, p.getPosition(10.0d), EPS);
+        assertEquals(0.0d, p.getVelocity(10.0d), EPS);
+        assertFalse(p.isDone(2.99d));
+        assertTrue(p.isDone(3.0d));
+    }
+
+    /**
+     * Feed-forward power is kS + kV * v while moving, capped at 1, and
+     * the first step drives toward the velocity at its end
+     */
+    @Test
+    public void testPower() {
+        System.out.println("power");
+        MotionProfile p = new MotionProfile(120.0d, 60.0d, 60.0d, 0.02d, 0.1d, 0.01d);
+        assertEquals(0.1d + (0.01d * 60.0d * 0.02d), p.getPower(0), EPS);
+        assertEquals(p.getPower(1), p.getPower(0.0d), EPS);
+        assertEquals(0.0d, p.getVelocity(0.0d), EPS);
+        assertEquals(0.1d + 0.3d, p.getPower(0.5d), EPS);
+        assertEquals(0.1d + 0.6d, p.getPower(1.5d), EPS);
+        p = new MotionProfile(120.0d, 60.0d, 60.0d, 0.02d, 0.1d, 0.05d);
+        assertEquals(1.0d, p.getPower(1.5d), EPS);
+    }
+
+    /**
+     * The robot model's profiles hit the requested distance
+     */
+    @Test
+    public void testRobotModel() {
+        System.out.println("robotModel");
+        for (double dist : new double[] { 6.0d, 24.0d, 60.0d, 200.0d }) {
+            for (double vel : new double[] { 12.0d, 48.0d, RobotModel.maxVelocity }) {
+                MotionProfile p = RobotModel.planProfile(dist, vel);
+                checkProfile(p, dist, vel, RobotModel.maxAccel);
+                assertTrue(p.getPower(p.getDuration() / 2.0d) >= RobotModel.startPower);
+            }
+        }
+    }
+
+    /**
+     * Nonsense profiles are rejected
+     */
+    @Test
+    public void testBadArgs() {
+        System.out.println("badArgs");
+        double[][] bad = {
+            { 0.0d, 60.0d, 60.0d, 0.02d },
+            { 10.0d, -1.0d, 60.0d, 0.02d },
+            { 10.0d, 60.0d, 0.0d, 0.02d },
+            { 10.0d, 60.0d, 60.0d, 0.0d },
+            { Double.NaN, 60.0d, 60.0d, 0.02d },
+        };
+        for (double[] b : bad) {
+            try {
+                new MotionProfile(b[0], b[1], b[2], b[3], 0.1d, 0.01d);
+                fail("accepted " + java.util.Arrays.toString(b));
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+}
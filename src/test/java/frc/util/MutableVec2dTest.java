@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.lang.management.ManagementFactory;
+
+import frc.subsystems.Limelight;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class MutableVec2dTest {
+    /**
+     * Relative error for most reasonable size doubles
+     */
+    public static final double EPS = 0.00001d;
+
+    /**
+     * Number of calls to average allocation over
+     */
+    static final int ALLOC_CALLS = 100000;
+
+    public MutableVec2dTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 if the
+     * JVM can't tell us.
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Test that the mutable operations agree with the Vec2d ones
+     */
+    @Test
+    public void testSameAsVec2d() {
+        System.out.println("sameAsVec2d");
+        Vec2d a = Vec2d.makePolar(3.0d, 5.0d * Math.PI / 4.0d);
+        Vec2d b = Vec2d.makeCart(-5.0d, 12.0d);
+        MutableVec2d m = new MutableVec2d();
+
+        assertTrue(a.add(b).isNear(m.set(a).add(b).toVec2d(), EPS));
+        assertTrue(a.sub(b).isNear(m.set(a).sub(b).toVec2d(), EPS));
+        assertTrue(a.mulScalar(-2.5d).isNear(m.set(a).mulScalar(-2.5d).toVec2d(), EPS));
+        assertEquals(a.getNormal(), m.set(a).normal().toVec2d());
+        assertEquals(a.negate(), m.set(a).negate().toVec2d());
+        assertEquals(a.dotProduct(b), m.set(a).dotProduct(b), EPS);
+        assertEquals(a.getR(), m.set(a).getR(), EPS);
+        assertEquals(a.getTheta(), m.set(a).getTheta(), EPS);
+
+        m.setPolar(2.0d, -Math.PI / 2.0d);
+        assertEquals(0.0d, m.getX(), EPS);
+        assertEquals(-2.0d, m.getY(), EPS);
+    }
+
+    /**
+     * Test that the allocation-free route calculation gives the same
+     * route as the allocating one
+     */
+    @Test
+    public void testRouteToTargetInto() {
+        System.out.println("routeToTargetInto");
+        Vec2d robotVec = Vec2d.makePolar(1.0d, Math.toRadians(93.0d));
+        Vec2d targNorm = Vec2d.makeCart(0.0d, -1.0d);
+        Vec2d camVec = robotVec.getNormal().mulScalar(7.0d);
+        TargetCalculator calc = new TargetCalculator(10.5d, 20.0d, Limelight.V_FOV);
+
+        RouteToTarget route = calc.getRouteToTarget(5.0d, 3.0d, robotVec, camVec,
+                                                    targNorm, 34.0d, 12.0d);
+        MutableVec2d target = new MutableVec2d();
+        MutableVec2d intercept = new MutableVec2d();
+        MutableVec2d normal = new MutableVec2d();
+        calc.getRouteToTarget(5.0d, 3.0d, robotVec, camVec, targNorm, 34.0d, 12.0d,
+                              target, intercept, normal);
+
+        assertTrue(route.getTargetDirectVec().isNear(target.toVec2d(), EPS));
+        assertTrue(route.getInterceptVec().isNear(intercept.toVec2d(), EPS));
+        assertTrue(route.getNormalVec().isNear(normal.toVec2d(), EPS));
+    }
+
+    /**
+     * Measure the bytes allocated per call of the mutable vector operations
+     * and the allocation-free route calculation; steady state should be zero.
+     */
+    @Test
+    public void testAllocatedBytesPerCall() {
+        System.out.println("allocatedBytesPerCall");
+        Vec2d robotVec = Vec2d.makePolar(1.0d, Math.toRadians(93.0d));
+        Vec2d targNorm = Vec2d.makeCart(0.0d, -1.0d);
+        Vec2d camVec = robotVec.getNormal().mulScalar(7.0d);
+        TargetCalculator calc = new TargetCalculator(10.5d, 20.0d, Limelight.V_FOV);
+        MutableVec2d target = new MutableVec2d();
+        MutableVec2d intercept = new MutableVec2d();
+        MutableVec2d normal = new MutableVec2d();
+        MutableVec2d scratch = new MutableVec2d();
+
+        if (allocatedBytes() < 0) {
+            System.out.println("thread allocation counting not supported; skipping");
+            return;
+        }
+
+        // Warm up so the JIT has compiled the loop body before we measure
+        double sink = 0.0d;
+        for (int pass = 0; pass < 2; pass++) {
+            long before = allocatedBytes();
+            for (int i = 0; i < ALLOC_CALLS; i++) {
+                double tx = (i % 54) - 27.0d;
+                calc.getRouteToTarget(tx, 3.0d, robotVec, camVec, targNorm, 34.0d, 12.0d,
+                                      target, intercept, normal);
+                scratch.set(robotVec).normal().mulScalar(7.0d).add(intercept).negate();
+                sink += scratch.dotProduct(normal);
+            }
+            long perCall = (allocatedBytes() - before) / ALLOC_CALLS;
+            System.out.println("pass " + pass + ": " + perCall + " bytes/call");
+            if (pass == 1) {
+                assertEquals("bytes allocated per call", 0L, perCall);
+            }
+        }
+        assertFalse(Double.isNaN(sink));
+    }
+}
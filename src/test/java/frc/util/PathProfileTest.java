@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class PathProfileTest {
+
+    public static final double EPS = 0.00001d;
+    public static final double MAX_VEL = 60.0d;
+    public static final double ACCEL = 60.0d;
+    public static final double LAT = 80.0d;
+    public static final double TRACK = 22.0d;
+
+    public PathProfileTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * A straight path of n+1 points from (0, 0) to (length, 0)
+     */
+    private static Path line(double length, int n) {
+        double[] x = new double[n + 1];
+        double[] y = new double[n + 1];
+        for (int i = 0; i <= n; i++) {
+            x[i] = (length * i) / n;
+        }
+        return new Path(x, y, new double[n + 1]);
+    }
+
+    /**
+     * Check every limit holds everywhere
+     */
+    private static void checkLimits(PathProfile pp) {
+        Path p = pp.getPath();
+        assertEquals(0.0d, pp.getVelocity(0), EPS);
+        assertEquals(0.0d, pp.getVelocity(p.size() - 1), EPS);
+        for (int i = 0; i < p.size(); i++) {
+            double v = pp.getVelocity(i);
+            double k = Math.abs(p.getCurvature(i));
+            assertTrue(v <= MAX_VEL + EPS);
+            assertTrue(v * (1.0d + (k * TRACK / 2.0d)) <= MAX_VEL + EPS);
+            assertTrue(v * v * k <= LAT + EPS);
+            if (i > 0) {
+                double ds = p.getDistance(i) - p.getDistance(i - 1);
+                double v0 = pp.getVelocity(i - 1);
+                assertTrue(Math.abs((v * v) - (v0 * v0)) <= (2.0d * ACCEL * ds) + EPS);
+                assertTrue(pp.getTime(i) > pp.getTime(i - 1));
+            }
+        }
+    }
+
+    /**
+     * On a straight line the profile is the trapezoid
+     */
+    @Test
+    public void testStraight() {
+        System.out.println("straight");
+        PathProfile pp = new PathProfile(line(120.0d, 1200), MAX_VEL, ACCEL, LAT, TRACK);
+        checkLimits(pp);
+        MotionProfile mp = new MotionProfile(120.0d, MAX_VEL, ACCEL, 0.02d, 0.0d, 0.0d);
+        assertEquals(mp.getDuration(), pp.getDuration(), 0.01d);
+        assertEquals(MAX_VEL, pp.getVelocity(600), EPS);
+        assertEquals(MAX_VEL, pp.getVelocityAt(60.0d), EPS);
+        // 15 units in, accelerating: v^2 = 2 a d
+        assertEquals(Math.sqrt(2.0d * ACCEL * 15.0d), pp.getVelocityAt(15.0d), EPS);
+        assertEquals(0.0d, pp.getVelocityAt(200.0d), EPS);
+    }
+
+    /**
+     * Curves slow the robot down, within every limit
+     */
+    @Test
+    public void testCurve() {
+        System.out.println("curve");
+        Path p = Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, Vec2d.makeCart(40.0d, 60.0d),
+                                Vec2d.makeCart(0.0d, 12.0d));
+        PathProfile pp = new PathProfile(p, MAX_VEL, ACCEL, LAT, TRACK);
+        checkLimits(pp);
+        PathProfile straight = new PathProfile(line(p.getLength(), p.size() - 1), MAX_VEL, ACCEL, LAT, TRACK);
+        System.out.println("curved " + pp.getDuration() + " s, straight " + straight.getDuration() + " s");
+        assertTrue(pp.getDuration() > straight.getDuration());
+
+        // Somewhere the curve is the binding limit
+        boolean limited = false;
+        for (int i = 0; i < p.size(); i++) {
+            double k = Math.abs(p.getCurvature(i));
+            double v = pp.getVelocity(i);
+            if ((k > 0.0d) && (Math.abs((v * v * k) - LAT) < 0.01d
+                               || Math.abs((v * (1.0d + (k * TRACK / 2.0d))) - MAX_VEL) < 0.01d)) {
+                limited = true;
+            }
+        }
+        assertTrue(limited);
+    }
+
+    /**
+     * Start and end velocities are honored
+     */
+    @Test
+    public void testEndVelocities() {
+        System.out.println("endVelocities");
+        PathProfile pp = new PathProfile(line(120.0d, 120), MAX_VEL, ACCEL, LAT, TRACK, 30.0d, 20.0d);
+        assertEquals(30.0d, pp.getVelocity(0), EPS);
+        assertEquals(20.0d, pp.getVelocity(120), EPS);
+    }
+
+    /**
+     * Planning a typical route is far quicker than a 20 ms loop
+     */
+    @Test
+    public void testPlanTime() {
+        System.out.println("planTime");
+        Vec2d intercept = Vec2d.makeCart(40.0d, 100.0d);
+        Vec2d normal = Vec2d.makeCart(0.0d, 12.0d);
+        for (int i = 0; i < 200; i++) {
+            new PathProfile(Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, intercept, normal),
+                            MAX_VEL, ACCEL, LAT, TRACK);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            new PathProfile(Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, intercept, normal),
+                            MAX_VEL, ACCEL, LAT, TRACK);
+        }
+        double ms = (System.nanoTime() - start) / 100.0e6d;
+        System.out.println("path + profile: " + ms + " ms");
+        assertTrue(ms < 20.0d);
+    }
+}
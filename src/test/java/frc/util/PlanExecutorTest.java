@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class PlanExecutorTest {
+
+    private PlanExecutor m_executor;
+
+    public PlanExecutorTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        m_executor = new PlanExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        m_executor.shutdown();
+    }
+
+    /**
+     * Poll a handle until it's done, as a command would
+     */
+    private static void await(PlanHandle<?> handle) throws InterruptedException {
+        for (int i = 0; (i < 500) && !handle.isDone(); i++) {
+            Thread.sleep(2);
+        }
+        assertTrue(handle.isDone());
+    }
+
+    /**
+     * A plan runs in the background and reports its result and latency
+     */
+    @Test
+    public void testSubmit() throws Exception {
+        System.out.println("submit");
+        PlanHandle<Integer> handle = m_executor.submit(() -> {
+            Thread.sleep(20);
+            return 42;
+        });
+        assertFalse(handle.isDone());
+        await(handle);
+        assertEquals(42, (int) handle.get());
+        assertFalse(handle.isFailed());
+        assertNull(handle.getError());
+        assertTrue(handle.getLatency() >= 0.02d);
+        assertEquals(handle.getLatency(), m_executor.getLastLatency(), 0.0d);
+        assertEquals(handle.getLatency(), m_executor.getMaxLatency(), 0.0d);
+        assertEquals(1, m_executor.getPlanCount());
+    }
+
+    /**
+     * The result isn't available before the plan is done
+     */
+    @Test
+    public void testNotDone() throws Exception {
+        System.out.println("notDone");
+        CountDownLatch latch = new CountDownLatch(1);
+        PlanHandle<Integer> handle = m_executor.submit(() -> {
+            latch.await(1, TimeUnit.SECONDS);
+            return 1;
+        });
+        try {
+            handle.get();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * A planner's exception is captured, not thrown on its thread
+     */
+    @Test
+    public void testFailed() throws Exception {
+        System.out.println("failed");
+        PlanHandle<Integer> handle = m_executor.submit(() -> {
+            throw new IllegalArgumentException("no route");
+        });
+        await(handle);
+        assertTrue(handle.isFailed());
+        assertTrue(handle.getError() instanceof IllegalArgumentException);
+        try {
+            handle.get();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertSame(handle.getError(), e.getCause());
+        }
+    }
+
+    /**
+     * A plan canceled while queued never runs, and plans run in order
+     */
+    @Test
+    public void testCancel() throws Exception {
+        System.out.println("cancel");
+        CountDownLatch latch = new CountDownLatch(1);
+        boolean[] ran = new boolean[1];
+        PlanHandle<Integer> first = m_executor.submit(() -> {
+            latch.await(1, TimeUnit.SECONDS);
+            return 1;
+        });
+        PlanHandle<Integer> second = m_executor.submit(() -> {
+            ran[0] = true;
+            return 2;
+        });
+        PlanHandle<Integer> third = m_executor.submit(() -> 3);
+        second.cancel();
+        assertTrue(second.isCanceled());
+        latch.countDown();
+        await(first);
+        await(third);
+        assertFalse(ran[0]);
+        assertFalse(second.isDone());
+        assertEquals(3, (int) third.get());
+        assertEquals(2, m_executor.getPlanCount());
+    }
+}
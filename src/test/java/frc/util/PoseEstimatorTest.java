@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package frc.util;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Offline replay of a drive with drifting odometry and noisy vision fixes
+ * @author lwa
+ */
+public class PoseEstimatorTest {
+
+    public PoseEstimatorTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * With no fixes the estimate is just odometry
+     */
+    @Test
+    public void testPredict() {
+        System.out.println("predict");
+        PoseEstimator est = new PoseEstimator();
+        est.reset(10.0d, 20.0d, 0.0d);
+        est.predict(100.0d, 100.0d);
+        est.predict(103.0d, 104.0d);
+        assertEquals(13.0d, est.getX(), 1.0e-9d);
+        assertEquals(24.0d, est.getY(), 1.0e-9d);
+        assertEquals(Math.sqrt(5.0d * PoseEstimator.DEFAULT_ODOMETRY_VARIANCE), est.getStdDev(), 1.0e-9d);
+    }
+
+    /**
+     * Robot drives an S-curve towards a target at a known position;
+     * odometry over-reads distance by 4% and is rotated by 2 degrees
+     * (wheel scrub, gyro offset).  Vision fixes arrive at 20 Hz with
+     * noise growing with range, plus an occasional bad frame.
+     */
+    @Test
+    public void testReplay() {
+        System.out.println("replay");
+        final double dt = 0.01d;
+        final double targetX = 0.0d;
+        final double targetY = 300.0d;
+        final Vec2d camVec = Vec2d.makeCart(-7.0d, 0.0d);
+        Random rand = new Random(4169);
+
+        PoseEstimator est = new PoseEstimator();
+        double trueX = 0.0d;
+        double trueY = 0.0d;
+        double odoX = 0.0d;
+        double odoY = 0.0d;
+        est.reset(trueX, trueY, 0.0d);
+        est.predict(odoX, odoY);
+
+        double odoErr = 0.0d;
+        double fusedErr = 0.0d;
+        int n = 0;
+        for (int step = 1; step <= 500; step++) {
+            double t = step * dt;
+            // S-curve at ~50 units/sec, mostly +Y
+            double nx = 40.0d * Math.sin(t * 1.5d);
+            double ny = 50.0d * t;
+            double dx = nx - trueX;
+            double dy = ny - trueY;
+            trueX = nx;
+            trueY = ny;
+
+            double c = Math.cos(Math.toRadians(2.0d));
+            double s = Math.sin(Math.toRadians(2.0d));
+            odoX += 1.04d * ((c * dx) - (s * dy));
+            odoY += 1.04d * ((s * dx) + (c * dy));
+            est.predict(odoX, odoY);
+
+            if (step % 5 == 0) {
+                // lens is at center - camVec
+                double lx = targetX - (trueX - camVec.getX());
+                double ly = targetY - (trueY - camVec.getY());
+                double sigma = 1.0d + (0.02d * Math.hypot(lx, ly));
+                lx += sigma * rand.nextGaussian();
+                ly += sigma * rand.nextGaussian();
+                if (step % 100 == 0) {
+                    // wrong target, 60 units away
+                    lx += 60.0d;
+                }
+                est.addVisionFix(targetX, targetY, lx, ly, camVec.getX(), camVec.getY());
+            }
+
+            odoErr += Math.hypot(odoX - trueX, odoY - trueY);
+            fusedErr += Math.hypot(est.getX() - trueX, est.getY() - trueY);
+            n++;
+        }
+        odoErr /= n;
+        fusedErr /= n;
+        double finalErr = Math.hypot(est.getX() - trueX, est.getY() - trueY);
+        System.out.println("mean pose error: odometry " + odoErr + ", fused " + fusedErr
+            + "; final fused " + finalErr + " (sd " + est.getStdDev() + ")"
+            + "; fixes " + est.getAcceptedCount() + " used, " + est.getRejectedCount() + " rejected");
+        assertTrue(fusedErr < (odoErr / 2.0d));
+        assertTrue(finalErr < 3.0d);
+        assertTrue(est.getRejectedCount() >= 4);
+    }
+}
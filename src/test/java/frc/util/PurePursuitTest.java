@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class PurePursuitTest {
+
+    public static final double EPS = 0.00001d;
+    public static final double TRACK_WIDTH = 22.0d;
+    public static final double DT = 0.02d;
+
+    public PurePursuitTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * A route path starts at the robot, runs smoothly into the normal
+     * vector, and ends at the target
+     */
+    @Test
+    public void testFromRoute() {
+        System.out.println("fromRoute");
+        Vec2d intercept = Vec2d.makeCart(30.0d, 60.0d);
+        Vec2d normal = Vec2d.makeCart(0.0d, 12.0d);
+        Path p = Path.fromRoute(5.0d, 10.0d, Math.PI / 2.0d, intercept, normal);
+        int last = p.size() - 1;
+        assertEquals(5.0d, p.getX(0), EPS);
+        assertEquals(10.0d, p.getY(0), EPS);
+        assertEquals(35.0d, p.getX(last), EPS);
+        assertEquals(82.0d, p.getY(last), EPS);
+        assertEquals(0.0d, p.getCurvature(last), EPS);
+        System.out.println("length " + p.getLength() + " max curvature " + p.getMaxCurvature());
+        assertTrue(p.getLength() > intercept.getR() + normal.getR());
+        assertTrue(p.getMaxCurvature() < 1.0d / 18.0d);
+
+        // No kinks: consecutive segment headings change gradually
+        for (int i = 2; i < p.size(); i++) {
+            double h0 = Math.atan2(p.getY(i - 1) - p.getY(i - 2), p.getX(i - 1) - p.getX(i - 2));
+            double h1 = Math.atan2(p.getY(i) - p.getY(i - 1), p.getX(i) - p.getX(i - 1));
+            assertEquals(0.0d, Math.IEEEremainder(h1 - h0, 2.0d * Math.PI), 0.05d);
+        }
+
+        double[] pt = p.getPointAt(p.getLength() + 6.0d, new double[2]);
+        assertEquals(35.0d, pt[0], EPS);
+        assertEquals(88.0d, pt[1], EPS);
+    }
+
+    /**
+     * A route needing a U-turn is far too tight to follow
+     */
+    @Test
+    public void testTight() {
+        System.out.println("tight");
+        Path p = Path.fromRoute(0.0d, 0.0d, 0.0d, Vec2d.makeCart(-20.0d, 5.0d), Vec2d.makeCart(-12.0d, 0.0d));
+        assertTrue(p.getMaxCurvature() > 1.0d / 18.0d);
+    }
+
+    /**
+     * A route with nowhere to spline to has no path, and a long normal
+     * after a short intercept doesn't blow up the sample count
+     */
+    @Test
+    public void testDegenerate() {
+        System.out.println("degenerate");
+        assertNull(Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, Vec2d.ZERO, Vec2d.makeCart(0.0d, 12.0d)));
+        Path p = Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, Vec2d.makeCart(0.0d, 1.0e-4d),
+                                Vec2d.makeCart(0.0d, 120.0d));
+        assertNotNull(p);
+        assertTrue(p.size() <= 2 * Path.SPLINE_SAMPLES + 1);
+        assertEquals(120.0d + 1.0e-4d, p.getY(p.size() - 1), EPS);
+    }
+
+    /**
+     * Following the path from an offset start converges onto it and
+     * arrives at the end, heading along the normal, without stopping
+     */
+    @Test
+    public void testFollow() {
+        System.out.println("follow");
+        Vec2d intercept = Vec2d.makeCart(30.0d, 60.0d);
+        Vec2d normal = Vec2d.makeCart(0.0d, 12.0d);
+        Path p = Path.fromRoute(0.0d, 0.0d, Math.PI / 2.0d, intercept, normal);
+        PurePursuit pp = new PurePursuit(p, 12.0d);
+
+        // Start 3 in off the path, 10 deg off its heading
+        double x = -3.0d;
+        double y = 0.0d;
+        double h = Math.toRadians(100.0d);
+        double v = 36.0d;
+        double[] wheels = new double[2];
+        double maxErr = 0.0d;
+        int steps = 0;
+        while (!pp.isDone(x, y, 1.0d)) {
+            assertTrue("never got there", steps++ < 1000);
+            double k = pp.update(x, y, h);
+            PurePursuit.wheelSpeeds(v, k, TRACK_WIDTH, wheels);
+            assertEquals(v, (wheels[0] + wheels[1]) / 2.0d, EPS);
+            // Unicycle kinematics from the wheel speeds
+            double w = (wheels[1] - wheels[0]) / TRACK_WIDTH;
+            x += v * Math.cos(h + (w * DT / 2.0d)) * DT;
+            y += v * Math.sin(h + (w * DT / 2.0d)) * DT;
+            h += w * DT;
+            if (steps > 50) {
+                int c = p.findClosest(x, y, 0);
+                maxErr = Math.max(maxErr, Math.hypot(x - p.getX(c), y - p.getY(c)));
+            }
+        }
+        System.out.println(steps + " steps, max error after settling " + maxErr
+                           + ", end " + x + "," + y + " heading " + Math.toDegrees(h));
+        assertTrue(maxErr < 2.0d);
+        assertEquals(30.0d, x, 1.5d);
+        assertEquals(72.0d, y, 1.5d);
+        assertEquals(90.0d, Math.toDegrees(h), 5.0d);
+        assertEquals(0.0d, pp.getRemaining(), EPS);
+    }
+
+    /**
+     * Pure pursuit curvature for simple geometries
+     */
+    @Test
+    public void testCurvature() {
+        System.out.println("curvature");
+        Path line = new Path(new double[] { 0.0d, 100.0d }, new double[] { 0.0d, 0.0d },
+                             new double[] { 0.0d, 0.0d });
+        PurePursuit pp = new PurePursuit(line, 10.0d);
+        assertEquals(0.0d, pp.update(0.0d, 0.0d, 0.0d), EPS);
+        // 10 to the left of the lookahead point => arc curving right
+        double k = pp.update(0.0d, 10.0d, 0.0d);
+        assertEquals(2.0d * -10.0d / 200.0d, k, EPS);
+        double[] w = PurePursuit.wheelSpeeds(10.0d, k, TRACK_WIDTH, new double[2]);
+        assertTrue(w[0] > w[1]);
+    }
+}
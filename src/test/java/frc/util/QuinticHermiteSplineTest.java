@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class QuinticHermiteSplineTest {
+
+    public static final double EPS = 0.00001d;
+
+    public QuinticHermiteSplineTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * The spline meets its end conditions
+     */
+    @Test
+    public void testEnds() {
+        System.out.println("ends");
+        QuinticHermiteSpline s = QuinticHermiteSpline.fromPoses(1.0d, 2.0d, 0.0d,
+                                                                40.0d, 30.0d, Math.PI / 2.0d, 45.0d);
+        assertEquals(1.0d, s.getX(0.0d), EPS);
+        assertEquals(2.0d, s.getY(0.0d), EPS);
+        assertEquals(40.0d, s.getX(1.0d), EPS);
+        assertEquals(30.0d, s.getY(1.0d), EPS);
+        assertEquals(0.0d, s.getHeading(0.0d), EPS);
+        assertEquals(Math.PI / 2.0d, s.getHeading(1.0d), EPS);
+        assertEquals(0.0d, s.getCurvature(0.0d), EPS);
+        assertEquals(0.0d, s.getCurvature(1.0d), EPS);
+        // turning left the whole way
+        assertTrue(s.getCurvature(0.5d) > 0.0d);
+    }
+
+    /**
+     * A spline along a line is the line
+     */
+    @Test
+    public void testStraight() {
+        System.out.println("straight");
+        QuinticHermiteSpline s = QuinticHermiteSpline.fromPoses(0.0d, 0.0d, Math.PI / 4.0d,
+                                                                10.0d, 10.0d, Math.PI / 4.0d, 14.0d);
+        for (int i = 0; i <= 10; i++) {
+            double t = i / 10.0d;
+            assertEquals(s.getX(t), s.getY(t), EPS);
+            assertEquals(0.0d, s.getCurvature(t), EPS);
+        }
+    }
+
+    /**
+     * Curvature matches a circle when the spline approximates one
+     */
+    @Test
+    public void testCurvature() {
+        System.out.println("curvature");
+        // Quarter circle of radius 20 from (20, 0) heading +y to (0, 20) heading -x
+        QuinticHermiteSpline s = new QuinticHermiteSpline(
+            20.0d, 0.0d, -20.0d * Math.PI * Math.PI / 4.0d, 0.0d, -10.0d * Math.PI, 0.0d,
+            0.0d, 10.0d * Math.PI, 0.0d, 20.0d, 0.0d, -20.0d * Math.PI * Math.PI / 4.0d);
+        for (int i = 0; i <= 10; i++) {
+            double t = i / 10.0d;
+            assertEquals(20.0d, Math.hypot(s.getX(t), s.getY(t)), 0.1d);
+        }
+        assertEquals(1.0d / 20.0d, s.getCurvature(0.0d), 0.001d);
+        assertEquals(1.0d / 20.0d, s.getCurvature(1.0d), 0.001d);
+    }
+}
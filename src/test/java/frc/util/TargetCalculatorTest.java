@@ -23,6 +23,8 @@
  */
 package frc.util;
 
+import frc.subsystems.Limelight;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -80,7 +82,7 @@ public class TargetCalculatorTest {
         Vec2d camVec = Vec2d.ZERO;
         double targHeight = 10.0;
         double normDist = 1.0;      // drive for 1.0 units normal at end
-        TargetCalculator cUtil = new TargetCalculator(0.0d, 0.0d);
+        TargetCalculator cUtil = new TargetCalculator(0.0d, 0.0d, Limelight.V_FOV);
         RouteToTarget route = cUtil.getRouteToTarget(0.0d, vRes/2.0, robotVec,
            camVec, targVec, targHeight, normDist);
         
@@ -122,7 +124,7 @@ public class TargetCalculatorTest {
         Vec2d camVec = Vec2d.ZERO;
         double targHeight = 10.0;
         double normDist = 1.0;      // drive for 1.0 units normal at end
-        TargetCalculator cUtil = new TargetCalculator(0.0d, 0.0d);
+        TargetCalculator cUtil = new TargetCalculator(0.0d, 0.0d, Limelight.V_FOV);
 
         RouteToTarget route = cUtil.getRouteToTarget(-hRes/2.0, vRes/2.0,
                               robotVec, camVec, targVec, targHeight, normDist);
@@ -170,7 +172,7 @@ public class TargetCalculatorTest {
         double camHeight = 1.0d;
         double camAngle = 15.0d;    // angle above horizon in degrees
         double normDist = Math.sqrt(3.0d);      // drive for root(3) units normal at end
-        TargetCalculator cUtil = new TargetCalculator(camHeight,camAngle);
+        TargetCalculator cUtil = new TargetCalculator(camHeight, camAngle, Limelight.V_FOV);
 
         double tx = 27.0d;
         double ty = 15.0;
@@ -195,4 +197,95 @@ public class TargetCalculatorTest {
         assertEquals(expectedDist, intercept.getR(), EPS);
         assertEquals(expectedAng, intercept.getTheta(), EPS);
      }
+
+    /**
+     * Targets the calculator can't range -- at or beyond the horizon, or
+     * below the camera yet seen above it -- give NaN, not a garbage distance
+     */
+    @Test
+    public void testOutOfRange() {
+        System.out.println("outOfRange");
+        TargetCalculator calc = new TargetCalculator(10.5d, 20.0d, Limelight.V_FOV);
+        double dist = calc.getTargetDistance(0.0d, 34.125d);
+        assertTrue(dist > 0.0d);
+        assertEquals((34.125d - 10.5d) / Math.tan(Math.toRadians(20.0d)), dist, 0.5d);
+
+        // At and below the horizon
+        assertTrue(Double.isNaN(calc.getTargetDistance(-20.0d, 34.125d)));
+        assertTrue(Double.isNaN(calc.getTargetDistance(-25.0d, 34.125d)));
+
+        // Below the camera but seen above the horizon, where the formula
+        // gives a negative distance
+        assertTrue(Double.isNaN(calc.getTargetDistance(0.0d, 4.0d)));
+        Vec2d vec = calc.getTargetVector(0.0d, 0.0d, Vec2d.makePolar(1.0d, 0.0d), 4.0d);
+        assertTrue(Double.isNaN(vec.getX()));
+        assertTrue(Double.isNaN(vec.getY()));
+    }
+
+    /**
+     * Replay a robot settling from a turn while the camera tracks a target,
+     * and compare the intercept vectors computed with the heading at receive
+     * time (what we used to do) and at capture time (getCaptureTime() and
+     * the heading history) against the true intercept.
+     */
+    @Test
+    public void testLatencyCompensation() {
+        System.out.println("latencyCompensation");
+        final double camHeight = 10.5d;
+        final double camAngle = 20.0d;
+        final double camOffset = -7.0d;
+        final double targHeight = 33.6d;
+        final double normDist = 12.0d;
+        final double tl = 35.0d;                // pipeline latency, ms
+        final double dt = 0.02d;                // scheduler period
+        final Vec2d target = Vec2d.makeCart(20.0d, 120.0d);
+        final Vec2d targNorm = Vec2d.makeCart(0.0d, -1.0d);
+        TargetCalculator calc = new TargetCalculator(camHeight, camAngle, Limelight.V_FOV);
+        HeadingHistory history = new HeadingHistory(64);
+
+        double errOld = 0.0d;
+        double errNew = 0.0d;
+        int frames = 0;
+        for (int step = 0; step < 50; step++) {
+            double now = step * dt;
+            history.add(now, heading(now));
+            double captureTime = now - (tl / 1000.0d) - TargetCalculator.TRANSPORT_LATENCY;
+            if (captureTime < 0.1d) {
+                continue;
+            }
+
+            // What the camera saw at capture time (robot at the origin)
+            Vec2d robotVec = Vec2d.makePolar(1.0d, heading(captureTime));
+            Vec2d camVec = robotVec.getNormal().mulScalar(-camOffset);
+            Vec2d lensToTarget = target.add(camVec);
+            double tx = Math.toDegrees(Math.IEEEremainder(robotVec.getTheta() - lensToTarget.getTheta(),
+                                                          2.0d * Math.PI));
+            double ty = Math.toDegrees(Math.atan((targHeight - camHeight) / lensToTarget.getR())) - camAngle;
+            Vec2d trueIntercept = lensToTarget.sub(targNorm.mulScalar(-normDist)).sub(camVec);
+
+            Vec2d nowVec = Vec2d.makePolar(1.0d, heading(now));
+            RouteToTarget oldRte = calc.getRouteToTarget(tx, ty, nowVec,
+                nowVec.getNormal().mulScalar(-camOffset), targNorm, targHeight, normDist);
+            RouteToTarget newRte = calc.getRouteToTarget(tx, ty,
+                TargetCalculator.getCaptureTime(now, tl), history, camOffset, targNorm, targHeight, normDist);
+
+            errOld += oldRte.getInterceptVec().sub(trueIntercept).getR();
+            errNew += newRte.getInterceptVec().sub(trueIntercept).getR();
+            frames++;
+        }
+        errOld /= frames;
+        errNew /= frames;
+        System.out.println("mean intercept error: receive-time heading " + errOld
+            + ", capture-time heading " + errNew);
+        assertTrue(errNew < 0.5d);
+        assertTrue(errNew < (errOld / 10.0d));
+    }
+
+    /**
+     * Field heading (radians) of a robot settling exponentially from
+     * a 90 degree turn
+     */
+    private static double heading(double t) {
+        return Math.toRadians(80.0d - (90.0d * Math.exp(-t / 0.25d)));
+    }
 }
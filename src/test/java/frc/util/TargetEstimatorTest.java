@@ -0,0 +1,373 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import java.util.Random;
+
+import frc.subsystems.Limelight;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class TargetEstimatorTest {
+
+    static final double EPS = 1.0e-9d;
+    static final double DT = 0.02d;
+
+    // True bearing (degrees) and ty of the target in most tests
+    static final double BEARING = 30.0d;
+    static final double TY = 5.0d;
+
+    public TargetEstimatorTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Add a frame of a target at the specified field bearing, seen
+     * from the specified heading (both in degrees)
+     */
+    private static void addFrame(TargetEstimator est, double time, double heading,
+                                 double bearing, double ty) {
+        est.add(time, Math.toRadians(heading), heading - bearing, ty);
+    }
+
+    /**
+     * Feed frames with gaussian noise until the estimator is ready
+     * @return Number of frames fed
+     */
+    private static int feed(TargetEstimator est, Random rand, double sigma, int max) {
+        for (int i = 0; i < max; i++) {
+            addFrame(est, i * DT, 25.0d + i, BEARING + (sigma * rand.nextGaussian()),
+                     TY + (sigma * rand.nextGaussian()));
+            if (est.isReady()) {
+                return i + 1;
+            }
+        }
+        return max;
+    }
+
+    private static double bearingError(TargetEstimator est) {
+        return Math.abs(Math.toDegrees(est.getBearing()) - BEARING);
+    }
+
+    /**
+     * The median ignores a couple of wild frames, even when the first
+     * frame (all that the commands used to look at) is one of them
+     */
+    @Test
+    public void testMedianRejectsOutliers() {
+        System.out.println("medianRejectsOutliers");
+        Random rand = new Random(4169);
+        TargetEstimator est = new TargetEstimator(10, 3, 1.0d, 0.25d,
+            TargetEstimator.Filter.eMedian, false);
+        addFrame(est, 0.0d, 25.0d, BEARING + 12.0d, TY - 4.0d);
+        for (int i = 1; i < 10; i++) {
+            double bearing = BEARING + (0.05d * rand.nextGaussian());
+            double ty = TY + (0.05d * rand.nextGaussian());
+            if (i == 6) {
+                bearing -= 9.0d;
+                ty += 3.0d;
+            }
+            assertFalse(est.isReady());
+            addFrame(est, i * DT, 25.0d + i, bearing, ty);
+        }
+        assertTrue(est.isReady());
+        assertEquals(10, est.getCount());
+        assertTrue(bearingError(est) < 0.1d);
+        assertTrue(Math.abs(est.getTy() - TY) < 0.1d);
+        assertEquals(0.8d, est.getConfidence(), 0.2d);
+        assertTrue(est.getConfidence() < 1.0d);
+    }
+
+    /**
+     * Frames that agree give an estimate after only minFrames
+     */
+    @Test
+    public void testEarlyExit() {
+        System.out.println("earlyExit");
+        Random rand = new Random(1);
+        TargetEstimator est = new TargetEstimator();
+        assertFalse(est.isReady());
+        int n = feed(est, rand, 0.02d, TargetEstimator.DEFAULT_CAPACITY);
+        assertEquals(TargetEstimator.DEFAULT_MIN_FRAMES, n);
+        assertTrue(bearingError(est) < 0.1d);
+        assertEquals(1.0d, est.getConfidence(), EPS);
+
+        // Without early exit we gather the whole ring
+        est = new TargetEstimator(10, 3, 1.0d, 0.25d, TargetEstimator.Filter.eMedian, false);
+        assertEquals(10, feed(est, rand, 0.02d, 20));
+    }
+
+    /**
+     * Noisy frames keep the estimator waiting until the ring is full,
+     * and it then has less confidence than for clean frames
+     */
+    @Test
+    public void testNoisyWaits() {
+        System.out.println("noisyWaits");
+        Random rand = new Random(2);
+        TargetEstimator est = new TargetEstimator(10, 3, 1.0d, 0.25d,
+            TargetEstimator.Filter.eMedian, true);
+        assertEquals(10, feed(est, rand, 2.0d, 20));
+        assertTrue(est.getSpread() > 0.25d);
+        double noisy = est.getConfidence();
+
+        est.reset();
+        assertEquals(0, est.getCount());
+        assertFalse(est.isReady());
+        feed(est, rand, 0.02d, 20);
+        assertTrue(noisy < 0.5d);
+        assertTrue(noisy < est.getConfidence());
+    }
+
+    /**
+     * The estimator stops waiting once the frames span the window, and
+     * the ring keeps only the latest capacity frames
+     */
+    @Test
+    public void testWindow() {
+        System.out.println("window");
+        TargetEstimator est = new TargetEstimator(4, 3, 0.1d, 0.25d,
+            TargetEstimator.Filter.eMedian, false);
+        addFrame(est, 0.0d, 0.0d, BEARING - 3.0d, TY);
+        addFrame(est, 0.05d, 0.0d, BEARING + 3.0d, TY);
+        assertFalse(est.isReady());
+        addFrame(est, 0.1d, 0.0d, BEARING, TY);
+        assertTrue(est.isReady());
+
+        // Overwrite everything; only the last 4 frames count
+        est.reset();
+        for (int i = 0; i < 3; i++) {
+            addFrame(est, i * DT, 0.0d, BEARING + 20.0d, TY);
+        }
+        for (int i = 3; i < 7; i++) {
+            addFrame(est, i * DT, 0.0d, BEARING, TY + 1.0d);
+        }
+        assertEquals(4, est.getCount());
+        assertEquals(BEARING, Math.toDegrees(est.getBearing()), EPS);
+        assertEquals(TY + 1.0d, est.getTy(), EPS);
+        assertEquals(0.0d, est.getSpread(), EPS);
+    }
+
+    /**
+     * The trimmed mean drops the extremes and averages the rest
+     */
+    @Test
+    public void testTrimmedMean() {
+        System.out.println("trimmedMean");
+        TargetEstimator est = new TargetEstimator(8, 3, 1.0d, 0.25d,
+            TargetEstimator.Filter.eTrimmedMean, false);
+        double[] offsets = { 50.0d, 0.1d, -0.1d, 0.2d, -0.3d, 0.0d, 0.3d, -40.0d };
+        for (int i = 0; i < offsets.length; i++) {
+            addFrame(est, i * DT, 10.0d, BEARING + offsets[i], TY + offsets[i]);
+        }
+        assertTrue(est.isReady());
+        // Trim 2 from each end: mean of -0.1, 0.0, 0.1, 0.2
+        assertEquals(BEARING + 0.05d, Math.toDegrees(est.getBearing()), 1.0e-6d);
+        assertEquals(TY + 0.05d, est.getTy(), 1.0e-6d);
+    }
+
+    /**
+     * Bearings straddling +-180 are combined without wrapping
+     */
+    @Test
+    public void testWrap() {
+        System.out.println("wrap");
+        TargetEstimator est = new TargetEstimator();
+        double[] bearings = { 179.9d, -179.9d, 179.8d, -179.8d, 180.0d };
+        for (int i = 0; i < bearings.length; i++) {
+            addFrame(est, i * DT, 170.0d + (5.0d * i), bearings[i], TY);
+        }
+        assertEquals(180.0d, Math.abs(Math.toDegrees(est.getBearing())), 1.0e-6d);
+        assertTrue(est.getSpread() < 0.25d);
+        assertTrue(est.isReady());
+    }
+
+    /**
+     * With frames that agree, the route is the one the calculator
+     * gives for any of them
+     */
+    @Test
+    public void testRoute() {
+        System.out.println("route");
+        final double camOffset = -7.0d;
+        final double heading = 40.0d;
+        final Vec2d targNorm = Vec2d.makeCart(0.0d, -1.0d);
+        TargetCalculator calc = new TargetCalculator(10.5d, 20.0d, Limelight.V_FOV);
+        TargetEstimator est = new TargetEstimator();
+        for (int i = 0; i < 3; i++) {
+            addFrame(est, i * DT, heading, BEARING, TY);
+        }
+        assertTrue(est.isReady());
+        RouteToTarget rte = est.getRoute(calc, camOffset, targNorm, 34.125d, 12.0d);
+
+        Vec2d robotVec = Vec2d.makePolar(1.0d, Math.toRadians(heading));
+        RouteToTarget exp = calc.getRouteToTarget(heading - BEARING, TY, robotVec,
+            robotVec.getNormal().mulScalar(-camOffset), targNorm, 34.125d, 12.0d);
+        assertTrue(rte.getTargetDirectVec().sub(exp.getTargetDirectVec()).getR() < 1.0e-6d);
+        assertTrue(rte.getInterceptVec().sub(exp.getInterceptVec()).getR() < 1.0e-6d);
+        assertTrue(rte.getNormalVec().sub(exp.getNormalVec()).getR() < 1.0e-6d);
+        assertEquals(1.0d, rte.getConfidence(), EPS);
+        assertEquals(1.0d, exp.getConfidence(), EPS);
+
+        // The allocation-free form gives the same route
+        MutableVec2d target = new MutableVec2d();
+        MutableVec2d intercept = new MutableVec2d();
+        MutableVec2d normal = new MutableVec2d();
+        est.getRoute(calc, camOffset, targNorm, 34.125d, 12.0d, target, intercept, normal);
+        assertEquals(rte.getTargetDirectVec().getX(), target.getX(), 1.0e-9d);
+        assertEquals(rte.getTargetDirectVec().getY(), target.getY(), 1.0e-9d);
+        assertEquals(rte.getInterceptVec().getX(), intercept.getX(), 1.0e-9d);
+        assertEquals(rte.getInterceptVec().getY(), intercept.getY(), 1.0e-9d);
+        assertEquals(rte.getNormalVec().getX(), normal.getX(), 1.0e-9d);
+        assertEquals(rte.getNormalVec().getY(), normal.getY(), 1.0e-9d);
+    }
+
+    /**
+     * Frames the calculator can't range give no route
+     */
+    @Test
+    public void testRouteOutOfRange() {
+        System.out.println("routeOutOfRange");
+        final Vec2d targNorm = Vec2d.makeCart(0.0d, -1.0d);
+        TargetCalculator calc = new TargetCalculator(10.5d, 20.0d, Limelight.V_FOV);
+        TargetEstimator est = new TargetEstimator();
+        for (int i = 0; i < 3; i++) {
+            addFrame(est, i * DT, 40.0d, BEARING, -22.0d);
+        }
+        assertTrue(est.isReady());
+        assertNull(est.getRoute(calc, -7.0d, targNorm, 34.125d, 12.0d));
+
+        MutableVec2d target = new MutableVec2d(1.0d, 2.0d);
+        MutableVec2d intercept = new MutableVec2d();
+        MutableVec2d normal = new MutableVec2d();
+        assertFalse(est.getRoute(calc, -7.0d, targNorm, 34.125d, 12.0d, target, intercept, normal));
+        assertEquals(1.0d, target.getX(), EPS);
+        assertEquals(2.0d, target.getY(), EPS);
+    }
+
+    /**
+     * With the odometry seeded at a heading other than the gyro's, a map
+     * target's normal rotated into Nav's frame, and the route rotated back
+     * into the odometry's, leads to the right place on the map -- as
+     * DriveRouteToTarget does it
+     */
+    @Test
+    public void testSeededHeading() {
+        System.out.println("seededHeading");
+        final double camOffset = -7.0d;
+        final double normDist = 12.0d;
+        final FieldTarget target = new FieldTarget("BlueShipFrontLeft", 220.25d, 172.875d,
+                                                   180.0d, 34.125d);
+        TargetCalculator calc = new TargetCalculator(10.5d, 20.0d, Limelight.V_FOV);
+
+        // Gyro says +Y when we start at the blue center, facing the red wall
+        DiffDriveOdometry odo = new DiffDriveOdometry();
+        odo.update(0.0d, 0.0d, Math.PI / 2.0d);
+        odo.reset(66.0d, 162.0d, 0.0d);
+        double navHeading = (Math.PI / 2.0d) + 0.2d;
+        odo.update(0.0d, 0.0d, navHeading);
+        double offset = odo.getHeadingOffset();
+        assertEquals(-Math.PI / 2.0d, offset, EPS);
+        assertEquals(0.2d, odo.getHeading(), EPS);
+
+        // What the camera sees, worked out on the map
+        Vec2d robot = Vec2d.makeCart(odo.getX(), odo.getY());
+        Vec2d camVec = Vec2d.makePolar(1.0d, odo.getHeading()).getNormal().mulScalar(-camOffset);
+        Vec2d lensToTarget = target.getPosition().sub(robot.sub(camVec));
+        double tx = Math.toDegrees(odo.getHeading() - lensToTarget.getTheta());
+        double ty = Math.toDegrees(Math.atan((target.getHeight() - 10.5d) / lensToTarget.getR()))
+            - 20.0d;
+
+        TargetEstimator est = new TargetEstimator();
+        for (int i = 0; i < 3; i++) {
+            est.add(i * DT, navHeading, tx, ty);
+        }
+        assertTrue(est.isReady());
+        RouteToTarget rte = est.getRoute(calc, camOffset, target.getNormal().rotate(-offset),
+                                         target.getHeight(), normDist);
+
+        Vec2d intercept = rte.getInterceptVec().rotate(offset);
+        Vec2d normal = rte.getNormalVec().rotate(offset);
+        Vec2d expIntercept = target.getPosition().add(target.getNormal().mulScalar(normDist));
+        assertTrue(robot.add(intercept).sub(expIntercept).getR() < 0.05d);
+        assertTrue(normal.sub(target.getNormal().mulScalar(-normDist)).getR() < 1.0e-6d);
+        assertTrue(robot.add(intercept).add(normal).sub(target.getPosition()).getR() < 0.05d);
+
+        // Mixing the frames instead puts the robot somewhere else entirely
+        assertTrue(robot.add(rte.getInterceptVec()).sub(expIntercept).getR() > 50.0d);
+    }
+
+    /**
+     * Bad settings and routes without frames are rejected
+     */
+    @Test
+    public void testErrors() {
+        System.out.println("errors");
+        try {
+            new TargetEstimator(2, 3, 0.25d, 0.25d, TargetEstimator.Filter.eMedian, true);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new TargetEstimator(10, 0, 0.25d, 0.25d, TargetEstimator.Filter.eMedian, true);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new TargetEstimator(10, 3, 0.0d, 0.25d, TargetEstimator.Filter.eMedian, true);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new TargetEstimator().getRoute(new TargetCalculator(10.5d, 20.0d, Limelight.V_FOV), 0.0d,
+                Vec2d.makeCart(0.0d, -1.0d), 34.125d, 12.0d);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import java.io.StringReader;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class TargetNormalRegistryTest {
+
+    public static final double EPS = 0.000001d;
+
+    // The hard-coded tables TargetVecMapper used before the registry:
+    // {minYaw, maxYaw, normal angle}, first match wins
+    static final double[][] OLD_STD = {
+        {-45.0, 45.0, -90.0},
+        {45.0, 135.0, 180.0},
+        {135.0, 180.0, 90.0},
+        {-180.0, -135.0, 90.0},
+        {-135.0, -45.0, 0.0}
+    };
+    static final double[][] OLD_ROCKET = {
+        {0.0, 90.0, -119.0},
+        {90.0, 180.0, 119.0},
+        {-90.0, 0.0, -61.0},
+        {-180.0, -90.0, 61.0}
+    };
+
+    public TargetNormalRegistryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static double oldNormal(double[][] mapping, double yaw) {
+        for (double[] mpg : mapping) {
+            if ((yaw >= mpg[0]) && (yaw <= mpg[1])) {
+                return mpg[2];
+            }
+        }
+        throw new RuntimeException("no target for yaw " + yaw);
+    }
+
+    private static void checkLoadFails(String contents) throws Exception {
+        try {
+            TargetNormalRegistry.load(new StringReader(contents));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * The deployed file gives the same normals as the old tables,
+     * away from the range boundaries
+     */
+    @Test
+    public void testDeployedTargets() {
+        System.out.println("deployedTargets");
+        TargetNormalRegistry reg = TargetVecMapper.getRegistry();
+        assertTrue(reg.getFamilyNames().contains(TargetVecMapper.STD_FAMILY));
+        assertTrue(reg.getFamilyNames().contains(TargetVecMapper.ROCKET_FAMILY));
+        for (double yaw = -179.5d; yaw < 180.0d; yaw += 1.0d) {
+            Vec2d std = Vec2d.makePolar(1.0d, Math.toRadians(oldNormal(OLD_STD, yaw)));
+            Vec2d rocket = Vec2d.makePolar(1.0d, Math.toRadians(oldNormal(OLD_ROCKET, yaw)));
+            Vec2d n = TargetVecMapper.getStdTargNorm(yaw);
+            assertEquals(std.getX(), n.getX(), EPS);
+            assertEquals(std.getY(), n.getY(), EPS);
+            n = TargetVecMapper.getRocketTargNorm(yaw);
+            assertEquals(rocket.getX(), n.getX(), EPS);
+            assertEquals(rocket.getY(), n.getY(), EPS);
+        }
+    }
+
+    /**
+     * Lookups cover any heading, including the ends and beyond
+     */
+    @Test
+    public void testLookup() throws Exception {
+        System.out.println("lookup");
+        TargetNormalRegistry reg = TargetNormalRegistry.load(new StringReader(
+            "# two halves\n\nhalf, -180, 0, 0\nhalf , 0 , 180 , 90\n"));
+        TargetNormalRegistry.Family half = reg.getFamily("half");
+        assertEquals("half", half.getName());
+        assertEquals(1.0d, half.getNormal(-180.0d).getX(), EPS);
+        assertEquals(1.0d, half.getNormal(-0.001d).getX(), EPS);
+        assertEquals(1.0d, half.getNormal(0.0d).getY(), EPS);
+        assertEquals(1.0d, half.getNormal(179.999d).getY(), EPS);
+        // 180 is -180
+        assertEquals(1.0d, half.getNormal(180.0d).getX(), EPS);
+        assertEquals(1.0d, half.getNormal(270.0d).getX(), EPS);
+        assertEquals(1.0d, half.getNormal(-270.0d).getY(), EPS);
+        assertEquals(1.0d, half.getNormal(720.5d).getY(), EPS);
+        try {
+            half.getNormal(Double.NaN);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            reg.getFamily("cargo");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Loading rejects gaps, overlaps and malformed lines
+     */
+    @Test
+    public void testValidation() throws Exception {
+        System.out.println("validation");
+        checkLoadFails("gap, -180, 0, 0\ngap, 1, 180, 90\n");
+        checkLoadFails("overlap, -180, 10, 0\noverlap, 0, 180, 90\n");
+        checkLoadFails("partial, -180, 0.5, 0\npartial, 0.5, 180, 90\n");
+        checkLoadFails("backwards, 180, -180, 0\n");
+        checkLoadFails("wide, -180, 190, 0\n");
+        checkLoadFails("short, -180, 180\n");
+        checkLoadFails("text, -180, 180, north\n");
+        // One good family doesn't excuse a bad one
+        checkLoadFails("good, -180, 180, 0\nbad, -180, 170, 0\n");
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import java.util.Random;
+
+import frc.subsystems.Nav;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Accuracy of the Trig lookup tables against java.lang.Math
+ * @author lwa
+ */
+public class TrigTest {
+
+    static final int SAMPLES = 200000;
+
+    public TrigTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+        Trig.setUseTables(false);
+    }
+
+    /**
+     * sin and cos over several turns in both directions
+     */
+    @Test
+    public void testSinCos() {
+        System.out.println("sinCos");
+        Random rand = new Random(4169);
+        double maxErr = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            double a = (rand.nextDouble() - 0.5d) * 8.0d * Math.PI;
+            maxErr = Math.max(maxErr, Math.abs(Trig.tableSin(a) - Math.sin(a)));
+            maxErr = Math.max(maxErr, Math.abs(Trig.tableCos(a) - Math.cos(a)));
+        }
+        System.out.println("max sin/cos error " + maxErr);
+        assertTrue(maxErr <= Trig.SIN_MAX_ERROR);
+
+        // Exact at the table points we care most about
+        assertEquals(0.0d, Trig.tableSin(0.0d), Trig.SIN_MAX_ERROR);
+        assertEquals(1.0d, Trig.tableSin(Math.PI / 2.0d), Trig.SIN_MAX_ERROR);
+        assertEquals(-1.0d, Trig.tableCos(-Math.PI), Trig.SIN_MAX_ERROR);
+
+        // Huge arguments fall back to Math
+        assertEquals(Math.sin(1.0e9d), Trig.tableSin(1.0e9d), 0.0d);
+    }
+
+    /**
+     * tan over the range the camera geometry uses (well inside +-pi/2)
+     */
+    @Test
+    public void testTan() {
+        System.out.println("tan");
+        Random rand = new Random(4169);
+        double maxRelErr = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            double a = (rand.nextDouble() - 0.5d) * Math.toRadians(150.0d);
+            double exact = Math.tan(a);
+            double err = Math.abs(Trig.tableTan(a) - exact) / Math.max(1.0d, Math.abs(exact));
+            maxRelErr = Math.max(maxRelErr, err);
+        }
+        System.out.println("max tan relative error " + maxRelErr);
+        assertTrue(maxRelErr <= 1.0e-5d);
+    }
+
+    /**
+     * atan2 in all four quadrants, on the axes and at the special cases
+     */
+    @Test
+    public void testAtan2() {
+        System.out.println("atan2");
+        Random rand = new Random(4169);
+        double maxErr = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = (rand.nextDouble() - 0.5d) * 1000.0d;
+            double y = (rand.nextDouble() - 0.5d) * 1000.0d;
+            maxErr = Math.max(maxErr, Math.abs(Trig.tableAtan2(y, x) - Math.atan2(y, x)));
+        }
+        System.out.println("max atan2 error " + maxErr);
+        assertTrue(maxErr <= Trig.ATAN_MAX_ERROR);
+
+        double[][] special = {
+            {0.0d, 1.0d}, {1.0d, 0.0d}, {0.0d, -1.0d}, {-1.0d, 0.0d},
+            {1.0d, 1.0d}, {-1.0d, -1.0d}, {0.0d, 0.0d}, {-0.0d, -1.0d}
+        };
+        for (double[] yx : special) {
+            assertEquals(Math.atan2(yx[0], yx[1]), Trig.tableAtan2(yx[0], yx[1]), Trig.ATAN_MAX_ERROR);
+        }
+    }
+
+    /**
+     * The switch routes Vec2d and Nav through the tables, and the results
+     * stay within the table error of the Math results
+     */
+    @Test
+    public void testSwitch() {
+        System.out.println("switch");
+        Trig.setUseTables(false);
+        Vec2d mathVec = Nav.yawToVec(-150.0d);
+        Trig.setUseTables(true);
+        assertTrue(Trig.isUsingTables());
+        Vec2d tableVec = Nav.yawToVec(-150.0d);
+        assertEquals(mathVec.getX(), tableVec.getX(), Trig.SIN_MAX_ERROR);
+        assertEquals(mathVec.getY(), tableVec.getY(), Trig.SIN_MAX_ERROR);
+        Vec2d cart = Vec2d.makeCart(-3.0d, -4.0d);
+        assertEquals(Math.atan2(-4.0d, -3.0d), cart.getTheta(), Trig.ATAN_MAX_ERROR);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 lwa.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package frc.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author lwa
+ */
+public class Vec2dBatchTest {
+    /**
+     * Relative error for most reasonable size doubles
+     */
+    public static final double EPS = 0.00001d;
+
+    private Vec2d[] m_vecs;
+    private Vec2dBatch m_batch;
+
+    public Vec2dBatchTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        m_vecs = new Vec2d[] {
+            Vec2d.ZERO,
+            Vec2d.makeCart(3.0d, 4.0d),
+            Vec2d.makeCart(-5.0d, 12.0d),
+            Vec2d.makePolar(2.0d, 5.0d*Math.PI/4.0d),
+            Vec2d.makeCart(0.0d, -1.0d)
+        };
+        m_batch = Vec2dBatch.of(m_vecs);
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test conversion to and from Vec2d, and growing past the capacity
+     */
+    @Test
+    public void testConversion() {
+        System.out.println("conversion");
+        assertEquals(m_vecs.length, m_batch.size());
+        Vec2d[] back = m_batch.toArray();
+        for (int i = 0; i < m_vecs.length; i++) {
+            assertEquals(m_vecs[i], back[i]);
+            assertEquals(m_vecs[i], m_batch.get(i));
+        }
+
+        Vec2dBatch grown = new Vec2dBatch(0);
+        for (int i = 0; i < 100; i++) {
+            grown.append(Vec2d.makeCart(i, -i));
+        }
+        assertEquals(100, grown.size());
+        assertEquals(Vec2d.makeCart(99.0d, -99.0d), grown.get(99));
+        MutableVec2d dst = new MutableVec2d();
+        assertEquals(-42.0d, grown.get(42, dst).getY(), EPS);
+
+        grown.clear();
+        assertEquals(0, grown.size());
+    }
+
+    /**
+     * Test that the bulk operations agree with the Vec2d ones
+     */
+    @Test
+    public void testBulkOps() {
+        System.out.println("bulkOps");
+        Vec2d a = Vec2d.makeCart(1.5d, -2.0d);
+
+        Vec2dBatch b = Vec2dBatch.of(m_vecs);
+        b.add(a);
+        for (int i = 0; i < m_vecs.length; i++) {
+            assertTrue(m_vecs[i].add(a).isNear(b.get(i), EPS));
+        }
+
+        b = Vec2dBatch.of(m_vecs);
+        b.sub(a);
+        for (int i = 0; i < m_vecs.length; i++) {
+            assertTrue(m_vecs[i].sub(a).isNear(b.get(i), EPS));
+        }
+
+        b = Vec2dBatch.of(m_vecs);
+        b.mulScalar(-3.0d);
+        for (int i = 0; i < m_vecs.length; i++) {
+            assertEquals(m_vecs[i].mulScalar(-3.0d), b.get(i));
+        }
+
+        b = Vec2dBatch.of(m_vecs);
+        b.addAll(m_batch);
+        b.subAll(m_batch);
+        b.subAll(m_batch);
+        b.subAll(m_batch);
+        for (int i = 0; i < m_vecs.length; i++) {
+            assertEquals(m_vecs[i].negate(), b.get(i));
+        }
+
+        double[] dots = m_batch.dotProduct(a, new double[m_vecs.length]);
+        double[] norms = m_batch.norm(new double[m_vecs.length]);
+        double[] selfDots = m_batch.dotProduct(m_batch, new double[m_vecs.length]);
+        for (int i = 0; i < m_vecs.length; i++) {
+            assertEquals(m_vecs[i].dotProduct(a), dots[i], EPS);
+            assertEquals(m_vecs[i].getR(), norms[i], EPS);
+            assertEquals(norms[i] * norms[i], selfDots[i], EPS);
+        }
+    }
+
+    /**
+     * Test of rotate: lengths are kept and angles advance counterclockwise
+     */
+    @Test
+    public void testRotate() {
+        System.out.println("rotate");
+        Vec2dBatch b = Vec2dBatch.of(m_vecs);
+        b.rotate(Math.PI / 2.0d);
+        assertEquals(Vec2d.makeCart(-4.0d, 3.0d).getX(), b.getX(1), EPS);
+        assertEquals(Vec2d.makeCart(-4.0d, 3.0d).getY(), b.getY(1), EPS);
+        for (int i = 0; i < m_vecs.length; i++) {
+            assertEquals(m_vecs[i].getR(), b.get(i).getR(), EPS);
+            // Rotating a vector the other way by 90 deg is getNormal()
+            assertTrue(m_vecs[i].isNear(b.get(i).getNormal(), EPS));
+        }
+    }
+
+    /**
+     * Test that mismatched sizes are rejected
+     */
+    @Test
+    public void testSizeMismatch() {
+        System.out.println("sizeMismatch");
+        try {
+            m_batch.addAll(new Vec2dBatch(2));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            m_batch.norm(new double[1]);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
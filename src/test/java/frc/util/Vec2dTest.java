@@ -252,6 +252,55 @@ public class Vec2dTest {
     assertEquals(0.0d, dotProd, EPS);
   }
 
+  /**
+   * Test of rotate() method, of class Vec2d
+   */
+  @Test
+  public void testRotate() {
+    System.out.println("rotate");
+    Vec2d i = Vec2d.makeCart(1.0d, 0.0d);
+    Vec2d result = i.rotate(Math.PI / 2.0d);
+    assertTrue(result.sub(Vec2d.makeCart(0.0d, 1.0d)).getR() < EPS);
+    result = i.rotate(-Math.PI / 2.0d);
+    assertTrue(result.sub(i.getNormal()).getR() < EPS);
+
+    Vec2d v = Vec2d.makeCart(3.0d, -4.0d);
+    result = v.rotate(2.5d);
+    assertEquals(5.0d, result.getR(), EPS);
+    assertEquals(Math.IEEEremainder(v.getTheta() + 2.5d, 2.0d * Math.PI), result.getTheta(), EPS);
+    assertTrue(result.rotate(-2.5d).sub(v).getR() < EPS);
+  }
+
+  /**
+   * Test that the carried (or kept) polar form agrees with the cartesian
+   * form, including for vectors derived from a polar vector, or from a
+   * cartesian one whose polar form has been computed.
+   */
+  @Test
+  public void testPolarCache() {
+    System.out.println("polarCache");
+    Vec2d polar = Vec2d.makePolar(2.0d, 5.0d*Math.PI/4.0d);
+    Vec2d cart = Vec2d.makeCart(polar.getX(), polar.getY());
+    assertEquals(-3.0d*Math.PI/4.0d, polar.getTheta(), EPS);
+    assertEquals(cart.getTheta(), polar.getTheta(), EPS);
+    assertEquals(cart.getR(), polar.getR(), EPS);
+
+    // Repeated calls return the same (kept) value
+    assertEquals(cart.getTheta(), cart.getTheta(), 0.0d);
+    assertEquals(cart.getR(), cart.getR(), 0.0d);
+
+    Vec2d[] derived = { polar.mulScalar(3.0d), polar.mulScalar(-0.5d),
+                        polar.negate(), polar.getNormal(), polar.mulScalar(0.0d),
+                        cart.mulScalar(3.0d), cart.mulScalar(-0.5d), cart.negate(),
+                        cart.getNormal() };
+    for (Vec2d v : derived) {
+      Vec2d c = Vec2d.makeCart(v.getX(), v.getY());
+      assertEquals(c.getR(), v.getR(), EPS);
+      assertEquals(c.getTheta(), v.getTheta(), EPS);
+      assertTrue((v.getTheta() >= -Math.PI) && (v.getTheta() <= Math.PI));
+    }
+  }
+
     /**
      * Test of hashCode method, of class Vec2d.
      */